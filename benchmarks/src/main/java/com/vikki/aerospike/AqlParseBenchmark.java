@@ -0,0 +1,73 @@
+package com.vikki.aerospike;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and compiling AQL statements. {@link #compile} goes through {@link AqlPlan#compile}
+ * without the plan cache, i.e. the cost of a statement the cache has not seen yet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AqlParseBenchmark {
+
+    private static final String SELECT = "SELECT name, age, city FROM test.bench "
+            + "WHERE age BETWEEN 18 AND 30 AND (city IN ('Berlin', 'Lima') OR name LIKE 'user a%') LIMIT 100";
+    private static final String INSERT = "INSERT INTO test.bench (PK, name, age, score, active) "
+            + "VALUES ('user-1', 'Ada', 36, 99.5, true), ('user-2', \"Grace\", 45, 120.25, false)";
+    private static final String UPDATE = "UPDATE test.bench SET score = 12.5, city = 'Osaka', visits = 7 "
+            + "WHERE PK = 'user-1'";
+
+    @Param({"SELECT", "INSERT", "UPDATE"})
+    public String statement;
+
+    private String aql;
+
+    @Setup
+    public void setUp() {
+        switch (statement) {
+            case "SELECT":
+                aql = SELECT;
+                break;
+            case "INSERT":
+                aql = INSERT;
+                break;
+            default:
+                aql = UPDATE;
+                break;
+        }
+    }
+
+    @Benchmark
+    public AqlAst.Statement parse() {
+        return AqlParser.parse(aql);
+    }
+
+    @Benchmark
+    public AqlPlan compile() {
+        return AqlPlan.compile(aql);
+    }
+
+    /**
+     * Literal values of every kind, which is what the old per-value parser used to do.
+     */
+    @Benchmark
+    public AqlAst.Predicate parseValues() {
+        return AqlParser.parsePredicate("a = 'text' OR b = \"quoted\" OR c = -42 OR d = 3.25 OR e = TRUE OR f = NULL");
+    }
+}
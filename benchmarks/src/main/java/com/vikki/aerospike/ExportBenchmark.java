@@ -0,0 +1,75 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copy/save of the table as CSV or JSON, both from plain maps and from the paged store the
+ * table is backed by.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"1000", "20000"})
+    public int records;
+
+    private List<Map<String, Object>> rows;
+    private PagedResultStore store;
+    private PagedRecordList table;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Key[] keys = SyntheticData.keys(records);
+        Record[] data = SyntheticData.records(records, 20, 7);
+        rows = SyntheticData.rows(keys, data);
+        store = SyntheticData.store(keys, data);
+        table = new PagedRecordList(store);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.close();
+    }
+
+    @Benchmark
+    public String csvFromMaps() {
+        return AerospikeExplorer.convertToCsv(rows);
+    }
+
+    @Benchmark
+    public String jsonFromMaps() {
+        return AerospikeExplorer.convertToJson(rows);
+    }
+
+    @Benchmark
+    public String csvFromTable() {
+        return AerospikeExplorer.convertToCsv(table);
+    }
+
+    @Benchmark
+    public String jsonFromTable() {
+        return AerospikeExplorer.convertToJson(table);
+    }
+}
@@ -0,0 +1,100 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The path from scanned records to the result table: converting records into store rows,
+ * discovering the columns, and the table's search filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResultStoreBenchmark {
+
+    @Param({"10000", "100000"})
+    public int records;
+
+    @Param({"0", "50"})
+    public int optionalBins;
+
+    private Key[] keys;
+    private Record[] data;
+    private PagedResultStore filled;
+    private PagedRecordList list;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = SyntheticData.keys(records);
+        data = SyntheticData.records(records, optionalBins, 42);
+        filled = SyntheticData.store(keys, data);
+        list = new PagedRecordList(filled);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        filled.close();
+    }
+
+    /**
+     * Record-to-row conversion as done for every scanned record.
+     */
+    @Benchmark
+    public int appendRecords() {
+        try (PagedResultStore store = SyntheticData.store(keys, data)) {
+            return store.size();
+        }
+    }
+
+    /**
+     * Column discovery: every bin name is interned into the schema on the way in.
+     */
+    @Benchmark
+    public List<String> discoverColumns() {
+        ResultSchema schema = new ResultSchema();
+        for (Record record : data) {
+            for (String bin : record.bins.keySet()) {
+                schema.idOf(bin);
+            }
+        }
+        return schema.getNames();
+    }
+
+    /**
+     * The table's search box; after the first run the pages' lower-case row text is cached.
+     */
+    @Benchmark
+    public int searchFilter() {
+        list.setSearchText("berlin");
+        int matches = list.size();
+        list.setSearchText(null);
+        return matches;
+    }
+
+    @Benchmark
+    public int searchFilterNoMatch() {
+        list.setSearchText("no such value");
+        int matches = list.size();
+        list.setSearchText(null);
+        return matches;
+    }
+}
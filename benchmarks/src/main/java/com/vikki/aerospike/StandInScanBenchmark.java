@@ -0,0 +1,94 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.ClientPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The explorer's scan and batch engines end to end through the real client, against a
+ * {@link StandInAerospikeServer} in the same JVM. {@code latencyMicros} adds a per-request
+ * delay (with half as much jitter) to approximate a remote cluster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StandInScanBenchmark {
+
+    private static final int PAGE_SIZE = 1000;
+
+    @Param({"100000"})
+    public int records;
+
+    @Param({"0", "500"})
+    public long latencyMicros;
+
+    private StandInAerospikeServer server;
+    private AerospikeClient client;
+    private PartitionScanEngine engine;
+    private BatchKeyReader reader;
+    private Key[] batchKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = new StandInAerospikeServer(0, SyntheticData.NAMESPACE).start();
+        SyntheticData.load(server, records, 20);
+        server.setLatency(latencyMicros, latencyMicros / 2);
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+        engine = new PartitionScanEngine(client);
+        reader = new BatchKeyReader(client);
+        batchKeys = SyntheticData.keys(Math.min(records, 5000));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long fullScan() {
+        LongAdder count = new LongAdder();
+        engine.newScan(SyntheticData.NAMESPACE, SyntheticData.SET, null).run((key, record) -> count.increment(), null);
+        return count.sum();
+    }
+
+    /**
+     * Browsing the whole set a page at a time, as the result table does.
+     */
+    @Benchmark
+    public long pagedBrowse() {
+        PartitionScanEngine.PageCursor cursor = engine.newPageCursor(SyntheticData.NAMESPACE, SyntheticData.SET, null);
+        long total = 0;
+        while (!cursor.isDone()) {
+            total += cursor.nextPage(PAGE_SIZE, (key, record) -> {
+            });
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Record[] batchGet() {
+        return reader.get(null, batchKeys, null);
+    }
+}
@@ -2,21 +2,25 @@ package com.vikki.aerospike;
 
 import com.aerospike.client.AerospikeClient;
 import com.aerospike.client.AerospikeException;
-import com.aerospike.client.Bin;
 import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.Policy;
 import com.aerospike.client.policy.QueryPolicy;
-import com.aerospike.client.policy.WritePolicy;
-import com.aerospike.client.query.Filter;
-import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.ResultSet;
 import com.aerospike.client.query.Statement;
 import javafx.application.Platform;
 import javafx.scene.control.Label;
 import javafx.scene.control.ProgressBar;
-import javafx.scene.control.RadioButton;
 import javafx.scene.control.TableView;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AerospikeDataManipulation {
 
@@ -26,9 +30,18 @@ public class AerospikeDataManipulation {
     private final TableView<Map<String, Object>> dataTableView;
     private final ProgressBar progressBar;
     private final Label overallStatusLabel; // For overall query execution status
-    private final RadioButton tableOutputRadio;
-    private final RadioButton jsonOutputRadio;
     private SelectResultCallback selectResultCallback;
+    private SindexCatalog sindexCatalog;
+    private AsyncAerospike asyncClient;
+    private volatile boolean cancelled;
+    private volatile PagedRecordList pendingResults;
+    private volatile BulkDeleteEngine activeDelete;
+    private volatile BulkLoader activeLoader;
+    private volatile AggregationEngine activeAggregation;
+    private volatile ResultSet activeStream;
+    private volatile LoadTestEngine activeLoadTest;
+    private volatile PagedRecordList shownResults; // Last list passed to showResults, cached by SELECT
+    private UdfManager udfManager;
 
     public interface SelectResultCallback {
         void onResult(List<Map<String, Object>> results);
@@ -39,15 +52,49 @@ public class AerospikeDataManipulation {
         this.selectResultCallback = callback;
     }
 
+    /**
+     * Shares the connection's index catalog so plans don't re-read index info every run.
+     */
+    public void setSindexCatalog(SindexCatalog catalog) {
+        this.sindexCatalog = catalog;
+    }
+
+    /**
+     * Non-blocking client of the connection; statements are sent through it so several can
+     * be in flight at once.
+     */
+    public void setAsyncClient(AsyncAerospike asyncClient) {
+        this.asyncClient = asyncClient;
+    }
+
+    /**
+     * Shares the connection's UDF modules so the built-in library is checked once.
+     */
+    public void setUdfManager(UdfManager udfManager) {
+        this.udfManager = udfManager;
+    }
+
+    private UdfManager udfManager() {
+        if (udfManager == null) {
+            udfManager = new UdfManager(client);
+        }
+        return udfManager;
+    }
+
+    private SindexCatalog sindexCatalog() {
+        if (sindexCatalog == null) {
+            sindexCatalog = new SindexCatalog(client);
+        }
+        return sindexCatalog;
+    }
+
     public AerospikeDataManipulation(
             AerospikeClient client,
             ExecutorService executor,
             Label statusLabel,
             TableView<Map<String, Object>> dataTableView,
             ProgressBar progressBar,
-            Label overallStatusLabel,
-            RadioButton tableOutputRadio,
-            RadioButton jsonOutputRadio
+            Label overallStatusLabel
     ) {
         this.client = client;
         this.executor = executor;
@@ -55,443 +102,544 @@ public class AerospikeDataManipulation {
         this.dataTableView = dataTableView;
         this.progressBar = progressBar;
         this.overallStatusLabel = overallStatusLabel;
-        this.tableOutputRadio = tableOutputRadio;
-        this.jsonOutputRadio = jsonOutputRadio;
     }
 
-    public void executeAqlManipulation(String aql) {
+    /**
+     * Runs {@code aql} without blocking the caller. The returned future completes once the
+     * outcome has been shown, whether the statement succeeded, failed or was cancelled.
+     */
+    public CompletableFuture<Void> executeAqlManipulation(String aql) {
+        return executeAqlManipulation(aql, false);
+    }
+
+    /**
+     * As {@link #executeAqlManipulation(String)}; with {@code refresh} a SELECT goes to the
+     * cluster even when the {@link ResultCache} holds its result.
+     */
+    public CompletableFuture<Void> executeAqlManipulation(String aql, boolean refresh) {
+        CompletableFuture<Void> finished = new CompletableFuture<>();
         if (client != null && client.isConnected() && aql != null && !aql.trim().isEmpty()) {
             executor.submit(() -> {
+                AqlPlan plan;
+                CompletableFuture<Runnable> done;
                 try {
-                    String trimmedAql = aql.trim();
-                    String command = trimmedAql.split("\\s+")[0].toUpperCase();
+                    plan = AqlPlanCache.shared().get(aql);
+                    String command = plan.getKind().name();
 
                     Platform.runLater(() -> {
                         progressBar.setVisible(true);
                         overallStatusLabel.setText("Executing: " + command + "...");
                     });
 
-                    if (command.equals("SELECT")) {
-                        executeAqlSelect(trimmedAql);
-                    } else if (command.equals("INSERT")) {
-                        executeAqlInsert(trimmedAql);
-                    } else if (command.equals("DELETE")) {
-                        executeAqlDelete(trimmedAql);
-                    } else if (command.equals("UPDATE")) {
-                        executeAqlUpdate(trimmedAql);
-                    } else {
-                        Platform.runLater(() -> {
-                            overallStatusLabel.setText("Unsupported AQL command: " + command);
-                            progressBar.setVisible(false);
-                        });
+                    // Reads and single writes only queue a command here; the future
+                    // completes on an event loop and this thread is free right away.
+                    switch (plan.getKind()) {
+                        case SELECT:
+                            done = executeCachedSelect(plan, refresh);
+                            break;
+                        case INSERT:
+                            done = executeAqlInsert(plan);
+                            break;
+                        case DELETE:
+                            done = executeAqlDelete(plan);
+                            break;
+                        case AGGREGATE:
+                            done = executeStreamAggregate(plan);
+                            break;
+                        case REGISTER:
+                            done = executeRegisterModule(plan);
+                            break;
+                        case GENERATE:
+                            done = CompletableFuture.completedFuture(executeGenerate(plan));
+                            break;
+                        case LOADTEST:
+                            done = CompletableFuture.completedFuture(executeLoadTest(plan));
+                            break;
+                        default:
+                            done = executeAqlUpdate(plan);
+                            break;
                     }
+                } catch (AqlSyntaxException e) {
+                    reportError("AQL Syntax Error: " + e.getLocatedMessage(), finished);
+                    return;
                 } catch (AerospikeException e) {
-                    Platform.runLater(() -> {
-                        overallStatusLabel.setText("AQL Execution Error: " + e.getMessage());
+                    if (cancelled) {
+                        reportError("Cancelled.", finished);
+                    } else {
+                        reportError("AQL Execution Error: " + e.getMessage(), finished);
+                        e.printStackTrace();
+                    }
+                    return;
+                } catch (RuntimeException e) {
+                    // E.g. a result spill that failed; the executor would swallow it and leave the run hanging
+                    reportError("AQL Execution Error: " + e, finished);
+                    e.printStackTrace();
+                    return;
+                }
+                if (plan.getKind() != AqlPlan.Kind.SELECT && plan.getKind() != AqlPlan.Kind.AGGREGATE
+                        && plan.getKind() != AqlPlan.Kind.REGISTER) {
+                    // Even a failed or cancelled write may have changed some records
+                    done.whenComplete((uiUpdate, error) ->
+                            ResultCache.shared().invalidate(plan.getNamespace(), plan.getSet()));
+                }
+                AsyncAerospike.onFxThread(done, (uiUpdate, error) -> {
+                    pendingResults = null;
+                    if (cancelled) {
+                        overallStatusLabel.setText(plan.getKind() + " cancelled.");
+                    } else if (error != null) {
+                        String message = errorPrefix(plan.getKind()) + error.getMessage();
+                        overallStatusLabel.setText(message);
                         if (selectResultCallback != null) {
-                            selectResultCallback.onError(e.getMessage());
+                            selectResultCallback.onError(message);
                         }
-                        progressBar.setVisible(false);
-                    });
-                    e.printStackTrace();
-                } finally {
-                    // Progress bar for non-SELECT commands is managed within each command's logic
-                    if (!aql.trim().toUpperCase().startsWith("SELECT")) {
-                        Platform.runLater(() -> progressBar.setVisible(false));
+                        error.printStackTrace();
+                    } else {
+                        uiUpdate.run();
                     }
-                }
+                    progressBar.setVisible(false);
+                    finished.complete(null);
+                });
             });
         } else if (client == null || !client.isConnected()) {
-            Platform.runLater(() -> overallStatusLabel.setText("Not connected to Aerospike."));
+            reportError("Not connected to Aerospike.", finished);
         } else {
-            Platform.runLater(() -> overallStatusLabel.setText("Empty AQL query."));
+            reportError("Empty AQL query.", finished);
         }
+        return finished;
     }
 
-    private void executeAqlSelect(String aql) {
-        executor.submit(() -> {
-            List<Map<String, Object>> results = new ArrayList<>();
-            Statement stmt = new Statement();
-            String[] parts = aql.split("(?i)\\s+FROM\\s+");
-            if (parts.length == 2) {
-                String selectClause = parts[0].trim();
-                String fromClause = parts[1].trim();
-                String[] fromParts = fromClause.split("(?i)\\s+WHERE\\s+");
-                String namespaceSet = fromParts[0].trim();
-                String whereClause = null;
-                if (fromParts.length == 2) {
-                    whereClause = fromParts[1].trim();
-                }
+    /**
+     * Stops the running statement: a query is terminated at its next record, bulk deletes
+     * and inserts stop sending batches, and a pending key read is discarded.
+     */
+    public void cancel() {
+        cancelled = true;
+        BulkDeleteEngine delete = activeDelete;
+        if (delete != null) {
+            delete.cancel();
+        }
+        BulkLoader loader = activeLoader;
+        if (loader != null) {
+            loader.cancel();
+        }
+        AggregationEngine aggregation = activeAggregation;
+        if (aggregation != null) {
+            aggregation.cancel();
+        }
+        ResultSet stream = activeStream;
+        if (stream != null) {
+            stream.close();
+        }
+        LoadTestEngine loadTest = activeLoadTest;
+        if (loadTest != null) {
+            loadTest.cancel();
+        }
+    }
 
-                String[] nsParts = namespaceSet.split("\\.");
-                if (nsParts.length == 2) {
-                    stmt.setNamespace(nsParts[0]);
-                    stmt.setSetName(nsParts[1]);
+    /**
+     * Rows received so far by a running SELECT; for an aggregate, the records folded so far.
+     */
+    public int getPendingRowCount() {
+        AggregationEngine aggregation = activeAggregation;
+        if (aggregation != null) {
+            return (int) Math.min(Integer.MAX_VALUE, aggregation.getRecordsRead());
+        }
+        PagedRecordList results = pendingResults;
+        return results != null ? results.getStore().size() : 0;
+    }
 
-                    if (selectClause.toUpperCase().equals("SELECT *")) {
-                        // Fetch all bins
-                        stmt.setBinNames(null); // Null means all bins
-                    } else {
-                        // Fetch specific bins
-                        String[] bins = selectClause.substring(6).trim().split(",");
-                        stmt.setBinNames(bins);
-                    }
+    private static String errorPrefix(AqlPlan.Kind kind) {
+        switch (kind) {
+            case SELECT:
+                return "AQL Query Error: ";
+            case INSERT:
+                return "Error inserting record: ";
+            case UPDATE:
+                return "Error updating record: ";
+            case AGGREGATE:
+                return "AQL Aggregate Error: ";
+            case REGISTER:
+                return "Error registering module: ";
+            case GENERATE:
+                return "Error generating records: ";
+            case LOADTEST:
+                return "Load test error: ";
+            default:
+                return "AQL Execution Error: ";
+        }
+    }
 
-                    if (whereClause != null && !whereClause.isEmpty()) {
-                        String[] whereCondition = whereClause.split("=");
-                        if (whereCondition.length == 2) {
-                            String binName = whereCondition[0].trim();
-                            String value = whereCondition[1].trim();
-                            if (value.startsWith("'") && value.endsWith("'")) {
-                                stmt.setFilter(Filter.equal(binName, value.substring(1, value.length() - 1)));
-                            } else if (value.matches("-?\\d+")) {
-                                stmt.setFilter(Filter.equal(binName, Integer.parseInt(value)));
-                            } else if (value.matches("-?\\d+(\\.\\d+)?")) {
-                                stmt.setFilter(Filter.equal(binName, (long) Double.parseDouble(value)));
-                            } else {
-                                Platform.runLater(() -> {
-                                    overallStatusLabel.setText("WHERE clause value must be a string, integer, or double.");
-                                    if (selectResultCallback != null) {
-                                        selectResultCallback.onError("WHERE clause value must be a string, integer, or double.");
-                                    }
-                                    progressBar.setVisible(false);
-                                });
-                                return;
-                            }
-                        } else {
-                            Platform.runLater(() -> {
-                                overallStatusLabel.setText("Invalid WHERE clause format.");
-                                if (selectResultCallback != null) {
-                                    selectResultCallback.onError("Invalid WHERE clause format.");
-                                }
-                                progressBar.setVisible(false);
-                            });
-                            return;
-                        }
-                    }
+    private void reportError(String message, CompletableFuture<Void> finished) {
+        Platform.runLater(() -> {
+            overallStatusLabel.setText(message);
+            if (selectResultCallback != null) {
+                selectResultCallback.onError(message);
+            }
+            progressBar.setVisible(false);
+            finished.complete(null);
+        });
+    }
 
-                    QueryPolicy queryPolicy = new QueryPolicy();
-//                    queryPolicy.executeMode = com.aerospike.client.query.ExecuteMode.ALL;
-
-                    try (RecordSet recordSet = client.query(queryPolicy, stmt)) {
-                        recordSet.forEach(record -> {
-                            Map<String, Object> recordData = new HashMap<>();
-                            recordData.put("Key", record.key.userKey != null ? record.key.userKey.toString() : null);
-                            recordData.put("Namespace", record.key.namespace);
-                            recordData.put("Set", record.key.setName);
-                            if (record.record != null) {
-                                recordData.put("Generation", record.record.generation);
-                                recordData.put("TTL", record.record.getTimeToLive());
-                                if (record.record.bins != null) {
-                                    recordData.putAll(record.record.bins);
-                                }
-                            }
-                            results.add(recordData);
-                        });
-                        if (selectResultCallback != null) {
-                            Platform.runLater(() -> {
-                                selectResultCallback.onResult(results);
-                                progressBar.setVisible(false);
-                            });
-                        }
-                    } catch (AerospikeException e) {
-                        Platform.runLater(() -> {
-                            overallStatusLabel.setText("AQL Query Error: " + e.getMessage());
-                            if (selectResultCallback != null) {
-                                selectResultCallback.onError(e.getMessage());
-                            }
-                            progressBar.setVisible(false);
-                        });
-                        e.printStackTrace();
+    private Runnable showResults(PagedRecordList results) {
+        shownResults = results;
+        return () -> {
+            if (selectResultCallback != null) {
+                selectResultCallback.onResult(results);
+            }
+        };
+    }
+
+    private CompletableFuture<Runnable> executeCachedSelect(AqlPlan plan, boolean refresh) {
+        ResultCache cache = ResultCache.shared();
+        String key = plan.getNormalizedText();
+        ResultCache.Hit hit = refresh ? null : cache.get(key);
+        if (hit != null) {
+            Runnable show = showResults(hit.getResults());
+            String message = hit.getResults().size() + " rows" + hit.describe() + ", use Re-run to read them again";
+            return CompletableFuture.completedFuture(() -> {
+                show.run();
+                overallStatusLabel.setText(message);
+            });
+        }
+        long generation = cache.generation();
+        return executeAqlSelect(plan).thenApply(uiUpdate -> {
+            PagedRecordList results = shownResults;
+            if (results != null && !cancelled) {
+                cache.put(key, plan.getNamespace(), plan.getSet(), generation, results.getStore());
+            }
+            return uiUpdate;
+        });
+    }
+
+    private CompletableFuture<Runnable> executeAqlSelect(AqlPlan plan) {
+        if (plan.isAggregation()) {
+            return executeAggregation(plan);
+        }
+        if (plan.isKeyLookup()) {
+            return executeKeyLookup(plan);
+        }
+        PagedRecordList results = new PagedRecordList(new PagedResultStore());
+        long offset = plan.getOffset();
+        long limit = plan.getLimit();
+        if (limit == 0) {
+            return CompletableFuture.completedFuture(showResults(results));
+        }
+        pendingResults = results;
+        QueryPlanner.Result planned = plan.resolve(sindexCatalog());
+        QueryPolicy queryPolicy = new QueryPolicy();
+//        queryPolicy.executeMode = com.aerospike.client.query.ExecuteMode.ALL;
+        queryPolicy.filterExp = planned.expression;
+        if (limit > 0) {
+            // The server stops each node at roughly its share; the exact cut is made below
+            queryPolicy.maxRecords = offset + limit;
+        }
+        Platform.runLater(() -> overallStatusLabel.setText("Executing: SELECT (" + planned.describe() + ")..."));
+
+        // Rows go straight into the columnar store; the list is handed to the UI afterwards
+        AtomicLong seen = new AtomicLong();
+        return asyncClient.query(queryPolicy, plan.newStatement(planned.filter),
+                (key, record) -> {
+                    if (cancelled) {
+                        throw new AerospikeException.QueryTerminated();
                     }
-                } else {
-                    Platform.runLater(() -> {
-                        overallStatusLabel.setText("Invalid FROM clause format (namespace.set expected).");
-                        if (selectResultCallback != null) {
-                            selectResultCallback.onError("Invalid FROM clause format (namespace.set expected).");
-                        }
-                        progressBar.setVisible(false);
-                    });
+                    long position = seen.getAndIncrement();
+                    if (position < offset) {
+                        return true;
+                    }
+                    if (limit > 0 && position >= offset + limit) {
+                        return false;
+                    }
+                    results.getStore().appendRecord(key, record);
+                    return limit < 0 || position + 1 < offset + limit;
+                })
+                .thenApply(count -> showResults(results));
+    }
+
+    // Aggregates fold records into group rows on their own workers, blocking this thread
+    private CompletableFuture<Runnable> executeAggregation(AqlPlan plan) {
+        PagedRecordList results = new PagedRecordList(new PagedResultStore());
+        AggregationEngine engine = new AggregationEngine(client, plan);
+        activeAggregation = engine;
+        if (cancelled) {
+            engine.cancel();
+        }
+        long offset = plan.getOffset();
+        long limit = plan.getLimit();
+        AtomicLong seen = new AtomicLong();
+        long startTime = System.currentTimeMillis();
+        AggregationEngine.RowSink sink = rows -> {
+            List<Map<String, Object>> kept = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                long position = seen.getAndIncrement();
+                if (position >= offset && (limit < 0 || position < offset + limit)) {
+                    kept.add(row);
                 }
+            }
+            results.getStore().appendAll(kept);
+        };
+        try {
+            if (plan.isKeyLookup()) {
+                BatchPolicy batchPolicy = new BatchPolicy();
+                batchPolicy.filterExp = plan.getKeyFilter();
+                engine.aggregate(new BatchKeyReader(client).get(batchPolicy, plan.getPrimaryKeys(), plan.getBinNames()), sink);
             } else {
-                Platform.runLater(() -> {
-                    overallStatusLabel.setText("Invalid SELECT query format.");
-                    if (selectResultCallback != null) {
-                        selectResultCallback.onError("Invalid SELECT query format.");
-                    }
-                    progressBar.setVisible(false);
-                });
+                QueryPlanner.Result planned = plan.resolve(sindexCatalog());
+                QueryPolicy queryPolicy = new QueryPolicy();
+                queryPolicy.filterExp = planned.expression;
+                Platform.runLater(() -> overallStatusLabel.setText("Executing: SELECT aggregate (" + planned.describe() + ")..."));
+                engine.run(queryPolicy, () -> plan.newStatement(planned.filter), sink);
             }
+        } finally {
+            activeAggregation = null;
+        }
+        String message = results.getStore().size() + " groups from " + engine.getRecordsRead() + " records in "
+                + (System.currentTimeMillis() - startTime) + " ms (client-side"
+                + (engine.getSpillCount() > 0 ? ", " + engine.getSpillCount() + " spills to disk" : "") + ")";
+        Runnable show = showResults(results);
+        return CompletableFuture.completedFuture(() -> {
+            show.run();
+            overallStatusLabel.setText(message);
         });
     }
 
-    private void executeAqlInsert(String aql) {
-        if (aql.toUpperCase().startsWith("INSERT INTO")) {
-            executor.submit(() -> {
-                try {
-                    // Split the query to extract the namespace, set, and values
-                    String[] parts = aql.split("\\s+");
-                    if (parts.length >= 4 && parts[2].contains(".")) {
-                        String[] namespaceSet = parts[2].split("\\.");
-                        if (namespaceSet.length == 2) {
-                            String namespace = namespaceSet[0];
-                            String set = namespaceSet[1];
-
-                            // Extract the bin names
-                            int openParenIndex = aql.indexOf('(');
-                            int closeParenIndex = aql.indexOf(')', openParenIndex);
-                            String binNamesStr = aql.substring(openParenIndex + 1, closeParenIndex).trim();
-                            String[] binNames = binNamesStr.split(",");
-
-                            // Extract the values
-                            int valuesStart = aql.indexOf("VALUES (");
-                            int valuesEnd = aql.indexOf(')', valuesStart);
-                            String valuesStr = aql.substring(valuesStart + 8, valuesEnd).trim();
-                            String[] values = valuesStr.split(",");
-
-                            // Ensure the number of bin names matches the number of values
-                            if (binNames.length != values.length) {
-                                Platform.runLater(() -> overallStatusLabel.setText("Number of bin names does not match number of values."));
-                                return;
-                            }
-
-                            // Create a map of bin names to values
-                            Map<String, Object> bins = new HashMap<>();
-                            for (int i = 0; i < binNames.length; i++) {
-                                String binName = binNames[i].trim();
-                                String valueStr = values[i].trim();
-                                Object binValue = parseAqlValue(valueStr);
-                                if (binValue == null) {
-                                    Platform.runLater(() -> overallStatusLabel.setText("Error parsing value: " + valueStr));
-                                    return;
-                                }
-                                bins.put(binName, binValue);
-                            }
-
-                            String name = (String) bins.getOrDefault("Pk", bins.get("KEY"));;
-                            if (name == null || name.isEmpty()) {
-                                name = UUID.randomUUID().toString(); // Generate a random UUID as the key
-                            }
-                            bins.put("PK",name);
-                            // Create a unique key
-                            Key aerospikeKey = new Key(namespace, set, name);
-
-                            // Insert the record into Aerospike
-                            try {
-                                Bin[] aerospikeBins = bins.entrySet().stream()
-                                        .filter(entry -> !entry.getKey().equalsIgnoreCase("KEY")) // Don't store 'KEY' bin itself
-                                        .map(entry -> new Bin(entry.getKey(), entry.getValue()))
-                                        .toArray(Bin[]::new);
-                                client.put(null, aerospikeKey, aerospikeBins);
-                                Platform.runLater(() -> overallStatusLabel.setText("Record inserted: " + namespace + "." + set + "." + aerospikeKey));
-                            } catch (AerospikeException e) {
-                                Platform.runLater(() -> overallStatusLabel.setText("Error inserting record: " + e.getMessage()));
-                            }
-                        } else {
-                            Platform.runLater(() -> overallStatusLabel.setText("Invalid namespace.set format in INSERT."));
-                        }
-                    } else {
-                        Platform.runLater(() -> overallStatusLabel.setText("Invalid INSERT INTO syntax."));
+    // The reduction runs on the server nodes; only the reduced values come back
+    private CompletableFuture<Runnable> executeStreamAggregate(AqlPlan plan) {
+        String call = plan.getUdfModule() + "." + plan.getUdfFunction();
+        udfManager().ensureAvailable(plan.getUdfModule());
+        QueryPlanner.Result planned = plan.resolve(sindexCatalog());
+        QueryPolicy queryPolicy = new QueryPolicy();
+        queryPolicy.filterExp = planned.expression;
+        Statement statement = plan.newStatement(planned.filter);
+        statement.setAggregateFunction(plan.getUdfModule(), plan.getUdfFunction(), plan.getUdfArguments());
+        Platform.runLater(() -> overallStatusLabel.setText("Executing: AGGREGATE " + call + " (" + planned.describe() + ")..."));
+
+        long startTime = System.currentTimeMillis();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.QUERY);
+        ResultSet stream;
+        try {
+            stream = client.queryAggregate(queryPolicy, statement);
+        } catch (AerospikeException e) {
+            timer.end(e);
+            throw e;
+        }
+        activeStream = stream;
+        try {
+            while (stream.next()) {
+                Object value = stream.getObject();
+                timer.records(1, ValueCodec.estimateSize(value));
+                if (value instanceof Map) {
+                    // Grouped results such as histograms read best as one row per group
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        Map<String, Object> row = new LinkedHashMap<>();
+                        row.put("Key", entry.getKey());
+                        row.put("Value", entry.getValue());
+                        rows.add(row);
                     }
-                } finally {
-                    Platform.runLater(() -> progressBar.setVisible(false));
+                } else {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("Result", value);
+                    rows.add(row);
                 }
-            });
-        } else {
-            Platform.runLater(() -> {
-                overallStatusLabel.setText("Unsupported INSERT syntax.");
-                progressBar.setVisible(false);
-            });
+            }
+        } catch (RuntimeException e) {
+            timer.end(e);
+            throw e;
+        } finally {
+            timer.end(null); // No-op if it already failed
+            activeStream = null;
+            stream.close();
+        }
+        if (cancelled) {
+            throw new AerospikeException.QueryTerminated();
         }
+        long elapsed = System.currentTimeMillis() - startTime;
+        PagedRecordList results = new PagedRecordList(new PagedResultStore());
+        results.getStore().appendAll(rows);
+        Runnable show = showResults(results);
+        return CompletableFuture.completedFuture(() -> {
+            show.run();
+            overallStatusLabel.setText(call + " returned " + rows.size() + " row(s) in " + elapsed + " ms (server-side)");
+        });
     }
 
+    private CompletableFuture<Runnable> executeRegisterModule(AqlPlan plan) {
+        String module;
+        try {
+            module = udfManager().register(Paths.get(plan.getModulePath()));
+        } catch (IOException e) {
+            throw new AerospikeException(e.getMessage(), e);
+        }
+        return CompletableFuture.completedFuture(() -> overallStatusLabel.setText("Module " + module + " registered"));
+    }
 
-
-    private void executeAqlDelete(String aql) {
-        if (aql.toUpperCase().startsWith("DELETE FROM")) {
-            executor.submit(() -> {
-                try{
-                String[] parts = aql.split("\\s+");
-                if (parts.length >= 3 && parts[2].contains(".")) {
-                    String[] namespaceSet = parts[2].split("\\.");
-                    if (namespaceSet.length == 2) {
-                        String namespace = namespaceSet[0];
-                        String set = namespaceSet[1];
-
-                        int whereClauseIndex = aql.toUpperCase().indexOf("WHERE");
-                        if (whereClauseIndex > 0) {
-                            String condition = aql.substring(whereClauseIndex + 5).trim();
-                            String[] conditionParts = condition.split("=");
-                            if (conditionParts.length == 2) {
-                                String binName = conditionParts[0].trim();
-                                String valueStr = conditionParts[1].trim();
-                                Object value = parseAqlValue(valueStr);
-                                if (value instanceof String) {
-                                    // Basic delete based on a single string equality condition
-                                    scanAndDelete(namespace, set, binName, (String) value);
-                                } else {
-                                    Platform.runLater(() -> overallStatusLabel.setText("DELETE WHERE value must be a string for this basic implementation."));
-                                }
-                            } else {
-                                Platform.runLater(() -> overallStatusLabel.setText("Invalid WHERE clause in DELETE."));
-                            }
-                        } else {
-                            Platform.runLater(() -> overallStatusLabel.setText("DELETE requires a WHERE clause in this basic implementation."));
-                        }
-                    } else {
-                        Platform.runLater(() -> overallStatusLabel.setText("Invalid namespace.set format in DELETE."));
-                    }
-                } else {
-                    Platform.runLater(() -> overallStatusLabel.setText("Invalid DELETE FROM syntax."));
-                } }finally {
-                    Platform.runLater(() -> progressBar.setVisible(false));
-                }
-            });
-        } else {
-            Platform.runLater(() -> {
-                overallStatusLabel.setText("Unsupported DELETE syntax.");
-                progressBar.setVisible(false);
-            });
+    // PK = ... and PK IN (...) read the records directly instead of querying every node
+    private CompletableFuture<Runnable> executeKeyLookup(AqlPlan plan) {
+        PagedRecordList results = new PagedRecordList(new PagedResultStore());
+        Key[] keys = plan.getPrimaryKeys();
+        Platform.runLater(() -> overallStatusLabel.setText("Executing: SELECT (" + keys.length
+                + (keys.length == 1 ? " key lookup" : " key batch read") + ")..."));
+        if (keys.length == 1) {
+            Policy policy = new Policy();
+            policy.filterExp = plan.getKeyFilter();
+            return asyncClient.get(policy, keys[0], plan.getBinNames())
+                    .thenApply(record -> showResults(page(plan, keys, new Record[]{record}, results)));
         }
+        BatchPolicy batchPolicy = new BatchPolicy();
+        batchPolicy.filterExp = plan.getKeyFilter();
+        CompletableFuture<Record[]> read = keys.length <= ExplorerSettings.BATCH_SIZE
+                ? asyncClient.get(batchPolicy, keys, plan.getBinNames())
+                // Large key lists are split into concurrent chunks on this worker thread
+                : CompletableFuture.completedFuture(new BatchKeyReader(client).get(batchPolicy, keys, plan.getBinNames()));
+        return read.thenApply(records -> showResults(page(plan, keys, records, results)));
     }
 
-    private void executeAqlUpdate(String aql) {
-        if (aql.toUpperCase().startsWith("UPDATE")) {
-            executor.submit(() -> {
-                try{
-                String[] parts = aql.split("\\s+");
-                if (parts.length >= 2 && parts[1].contains(".")) {
-                    String[] namespaceSet = parts[1].split("\\.");
-                    if (namespaceSet.length == 2) {
-                        String namespace = namespaceSet[0];
-                        String set = namespaceSet[1];
-
-                        int setClauseIndex = aql.toUpperCase().indexOf("SET");
-                        int whereClauseIndex = aql.toUpperCase().indexOf("WHERE");
-
-                        if (setClauseIndex > 0 && whereClauseIndex > setClauseIndex) {
-                            String setClause = aql.substring(setClauseIndex + 3, whereClauseIndex).trim();
-                            String whereClause = aql.substring(whereClauseIndex + 5).trim();
-
-                            Map<String, Object> updateBins = new HashMap<>();
-                            String[] assignments = setClause.split(",");
-                            for (String assignment : assignments) {
-                                String[] kv = assignment.trim().split("=");
-                                if (kv.length == 2) {
-                                    String binName = kv[0].trim();
-                                    String valueStr = kv[1].trim();
-                                    Object binValue = parseAqlValue(valueStr);
-                                    if (binValue != null) {
-                                        updateBins.put(binName, binValue);
-                                    } else {
-                                        Platform.runLater(() -> overallStatusLabel.setText("Error parsing value in SET clause: " + valueStr));
-                                        return;
-                                    }
-                                } else {
-                                    Platform.runLater(() -> overallStatusLabel.setText("Invalid bin=value pair in SET clause: " + assignment));
-                                    return;
-                                }
-                            }
-
-                            String[] whereParts = whereClause.split("=");
-                            if (whereParts.length == 2) {
-                                String keyBin = whereParts[0].trim();
-                                String keyValueStr = whereParts[1].trim();
-                                Object keyValueObj = parseAqlValue(keyValueStr);
-                                if (keyValueObj instanceof String) {
-                                    String keyValue = (String) keyValueObj;
-                                    if (!updateBins.isEmpty()) {
-                                        Key key = new Key(namespace, set, keyValue);
-                                        try {
-                                            Bin[] aerospikeBins = updateBins.entrySet().stream()
-                                                    .filter(entry -> !entry.getKey().equalsIgnoreCase("KEY")) // Don't store 'KEY' bin itself
-                                                    .map(entry -> new Bin(entry.getKey(), entry.getValue()))
-                                                    .toArray(Bin[]::new);
-                                            client.put(null, key, aerospikeBins);
-                                            Platform.runLater(() -> overallStatusLabel.setText("Record updated: " + namespace + "." + set + "." + keyValue));
-                                        } catch (AerospikeException e) {
-                                            Platform.runLater(() -> overallStatusLabel.setText("Error updating record: " + e.getMessage()));
-                                        }
-                                    } else {
-                                        Platform.runLater(() -> overallStatusLabel.setText("No bins to update."));
-                                    }
-                                } else {
-                                    Platform.runLater(() -> overallStatusLabel.setText("Key value in WHERE clause must be a string for this basic implementation."));
-                                }
-                            } else {
-                                Platform.runLater(() -> overallStatusLabel.setText("Invalid WHERE clause in UPDATE."));
-                            }
-                        } else {
-                            Platform.runLater(() -> overallStatusLabel.setText("Invalid UPDATE syntax (missing SET or WHERE)."));
-                        }
-                    } else {
-                        Platform.runLater(() -> overallStatusLabel.setText("Invalid UPDATE namespace.set format."));
-                    }
-                } else {
-                    Platform.runLater(() -> overallStatusLabel.setText("Unsupported UPDATE syntax."));
-                }} finally {
-                    Platform.runLater(() -> progressBar.setVisible(false));
-                }
-            });
-        } else {
-            Platform.runLater(() -> {
-                overallStatusLabel.setText("Unsupported UPDATE command.");
-                progressBar.setVisible(false);
-            });
+    // Applies OFFSET and LIMIT to the records that exist, in key order
+    private static PagedRecordList page(AqlPlan plan, Key[] keys, Record[] records, PagedRecordList results) {
+        long skip = plan.getOffset();
+        long remaining = plan.getLimit() < 0 ? Long.MAX_VALUE : plan.getLimit();
+        for (int i = 0; i < keys.length && remaining > 0; i++) {
+            if (records[i] == null) {
+                continue;
+            }
+            if (skip > 0) {
+                skip--;
+                continue;
+            }
+            results.getStore().appendRecord(keys[i], records[i]);
+            remaining--;
         }
+        return results;
     }
 
-    private Object parseAqlValue(String valueStr) {
-        String trimmedValue = valueStr.trim();
-        if (trimmedValue.startsWith("'") && trimmedValue.endsWith("'") && trimmedValue.length() >= 2) {
-            return trimmedValue.substring(1, trimmedValue.length() - 1);
-        } else if (trimmedValue.matches("-?\\d+")) {
-            return Integer.parseInt(trimmedValue);
-        } else if (trimmedValue.matches("-?\\d+(\\.\\d+)?")) {
-            return Double.parseDouble(trimmedValue);
+    private CompletableFuture<Runnable> executeAqlInsert(AqlPlan plan) {
+        if (plan.getWrites().size() > 1) {
+            return CompletableFuture.completedFuture(executeBulkInsert(plan));
         }
-        return trimmedValue; // Treat as string if parsing fails
+        AqlPlan.Write keyed = AqlPlan.withGeneratedKey(plan.getWrites().get(0));
+        Key aerospikeKey = plan.keyOf(keyed);
+        return asyncClient.put(null, aerospikeKey, keyed.bins).thenApply(key -> () -> overallStatusLabel.setText(
+                "Record inserted: " + plan.getNamespace() + "." + plan.getSet() + "." + aerospikeKey));
     }
-    private void scanAndDelete(String namespace, String set, String binName, String binValue) {
-        executor.submit(() -> {
-            Statement stmt = new Statement();
-            stmt.setNamespace(namespace);
-            stmt.setSetName(set);
-            stmt.setFilter(Filter.equal(binName, binValue));
 
-            QueryPolicy queryPolicy = new QueryPolicy();
-//            queryPolicy.executeMode = com.aerospike.client.query.ExecuteMode.ALL; // Need to process all records
+    private Runnable executeBulkInsert(AqlPlan plan) {
+        String target = plan.getNamespace() + "." + plan.getSet();
+        BulkLoader loader = new BulkLoader(client, asyncClient.getEventLoops());
+        activeLoader = loader;
+        BulkLoader.Result result;
+        try {
+            result = loader.load(plan.getNamespace(), plan.getSet(),
+                    plan.getWrites().iterator(), (written, retried, rejected, perSecond) -> Platform.runLater(() ->
+                            overallStatusLabel.setText("Inserting into " + target + ": " + written + " written, " + retried
+                                    + " retried, " + rejected + " rejected (" + Math.round(perSecond) + " records/s)")));
+        } finally {
+            activeLoader = null;
+        }
+        String message = result.getWritten() + " records inserted into " + target
+                + (result.getRejected() > 0 ? " (" + result.getRejected() + " rejected: "
+                + result.getLastError().getMessage() + ")" : "");
+        return () -> overallStatusLabel.setText(message);
+    }
 
-            List<Key> keysToDelete = new ArrayList<>();
+    // Generating and load testing pace themselves, so they run on this worker thread
+    private Runnable executeGenerate(AqlPlan plan) {
+        String target = plan.getNamespace() + "." + plan.getSet();
+        BulkLoader loader = new BulkLoader(client, asyncClient.getEventLoops());
+        activeLoader = loader;
+        BulkLoader.Result result;
+        try {
+            result = loader.load(plan.getNamespace(), plan.getSet(),
+                    plan.getGenerator().writes(plan.getRecordCount(), new RateLimiter(plan.getRate())),
+                    (written, retried, rejected, perSecond) -> Platform.runLater(() ->
+                            overallStatusLabel.setText("Generating into " + target + ": " + written + " of "
+                                    + plan.getRecordCount() + " written, " + rejected + " rejected ("
+                                    + Math.round(perSecond) + " records/s)")));
+        } finally {
+            activeLoader = null;
+        }
+        String message = result.getWritten() + " records generated into " + target + " in "
+                + result.getElapsedMs() + " ms"
+                + (result.getRejected() > 0 ? " (" + result.getRejected() + " rejected: "
+                + result.getLastError().getMessage() + ")" : "");
+        return () -> overallStatusLabel.setText(message);
+    }
 
-            try (RecordSet recordSet = client.query(queryPolicy, stmt)) {
-                recordSet.forEach(record -> {
-                    keysToDelete.add(record.key);
-                });
-            } catch (AerospikeException e) {
-                Platform.runLater(() -> overallStatusLabel.setText("Error scanning for delete: " + e.getMessage()));
-                e.printStackTrace();
-                Platform.runLater(() -> progressBar.setVisible(false));
-                return;
-            }
+    private Runnable executeLoadTest(AqlPlan plan) {
+        String target = plan.getNamespace() + "." + plan.getSet();
+        LoadTestEngine engine = new LoadTestEngine(asyncClient);
+        activeLoadTest = engine;
+        LoadTestEngine.Report report;
+        try {
+            report = engine.run(plan, sindexCatalog(), (operations, errors, perSecond, p99Micros) ->
+                    Platform.runLater(() -> overallStatusLabel.setText("Load testing " + target + ": "
+                            + operations + " operations, " + errors + " errors (" + Math.round(perSecond)
+                            + " ops/s of " + plan.getRate() + ", p99 " + String.format("%.2f", p99Micros / 1000.0)
+                            + " ms)")));
+        } finally {
+            activeLoadTest = null;
+        }
+        PagedRecordList results = new PagedRecordList(new PagedResultStore());
+        results.getStore().appendAll(report.toRows());
+        String message = "Load test on " + target + ": " + report.getOperations() + " operations in "
+                + report.getElapsedMs() / 1000 + " s, " + Math.round(report.getThroughput()) + " ops/s (target "
+                + report.getTargetRate() + ")" + (report.getErrors() > 0 ? ", " + report.getErrors() + " errors"
+                + (report.getLastError() != null ? " (last: " + report.getLastError().getMessage() + ")" : "") : "");
+        Runnable showReport = showResults(results);
+        return () -> {
+            showReport.run();
+            overallStatusLabel.setText(message);
+        };
+    }
 
-            WritePolicy writePolicy = new WritePolicy();
-            int deletedCount = 0;
-            for (Key keyToDelete : keysToDelete) {
-                try {
-                    client.delete(writePolicy, keyToDelete);
-                    deletedCount++;
-                } catch (AerospikeException e) {
-                    Platform.runLater(() -> overallStatusLabel.setText("Error deleting key " + keyToDelete + ": " + e.getMessage()));
-                    e.printStackTrace();
+    // Bulk deletes page through keys or poll a server task, so they run on this worker thread
+    private CompletableFuture<Runnable> executeAqlDelete(AqlPlan plan) {
+        String target = plan.getNamespace() + "." + plan.getSet();
+        BulkDeleteEngine engine = new BulkDeleteEngine(client);
+        activeDelete = engine;
+        BulkDeleteEngine.Listener progress = (deleted, failed, perSecond) -> Platform.runLater(() ->
+                overallStatusLabel.setText("Deleting from " + target + ": " + deleted + " deleted, " + failed
+                        + " failed (" + Math.round(perSecond) + " records/s)"));
+        BulkDeleteEngine.Result result;
+        try {
+            if (plan.isKeyLookup()) {
+                result = engine.deleteKeys(plan.getPrimaryKeys(), plan.getKeyFilter(), progress);
+            } else {
+                QueryPlanner.Result planned = plan.resolve(sindexCatalog());
+                result = null;
+                if (ExplorerSettings.DELETE_IN_BACKGROUND) {
+                    try {
+                        result = engine.deleteInBackground(plan.newStatement(planned.filter), planned.expression,
+                                status -> Platform.runLater(() -> overallStatusLabel.setText(status)));
+                    } catch (AerospikeException e) {
+                        if (e.getResultCode() != ResultCode.UNSUPPORTED_FEATURE && e.getResultCode() != ResultCode.PARAMETER_ERROR) {
+                            throw e;
+                        }
+                        // Server refused the background form; delete through the client instead
+                    }
+                }
+                if (result == null) {
+                    result = engine.deleteMatching(plan.newStatement(planned.filter), planned.expression, progress);
                 }
             }
+        } finally {
+            activeDelete = null;
+        }
 
-            int finalDeletedCount = deletedCount;
-            Platform.runLater(() -> {
-                overallStatusLabel.setText(finalDeletedCount + " records deleted from " + namespace + "." + set + " where " + binName + "='" + binValue + "'");
-                progressBar.setVisible(false);
-            });
-        });
+        BulkDeleteEngine.Result finalResult = result;
+        String deleted = finalResult.getDeleted() < 0
+                ? "Background delete completed on " + target
+                : finalResult.getDeleted() + " records deleted from " + target;
+        String failures = finalResult.getFailed() > 0
+                ? ", " + finalResult.getFailed() + " failed" + (finalResult.getLastError() != null
+                ? " (" + finalResult.getLastError().getMessage() + ")" : "")
+                : "";
+        return CompletableFuture.completedFuture(() -> overallStatusLabel.setText(deleted + " where "
+                + plan.getFilterText() + failures + " in " + finalResult.getElapsedMs() + " ms"));
+    }
+
+    private CompletableFuture<Runnable> executeAqlUpdate(AqlPlan plan) {
+        AqlPlan.Write write = plan.getWrites().get(0);
+        return asyncClient.put(null, plan.keyOf(write), write.bins).thenApply(key -> () -> overallStatusLabel.setText(
+                "Record updated: " + plan.getNamespace() + "." + plan.getSet() + "." + write.userKey));
     }
-}
\ No newline at end of file
+}
@@ -2,18 +2,23 @@ package com.vikki.aerospike;
 
 import com.aerospike.client.*;
 import com.aerospike.client.Record;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.EventPolicy;
+import com.aerospike.client.async.NioEventLoops;
 import com.aerospike.client.cluster.Node;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.policy.BatchPolicy;
 import com.aerospike.client.policy.ClientPolicy;
 import com.aerospike.client.policy.InfoPolicy;
+import com.aerospike.client.policy.QueryPolicy;
 import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.query.KeyRecord;
+import javafx.animation.PauseTransition;
 import javafx.application.Application;
 import javafx.application.Platform;
-import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.collections.transformation.FilteredList;
-import javafx.collections.transformation.SortedList;
 import javafx.geometry.Pos;
 import javafx.geometry.Side;
 import javafx.scene.Scene;
@@ -30,6 +35,8 @@ import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 import javafx.scene.web.WebView;
 import javafx.util.Callback;
+import javafx.util.converter.DefaultStringConverter;
+import javafx.util.Duration;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
@@ -42,36 +49,72 @@ import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.Optional;
 
-public class AerospikeExplorer extends Application implements AerospikeDataManipulation.SelectResultCallback {
+public class AerospikeExplorer extends Application {
 
     private TextField hostInput;
     private Label connectionStatusLabel;
     private TreeView<String> namespaceSetTree;
     private TableView<Map<String, Object>> dataTableView;
     private AerospikeClient client;
+    private SindexCatalog sindexCatalog;
+    private UdfManager udfManager;
+    private ClusterMetadataCache metadataCache;
+    private ClusterDashboard dashboard;
+    private EventLoops eventLoops;
+    private AsyncAerospike asyncClient;
     private final ExecutorService scanExecutor = Executors.newSingleThreadExecutor();
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final ExecutorService exportExecutor = Executors.newSingleThreadExecutor();
+    // One cheap thread per statement, so a slow query never holds up the next one
+    private final ExecutorService queryExecutor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("query-", 0).factory());
+    private final QueryScheduler queryScheduler = new QueryScheduler(ExplorerSettings.QUERY_MAX_CONCURRENT);
     private TabPane queryTabPane;
     private Button executeAqlButton;
+    private Button rerunAqlButton;
     private Button helpButton;
-    private RadioButton tableOutputRadio;
-    private RadioButton jsonOutputRadio;
-    private ToggleGroup outputFormatGroup;
-    private ScrollPane jsonScrollPane;
     private TextField filterInput;
+    private CheckBox serverFilterCheckBox;
+    private PauseTransition serverFilterDelay;
+    private String currentScanNamespace;
+    private String currentScanSet;
+    private boolean currentScanFiltered;
     private Label statusBarLabel;
     private Button connectButton;
     private Button disconnectButton;
     private Button refreshTreeButton;
     private Button newQueryTabButton;
+    private Button dashboardButton;
+    private Button metricsButton;
+    private MetricsPanel metricsPanel;
     private ProgressBar progressBar;
+    private RecordBatcher<KeyRecord> currentScanBatcher;
+    private PartitionScanEngine.ScanJob currentScanJob;
+    private PartitionScanEngine.PageCursor currentPageCursor;
+    private Button resumeScanButton;
+    private Button loadNextPageButton;
+    private Button reloadCachedButton;
+    private Button cancelExportButton;
+    private Button cancelImportButton;
+    private PagedRecordList currentResults;
+    private final EditBuffer editBuffer = new EditBuffer(); // Cell edits of currentResults not yet committed
+    private Button commitEditsButton;
+    private Button discardEditsButton;
+    private final Set<String> displayedColumns = new HashSet<>();
+    private TableColumn<Map<String, Object>, Void> actionColumn;
+    // The browse table or a query tab's table, whichever was last used or filled; Export reads it
+    private TableView<Map<String, Object>> activeResultTable;
 
     private TextArea queryTextArea;
     private Button deleteSetButton;
+    private static final Set<String> RUNNABLE_COMMANDS = Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "AGGREGATE",
+            "REGISTER", "GENERATE", "LOADTEST");
+
     private static final String APP_STYLE = """
      
     """;
@@ -136,16 +179,27 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         newQueryTabButton.setId("newQueryTabButton");
         deleteSetButton = new Button("Delete Set", new FontIcon(FontAwesomeSolid.TRASH));
         deleteSetButton.setId("deleteSetButton");
+        dashboardButton = new Button("Dashboard", new FontIcon(FontAwesomeSolid.TACHOMETER_ALT));
+        dashboardButton.setId("dashboardButton");
+        metricsButton = new Button("Metrics", new FontIcon(FontAwesomeSolid.STOPWATCH));
+        metricsButton.setId("metricsButton");
 
-        mainToolbar.getChildren().addAll(connectButton, disconnectButton, refreshTreeButton, newQueryTabButton, deleteSetButton);
+        mainToolbar.getChildren().addAll(connectButton, disconnectButton, refreshTreeButton, newQueryTabButton, deleteSetButton, dashboardButton, metricsButton);
 
         VBox topSection = new VBox(topBar, mainToolbar);
 
         connectButton.setOnAction(event -> connectToAerospike(hostInput.getText(), userInput.getText(), passwordInput.getText()));
         disconnectButton.setOnAction(event -> disconnectFromAerospike());
-        refreshTreeButton.setOnAction(event -> populateNamespaceSets());
+        refreshTreeButton.setOnAction(event -> {
+            if (sindexCatalog != null) {
+                sindexCatalog.invalidate(); // Pick up indexes created since the last refresh
+            }
+            populateNamespaceSets();
+        });
         newQueryTabButton.setOnAction(event -> createNewQueryTab());
         deleteSetButton.setOnAction(event -> deleteSelectedSet());
+        dashboardButton.setOnAction(event -> showDashboard());
+        metricsButton.setOnAction(event -> showMetrics());
 
         // --- Left Sidebar ---
         VBox leftSidebar = new VBox(8);
@@ -153,6 +207,7 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         Label namespaceSetLabel = new Label("Namespaces & Sets:");
         namespaceSetTree = new TreeView<>();
         namespaceSetTree.getStyleClass().add("namespace-tree");
+        namespaceSetTree.setCellFactory(tree -> new NamespaceSetCell());
         leftSidebar.getChildren().addAll(namespaceSetLabel, namespaceSetTree);
         VBox.setVgrow(namespaceSetTree, Priority.ALWAYS);
 
@@ -184,17 +239,22 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
 
         executeAqlButton.setId("executeAqlButton");
 
+        rerunAqlButton = new Button("Re-run", new FontIcon(FontAwesomeSolid.SYNC));
+        rerunAqlButton.setId("rerunAqlButton");
+        rerunAqlButton.setTooltip(new Tooltip("Run the query on the cluster again instead of showing cached results"));
+
         helpButton = new Button("Help", new FontIcon(FontAwesomeSolid.QUESTION_CIRCLE));
 
         helpButton.setId("helpButton");
 
-        queryControlsArea.getChildren().addAll(executeAqlButton, helpButton);
+        queryControlsArea.getChildren().addAll(executeAqlButton, rerunAqlButton, helpButton);
         queryControlsArea.setAlignment(Pos.CENTER_LEFT);
 
         queryArea.getChildren().addAll(queryLabel, queryTabPane, queryControlsArea);
         VBox.setVgrow(queryTabPane, Priority.ALWAYS);
 
-        executeAqlButton.setOnAction(event -> executeCurrentQuery());
+        executeAqlButton.setOnAction(event -> executeCurrentQuery(false));
+        rerunAqlButton.setOnAction(event -> executeCurrentQuery(true));
         helpButton.setOnAction(event -> showAqlHelp());
 
         // --- Right - Data Area ---
@@ -205,21 +265,61 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         filterInput.getStyleClass().add("filter-input");
 
         dataTableView = new TableView<>();
+        activeResultTable = dataTableView;
+        dataTableView.focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (focused) {
+                activeResultTable = dataTableView;
+            }
+        });
         dataTableView.getStyleClass().add("data-table-view");
         VBox.setVgrow(dataTableView, Priority.ALWAYS);
         // Add Serial Number Column
-        TableColumn<Map<String, Object>, Integer> serialNumberColumn = new TableColumn<>("Serial No.");
-        serialNumberColumn.setMinWidth(50);
-        serialNumberColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(dataTableView.getItems().indexOf(param.getValue()) + 1));
-
         // Add other columns as needed
-        dataTableView.getColumns().add(serialNumberColumn);
-        jsonScrollPane = new ScrollPane();
-        jsonScrollPane.setFitToWidth(true);
-        jsonScrollPane.setPrefHeight(200);
+        dataTableView.getColumns().add(createSerialNumberColumn());
+        dataTableView.setSortPolicy(table -> {
+            sortResults();
+            return true;
+        });
+        serverFilterCheckBox = new CheckBox("Server");
+        serverFilterCheckBox.setTooltip(new Tooltip("Filter on the server with a predicate, e.g. age > 30 AND name LIKE 'a%'"));
+        // Server filtering re-runs the scan, so wait until typing pauses
+        serverFilterDelay = new PauseTransition(Duration.millis(ExplorerSettings.SERVER_FILTER_DELAY_MS));
+        serverFilterDelay.setOnFinished(event -> applyServerFilter());
+        filterInput.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (serverFilterCheckBox.isSelected()) {
+                serverFilterDelay.playFromStart();
+            } else {
+                applyFilter(newValue);
+            }
+        });
+        serverFilterCheckBox.setOnAction(event -> {
+            serverFilterDelay.stop();
+            if (serverFilterCheckBox.isSelected()) {
+                applyFilter(null);
+                applyServerFilter();
+            } else if (currentScanFiltered && currentScanNamespace != null) {
+                scanAllAndDisplayInTable(currentScanNamespace, currentScanSet, null, false); // Filter locally again
+            } else {
+                applyFilter(filterInput.getText());
+            }
+        });
+        commitEditsButton = new Button("Commit Edits", new FontIcon(FontAwesomeSolid.CHECK));
+        commitEditsButton.setTooltip(new Tooltip("Write the edited cells in one batch"));
+        commitEditsButton.setOnAction(event -> commitEdits());
+        discardEditsButton = new Button("Discard", new FontIcon(FontAwesomeSolid.UNDO));
+        discardEditsButton.setOnAction(event -> {
+            editBuffer.clear();
+            updateEditButtons();
+            dataTableView.refresh();
+            statusBarLabel.setText("Edits discarded.");
+        });
+        updateEditButtons();
+        HBox filterBar = new HBox(8, filterInput, serverFilterCheckBox, commitEditsButton, discardEditsButton);
+        filterBar.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(filterInput, Priority.ALWAYS);
 
 
-        dataArea.getChildren().addAll(filterLabel, filterInput, dataTableView);
+        dataArea.getChildren().addAll(filterLabel, filterBar, dataTableView);
 
         // --- Bottom Bar - Output Format and Status ---
 
@@ -229,7 +329,24 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         connectionStatusLabel = statusBarLabel;
         progressBar = new ProgressBar();
         progressBar.setVisible(false);
-        statusBar.getChildren().addAll(statusBarLabel, progressBar);
+        resumeScanButton = new Button("Resume Scan", new FontIcon(FontAwesomeSolid.REDO));
+        resumeScanButton.setVisible(false);
+        loadNextPageButton = new Button("Load Next Page", new FontIcon(FontAwesomeSolid.ANGLE_DOUBLE_DOWN));
+        loadNextPageButton.setVisible(false);
+        reloadCachedButton = new Button("Reload", new FontIcon(FontAwesomeSolid.SYNC));
+        reloadCachedButton.setTooltip(new Tooltip("These records are cached; read them from the cluster again"));
+        reloadCachedButton.setVisible(false);
+        reloadCachedButton.setOnAction(event -> {
+            if (currentScanNamespace != null) {
+                scanAllAndDisplayInTable(currentScanNamespace, currentScanSet, null, true);
+            }
+        });
+        cancelExportButton = new Button("Cancel Export", new FontIcon(FontAwesomeSolid.STOP));
+        cancelExportButton.setVisible(false);
+        cancelImportButton = new Button("Cancel Import", new FontIcon(FontAwesomeSolid.STOP));
+        cancelImportButton.setVisible(false);
+        statusBar.getChildren().addAll(statusBarLabel, progressBar, resumeScanButton, loadNextPageButton, reloadCachedButton,
+                cancelExportButton, cancelImportButton);
         HBox.setHgrow(statusBarLabel, Priority.ALWAYS);
 
 
@@ -249,7 +366,10 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         exportFormat.getItems().addAll("JSON", "CSV");
         exportFormat.setValue("JSON");
 
-        exportButtons.getChildren().addAll(exportButton, exportFormat);
+        Button importButton = new Button("Import", new FontIcon(FontAwesomeSolid.FILE_IMPORT));
+        importButton.setOnAction(event -> importIntoSelectedSet(primaryStage));
+
+        exportButtons.getChildren().addAll(importButton, exportButton, exportFormat);
         exportButtons.setAlignment(Pos.CENTER_RIGHT);
 
 
@@ -265,27 +385,45 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
 // --- Export JSON ---
         exportButton.setOnAction(event -> {
             String format = exportFormat.getValue();
-            List<Map<String, Object>> data = dataTableView.getItems();
-            if (data.isEmpty()) {
-                statusBarLabel.setText("No data to export.");
-                return;
-            }
+            List<Map<String, Object>> data = activeResultTable.getItems();
+            String[] selectedSet = getSelectedNamespaceSet();
 
             // Create a context menu for save and copy options
             ContextMenu contextMenu = new ContextMenu();
-            MenuItem saveItem = new MenuItem("Save as");
-            MenuItem copyItem = new MenuItem("Copy as");
-
-            contextMenu.getItems().addAll(saveItem, copyItem);
-
-            if ("JSON".equals(format)) {
-                String jsonContent = convertToJson(data);
-                saveItem.setOnAction(e -> saveToFile(jsonContent, "json", primaryStage));
-                copyItem.setOnAction(e -> copyToClipboard(jsonContent));
-            } else if ("CSV".equals(format)) {
-                String csvContent = convertToCsv(data);
-                saveItem.setOnAction(e -> saveToFile(csvContent, "csv", primaryStage));
-                copyItem.setOnAction(e -> copyToClipboard(csvContent));
+            if (!data.isEmpty()) {
+                MenuItem saveItem = new MenuItem("Save as");
+                MenuItem copyItem = new MenuItem("Copy as");
+
+                contextMenu.getItems().addAll(saveItem, copyItem);
+
+                // Content is only built when an item is picked
+                if ("JSON".equals(format)) {
+                    saveItem.setOnAction(e -> saveToFile(convertToJson(data), "json", primaryStage));
+                    copyItem.setOnAction(e -> copyToClipboard(convertToJson(data)));
+                } else if ("CSV".equals(format)) {
+                    saveItem.setOnAction(e -> saveToFile(convertToCsv(data), "csv", primaryStage));
+                    copyItem.setOnAction(e -> copyToClipboard(convertToCsv(data)));
+                }
+            }
+            if (selectedSet != null) {
+                // Streams the whole set from the cluster to disk instead of the loaded rows
+                String target = selectedSet[0] + (selectedSet[1] != null ? "." + selectedSet[1] : "");
+                MenuItem streamItem = new MenuItem("Stream export " + target + "...");
+                streamItem.setOnAction(e -> streamExportSet(selectedSet[0], selectedSet[1],
+                        "CSV".equals(format) ? StreamingExporter.Format.CSV : StreamingExporter.Format.JSON, primaryStage));
+                contextMenu.getItems().add(streamItem);
+            }
+            AqlPlan queryPlan = streamableQueryPlan();
+            if (queryPlan != null) {
+                // Runs the tab's query again and writes every result, not only the loaded rows
+                MenuItem streamQueryItem = new MenuItem("Stream export query results...");
+                streamQueryItem.setOnAction(e -> streamExportQuery(queryPlan,
+                        "CSV".equals(format) ? StreamingExporter.Format.CSV : StreamingExporter.Format.JSON, primaryStage));
+                contextMenu.getItems().add(streamQueryItem);
+            }
+            if (contextMenu.getItems().isEmpty()) {
+                statusBarLabel.setText("No data to export.");
+                return;
             }
 
             contextMenu.show(exportButton, Side.BOTTOM, 0, 0);
@@ -306,14 +444,18 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         // --- Keyboard Shortcut for Execute ---
         scene.getAccelerators().put(
                 new KeyCodeCombination(KeyCode.ENTER, KeyCombination.CONTROL_DOWN),
-                this::executeCurrentQuery
+                () -> executeCurrentQuery(false)
+        );
+        scene.getAccelerators().put(
+                new KeyCodeCombination(KeyCode.ENTER, KeyCombination.CONTROL_DOWN, KeyCombination.SHIFT_DOWN),
+                () -> executeCurrentQuery(true)
         );
 
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
-    String convertToJson(List<Map<String, Object>> data) {
+    static String convertToJson(List<Map<String, Object>> data) {
         JSONArray jsonArray = new JSONArray();
         for (Map<String, Object> record : data) {
             jsonArray.put(new JSONObject(record));
@@ -322,25 +464,248 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
     }
 
     // --- Convert to CSV ---
-    String convertToCsv(List<Map<String, Object>> data) {
+    static String convertToCsv(List<Map<String, Object>> data) {
         StringBuilder csvContent = new StringBuilder();
         if (!data.isEmpty()) {
-            Set<String> columnNames = new HashSet<>();
+            Set<String> columnNames = new LinkedHashSet<>();
             for (Map<String, Object> record : data) {
                 columnNames.addAll(record.keySet());
             }
-            csvContent.append(String.join(",", columnNames)).append("\n");
+            CsvSupport.appendRow(csvContent, new ArrayList<>(columnNames));
+            List<Object> row = new ArrayList<>(columnNames.size());
             for (Map<String, Object> record : data) {
-                List<String> row = new ArrayList<>();
+                row.clear();
                 for (String columnName : columnNames) {
-                    row.add(record.getOrDefault(columnName, "").toString());
+                    row.add(record.get(columnName));
                 }
-                csvContent.append(String.join(",", row)).append("\n");
+                CsvSupport.appendRow(csvContent, row);
             }
         }
         return csvContent.toString();
     }
 
+    // --- Streaming export of a whole set ---
+    private void streamExportSet(String namespace, String set, StreamingExporter.Format format, Stage primaryStage) {
+        String target = namespace + (set != null ? "." + set : "");
+        streamExport(target, true, format, primaryStage, (exporter, path, gzip, listener) ->
+                exporter.exportScan(namespace, set, path, format, gzip, listener));
+    }
+
+    /**
+     * The compiled plan of the selected query tab when it is a SELECT whose results can be
+     * streamed again: a set query without aggregates, key lookups or an OFFSET.
+     */
+    private AqlPlan streamableQueryPlan() {
+        QueryTab queryTab = QueryTab.of(queryTabPane.getSelectionModel().getSelectedItem());
+        String aql = queryTab != null ? queryTab.getQuery() : null;
+        if (aql == null || aql.isEmpty()) {
+            return null;
+        }
+        try {
+            AqlPlan plan = AqlPlanCache.shared().get(aql);
+            boolean streamable = plan.getKind() == AqlPlan.Kind.SELECT && !plan.isAggregation()
+                    && !plan.isKeyLookup() && plan.getOffset() == 0 && plan.getLimit() != 0;
+            return streamable ? plan : null;
+        } catch (AqlSyntaxException e) {
+            return null;
+        }
+    }
+
+    // --- Streaming export of a query tab's results ---
+    private void streamExportQuery(AqlPlan plan, StreamingExporter.Format format, Stage primaryStage) {
+        String target = plan.getNamespace() + (plan.getSet() != null ? "." + plan.getSet() : "");
+        SindexCatalog catalog = sindexCatalog;
+        streamExport(target, false, format, primaryStage, (exporter, path, gzip, listener) -> {
+            // Same index choice and filter expression as the tab's own run
+            QueryPlanner.Result planned;
+            try {
+                planned = plan.resolve(catalog != null ? catalog : new SindexCatalog(client));
+            } catch (AerospikeException e) {
+                listener.onError(e);
+                return;
+            }
+            QueryPolicy queryPolicy = new QueryPolicy();
+            queryPolicy.filterExp = planned.expression;
+            if (plan.getLimit() > 0) {
+                queryPolicy.maxRecords = plan.getLimit();
+            }
+            exporter.exportQuery(queryPolicy, plan.newStatement(planned.filter), path, format, gzip, listener);
+        });
+    }
+
+    private interface StreamExport {
+        void run(StreamingExporter exporter, java.nio.file.Path path, boolean gzip, StreamingExporter.Listener listener);
+    }
+
+    /**
+     * Asks for a file and runs {@code export} into it on the export executor. With
+     * {@code partitioned} the progress bar follows the scanned partitions.
+     */
+    private void streamExport(String target, boolean partitioned, StreamingExporter.Format format, Stage primaryStage,
+                              StreamExport export) {
+        if (client == null || !client.isConnected()) {
+            statusBarLabel.setText("Not Connected to Aerospike.");
+            return;
+        }
+        String extension = format == StreamingExporter.Format.CSV ? "csv" : "json";
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss"));
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Stream Export " + target);
+        fileChooser.setInitialFileName(target.replace('.', '_') + "_" + timestamp + "." + extension);
+        File downloadsFolder = new File(System.getProperty("user.home"), "Downloads");
+        if (downloadsFolder.isDirectory()) {
+            fileChooser.setInitialDirectory(downloadsFolder);
+        }
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Files", "*." + extension),
+                new FileChooser.ExtensionFilter("Gzipped files", "*." + extension + ".gz"));
+        File file = fileChooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        boolean gzip = file.getName().endsWith(".gz");
+
+        StreamingExporter exporter = new StreamingExporter(client);
+        cancelExportButton.setOnAction(event -> exporter.cancel());
+        cancelExportButton.setVisible(true);
+        progressBar.setProgress(partitioned ? 0 : ProgressBar.INDETERMINATE_PROGRESS);
+        progressBar.setVisible(true);
+        statusBarLabel.setText("Exporting " + target + "...");
+
+        exportExecutor.submit(() -> export.run(exporter, file.toPath(), gzip, new StreamingExporter.Listener() {
+            @Override
+            public void onProgress(long recordsWritten, int partitionsDone) {
+                Platform.runLater(() -> {
+                    if (partitioned) {
+                        progressBar.setProgress((double) partitionsDone / PartitionScanEngine.PARTITION_COUNT);
+                    }
+                    statusBarLabel.setText("Exporting " + target + "... " + recordsWritten + " records");
+                });
+            }
+
+            @Override
+            public void onComplete(long recordsWritten, long droppedBins, java.nio.file.Path path) {
+                Platform.runLater(() -> {
+                    finishExport();
+                    String message = recordsWritten + " records exported to " + path.toAbsolutePath()
+                            + (droppedBins > 0 ? " (" + droppedBins + " values of bins outside the sampled columns skipped)" : "");
+                    statusBarLabel.setText(message);
+                    showInfoDialog("Export Successful", message, Alert.AlertType.INFORMATION);
+                });
+            }
+
+            @Override
+            public void onCancelled(java.nio.file.Path path) {
+                Platform.runLater(() -> {
+                    finishExport();
+                    statusBarLabel.setText("Export of " + target + " cancelled.");
+                });
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Platform.runLater(() -> {
+                    finishExport();
+                    statusBarLabel.setText("Error exporting: " + e.getMessage());
+                });
+                e.printStackTrace();
+            }
+        }));
+    }
+
+    // --- Bulk import of a CSV or JSON-lines file ---
+    private void importIntoSelectedSet(Stage primaryStage) {
+        if (client == null || !client.isConnected()) {
+            statusBarLabel.setText("Not Connected to Aerospike.");
+            return;
+        }
+        String[] selectedSet = getSelectedNamespaceSet();
+        if (selectedSet == null || selectedSet[1] == null) {
+            statusBarLabel.setText("Select a set to import into.");
+            return;
+        }
+        String namespace = selectedSet[0];
+        String set = selectedSet[1];
+        String target = namespace + "." + set;
+
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import into " + target);
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV and JSON lines", "*.csv", "*.json", "*.jsonl", "*.ndjson",
+                        "*.csv.gz", "*.json.gz", "*.jsonl.gz"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = fileChooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+
+        BulkLoader loader = new BulkLoader(client, eventLoops);
+        cancelImportButton.setOnAction(event -> loader.cancel());
+        cancelImportButton.setVisible(true);
+        progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        progressBar.setVisible(true);
+        statusBarLabel.setText("Importing " + file.getName() + " into " + target + "...");
+
+        exportExecutor.submit(() -> {
+            try (ImportFileReader reader = new ImportFileReader(file.toPath())) {
+                BulkLoader.Result result = loader.load(namespace, set, reader, (written, retried, rejected, perSecond) ->
+                        Platform.runLater(() -> statusBarLabel.setText("Importing into " + target + ": " + written
+                                + " written, " + retried + " retried, " + (rejected + reader.getRejectedRows())
+                                + " rejected (" + Math.round(perSecond) + " records/s)")));
+                long rejected = result.getRejected() + reader.getRejectedRows();
+                String lastError = result.getLastError() != null ? result.getLastError().getMessage() : reader.getLastError();
+                String message = result.getWritten() + " records imported into " + target + " in "
+                        + result.getElapsedMs() / 1000.0 + "s (" + result.getRetried() + " retried, " + rejected
+                        + " rejected" + (rejected > 0 ? ", last error: " + lastError : "") + ")";
+                Platform.runLater(() -> {
+                    finishImport();
+                    statusBarLabel.setText(message);
+                    showInfoDialog("Import Finished", message,
+                            rejected > 0 ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+                });
+            } catch (IOException | RuntimeException e) {
+                Platform.runLater(() -> {
+                    finishImport();
+                    statusBarLabel.setText("Error importing: " + e.getMessage());
+                });
+                e.printStackTrace();
+            } finally {
+                ResultCache.shared().invalidate(namespace, set);
+            }
+        });
+    }
+
+    private void finishImport() {
+        cancelImportButton.setVisible(false);
+        progressBar.setVisible(false);
+    }
+
+    private void closeEventLoops() {
+        if (eventLoops != null) {
+            eventLoops.close();
+            eventLoops = null;
+        }
+    }
+
+    private void finishExport() {
+        cancelExportButton.setVisible(false);
+        progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+        progressBar.setVisible(false);
+    }
+
+    // Returns {namespace, set} for the tree selection (set is null for a namespace), or null
+    private String[] getSelectedNamespaceSet() {
+        TreeItem<String> selectedItem = namespaceSetTree.getSelectionModel().getSelectedItem();
+        if (selectedItem == null || selectedItem.getParent() == null) {
+            return null;
+        }
+        if (selectedItem.getParent() == namespaceSetTree.getRoot()) {
+            return new String[]{selectedItem.getValue(), null};
+        }
+        return new String[]{selectedItem.getParent().getValue(), selectedItem.getValue()};
+    }
+
     // --- Save to File ---
     void saveToFile(String content, String extension, Stage primaryStage) {
         // Generate a timestamped filename
@@ -389,32 +754,19 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
     }
 
     private void createNewQueryTab() {
-        TextArea queryTextArea = new TextArea();
-        Tab newTab = new Tab("New Query", queryTextArea);
-        newTab.setClosable(true);
-
-        newTab.setOnSelectionChanged(event -> {
-            if (newTab.isSelected() && newTab.getText().equals("New Query")) {
-                // Optionally, you could
-                // prompt for a name when the tab is first selected
+        QueryTab queryTab = new QueryTab();
+        Tab newTab = queryTab.getTab();
+        queryTab.setOnResults(() -> activeResultTable = queryTab.getResultTable());
+        queryTab.getResultTable().focusedProperty().addListener((observable, wasFocused, focused) -> {
+            if (focused) {
+                activeResultTable = queryTab.getResultTable();
             }
         });
-
-        ContextMenu tabContextMenu = new ContextMenu();
-        MenuItem renameTabMenuItem = new MenuItem("Rename");
-        renameTabMenuItem.setOnAction(event -> {
-            TextInputDialog dialog = new TextInputDialog(newTabgetText());
-            dialog.setTitle("Rename Tab");
-            dialog.setHeaderText("Enter new name for the tab:");
-            dialog.setContentText("New Name:");
-
-            Optional<String> result = dialog.showAndWait();
-            result.ifPresent(name -> newTab.setText(name.trim().isEmpty() ? "New Query" : name));
-        });
-        tabContextMenu.getItems().add(renameTabMenuItem);
-        newTab.setContextMenu(tabContextMenu);
-
         newTab.setOnClosed(event -> {
+            if (activeResultTable == queryTab.getResultTable()) {
+                activeResultTable = dataTableView;
+            }
+            queryTab.dispose();
             if (queryTabPane.getTabs().isEmpty()) {
                 createNewQueryTab(); // Ensure at least one tab exists
             }
@@ -424,31 +776,24 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         queryTabPane.getSelectionModel().select(newTab);
     }
 
-    private String getCurrentQuery() {
-        Tab selectedTab = queryTabPane.getSelectionModel().getSelectedItem();
-        if (selectedTab != null && selectedTab.getContent() instanceof TextArea) {
-            return ((TextArea) selectedTab.getContent()).getText().trim();
-        }
-        return null;
-    }
-
-    private void executeCurrentQuery() {
-        String aql = getCurrentQuery();
+    private void executeCurrentQuery(boolean refresh) {
+        QueryTab queryTab = QueryTab.of(queryTabPane.getSelectionModel().getSelectedItem());
+        String aql = queryTab != null ? queryTab.getQuery() : null;
         if (aql != null && !aql.isEmpty()) {
             String command = aql.split("\\s+")[0].toUpperCase();
             System.out.println("Execute AQL Button Pressed. Command: " + command + ", AQL: " + aql);
             if (client != null && client.isConnected()) {
-                progressBar.setVisible(true);
-                statusBarLabel.setText("Executing query...");
-                if (command.equals("INSERT") || command.equals("DELETE") || command.equals("UPDATE") || command.equals("SELECT")) {
-                    AerospikeDataManipulation dataManipulation = new AerospikeDataManipulation(client, scanExecutor, statusBarLabel, dataTableView, progressBar, statusBarLabel, tableOutputRadio, jsonOutputRadio); // Pass progress bar and status label
-                    dataManipulation.setSelectResultCallback((AerospikeDataManipulation.SelectResultCallback) this);
-                    dataManipulation.executeAqlManipulation(aql);
+                if (RUNNABLE_COMMANDS.contains(command)) {
+                    // Each run reports into its own tab, so tabs don't overwrite each other
+                    AerospikeDataManipulation dataManipulation = new AerospikeDataManipulation(client, queryExecutor, queryTab.getStatusLabel(), queryTab.getResultTable(), queryTab.getProgressBar(), queryTab.getStatusLabel());
+                    dataManipulation.setSindexCatalog(sindexCatalog);
+                    dataManipulation.setAsyncClient(asyncClient);
+                    dataManipulation.setUdfManager(udfManager);
+                    queryTab.run(queryScheduler, dataManipulation, aql, refresh);
                 } else {
                     Platform.runLater(() -> {
                         showInfoDialog("Error", "Unsupported AQL command: " + command, Alert.AlertType.ERROR);
                         statusBarLabel.setText("Unsupported AQL command: " + command);
-                        progressBar.setVisible(false);
                     });
                 }
             } else {
@@ -469,10 +814,13 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
     }
 
     private void connectToAerospike(String hosts, String user, String password) {
+        OperationMetrics.Timer connectTimer = OperationMetrics.shared().start(OperationMetrics.OpType.CONNECT);
         try {
             progressBar.setVisible(true);
             statusBarLabel.setText("Connecting...");
             ClientPolicy clientPolicy = new ClientPolicy();
+            eventLoops = new NioEventLoops(new EventPolicy(), ExplorerSettings.EVENT_LOOPS);
+            clientPolicy.eventLoops = eventLoops;
             if (!user.isEmpty() && !password.isEmpty()) {
                 clientPolicy.user = user;
                 clientPolicy.password = password;
@@ -488,6 +836,12 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
                 }
             }
             client = new AerospikeClient(clientPolicy, hostList.toArray(new Host[0]));
+            connectTimer.end(client.isConnected() ? null : new AerospikeException("Not connected"));
+            sindexCatalog = new SindexCatalog(client);
+            asyncClient = new AsyncAerospike(client, eventLoops);
+            udfManager = new UdfManager(client);
+            ClusterMetadataCache cache = new ClusterMetadataCache(client);
+            metadataCache = cache;
             if (client.isConnected()) {
                 showInfoDialog("Aerospike Connection", "Connected to " + hosts, Alert.AlertType.INFORMATION);
 
@@ -495,14 +849,22 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
                 disconnectButton.setDisable(false);
                 connectButton.setDisable(true);
                 populateNamespaceSets();
+                cache.startAutoRefresh(ExplorerSettings.METADATA_REFRESH_MS, snapshot -> Platform.runLater(() -> {
+                    if (metadataCache == cache) {
+                        applyMetadata(snapshot);
+                    }
+                }));
             } else {
                 statusBarLabel.setText("Connection Failed");
             }
         } catch (AerospikeException e) {
+            connectTimer.end(e);
             showInfoDialog("Aerospike Connection", "Connection Error: " + e.getMessage(), Alert.AlertType.ERROR);
 
             statusBarLabel.setText("Connection Error: " + e.getMessage());
             client = null;
+            closeMetadataCache();
+            closeEventLoops();
             disconnectButton.setDisable(true);
             connectButton.setDisable(false);
             e.printStackTrace();
@@ -515,9 +877,25 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         if (client != null && client.isConnected()) {
             progressBar.setVisible(true);
             statusBarLabel.setText("Disconnecting...");
+            for (Tab tab : queryTabPane.getTabs()) {
+                QueryTab queryTab = QueryTab.of(tab);
+                if (queryTab != null) {
+                    queryTab.cancel();
+                }
+            }
+            if (dashboard != null) {
+                dashboard.close();
+                dashboard = null;
+            }
             executor.submit(() -> {
                 client.close();
                 client = null;
+                sindexCatalog = null;
+                asyncClient = null;
+                udfManager = null;
+                ResultCache.shared().clear(); // The next connection may be another cluster
+                closeMetadataCache();
+                closeEventLoops();
                 Platform.runLater(() -> {
                     showInfoDialog("Aerospike Connection", "Disconnected", Alert.AlertType.INFORMATION);
 
@@ -525,8 +903,7 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
                     disconnectButton.setDisable(true);
                     connectButton.setDisable(false);
                     namespaceSetTree.setRoot(null);
-                    dataTableView.getItems().clear();
-                    dataTableView.getColumns().clear();
+                    clearTable();
                     progressBar.setVisible(false);
                 });
             });
@@ -536,45 +913,25 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
     }
 
     private void populateNamespaceSets() {
-        if (client != null && client.isConnected()) {
+        ClusterMetadataCache cache = metadataCache;
+        if (client != null && client.isConnected() && cache != null) {
+            if (cache.getSnapshot() != null) {
+                applyMetadata(cache.getSnapshot()); // Show the last known tree right away
+            }
             progressBar.setVisible(true);
             statusBarLabel.setText("Fetching namespaces and sets...");
-            TreeItem<String> rootItem = new TreeItem<>("Aerospike");
-            rootItem.setExpanded(true);
-            namespaceSetTree.setRoot(rootItem);
 
             executor.submit(() -> {
                 try {
-                    Map<String, Set<String>> namespaceSetsMap = new HashMap<>();
-                    Node[] nodes = client.getNodes();
-
-                    for (Node node : nodes) {
-                        String namespacesInfo = Info.request(null, node, "namespaces");
-                        if (namespacesInfo != null && !namespacesInfo.isEmpty()) {
-                            String[] namespaces = namespacesInfo.split(";");
-                            for (String namespace : namespaces) {
-                                if (!namespaceSetsMap.containsKey(namespace)) {
-                                    namespaceSetsMap.put(namespace, new HashSet<>());
-                                }
-                                String setsInfo = Info.request(null, node, "sets/" + namespace);
-                                if (setsInfo != null && !setsInfo.isEmpty()) {
-                                    String[] sets = setsInfo.split(";");
-                                    for (String setInfo : sets) {
-                                        String setName = setInfo.split(":")[1].split("=")[1];
-                                        namespaceSetsMap.get(namespace).add(setName);
-                                    }
-                                }
-                            }
-                        }
-                    }
-
+                    ClusterMetadataCache.Snapshot snapshot = cache.refresh();
                     Platform.runLater(() -> {
-                        namespaceSetsMap.forEach((namespace, sets) -> {
-                            TreeItem<String> namespaceItem = new TreeItem<>(namespace);
-                            sets.stream().sorted().forEach(set -> namespaceItem.getChildren().add(new TreeItem<>(set)));
-                            rootItem.getChildren().add(namespaceItem);
-                        });
-                        statusBarLabel.setText("Namespaces and sets loaded.");
+                        if (metadataCache == cache) {
+                            applyMetadata(snapshot);
+                        }
+                        statusBarLabel.setText(snapshot.getFailedNodes() > 0
+                                ? "Namespaces and sets loaded; " + snapshot.getFailedNodes() + " of "
+                                + snapshot.getNodeCount() + " nodes did not answer."
+                                : "Namespaces and sets loaded.");
                         progressBar.setVisible(false);
                     });
 
@@ -591,131 +948,367 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         }
     }
 
+    // Adds and removes only the items that changed, so selection and expansion are kept
+    private void applyMetadata(ClusterMetadataCache.Snapshot snapshot) {
+        TreeItem<String> rootItem = namespaceSetTree.getRoot();
+        if (rootItem == null) {
+            rootItem = new TreeItem<>("Aerospike");
+            rootItem.setExpanded(true);
+            namespaceSetTree.setRoot(rootItem);
+        }
+        syncChildren(rootItem, snapshot.getNamespaces().keySet());
+        for (TreeItem<String> namespaceItem : rootItem.getChildren()) {
+            syncChildren(namespaceItem, snapshot.getNamespaces().get(namespaceItem.getValue()).keySet());
+        }
+        namespaceSetTree.refresh(); // Counts may have changed on unchanged items
+    }
+
+    // Both the children and the names are in sorted order
+    private static void syncChildren(TreeItem<String> parent, Set<String> names) {
+        parent.getChildren().removeIf(child -> !names.contains(child.getValue()));
+        int index = 0;
+        for (String name : names) {
+            if (index >= parent.getChildren().size() || !parent.getChildren().get(index).getValue().equals(name)) {
+                parent.getChildren().add(index, new TreeItem<>(name));
+            }
+            index++;
+        }
+    }
+
+    private void showDashboard() {
+        if (client == null || !client.isConnected()) {
+            statusBarLabel.setText("Not connected");
+            return;
+        }
+        if (dashboard == null || !dashboard.isShowing()) {
+            dashboard = new ClusterDashboard(client);
+        }
+        dashboard.show();
+    }
+
+    // Client-side metrics need no connection, so the panel is kept across reconnects
+    private void showMetrics() {
+        if (metricsPanel == null) {
+            metricsPanel = new MetricsPanel();
+        }
+        metricsPanel.show();
+    }
+
+    private void closeMetadataCache() {
+        if (metadataCache != null) {
+            metadataCache.close();
+            metadataCache = null;
+        }
+    }
+
+    /**
+     * Shows the object count next to each set, with the full set statistics as a tooltip.
+     */
+    private class NamespaceSetCell extends TreeCell<String> {
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            ClusterMetadataCache cache = metadataCache;
+            TreeItem<String> treeItem = getTreeItem();
+            ClusterMetadataCache.SetStats stats = null;
+            if (!empty && cache != null && cache.getSnapshot() != null && treeItem != null && treeItem.getParent() != null
+                    && treeItem.getParent().getParent() != null) {
+                stats = cache.getSnapshot().getSet(treeItem.getParent().getValue(), item);
+            }
+            if (empty || item == null) {
+                setText(null);
+                setTooltip(null);
+            } else if (stats == null) {
+                setText(item);
+                setTooltip(null);
+            } else {
+                setText(String.format("%s (%,d)%s", item, stats.getObjects(), stats.isStopWrites() ? " [stop-writes]" : ""));
+                setTooltip(new Tooltip(String.format("Objects: %,d%nTombstones: %,d%nMemory: %,d bytes%nDevice: %,d bytes"
+                                + "%nStop-writes count: %s%nStop-writes size: %s",
+                        stats.getObjects(), stats.getTombstones(), stats.getMemoryBytes(), stats.getDeviceBytes(),
+                        stats.getStopWritesCount() > 0 ? String.format("%,d", stats.getStopWritesCount()) : "none",
+                        stats.getStopWritesSize() > 0 ? String.format("%,d bytes", stats.getStopWritesSize()) : "none")));
+            }
+        }
+    }
+
     private void scanAllAndDisplayInTable(String namespace, String set) {
-        System.out.println("scanAllAndDisplayInTable called with namespace: " + namespace + ", set: " + set);
+        Expression filterExp = null;
+        if (serverFilterCheckBox.isSelected()) {
+            try {
+                filterExp = compileServerFilter(filterInput.getText());
+            } catch (AqlSyntaxException e) {
+                statusBarLabel.setText("Filter error: " + e.getLocatedMessage());
+                return;
+            }
+        }
+        scanAllAndDisplayInTable(namespace, set, filterExp, false);
+    }
+
+    private static String browseCacheKey(String namespace, String set) {
+        return "SCAN " + namespace + (set != null ? "." + set : "");
+    }
+
+    /**
+     * Shows the records of {@code namespace[.set]}. Complete unfiltered scans are kept in the
+     * {@link ResultCache} and shown from there next time, unless {@code refresh} is set.
+     */
+    private void scanAllAndDisplayInTable(String namespace, String set, Expression filterExp, boolean refresh) {
         if (client != null && client.isConnected()) {
-            ObservableList<Map<String, Object>> allRecords = FXCollections.observableArrayList();
+            if (currentScanBatcher != null) {
+                currentScanBatcher.cancel(); // Stop feeding the table from a previous scan
+            }
+            if (currentScanJob != null) {
+                currentScanJob.cancel();
+            }
+            if (currentPageCursor != null) {
+                currentPageCursor.cancel();
+                currentPageCursor = null;
+            }
+            currentScanNamespace = namespace;
+            currentScanSet = set;
+            currentScanFiltered = filterExp != null;
+            String target = namespace + (set != null ? "." + set : "") + (filterExp != null ? " (server filter)" : "");
+            reloadCachedButton.setVisible(false);
+            ResultCache.Hit hit = filterExp == null && !refresh ? ResultCache.shared().get(browseCacheKey(namespace, set)) : null;
+            if (hit != null) {
+                clearTable();
+                updateTableView(hit.getResults());
+                resumeScanButton.setVisible(false);
+                loadNextPageButton.setVisible(false);
+                reloadCachedButton.setVisible(true);
+                statusBarLabel.setText("Loaded all " + hit.getResults().getStore().size() + " records of " + target
+                        + hit.describe() + ".");
+                return;
+            }
+            long generation = ResultCache.shared().generation();
+            PagedRecordList allRecords = new PagedRecordList(new PagedResultStore());
+            ScanPolicy scanPolicy = new ScanPolicy();
+            scanPolicy.filterExp = filterExp;
+            if (ExplorerSettings.BROWSE_PAGE_SIZE > 0) {
+                // Show the first page right away; later pages load on demand
+                PartitionScanEngine.PageCursor cursor = new PartitionScanEngine(client).newPageCursor(namespace, set, scanPolicy);
+                currentScanBatcher = null;
+                currentScanJob = null;
+                currentPageCursor = cursor;
+                clearTable();
+                dataTableView.setPlaceholder(new Label("Loading first page..."));
+                long expected = filterExp == null ? expectedRecords(namespace, set) : 0;
+                loadNextPageButton.setOnAction(event -> loadNextPage(cursor, allRecords, target, expected, generation));
+                loadNextPage(cursor, allRecords, target, expected, generation);
+                return;
+            }
+            RecordBatcher<KeyRecord> batcher = newBrowseBatcher(allRecords, "Scanning " + target, 0);
+            PartitionScanEngine.ScanJob scanJob = new PartitionScanEngine(client).newScan(namespace, set, scanPolicy);
+            currentScanBatcher = batcher;
+            currentScanJob = scanJob;
             Platform.runLater(() -> {
-                dataTableView.getItems().clear();
-                dataTableView.getColumns().clear();
+                clearTable();
                 dataTableView.setPlaceholder(new Label("Scanning data..."));
+                resumeScanButton.setVisible(false);
+                loadNextPageButton.setVisible(false);
+                progressBar.setProgress(0);
                 progressBar.setVisible(true);
-                statusBarLabel.setText("Scanning " + namespace + (set != null ? "." + set : "") + "...");
-            });
-
-            scanExecutor.submit(() -> {
-                try {
-                    System.out.println("Starting scan for namespace: " + namespace + ", set: " + set);
-                    client.scanAll(new ScanPolicy(), namespace, set, (key, record) -> {
-                        System.out.println("Record found in scan: Key=" + key);
-                        Map<String, Object> recordData = new HashMap<>();
-                        recordData.put("Namespace", key.namespace);
-                        recordData.put("Set", key.setName);
-                        if (record != null) {
-                            recordData.put("Generation", record.generation);
-                            recordData.put("TTL", record.getTimeToLive());
-                            if (record.bins != null) {
-                                recordData.putAll(record.bins);
-                            }
-                        }
-                        Platform.runLater(() -> allRecords.add(recordData));
-                    });
-                    System.out.println("Scan completed for namespace: " + namespace + ", set: " + set);
-
-                    Platform.runLater(() -> {
-                        updateTableView(allRecords);
-                        statusBarLabel.setText("Scan completed.");
-                        progressBar.setVisible(false);
-                    });
-
-                } catch (AerospikeException e) {
-                    Platform.runLater(() -> {
-                        dataTableView.setPlaceholder(new Label("Error during scan: " + e.getMessage()));
-                        statusBarLabel.setText("Error during scan: " + e.getMessage());
-                        progressBar.setVisible(false);
-                    });
-                    e.printStackTrace();
-                }
+                statusBarLabel.setText("Scanning " + target + "...");
+                batcher.start();
             });
+            runScanJob(scanJob, batcher, allRecords, target, generation);
         } else {
             dataTableView.setPlaceholder(new Label("Not Connected to Aerospike."));
             statusBarLabel.setText("Not Connected to Aerospike.");
         }
     }
 
-    @Override
-    public void onResult(java.util.List<Map<String, Object>> results) {
-        Platform.runLater(() -> {
-            progressBar.setVisible(false);
-            statusBarLabel.setText("Query executed.");
-            if (results != null) {
-                updateTableView(FXCollections.observableArrayList(results));
-                if (outputFormatGroup.getSelectedToggle() == jsonOutputRadio) {
-                    displayJsonOutput(new ArrayList<>(results));
-                }
+    // Feeds scanned records into the browse table; with expected > 0 the progress bar follows the row count
+    private RecordBatcher<KeyRecord> newBrowseBatcher(PagedRecordList allRecords, String activity, long expected) {
+        return new RecordBatcher<>(chunk -> {
+            allRecords.appendRecords(chunk);
+            if (currentResults != allRecords) {
+                updateTableView(allRecords); // Show the first rows while the scan continues
             } else {
-                dataTableView.getItems().clear();
-                dataTableView.getColumns().clear();
-                dataTableView.setPlaceholder(new Label("No results from query."));
+                addMissingColumns(allRecords);
+            }
+            if (expected > 0) {
+                progressBar.setProgress(Math.min(1.0, (double) allRecords.getStore().size() / expected));
             }
+            statusBarLabel.setText(activity + "... " + allRecords.getStore().size() + " records");
         });
     }
 
-    @Override
-    public void onError(String errorMessage) {
-        Platform.runLater(() -> {
-            progressBar.setVisible(false);
-            statusBarLabel.setText("Query Error: " + errorMessage);
-            dataTableView.setPlaceholder(new Label("Query Error: " + errorMessage));
+    // Record count of the set from the cached cluster metadata, 0 when unknown
+    private long expectedRecords(String namespace, String set) {
+        ClusterMetadataCache.Snapshot snapshot = metadataCache != null ? metadataCache.getSnapshot() : null;
+        if (snapshot == null) {
+            return 0;
+        }
+        if (set != null) {
+            ClusterMetadataCache.SetStats stats = snapshot.getSet(namespace, set);
+            return stats != null ? stats.getObjects() : 0;
+        }
+        long total = 0;
+        Map<String, ClusterMetadataCache.SetStats> sets = snapshot.getNamespaces().get(namespace);
+        if (sets != null) {
+            for (ClusterMetadataCache.SetStats stats : sets.values()) {
+                total += stats.getObjects();
+            }
+        }
+        return total;
+    }
 
-            tableOutputRadio.setSelected(false);
-            System.err.println("Query Error: " + errorMessage);
+    /**
+     * Reads the next page from the cursor through the same bounded batcher as a full scan, so
+     * rows appear while the page loads. A failed page can be resumed from where it stopped.
+     */
+    private void loadNextPage(PartitionScanEngine.PageCursor cursor, PagedRecordList allRecords, String target,
+                              long expected, long generation) {
+        loadNextPageButton.setVisible(false);
+        resumeScanButton.setVisible(false);
+        RecordBatcher<KeyRecord> batcher = newBrowseBatcher(allRecords, "Loading " + target, expected);
+        currentScanBatcher = batcher;
+        progressBar.setProgress(expected > 0 ? Math.min(1.0, (double) allRecords.getStore().size() / expected)
+                : ProgressBar.INDETERMINATE_PROGRESS);
+        progressBar.setVisible(true);
+        statusBarLabel.setText("Loading " + target + "... " + allRecords.getStore().size() + " records so far");
+        batcher.start();
+        scanExecutor.submit(() -> {
+            AerospikeException failure = null;
+            try {
+                cursor.nextPage(ExplorerSettings.BROWSE_PAGE_SIZE, (key, record) -> {
+                    if (!batcher.put(new KeyRecord(key, record))) {
+                        throw new AerospikeException.ScanTerminated();
+                    }
+                });
+            } catch (AerospikeException.ScanTerminated e) {
+                return; // Another set was selected
+            } catch (AerospikeException e) {
+                failure = e; // The cursor keeps its place, so the page can be requested again
+                e.printStackTrace();
+            }
+            AerospikeException error = failure;
+            batcher.complete(() -> {
+                if (cursor != currentPageCursor) {
+                    return;
+                }
+                if (currentResults != allRecords) {
+                    updateTableView(allRecords);
+                }
+                boolean more = error != null || !cursor.isDone();
+                if (!more) {
+                    cacheBrowseResults(allRecords, generation);
+                }
+                String loaded = allRecords.getStore().size() + " records of " + target;
+                if (error != null) {
+                    statusBarLabel.setText("Error loading " + target + " after " + loaded + ": " + error.getMessage());
+                    resumeScanButton.setOnAction(event -> loadNextPage(cursor, allRecords, target, expected, generation));
+                    resumeScanButton.setVisible(true);
+                } else {
+                    statusBarLabel.setText(more ? "Loaded first " + loaded + "." : "Loaded all " + loaded + ".");
+                    loadNextPageButton.setVisible(more);
+                }
+                progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+                progressBar.setVisible(false);
+            });
         });
     }
 
-    private void updateTableView(ObservableList<Map<String, Object>> results) {
-        if (!results.isEmpty()) {
-            dataTableView.getColumns().clear();
+    private void runScanJob(PartitionScanEngine.ScanJob scanJob, RecordBatcher<KeyRecord> batcher,
+                            PagedRecordList allRecords, String target, long generation) {
+        scanExecutor.submit(() -> {
+            try {
+                scanJob.run((key, record) -> {
+                    if (!batcher.put(new KeyRecord(key, record))) {
+                        throw new AerospikeException.ScanTerminated();
+                    }
+                }, (done, total) -> Platform.runLater(() -> progressBar.setProgress((double) done / total)));
 
-            Set<String> columnNames = new HashSet<>();
-            for (Map<String, Object> result : results) {
-                columnNames.addAll(result.keySet());
-            }
+                batcher.complete(() -> {
+                    updateTableView(allRecords);
+                    if (scanJob == currentScanJob) {
+                        cacheBrowseResults(allRecords, generation);
+                    }
+                    statusBarLabel.setText("Scan of " + target + " completed. " + allRecords.getStore().size() + " records.");
+                    progressBar.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+                    progressBar.setVisible(false);
+                });
 
-            TableColumn<Map<String, Object>, Integer> serialNumberColumn = new TableColumn<>("Serial No.");
-            serialNumberColumn.setMinWidth(50);
-            serialNumberColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(dataTableView.getItems().indexOf(param.getValue()) + 1));
+            } catch (AerospikeException.ScanTerminated e) {
+                // Superseded by another scan, which owns the status bar now
+            } catch (AerospikeException e) {
+                // Keep the batcher running: records already scanned stay in the table and a
+                // resume continues from the partitions that did not finish.
+                Platform.runLater(() -> {
+                    dataTableView.setPlaceholder(new Label("Error during scan: " + e.getMessage()));
+                    statusBarLabel.setText("Error during scan of " + target + " (" + scanJob.getCompletedPartitions() + "/"
+                            + PartitionScanEngine.PARTITION_COUNT + " partitions done): " + e.getMessage());
+                    updateTableView(allRecords);
+                    progressBar.setVisible(false);
+                    if (scanJob == currentScanJob) {
+                        resumeScanButton.setOnAction(event -> {
+                            resumeScanButton.setVisible(false);
+                            progressBar.setVisible(true);
+                            statusBarLabel.setText("Resuming scan of " + target + "...");
+                            runScanJob(scanJob, batcher, allRecords, target, generation);
+                        });
+                        resumeScanButton.setVisible(true);
+                    }
+                });
+                e.printStackTrace();
+            }
+        });
+    }
 
+    // Only called for the scan currently shown, once it has read every record
+    private void cacheBrowseResults(PagedRecordList allRecords, long generation) {
+        if (!currentScanFiltered) {
+            ResultCache.shared().put(browseCacheKey(currentScanNamespace, currentScanSet), currentScanNamespace,
+                    currentScanSet, generation, allRecords.getStore());
+        }
+    }
 
-            dataTableView.getColumns().add(serialNumberColumn);
-            List<TableColumn<Map<String, Object>, String>> columns = new ArrayList<>();
-            for (String columnName : columnNames) {
-                TableColumn<Map<String, Object>, String> column = new TableColumn<>(columnName);
-                column.setCellValueFactory(cellData -> {
-                    Object value = cellData.getValue().get(columnName);
-                    return new SimpleStringProperty(value != null ? value.toString() : "");
-                });
-                if (!columnName.equals("Key") && !columnName.equals("Namespace") && !columnName.equals("Set")) {
-                    column.setCellFactory(TextFieldTableCell.forTableColumn());
-                    column.setOnEditCommit(event -> {
-                        Map<String, Object> record = event.getRowValue();
-                        record.put(columnName, event.getNewValue());
-                        String namespace = (String) record.get("Namespace");
-                        String set = (String) record.get("Set");
-                        String key = (String) record.get("Key");
-                        String binName = event.getTableColumn().getText();
-                        String newValue = event.getNewValue();
-                        executeUpdateRecord(namespace, set, key, binName, newValue);
-                        System.out.println("Updated record: " + record);
-                    });
-                }
-                columns.add(column);
+    private TableColumn<Map<String, Object>, Integer> createSerialNumberColumn() {
+        TableColumn<Map<String, Object>, Integer> serialNumberColumn = new TableColumn<>("Serial No.");
+        serialNumberColumn.setMinWidth(50);
+        serialNumberColumn.setSortable(false);
+        // Derive the number from the cell index; indexOf would walk the whole result set
+        serialNumberColumn.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || getIndex() < 0 ? null : String.valueOf(getIndex() + 1));
             }
-            dataTableView.getColumns().addAll(columns);
+        });
+        return serialNumberColumn;
+    }
+
+    private void clearTable() {
+        dataTableView.setItems(FXCollections.observableArrayList());
+        dataTableView.getColumns().clear();
+        displayedColumns.clear();
+        if (currentResults != null) {
+            currentResults.getStore().close();
+            currentResults = null;
+        }
+        discardStagedEdits();
+    }
+
+    private void updateTableView(PagedRecordList results) {
+        long renderStart = System.nanoTime();
+        if (currentResults != null && currentResults != results) {
+            currentResults.getStore().close();
+            discardStagedEdits();
+        }
+        currentResults = results;
+        activeResultTable = dataTableView;
+        if (results.getStore().size() > 0) {
+            dataTableView.getColumns().clear();
+            displayedColumns.clear();
+
+            dataTableView.getColumns().add(createSerialNumberColumn());
 
             // Add Delete Button Column
-            TableColumn<Map<String, Object>, Void> deleteCol = new TableColumn<>("Action");
-            deleteCol.setCellFactory(new Callback<TableColumn<Map<String, Object>, Void>, TableCell<Map<String, Object>, Void>>() {
+            actionColumn = new TableColumn<>("Action");
+            actionColumn.setSortable(false);
+            actionColumn.setCellFactory(new Callback<TableColumn<Map<String, Object>, Void>, TableCell<Map<String, Object>, Void>>() {
                 @Override
                 public TableCell<Map<String, Object>, Void> call(final TableColumn<Map<String, Object>, Void> param) {
                     final TableCell<Map<String, Object>, Void> cell = new TableCell<Map<String, Object>, Void>() {
@@ -723,11 +1316,8 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
 
                         {
                             deleteButton.setOnAction(event -> {
-                                Map<String, Object> data = getTableView().getItems().get(getIndex());
-                                String namespace = (String) data.get("Namespace");
-                                String set = (String) data.get("Set");
-                                String key = (String) data.get("Key");
-                                executeDeleteRecord(namespace, set, key);
+                                RowView data = (RowView) getTableView().getItems().get(getIndex());
+                                executeDeleteRecord(data.getRecordKey(), results, data.getRowId());
                             });
                         }
 
@@ -744,7 +1334,8 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
                     return cell;
                 }
             });
-            dataTableView.getColumns().add(deleteCol);
+            dataTableView.getColumns().add(actionColumn);
+            addMissingColumns(results);
 
             // Context Menu for Table
             ContextMenu tableContextMenu = new ContextMenu();
@@ -765,109 +1356,287 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
             tableContextMenu.getItems().add(copyValueMenuItem);
             dataTableView.setContextMenu(tableContextMenu);
 
-            FilteredList<Map<String, Object>> filteredData = new FilteredList<>(results, p -> true);
-            filterInput.textProperty().addListener((observable, oldValue, newValue) -> {
-                filteredData.setPredicate(record -> {
-                    if (newValue == null || newValue.isEmpty()) {
-                        return true;
-                    }
-                    String lowerCaseFilter = newValue.toLowerCase();
-                    return record.values().stream()
-                            .anyMatch(value -> value != null && value.toString().toLowerCase().contains(lowerCaseFilter));
-                });
-            });
-
-            SortedList<Map<String, Object>> sortedData = new SortedList<>(filteredData);
-            sortedData.comparatorProperty().bind(dataTableView.comparatorProperty());
-            dataTableView.setItems(sortedData);
+            String filterText = localFilterText();
+            if (filterText != null && !filterText.isEmpty()) {
+                results.setSearchText(filterText);
+            }
+            dataTableView.setItems(results);
             dataTableView.setEditable(true);
 
 
         } else {
             dataTableView.setPlaceholder(new Label("No data found."));
         }
+        OperationMetrics.shared().recordRender(OperationMetrics.OpType.SCAN, System.nanoTime() - renderStart);
+    }
+
+    // Adds columns for bins that appeared since the table was built, keeping the Action column last
+    private void addMissingColumns(PagedRecordList results) {
+        List<TableColumn<Map<String, Object>, ?>> columns = new ArrayList<>();
+        for (String columnName : results.getStore().getColumnNames()) {
+            if (!displayedColumns.add(columnName)) {
+                continue;
+            }
+            TableColumn<Map<String, Object>, String> column = new TableColumn<>(columnName);
+            column.setCellValueFactory(cellData -> {
+                Object value = editBuffer.stagedValue(cellData.getValue(), columnName);
+                if (value == null) {
+                    value = cellData.getValue().get(columnName);
+                }
+                return new SimpleStringProperty(value != null ? value.toString() : "");
+            });
+            if (!columnName.equals("Key") && !columnName.equals("Namespace") && !columnName.equals("Set")) {
+                column.setCellFactory(col -> new TextFieldTableCell<>(new DefaultStringConverter()) {
+                    @Override
+                    public void updateItem(String item, boolean empty) {
+                        super.updateItem(item, empty);
+                        boolean staged = !empty && getTableRow() != null && getTableRow().getItem() != null
+                                && editBuffer.stagedValue(getTableRow().getItem(), columnName) != null;
+                        getStyleClass().remove("staged-edit");
+                        if (staged) {
+                            getStyleClass().add("staged-edit");
+                        }
+                    }
+                });
+                column.setOnEditCommit(event -> {
+                    Map<String, Object> record = event.getRowValue();
+                    String binName = event.getTableColumn().getText();
+                    String newValue = event.getNewValue();
+                    stageEdit(results, (RowView) record, binName, newValue);
+                });
+            }
+            columns.add(column);
+        }
+        if (!columns.isEmpty()) {
+            int insertAt = dataTableView.getColumns().indexOf(actionColumn);
+            dataTableView.getColumns().addAll(insertAt >= 0 ? insertAt : dataTableView.getColumns().size(), columns);
+        }
     }
 
-    private void executeDeleteRecord(String namespace, String set, String key) {
-        if (client != null && client.isConnected() && namespace != null && set != null && key != null) {
+    // The filter box text when it filters the loaded rows, null when it is a server predicate
+    private String localFilterText() {
+        return serverFilterCheckBox.isSelected() ? null : filterInput.getText();
+    }
+
+    private void applyFilter(String filterText) {
+        if (currentResults != null) {
+            currentResults.setSearchText(filterText);
+            if (!dataTableView.getSortOrder().isEmpty()) {
+                sortResults();
+            }
+        }
+    }
+
+    private Expression compileServerFilter(String filterText) {
+        if (filterText == null || filterText.isBlank()) {
+            return null;
+        }
+        AqlAst.Predicate predicate = AqlParser.parsePredicate(filterText);
+        return Exp.build(new PredicateCompiler(filterText).compile(predicate));
+    }
+
+    private void applyServerFilter() {
+        if (currentScanNamespace == null) {
+            statusBarLabel.setText("Select a namespace or set to filter on the server.");
+            return;
+        }
+        scanAllAndDisplayInTable(currentScanNamespace, currentScanSet);
+    }
+
+    private void sortResults() {
+        if (currentResults == null) {
+            return;
+        }
+        if (dataTableView.getSortOrder().isEmpty()) {
+            applyFilter(localFilterText()); // Back to scan order
+            return;
+        }
+        // Sort on the raw bin values so numeric bins order numerically
+        List<String> columns = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        for (TableColumn<Map<String, Object>, ?> column : dataTableView.getSortOrder()) {
+            columns.add(column.getText());
+            descending.add(column.getSortType() == TableColumn.SortType.DESCENDING);
+        }
+        currentResults.sort(columns, descending);
+    }
+
+    // rowId is the deleted row in results, which is updated in place if still shown
+    private void executeDeleteRecord(Key key, PagedRecordList results, int rowId) {
+        if (client != null && client.isConnected() && key != null) {
             progressBar.setVisible(true);
             statusBarLabel.setText("Deleting record...");
-            executor.submit(() -> {
-                try {
-                    Key aerospikeKey = new Key(namespace, set, key);
-                    client.delete(null, aerospikeKey);
-                    Platform.runLater(() -> {
-                        statusBarLabel.setText("Record with key '" + key + "' deleted.");
-                        scanAllAndDisplayInTable(namespace, set);
-                        progressBar.setVisible(false);
-                    });
-                } catch (AerospikeException e) {
-                    Platform.runLater(() -> {
-                        statusBarLabel.setText("Error during deletion: " + e.getMessage());
-                        progressBar.setVisible(false);
-                    });
-                    e.printStackTrace();
+            AsyncAerospike.onFxThread(asyncClient.delete(null, key), (existed, error) -> {
+                if (error != null) {
+                    statusBarLabel.setText("Error during deletion: " + error.getMessage());
+                    error.printStackTrace();
+                } else if (!existed) {
+                    statusBarLabel.setText("Record with key '" + RowView.describeKey(key) + "' not found; it may already have been deleted or expired.");
+                } else {
+                    ResultCache.shared().invalidate(key.namespace, key.setName);
+                    statusBarLabel.setText("Record with key '" + RowView.describeKey(key) + "' deleted.");
+                    if (results == currentResults) {
+                        results.removeRow(rowId);
+                        editBuffer.discard(rowId);
+                        updateEditButtons();
+                    }
                 }
+                progressBar.setVisible(false);
             });
         } else {
             Platform.runLater(() -> statusBarLabel.setText("Not connected or invalid delete parameters."));
         }
     }
 
-    private void executeUpdateRecord(String namespace, String set, String key, String binName, String newValue) {
-        if (client != null && client.isConnected() && namespace != null && set != null && key != null && binName != null) {
-            progressBar.setVisible(true);
-            statusBarLabel.setText("Updating record...");
-            executor.submit(() -> {
-                try {
-                    Key aerospikeKey = new Key(namespace, set, key);
-                    Record existingRecord = client.get(null, aerospikeKey, binName);
-                    Object parsedValue = newValue;
-                    String valueType = "String";
-
-                    if (existingRecord != null && existingRecord.bins != null && existingRecord.bins.containsKey(binName)) {
-                        Object existingValue = existingRecord.bins.get(binName);
-                        if (existingValue instanceof Integer) {
-                            valueType = "Integer";
-                            try {
-                                parsedValue = Integer.parseInt(newValue);
-                            } catch (NumberFormatException e) {
-                                Platform.runLater(() -> statusBarLabel.setText("Error: Cannot update " + binName + " (Integer) with '" + newValue + "'. Treating as String."));
-                                parsedValue = newValue; // Treat as string on parse failure
-                            }
-                        } else if (existingValue instanceof Double) {
-                            valueType = "Double";
-                            try {
-                                parsedValue = Double.parseDouble(newValue);
-                            } catch (NumberFormatException e) {
-                                Platform.runLater(() -> statusBarLabel.setText("Error: Cannot update " + binName + " (Double) with '" + newValue + "'. Treating as String."));
-                                parsedValue = newValue; // Treat as string on parse failure
-                            }
-                        } else if (existingValue instanceof Boolean) {
-                            valueType = "Boolean";
-                            parsedValue = Boolean.parseBoolean(newValue);
-                        }
+    private void stageEdit(PagedRecordList results, RowView row, String binName, String newValue) {
+        if (results != currentResults) {
+            return;
+        }
+        if (row.getRecordKey() == null) {
+            statusBarLabel.setText("Cannot edit " + binName + ": the row is not a stored record.");
+            dataTableView.refresh();
+            return;
+        }
+        Object shown = row.get(binName);
+        Object value = editBuffer.stage(row, binName, newValue);
+        updateEditButtons();
+        if (shown != null && !(shown instanceof String) && value instanceof String) {
+            statusBarLabel.setText("Warning: '" + newValue + "' is not a " + shown.getClass().getSimpleName()
+                    + "; " + binName + " will be written as a String.");
+        } else {
+            statusBarLabel.setText(editBuffer.getCellCount() + " edits in " + editBuffer.getRowCount()
+                    + " records staged; commit to write them.");
+        }
+    }
+
+    private void discardStagedEdits() {
+        if (!editBuffer.isEmpty()) {
+            statusBarLabel.setText("Discarded " + editBuffer.getCellCount() + " uncommitted edits.");
+            editBuffer.clear();
+        }
+        updateEditButtons();
+    }
+
+    private void updateEditButtons() {
+        boolean staged = !editBuffer.isEmpty();
+        commitEditsButton.setText(staged ? "Commit " + editBuffer.getCellCount() + " Edits" : "Commit Edits");
+        commitEditsButton.setVisible(staged);
+        discardEditsButton.setVisible(staged);
+    }
+
+    // Writes every staged row in one batch; each write expects the generation shown in its row
+    private void commitEdits() {
+        if (editBuffer.isEmpty() || currentResults == null) {
+            return;
+        }
+        if (client == null || !client.isConnected()) {
+            statusBarLabel.setText("Not connected. Edits are kept until you commit or discard them.");
+            return;
+        }
+        PagedRecordList results = currentResults;
+        List<EditBuffer.RowEdit> edits = editBuffer.drain();
+        List<BatchRecord> batch = EditBuffer.toBatch(edits);
+        updateEditButtons();
+        progressBar.setVisible(true);
+        statusBarLabel.setText("Committing edits to " + edits.size() + " records...");
+        AsyncAerospike.onFxThread(asyncClient.operate(BatchPolicy.WriteDefault(), batch), (records, error) -> {
+            progressBar.setVisible(false);
+            if (error != null) {
+                // Nothing is known to be written; rows that were are rejected by their generation on retry
+                if (results == currentResults) {
+                    for (EditBuffer.RowEdit edit : edits) {
+                        editBuffer.restore(edit);
                     }
+                }
+                updateEditButtons();
+                dataTableView.refresh();
+                statusBarLabel.setText("Error committing edits: " + error.getMessage() + ". Edits are kept.");
+                error.printStackTrace();
+                return;
+            }
+            List<EditBuffer.RowResult> outcomes = new ArrayList<>();
+            List<EditBuffer.RowEdit> stale = new ArrayList<>();
+            Set<String> writtenSets = new HashSet<>();
+            int written = 0;
+            for (int i = 0; i < edits.size(); i++) {
+                EditBuffer.RowResult outcome = new EditBuffer.RowResult(edits.get(i), batch.get(i));
+                outcomes.add(outcome);
+                if (outcome.isWritten()) {
+                    written++;
+                    Key key = outcome.edit.key;
+                    if (writtenSets.add(key.namespace + "." + key.setName)) {
+                        ResultCache.shared().invalidate(key.namespace, key.setName);
+                    }
+                    if (results == currentResults && outcome.record.record != null) {
+                        results.replaceRecord(outcome.edit.rowId, key, outcome.record.record);
+                    }
+                } else if (outcome.isConflict()) {
+                    stale.add(outcome.edit);
+                }
+            }
+            if (results == currentResults) {
+                addMissingColumns(results);
+                dataTableView.refresh();
+                reloadRows(results, stale);
+            }
+            int failed = edits.size() - written;
+            String summary = "Committed edits: " + written + " of " + edits.size() + " records written"
+                    + (failed > 0 ? ", " + failed + " not written (" + stale.size() + " changed on the cluster)." : ".");
+            statusBarLabel.setText(summary);
+            showCommitReport(summary, outcomes, failed > 0);
+        });
+    }
 
-                    Bin binToUpdate = new Bin(binName, parsedValue);
-                    client.put(null, aerospikeKey, binToUpdate);
-                    String finalValueType = valueType;
-                    Platform.runLater(() -> {
-                        statusBarLabel.setText("Record updated: " + namespace + "." + set + "." + key + " (" + binName + " as " + finalValueType + ")");
-                        scanAllAndDisplayInTable(namespace, set); // Refresh the table after update
-                        progressBar.setVisible(false);
-                    });
-                } catch (AerospikeException e) {
-                    Platform.runLater(() -> {
-                        statusBarLabel.setText("Error during update: " + e.getMessage());
-                        progressBar.setVisible(false);
-                    });
-                    e.printStackTrace(); // Log the error for debugging
+    // Re-reads rows whose write lost a generation check, so the table shows what the cluster has now
+    private void reloadRows(PagedRecordList results, List<EditBuffer.RowEdit> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Key[] keys = new Key[rows.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = rows.get(i).key;
+        }
+        AsyncAerospike.onFxThread(asyncClient.get(null, keys), (records, error) -> {
+            if (results != currentResults) {
+                return;
+            }
+            if (error != null) {
+                statusBarLabel.setText("Could not re-read changed records: " + error.getMessage());
+                error.printStackTrace();
+                return;
+            }
+            int missing = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (records[i] == null) {
+                    missing++; // Keep the row as read; a failed write is no proof the record is gone
+                } else {
+                    results.replaceRecord(rows.get(i).rowId, keys[i], records[i]);
                 }
-            });
-        } else {
-            Platform.runLater(() -> statusBarLabel.setText("Not connected or invalid update parameters."));
+            }
+            addMissingColumns(results);
+            if (missing > 0) {
+                statusBarLabel.setText(missing + " of " + keys.length
+                        + " changed records could not be re-read; they are shown as they were read.");
+            }
+        });
+    }
+
+    private void showCommitReport(String summary, List<EditBuffer.RowResult> outcomes, boolean failures) {
+        StringBuilder details = new StringBuilder();
+        for (EditBuffer.RowResult outcome : outcomes) {
+            details.append(outcome.describe()).append('\n');
         }
+        TextArea detailsArea = new TextArea(details.toString());
+        detailsArea.setEditable(false);
+        detailsArea.setWrapText(true);
+        Alert alert = new Alert(failures ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+        alert.setTitle("Commit Edits");
+        alert.setHeaderText(summary);
+        alert.setContentText(failures ? "Records that changed on the cluster were re-read; their edits were not applied."
+                : "All edits were written.");
+        alert.getDialogPane().setExpandableContent(detailsArea);
+        alert.getDialogPane().setExpanded(failures);
+        alert.show();
     }
 
     private void showAqlHelp() {
@@ -933,12 +1702,16 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         <h2>Supported AQL Queries</h2>
         <h3>SELECT</h3>
         <p>The SELECT query retrieves records from a specified namespace and set, and can optionally filter by conditions.</p>
-        <pre><code>SELECT * FROM namespace.set [WHERE binName = 'value']</code></pre>
+        <pre><code>SELECT * | bin, ... | aggregate, ... FROM namespace[.set] [WHERE condition] [GROUP BY bin, ...] [LIMIT n [OFFSET m]]</code></pre>
         <ul>
           <li><strong>Retrieve all records from the 'users' set in the 'test' namespace:</strong></li>
           <pre><code>SELECT * FROM test.users</code></pre>
           <li><strong>Retrieve records from the 'users' set in the 'test' namespace where the bin 'age' is 30:</strong></li>
           <pre><code>SELECT * FROM test.users WHERE age = '30'</code></pre>
+          <li><strong>Retrieve the second hundred records of the 'users' set:</strong></li>
+          <pre><code>SELECT * FROM test.users LIMIT 100 OFFSET 100</code></pre>
+          <li><strong>Count users and average their age per city (COUNT, SUM, AVG, MIN and MAX are supported):</strong></li>
+          <pre><code>SELECT city, COUNT(*), AVG(age) FROM test.users GROUP BY city</code></pre>
         </ul>
         <h3>INSERT</h3>
         <p>The INSERT query adds a new record to a specified namespace and set.</p>
@@ -955,34 +1728,54 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
           <pre><code>DELETE FROM test.users WHERE age = '30'</code></pre>
         </ul>
         <h3>UPDATE</h3>
-        <p>The UPDATE query modifies existing records in a specified namespace and set based on a condition.</p>
-        <pre><code>UPDATE namespace.set SET binName = 'newValue' WHERE binName = 'value'</code></pre>
+        <p>The UPDATE query writes bins of one record in a specified namespace and set, named by its key.</p>
+        <pre><code>UPDATE namespace.set SET binName = 'newValue' [, ...] WHERE PK = 'key'</code></pre>
+        <ul>
+          <li><strong>Set the 'age' bin of the record with key 'user1' in the 'users' set:</strong></li>
+          <pre><code>UPDATE test.users SET age = 31 WHERE PK = 'user1'</code></pre>
+        </ul>
+        <h3>AGGREGATE</h3>
+        <p>The AGGREGATE command runs a Lua stream UDF on the server nodes and returns only the reduced result. The built-in <code>explorer_aggregates</code> module provides <code>count()</code>, <code>sum(bin)</code> and <code>histogram(bin [, width])</code>; other modules can be added with REGISTER MODULE.</p>
+        <pre><code>AGGREGATE module.function([arg, ...]) ON namespace.set [WHERE condition]
+REGISTER MODULE '/path/to/module.lua'</code></pre>
+        <ul>
+          <li><strong>Count the users per decade of age on the server:</strong></li>
+          <pre><code>AGGREGATE explorer_aggregates.histogram('age', 10) ON test.users</code></pre>
+        </ul>
+        <h3>GENERATE and LOADTEST</h3>
+        <p>GENERATE fills a set with synthetic records from a bin template, written in parallel batches and optionally limited to RATE records per second. Record keys are the ids 0 to count - 1, stored in the <code>PK</code> bin too, picked in order (SEQUENTIAL, the default), at random (UNIFORM), with a few hot keys (ZIPF), or as random UUIDs.</p>
+        <p>LOADTEST replays a mix of key reads, writes and queries at a target rate for DURATION seconds (30 by default) against records generated with the same template and key space, then shows the achieved throughput and latency percentiles per operation. The MIX weights are relative and default to READ 80, WRITE 20; queries use the WHERE condition and read a bounded number of records each.</p>
+        <pre><code>GENERATE count INTO namespace.set (bin type, ...) [KEYS SEQUENTIAL|UNIFORM|ZIPF|UUID] [RATE records]
+LOADTEST namespace.set (bin type, ...) RECORDS count [KEYS distribution] [MIX READ r, WRITE w, QUERY q]
+         RATE operations [DURATION seconds] [WHERE condition]
+
+type: INT[(min, max)] | FLOAT[(min, max)] | STRING[(length [, distinct values])] | BOOL | BLOB[(length)]
+    | LIST[(size [, max size])] [OF type] | MAP[(size [, max size])] [OF type]</code></pre>
         <ul>
-          <li><strong>Update records in the 'users' set in the 'test' namespace where the bin 'age' is 30:</strong></li>
-          <pre><code>UPDATE test.users SET age = 31 WHERE age = '30'</code></pre>
+          <li><strong>Generate a million users at up to 20,000 records per second:</strong></li>
+          <pre><code>GENERATE 1000000 INTO test.users (name STRING(12), city STRING(10, 50), age INT(18, 90), tags LIST(1, 5) OF STRING(6, 100)) RATE 20000</code></pre>
+          <li><strong>Run them with hot keys and a few range queries at 5,000 operations per second:</strong></li>
+          <pre><code>LOADTEST test.users (name STRING(12), city STRING(10, 50), age INT(18, 90), tags LIST(1, 5) OF STRING(6, 100)) RECORDS 1000000 KEYS ZIPF MIX READ 70, WRITE 25, QUERY 5 RATE 5000 DURATION 60 WHERE age BETWEEN 30 AND 35</code></pre>
         </ul>
         <h2>Important Notes</h2>
         <ul>
           <li><span class="important">Replace 'namespace' and 'set'</span> with your actual Aerospike namespace and set names.</li>
-          <li>The <code>WHERE</code> clause currently only supports equality on a single bin.</li>
-          <li>String values in the <code>WHERE</code> clause must be enclosed in single quotes.</li>
-          <li>This tool <span class="important">does NOT</span> currently support more complex AQL queries, such as:
-            <ul>
-              <li>Selecting specific bins (columns)</li>
-              <li>Filtering records with complex WHERE clauses (>, <, AND, OR, etc.)</li>
-              <li>Ordering results</li>
-              <li>Aggregations</li>
-            </ul>
+          <li><code>WHERE</code> conditions compare a bin with <code>=</code>, <code>!=</code>, <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code>, <code>&gt;=</code>, <code>BETWEEN a AND b</code>, <code>IN (a, b, ...)</code>, <code>LIKE 'pattern%'</code> or <code>CONTAINS value</code>, and combine them with <code>AND</code>, <code>OR</code>, <code>NOT</code> and parentheses:
+            <pre><code>SELECT name, age FROM test.users WHERE (age BETWEEN 30 AND 40 OR city IN ('Pune', 'Oslo')) AND NOT name LIKE 'test%'</code></pre>
           </li>
-          <li>The AQL keywords (<code>SELECT</code>, <code>FROM</code>, <code>WHERE</code>) are case-insensitive, but namespace, set, and bin names are case-sensitive.</li>
+          <li>When a secondary index covers a condition, it is used to narrow the query and the rest is filtered on the server. <code>PK = value</code> and <code>PK IN (...)</code> read the named records directly.</li>
+          <li>String values are written in single or double quotes; <code>'it''s'</code> and <code>'it\\'s'</code> both give <code>it's</code>. Other backslashes are kept as written, so Windows paths need no escaping.</li>
+          <li>A SELECT list may name bins, or aggregates (<code>COUNT(*)</code>, <code>COUNT</code>, <code>SUM</code>, <code>AVG</code>, <code>MIN</code>, <code>MAX</code>) with the bins they are grouped by. Aggregates are computed in the explorer; use AGGREGATE to reduce on the server with a stream UDF.</li>
+          <li>Keywords are case-insensitive, but namespace, set, and bin names are case-sensitive.</li>
           <li>Ensure that the namespace and set you specify exist in your Aerospike database and contain data.</li>
         </ul>
         <h2>Limitations</h2>
-        <p>This is a basic implementation of AQL support. The following limitations apply:</p>
         <ul>
-          <li>Only the <code>SELECT * FROM namespace.set [WHERE bin = 'value']</code> syntax is supported.</li>
-          <li>No support for complex <code>WHERE</code> clauses, bin selection, or other advanced AQL features.</li>
-          <li>Error handling is basic.</li>
+          <li>There is no <code>ORDER BY</code>; sort the browse table by clicking its column headers instead.</li>
+          <li><code>UPDATE</code> changes one record, named by key in a single <code>WHERE PK = value</code> condition.</li>
+          <li><code>DELETE</code> and <code>UPDATE</code> need a <code>WHERE</code> clause; use Delete Set to empty a whole set.</li>
+          <li><code>SELECT *</code> cannot be combined with <code>GROUP BY</code>, and every selected bin must be grouped or aggregated.</li>
+          <li>AGGREGATE needs a server that runs Lua stream UDFs.</li>
         </ul>
         <h2>Future Enhancements</h2>
         <p>Future versions of this tool may include:</p>
@@ -1004,15 +1797,6 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
         popupStage.show();
     }
 
-    private void displayJsonOutput(List<Map<String, Object>> results) {
-        JSONArray jsonArray = new JSONArray();
-        for (Map<String, Object> record : results) {
-            JSONObject jsonRecord = new JSONObject(record);
-            jsonArray.put(jsonRecord);
-        }
-        jsonScrollPane.setContent(new Label(jsonArray.toString(2)));
-    }
-
     private void deleteSelectedSet() {
         TreeItem<String> selectedItem = namespaceSetTree.getSelectionModel().getSelectedItem();
         if (selectedItem != null && selectedItem.getParent() != null && !selectedItem.getParent().getValue().equals(namespaceSetTree.getRoot().getValue())) {
@@ -1027,14 +1811,18 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
             Optional<ButtonType> result = alert.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
                 executor.submit(() -> {
+                    OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.TRUNCATE);
                     try {
                         client.truncate(new InfoPolicy(), namespace, set, null);
 //                        client.truncate(null, namespace, set, null);
+                        timer.end(null);
+                        ResultCache.shared().invalidate(namespace, set);
                         Platform.runLater(() -> {
                             populateNamespaceSets(); // Refresh the tree view
                             statusBarLabel.setText("Set deleted: " + namespace + "." + set);
                         });
                     } catch (AerospikeException e) {
+                        timer.end(e);
                         Platform.runLater(() -> statusBarLabel.setText("Error deleting set: " + e.getMessage()));
                     }
                 });
@@ -1046,17 +1834,22 @@ public class AerospikeExplorer extends Application implements AerospikeDataManip
 
     @Override
     public void stop() {
+        closeMetadataCache();
+        if (dashboard != null) {
+            dashboard.close();
+        }
+        if (metricsPanel != null) {
+            metricsPanel.close();
+        }
         if (client != null) {
             client.close();
         }
-        scanExecutor.shutdown();
-    }
-
-    private String newTabgetText() {
-        Tab selectedTab = queryTabPane.getSelectionModel().getSelectedItem();
-        if (selectedTab != null) {
-            return selectedTab.getText();
+        closeEventLoops();
+        if (currentScanJob != null) {
+            currentScanJob.cancel();
         }
-        return "New Query"; // Default text if no tab is selected
+        scanExecutor.shutdown();
+        exportExecutor.shutdownNow();
+        queryExecutor.shutdownNow();
     }
-}
\ No newline at end of file
+}
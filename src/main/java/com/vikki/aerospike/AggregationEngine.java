@@ -0,0 +1,644 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.PartitionFilter;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Computes COUNT, SUM, AVG, MIN and MAX per GROUP BY group on the client while the query
+ * streams, so only one row per group is ever materialized.
+ * <p>
+ * The query is split into partition ranges that run concurrently, each folding its records
+ * into a private group table of primitive accumulators. A table that grows past its share of
+ * {@link ExplorerSettings#AGG_MAX_GROUPS} is written out to hash-bucketed spill files and
+ * started over; at the end the buckets are merged in parallel, one bucket in memory per
+ * worker. Without spills the tables are merged pairwise in parallel instead. Memory therefore
+ * tracks the number of groups, never the number of records.
+ */
+public class AggregationEngine {
+
+    /**
+     * Receives finished group rows; called from worker threads, one call per chunk.
+     */
+    @FunctionalInterface
+    public interface RowSink {
+        void accept(List<Map<String, Object>> rows);
+    }
+
+    private static final Object PRESENT = Boolean.TRUE; // Value fed to COUNT(*)
+
+    private final AerospikeClient client;
+    private final List<String> groupBy;
+    private final List<AqlAst.Aggregate> aggregates;
+    private final List<String> selectedGroupBins;
+    private final int concurrency;
+    private final int maxGroupsPerTable;
+    private final int spillBuckets;
+    private final AtomicLong recordsRead = new AtomicLong();
+    private final AtomicLong spills = new AtomicLong();
+    private volatile boolean cancelled;
+    private volatile ExecutorService workers;
+    private Path spillDirectory;
+
+    public AggregationEngine(AerospikeClient client, AqlPlan plan) {
+        this.client = client;
+        this.groupBy = plan.getGroupBy();
+        this.aggregates = plan.getAggregates();
+        this.selectedGroupBins = plan.getSelectedGroupBins();
+        this.concurrency = Math.max(1, ExplorerSettings.SCAN_CONCURRENCY);
+        this.maxGroupsPerTable = Math.max(1, ExplorerSettings.AGG_MAX_GROUPS / concurrency);
+        this.spillBuckets = Math.max(1, ExplorerSettings.AGG_SPILL_BUCKETS);
+    }
+
+    /**
+     * Runs the statements from {@code statements} over concurrent partition ranges and hands
+     * the group rows to {@code sink}. Blocks until done; a cancelled run throws
+     * {@link AerospikeException.QueryTerminated}.
+     */
+    public void run(QueryPolicy policy, Supplier<Statement> statements, RowSink sink) {
+        QueryPolicy rangePolicy = new QueryPolicy(policy);
+        rangePolicy.includeBinData = needsBinData();
+        int rangeSize = (PartitionScanEngine.PARTITION_COUNT + concurrency - 1) / concurrency;
+        List<GroupTable> tables = new ArrayList<>();
+        ExecutorService pool = newWorkerPool();
+        workers = pool;
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.QUERY);
+        RuntimeException error = null;
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int begin = 0; begin < PartitionScanEngine.PARTITION_COUNT; begin += rangeSize) {
+                PartitionFilter filter = PartitionFilter.range(begin,
+                        Math.min(rangeSize, PartitionScanEngine.PARTITION_COUNT - begin));
+                GroupTable table = new GroupTable();
+                tables.add(table);
+                Statement statement = statements.get();
+                futures.add(pool.submit(() -> {
+                    queryRange(rangePolicy, statement, filter, table, timer);
+                    return null;
+                }));
+            }
+            awaitAll(futures);
+            finish(tables, pool, sink);
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
+        } finally {
+            timer.end(error);
+            pool.shutdownNow();
+            deleteSpillFiles();
+        }
+    }
+
+    /**
+     * Aggregates records already read, e.g. by a primary-key batch read; {@code null}
+     * entries are skipped.
+     */
+    public void aggregate(Record[] records, RowSink sink) {
+        GroupTable table = new GroupTable();
+        ExecutorService pool = newWorkerPool();
+        workers = pool;
+        try {
+            for (Record record : records) {
+                if (record != null) {
+                    recordsRead.incrementAndGet();
+                    table.add(record);
+                }
+            }
+            finish(List.of(table), pool, sink);
+        } catch (UncheckedIOException e) {
+            throw new AerospikeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            deleteSpillFiles();
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        ExecutorService pool = workers;
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+
+    public long getRecordsRead() {
+        return recordsRead.get();
+    }
+
+    /**
+     * Number of times a group table overflowed its memory share and was written to disk.
+     */
+    public long getSpillCount() {
+        return spills.get();
+    }
+
+    private boolean needsBinData() {
+        if (!groupBy.isEmpty()) {
+            return true;
+        }
+        for (AqlAst.Aggregate aggregate : aggregates) {
+            if (aggregate.bin() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ExecutorService newWorkerPool() {
+        ThreadFactory factory = ExplorerSettings.SCAN_VIRTUAL_THREADS
+                ? Thread.ofVirtual().name("aggregate-worker-", 0).factory()
+                : Thread.ofPlatform().name("aggregate-worker-", 0).daemon(true).factory();
+        return Executors.newFixedThreadPool(concurrency, factory);
+    }
+
+    private void queryRange(QueryPolicy policy, Statement statement, PartitionFilter filter, GroupTable table,
+                            OperationMetrics.Timer timer) {
+        if (cancelled) {
+            return;
+        }
+        try (RecordSet recordSet = client.queryPartitions(policy, statement, filter)) {
+            while (recordSet.next()) {
+                if (cancelled) {
+                    throw new AerospikeException.QueryTerminated();
+                }
+                recordsRead.incrementAndGet();
+                timer.record(recordSet.getRecord());
+                table.add(recordSet.getRecord());
+            }
+        }
+    }
+
+    private void finish(List<GroupTable> tables, ExecutorService pool, RowSink sink) {
+        boolean spilled = false;
+        for (GroupTable table : tables) {
+            spilled |= table.hasSpilled();
+        }
+        if (!spilled) {
+            Map<List<Object>, Accumulator[]> merged = mergeInMemory(tables, pool);
+            if (merged.isEmpty() && groupBy.isEmpty()) {
+                merged.put(List.of(), newAccumulators()); // COUNT(*) over no records is still one row
+            }
+            emit(merged, sink);
+            return;
+        }
+        // Every table goes to disk so each bucket can be merged on its own
+        try {
+            for (GroupTable table : tables) {
+                table.spill();
+                table.closeSpillFiles();
+            }
+        } catch (UncheckedIOException e) {
+            throw new AerospikeException(e.getCause());
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int bucket = 0; bucket < spillBuckets; bucket++) {
+            int current = bucket;
+            futures.add(pool.submit(() -> {
+                Map<List<Object>, Accumulator[]> merged = new HashMap<>();
+                for (GroupTable table : tables) {
+                    table.readBucket(current, merged);
+                }
+                emit(merged, sink);
+                return null;
+            }));
+        }
+        awaitAll(futures);
+    }
+
+    private Map<List<Object>, Accumulator[]> mergeInMemory(List<GroupTable> tables, ExecutorService pool) {
+        List<Map<List<Object>, Accumulator[]>> maps = new ArrayList<>();
+        for (GroupTable table : tables) {
+            maps.add(table.groups);
+        }
+        while (maps.size() > 1) {
+            List<Future<Map<List<Object>, Accumulator[]>>> futures = new ArrayList<>();
+            for (int i = 0; i + 1 < maps.size(); i += 2) {
+                Map<List<Object>, Accumulator[]> left = maps.get(i);
+                Map<List<Object>, Accumulator[]> right = maps.get(i + 1);
+                futures.add(pool.submit(() -> mergeInto(left, right)));
+            }
+            List<Map<List<Object>, Accumulator[]>> next = new ArrayList<>();
+            for (Future<Map<List<Object>, Accumulator[]>> future : futures) {
+                next.add(await(future));
+            }
+            if (maps.size() % 2 == 1) {
+                next.add(maps.get(maps.size() - 1));
+            }
+            maps = next;
+        }
+        return maps.isEmpty() ? new HashMap<>() : maps.get(0);
+    }
+
+    // Folds the smaller map into the larger one and returns the larger
+    private static Map<List<Object>, Accumulator[]> mergeInto(Map<List<Object>, Accumulator[]> left,
+                                                           Map<List<Object>, Accumulator[]> right) {
+        Map<List<Object>, Accumulator[]> target = left.size() >= right.size() ? left : right;
+        Map<List<Object>, Accumulator[]> source = target == left ? right : left;
+        for (Map.Entry<List<Object>, Accumulator[]> entry : source.entrySet()) {
+            Accumulator[] existing = target.putIfAbsent(entry.getKey(), entry.getValue());
+            if (existing != null) {
+                merge(existing, entry.getValue());
+            }
+        }
+        source.clear();
+        return target;
+    }
+
+    private static void merge(Accumulator[] target, Accumulator[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i].merge(source[i]);
+        }
+    }
+
+    private void emit(Map<List<Object>, Accumulator[]> groups, RowSink sink) {
+        List<Map<String, Object>> rows = new ArrayList<>(Math.min(groups.size(), ExplorerSettings.UI_BATCH_SIZE));
+        for (Map.Entry<List<Object>, Accumulator[]> entry : groups.entrySet()) {
+            if (cancelled) {
+                throw new AerospikeException.QueryTerminated();
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String bin : selectedGroupBins) {
+                row.put(bin, entry.getKey().get(groupBy.indexOf(bin)));
+            }
+            Accumulator[] accumulators = entry.getValue();
+            for (int i = 0; i < accumulators.length; i++) {
+                AqlAst.Aggregate aggregate = aggregates.get(i);
+                row.put(aggregate.label(), accumulators[i].result(aggregate.function()));
+            }
+            rows.add(row);
+            if (rows.size() >= ExplorerSettings.UI_BATCH_SIZE) {
+                sink.accept(rows);
+                rows = new ArrayList<>();
+            }
+        }
+        if (!rows.isEmpty()) {
+            sink.accept(rows);
+        }
+        groups.clear();
+    }
+
+    private void awaitAll(List<? extends Future<?>> futures) {
+        AerospikeException failure = null;
+        for (Future<?> future : futures) {
+            try {
+                await(future);
+            } catch (AerospikeException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (cancelled) {
+            throw new AerospikeException.QueryTerminated();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (cancelled) {
+                throw new AerospikeException.QueryTerminated();
+            }
+            throw e.getCause() instanceof AerospikeException
+                    ? (AerospikeException) e.getCause()
+                    : new AerospikeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new AerospikeException.QueryTerminated(e);
+        }
+    }
+
+    private Accumulator[] newAccumulators() {
+        Accumulator[] accumulators = new Accumulator[aggregates.size()];
+        for (int i = 0; i < accumulators.length; i++) {
+            accumulators[i] = new Accumulator();
+        }
+        return accumulators;
+    }
+
+    private List<Object> groupKey(Record record) {
+        if (groupBy.isEmpty()) {
+            return List.of();
+        }
+        Object[] values = new Object[groupBy.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = groupValue(record.getValue(groupBy.get(i)));
+        }
+        return Arrays.asList(values);
+    }
+
+    // Lists, maps and blobs are grouped by their text so keys hash by content
+    private static Object groupValue(Object value) {
+        if (value == null || value instanceof Long || value instanceof Double || value instanceof String
+                || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof byte[]) {
+            return Base64.getEncoder().encodeToString((byte[]) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private synchronized Path spillDirectory() throws IOException {
+        if (spillDirectory == null) {
+            spillDirectory = Files.createTempDirectory("aerospike-explorer-groups");
+        }
+        return spillDirectory;
+    }
+
+    private synchronized void deleteSpillFiles() {
+        if (spillDirectory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(spillDirectory);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        spillDirectory = null;
+    }
+
+    /**
+     * Groups of one partition range. Only its own worker touches it until the merge.
+     */
+    private final class GroupTable {
+        private final Map<List<Object>, Accumulator[]> groups = new HashMap<>();
+        private Path[] spillFiles;
+        private DataOutputStream[] spillOutputs;
+
+        void add(Record record) {
+            List<Object> key = groupKey(record);
+            Accumulator[] accumulators = groups.get(key);
+            if (accumulators == null) {
+                if (groups.size() >= maxGroupsPerTable) {
+                    spill();
+                }
+                accumulators = newAccumulators();
+                groups.put(key, accumulators);
+            }
+            for (int i = 0; i < accumulators.length; i++) {
+                String bin = aggregates.get(i).bin();
+                accumulators[i].add(bin == null ? PRESENT : record.getValue(bin));
+            }
+        }
+
+        boolean hasSpilled() {
+            return spillOutputs != null;
+        }
+
+        void spill() {
+            try {
+                if (spillOutputs == null) {
+                    spillFiles = new Path[spillBuckets];
+                    spillOutputs = new DataOutputStream[spillBuckets];
+                    for (int i = 0; i < spillBuckets; i++) {
+                        spillFiles[i] = Files.createTempFile(spillDirectory(), "groups-", ".bin");
+                        spillOutputs[i] = new DataOutputStream(new BufferedOutputStream(
+                                Files.newOutputStream(spillFiles[i]), 8192));
+                    }
+                }
+                for (Map.Entry<List<Object>, Accumulator[]> entry : groups.entrySet()) {
+                    DataOutputStream out = spillOutputs[bucketOf(entry.getKey())];
+                    out.writeByte(1);
+                    for (Object value : entry.getKey()) {
+                        ValueCodec.write(out, value);
+                    }
+                    for (Accumulator accumulator : entry.getValue()) {
+                        accumulator.write(out);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            if (!groups.isEmpty()) {
+                spills.incrementAndGet();
+            }
+            groups.clear();
+        }
+
+        void closeSpillFiles() {
+            try {
+                for (DataOutputStream out : spillOutputs) {
+                    out.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void readBucket(int bucket, Map<List<Object>, Accumulator[]> merged) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(spillFiles[bucket]), 1 << 16))) {
+                while (in.read() > 0) {
+                    if (cancelled) {
+                        throw new AerospikeException.QueryTerminated();
+                    }
+                    Object[] values = new Object[groupBy.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = ValueCodec.read(in);
+                    }
+                    Accumulator[] accumulators = new Accumulator[aggregates.size()];
+                    for (int i = 0; i < accumulators.length; i++) {
+                        accumulators[i] = Accumulator.read(in);
+                    }
+                    Accumulator[] existing = merged.putIfAbsent(Arrays.asList(values), accumulators);
+                    if (existing != null) {
+                        merge(existing, accumulators);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int bucketOf(List<Object> key) {
+            int hash = key.hashCode();
+            return ((hash ^ (hash >>> 16)) & 0x7fffffff) % spillBuckets;
+        }
+    }
+
+    /**
+     * Running state of one aggregate in one group, kept in primitives. COUNT counts non-null
+     * values, SUM and AVG take numbers only, MIN and MAX compare numbers and fall back to
+     * strings when a group has no numbers.
+     */
+    static final class Accumulator {
+        long count;
+        long numericCount;
+        long longSum;
+        double doubleSum;
+        boolean floating; // A double was added or the integer sum overflowed
+        long longMin = Long.MAX_VALUE;
+        long longMax = Long.MIN_VALUE;
+        double doubleMin = Double.POSITIVE_INFINITY;
+        double doubleMax = Double.NEGATIVE_INFINITY;
+        String stringMin;
+        String stringMax;
+
+        void add(Object value) {
+            if (value == null) {
+                return;
+            }
+            count++;
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                addLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float) {
+                addDouble(((Number) value).doubleValue());
+            } else if (value instanceof String) {
+                addString((String) value);
+            }
+        }
+
+        private void addLong(long value) {
+            numericCount++;
+            addToSum(value);
+            longMin = Math.min(longMin, value);
+            longMax = Math.max(longMax, value);
+        }
+
+        private void addToSum(long value) {
+            long sum = longSum + value;
+            if (((longSum ^ sum) & (value ^ sum)) < 0) {
+                doubleSum += longSum; // Overflow: carry on in floating point
+                sum = value;
+                floating = true;
+            }
+            longSum = sum;
+        }
+
+        private void addDouble(double value) {
+            numericCount++;
+            doubleSum += value;
+            floating = true;
+            doubleMin = Math.min(doubleMin, value);
+            doubleMax = Math.max(doubleMax, value);
+        }
+
+        private void addString(String value) {
+            if (stringMin == null || value.compareTo(stringMin) < 0) {
+                stringMin = value;
+            }
+            if (stringMax == null || value.compareTo(stringMax) > 0) {
+                stringMax = value;
+            }
+        }
+
+        void merge(Accumulator other) {
+            count += other.count;
+            numericCount += other.numericCount;
+            addToSum(other.longSum);
+            doubleSum += other.doubleSum;
+            floating |= other.floating;
+            longMin = Math.min(longMin, other.longMin);
+            longMax = Math.max(longMax, other.longMax);
+            doubleMin = Math.min(doubleMin, other.doubleMin);
+            doubleMax = Math.max(doubleMax, other.doubleMax);
+            if (other.stringMin != null) {
+                addString(other.stringMin);
+                addString(other.stringMax);
+            }
+        }
+
+        Object result(AqlAst.AggregateFunction function) {
+            switch (function) {
+                case COUNT:
+                    return count;
+                case SUM:
+                    if (numericCount == 0) {
+                        return null;
+                    }
+                    return floating ? (Object) (longSum + doubleSum) : (Object) longSum;
+                case AVG:
+                    return numericCount == 0 ? null : (longSum + doubleSum) / numericCount;
+                case MIN:
+                    return extreme(longMin <= longMax, longMin, doubleMin <= doubleMax, doubleMin, stringMin,
+                            Comparator.naturalOrder());
+                default:
+                    return extreme(longMin <= longMax, longMax, doubleMin <= doubleMax, doubleMax, stringMax,
+                            Comparator.reverseOrder());
+            }
+        }
+
+        private static Object extreme(boolean hasLong, long longValue, boolean hasDouble, double doubleValue,
+                                      String stringValue, Comparator<Double> order) {
+            if (hasLong && hasDouble) {
+                return order.compare((double) longValue, doubleValue) <= 0 ? (double) longValue : doubleValue;
+            } else if (hasLong) {
+                return longValue;
+            } else if (hasDouble) {
+                return doubleValue;
+            }
+            return stringValue;
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(count);
+            out.writeLong(numericCount);
+            out.writeLong(longSum);
+            out.writeDouble(doubleSum);
+            out.writeBoolean(floating);
+            out.writeLong(longMin);
+            out.writeLong(longMax);
+            out.writeDouble(doubleMin);
+            out.writeDouble(doubleMax);
+            ValueCodec.write(out, stringMin);
+            ValueCodec.write(out, stringMax);
+        }
+
+        static Accumulator read(DataInputStream in) throws IOException {
+            Accumulator accumulator = new Accumulator();
+            accumulator.count = in.readLong();
+            accumulator.numericCount = in.readLong();
+            accumulator.longSum = in.readLong();
+            accumulator.doubleSum = in.readDouble();
+            accumulator.floating = in.readBoolean();
+            accumulator.longMin = in.readLong();
+            accumulator.longMax = in.readLong();
+            accumulator.doubleMin = in.readDouble();
+            accumulator.doubleMax = in.readDouble();
+            accumulator.stringMin = (String) ValueCodec.read(in);
+            accumulator.stringMax = (String) ValueCodec.read(in);
+            return accumulator;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.vikki.aerospike;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Syntax tree produced by {@link AqlParser}. Literal values are {@link String}, {@link Long},
+ * {@link Double}, {@link Boolean} or {@code null}. Positions are offsets into the query text.
+ */
+final class AqlAst {
+
+    private AqlAst() {
+    }
+
+    sealed interface Statement permits Select, Insert, Update, Delete, StreamAggregate, RegisterModule, Generate,
+            LoadTest {
+    }
+
+    /**
+     * {@code namespace[.set]}; {@code set} is {@code null} for the whole namespace.
+     */
+    record Target(String namespace, String set, int position) {
+    }
+
+    /**
+     * {@code bins} is {@code null} for {@code SELECT *}; {@code where} may be {@code null};
+     * {@code aggregates} and {@code groupBy} are empty for a plain SELECT; {@code limit} is -1
+     * without a LIMIT clause.
+     */
+    record Select(List<String> bins, List<Aggregate> aggregates, Target target, Predicate where,
+                  List<String> groupBy, long limit, long offset) implements Statement {
+    }
+
+    enum AggregateFunction {COUNT, SUM, AVG, MIN, MAX}
+
+    /**
+     * {@code function(bin)} in a select list; {@code bin} is {@code null} for {@code COUNT(*)}.
+     */
+    record Aggregate(AggregateFunction function, String bin, int position) {
+        String label() {
+            return function + "(" + (bin != null ? bin : "*") + ")";
+        }
+    }
+
+    record Insert(Target target, List<String> bins, List<Row> rows) implements Statement {
+    }
+
+    record Row(List<Object> values, int position) {
+    }
+
+    record Update(Target target, Map<String, Object> assignments, Predicate where) implements Statement {
+    }
+
+    record Delete(Target target, Predicate where) implements Statement {
+    }
+
+    /**
+     * {@code AGGREGATE module.function(arguments) ON target [WHERE ...]}, run as a stream UDF.
+     */
+    record StreamAggregate(String module, String function, List<Object> arguments, Target target,
+                           Predicate where) implements Statement {
+    }
+
+    record RegisterModule(String path, int position) implements Statement {
+    }
+
+    /**
+     * {@code GENERATE count INTO ns.set (template) [KEYS distribution] [RATE records/s]};
+     * {@code rate} is 0 when unlimited.
+     */
+    record Generate(long count, Target target, List<BinTemplate> template, KeyDistribution keys, long rate)
+            implements Statement {
+    }
+
+    /**
+     * {@code LOADTEST ns.set (template) RECORDS count [KEYS distribution] [MIX READ r, WRITE w,
+     * QUERY q] RATE ops/s [DURATION seconds] [WHERE predicate]}. Reads and writes pick their
+     * key among the first {@code records} ids; queries use the WHERE clause.
+     */
+    record LoadTest(Target target, List<BinTemplate> template, long records, KeyDistribution keys,
+                    Map<String, Long> mix, long rate, long durationSeconds, Predicate where)
+            implements Statement {
+    }
+
+    /**
+     * How generated records pick their user key: ids 0, 1, 2, ... in order, ids drawn
+     * uniformly or Zipf-distributed (a few hot keys) from the key space, or random UUIDs.
+     */
+    enum KeyDistribution {SEQUENTIAL, UNIFORM, ZIPF, UUID}
+
+    enum ValueKind {INT, FLOAT, STRING, BOOL, BLOB, LIST, MAP}
+
+    record BinTemplate(String bin, ValueTemplate value) {
+    }
+
+    /**
+     * One generated value: {@code arguments} are the literals in parentheses after the type
+     * (ranges, lengths, cardinality, sizes); {@code element} is the OF type of a list or map.
+     */
+    record ValueTemplate(ValueKind kind, List<Object> arguments, ValueTemplate element, int position) {
+    }
+
+    sealed interface Predicate permits Comparison, Between, In, Like, Contains, And, Or, Not {
+        int position();
+    }
+
+    enum Operator {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator of(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+    }
+
+    record Comparison(String bin, Operator operator, Object value, int position) implements Predicate {
+    }
+
+    /**
+     * {@code bin BETWEEN low AND high}, inclusive on both ends.
+     */
+    record Between(String bin, Object low, Object high, int position) implements Predicate {
+    }
+
+    record In(String bin, List<Object> values, int position) implements Predicate {
+    }
+
+    /**
+     * SQL pattern match: '%' matches any run of characters and '_' a single character.
+     */
+    record Like(String bin, String pattern, int position) implements Predicate {
+    }
+
+    /**
+     * {@code bin CONTAINS value} for list bins, or map bins when a map index exists.
+     */
+    record Contains(String bin, Object value, int position) implements Predicate {
+    }
+
+    record And(Predicate left, Predicate right, int position) implements Predicate {
+    }
+
+    record Or(Predicate left, Predicate right, int position) implements Predicate {
+    }
+
+    record Not(Predicate operand, int position) implements Predicate {
+    }
+}
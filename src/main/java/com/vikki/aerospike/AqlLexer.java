@@ -0,0 +1,199 @@
+package com.vikki.aerospike;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits AQL text into tokens. Quoted strings may contain commas, '=' and escaped quotes
+ * ({@code 'it''s'} or {@code 'it\'s'}); any other backslash is kept as written, so Windows
+ * paths need no escaping. Identifiers may contain '-' so set names such as
+ * {@code user-events} work unquoted, and the part after {@code ns.} is always an
+ * identifier, so {@code test.2024orders} names a set rather than a number.
+ */
+final class AqlLexer {
+
+    enum Type {IDENT, STRING, INTEGER, FLOAT, SYMBOL, EOF}
+
+    static final class Token {
+        final Type type;
+        final String text;
+        final Object value;
+        final int position;
+
+        Token(Type type, String text, Object value, int position) {
+            this.type = type;
+            this.text = text;
+            this.value = value;
+            this.position = position;
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == Type.IDENT && text.equalsIgnoreCase(keyword);
+        }
+
+        boolean isSymbol(String symbol) {
+            return type == Type.SYMBOL && text.equals(symbol);
+        }
+
+        @Override
+        public String toString() {
+            return type == Type.EOF ? "end of statement" : "'" + text + "'";
+        }
+    }
+
+    private final String source;
+    private int pos;
+    private Token previous;
+
+    AqlLexer(String source) {
+        this.source = source;
+    }
+
+    List<Token> tokenize() {
+        List<Token> tokens = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            if (pos >= source.length()) {
+                tokens.add(new Token(Type.EOF, "", null, pos));
+                return tokens;
+            }
+            previous = next();
+            tokens.add(previous);
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (Character.isWhitespace(c)) {
+                pos++;
+            } else if (c == '-' && pos + 1 < source.length() && source.charAt(pos + 1) == '-') {
+                while (pos < source.length() && source.charAt(pos) != '\n') {
+                    pos++; // -- line comment
+                }
+            } else {
+                return;
+            }
+        }
+    }
+
+    private Token next() {
+        int start = pos;
+        char c = source.charAt(pos);
+        if (c == '\'' || c == '"') {
+            return string(c);
+        }
+        if (c == '.' && previous != null && previous.type == Type.IDENT && endsAt(previous, pos)) {
+            pos++;
+            return new Token(Type.SYMBOL, ".", null, start);
+        }
+        if (Character.isLetterOrDigit(c) && previous != null && previous.isSymbol(".") && previous.position == pos - 1) {
+            return identifier(); // Set or function name after "ns." or "module."
+        }
+        if (Character.isDigit(c) || ((c == '-' || c == '+' || c == '.') && pos + 1 < source.length()
+                && (Character.isDigit(source.charAt(pos + 1)) || source.charAt(pos + 1) == '.'))) {
+            return number();
+        }
+        if (Character.isLetter(c) || c == '_' || c == '`') {
+            return identifier();
+        }
+        String two = pos + 1 < source.length() ? source.substring(pos, pos + 2) : "";
+        if (two.equals("<=") || two.equals(">=") || two.equals("!=") || two.equals("<>")) {
+            pos += 2;
+            return new Token(Type.SYMBOL, two.equals("<>") ? "!=" : two, null, start);
+        }
+        if ("(),.=<>*;".indexOf(c) >= 0) {
+            pos++;
+            return new Token(Type.SYMBOL, String.valueOf(c), null, start);
+        }
+        throw new AqlSyntaxException("Unexpected character '" + c + "'", source, start);
+    }
+
+    private Token string(char quote) {
+        int start = pos++;
+        StringBuilder value = new StringBuilder();
+        while (pos < source.length()) {
+            char c = source.charAt(pos++);
+            if (c == '\\' && pos < source.length() && (source.charAt(pos) == quote || source.charAt(pos) == '\\')) {
+                value.append(source.charAt(pos++));
+            } else if (c == quote) {
+                if (pos < source.length() && source.charAt(pos) == quote) {
+                    value.append(quote); // Doubled quote
+                    pos++;
+                } else {
+                    return new Token(Type.STRING, source.substring(start, pos), value.toString(), start);
+                }
+            } else {
+                value.append(c);
+            }
+        }
+        throw new AqlSyntaxException("Unterminated string literal", source, start);
+    }
+
+    // True if the token ends right before offset, with no space in between
+    private boolean endsAt(Token token, int offset) {
+        int length = token.text.length();
+        if (source.charAt(token.position) == '`') {
+            length += 2; // Quoted identifier
+        }
+        return token.position + length == offset;
+    }
+
+    private Token number() {
+        int start = pos;
+        if (source.charAt(pos) == '-' || source.charAt(pos) == '+') {
+            pos++;
+        }
+        boolean decimal = false;
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (Character.isDigit(c)) {
+                pos++;
+            } else if ((c == '.' || c == 'e' || c == 'E') && !decimal) {
+                decimal = true;
+                pos++;
+                if ((c == 'e' || c == 'E') && pos < source.length() && (source.charAt(pos) == '-' || source.charAt(pos) == '+')) {
+                    pos++;
+                }
+            } else if ((c == 'e' || c == 'E') && decimal && source.charAt(pos - 1) != 'e' && source.charAt(pos - 1) != 'E') {
+                pos++;
+                if (pos < source.length() && (source.charAt(pos) == '-' || source.charAt(pos) == '+')) {
+                    pos++;
+                }
+            } else {
+                break;
+            }
+        }
+        String text = source.substring(start, pos);
+        try {
+            if (decimal) {
+                return new Token(Type.FLOAT, text, Double.parseDouble(text), start);
+            }
+            return new Token(Type.INTEGER, text, Long.parseLong(text), start);
+        } catch (NumberFormatException e) {
+            throw new AqlSyntaxException("Invalid number " + text, source, start);
+        }
+    }
+
+    private Token identifier() {
+        int start = pos;
+        if (source.charAt(pos) == '`') {
+            int end = source.indexOf('`', pos + 1);
+            if (end < 0) {
+                throw new AqlSyntaxException("Unterminated quoted identifier", source, start);
+            }
+            pos = end + 1;
+            return new Token(Type.IDENT, source.substring(start + 1, end), null, start);
+        }
+        while (pos < source.length()) {
+            char c = source.charAt(pos);
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '$' || (c == '-' && pos + 1 < source.length()
+                    && Character.isLetterOrDigit(source.charAt(pos + 1)))) {
+                pos++;
+            } else {
+                break;
+            }
+        }
+        return new Token(Type.IDENT, source.substring(start, pos), null, start);
+    }
+}
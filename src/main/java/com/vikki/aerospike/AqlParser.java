@@ -0,0 +1,489 @@
+package com.vikki.aerospike;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recursive descent parser for the AQL subset the explorer understands:
+ * <pre>
+ * SELECT (* | item, ...) FROM ns[.set] [WHERE predicate] [GROUP BY bin, ...]
+ *        [LIMIT count [OFFSET count]]
+ * INSERT INTO ns[.set] (bin, ...) VALUES (value, ...) [, (value, ...)]
+ * UPDATE ns[.set] SET bin = value [, ...] WHERE predicate
+ * DELETE FROM ns[.set] WHERE predicate
+ * AGGREGATE module.function([value, ...]) ON ns[.set] [WHERE predicate]
+ * REGISTER MODULE 'path/to/module.lua'
+ * GENERATE count INTO ns.set (bin type, ...) [KEYS distribution] [RATE count]
+ * LOADTEST ns.set (bin type, ...) RECORDS count [KEYS distribution]
+ *          [MIX (READ | WRITE | QUERY) weight, ...] RATE count [DURATION seconds] [WHERE predicate]
+ *
+ * predicate  := term [OR term]...
+ * term       := factor [AND factor]...
+ * factor     := NOT factor | ( predicate ) | condition
+ * condition  := bin (= | != | &lt; | &lt;= | &gt; | &gt;=) value
+ *             | bin BETWEEN value AND value
+ *             | bin IN (value, ...)
+ *             | bin LIKE 'pattern'
+ *             | bin CONTAINS value
+ * value      := 'string' | "string" | integer | decimal | TRUE | FALSE | NULL
+ * item       := bin | COUNT(*) | (COUNT | SUM | AVG | MIN | MAX) (bin)
+ * type       := (INT | FLOAT | STRING | BOOL | BLOB) [(value, ...)]
+ *             | (LIST | MAP) [(value, ...)] [OF type]
+ * distribution := SEQUENTIAL | UNIFORM | ZIPF | UUID
+ * </pre>
+ * Keywords are case-insensitive. A trailing ';' is accepted.
+ */
+final class AqlParser {
+
+    private final String source;
+    private final List<AqlLexer.Token> tokens;
+    private int index;
+
+    private AqlParser(String source) {
+        this.source = source;
+        this.tokens = new AqlLexer(source).tokenize();
+    }
+
+    static AqlAst.Statement parse(String aql) {
+        AqlParser parser = new AqlParser(aql);
+        AqlAst.Statement statement = parser.statement();
+        if (parser.peek().isSymbol(";")) {
+            parser.index++;
+        }
+        parser.expectEnd();
+        return statement;
+    }
+
+    /**
+     * Parses a bare predicate such as {@code age > 30 AND name LIKE 'a%'}.
+     */
+    static AqlAst.Predicate parsePredicate(String text) {
+        AqlParser parser = new AqlParser(text);
+        AqlAst.Predicate predicate = parser.predicate();
+        parser.expectEnd();
+        return predicate;
+    }
+
+    private AqlAst.Statement statement() {
+        AqlLexer.Token first = peek();
+        if (first.isKeyword("SELECT")) {
+            return select();
+        } else if (first.isKeyword("INSERT")) {
+            return insert();
+        } else if (first.isKeyword("UPDATE")) {
+            return update();
+        } else if (first.isKeyword("DELETE")) {
+            return delete();
+        } else if (first.isKeyword("AGGREGATE")) {
+            return aggregate();
+        } else if (first.isKeyword("REGISTER")) {
+            return register();
+        } else if (first.isKeyword("GENERATE")) {
+            return generate();
+        } else if (first.isKeyword("LOADTEST")) {
+            return loadTest();
+        }
+        throw error("Unsupported AQL command " + first, first);
+    }
+
+    private AqlAst.Select select() {
+        expectKeyword("SELECT");
+        List<String> bins = null;
+        List<AqlAst.Aggregate> aggregates = new ArrayList<>();
+        if (peek().isSymbol("*")) {
+            index++;
+        } else {
+            bins = new ArrayList<>();
+            selectList(bins, aggregates);
+        }
+        expectKeyword("FROM");
+        AqlAst.Target target = target();
+        AqlAst.Predicate where = null;
+        if (acceptKeyword("WHERE")) {
+            where = predicate();
+        }
+        List<String> groupBy = new ArrayList<>();
+        if (acceptKeyword("GROUP")) {
+            expectKeyword("BY");
+            groupBy = identifierList();
+        }
+        long limit = -1;
+        long offset = 0;
+        if (acceptKeyword("LIMIT")) {
+            limit = count("LIMIT");
+            if (acceptKeyword("OFFSET")) {
+                offset = count("OFFSET");
+            }
+        }
+        return new AqlAst.Select(bins, aggregates, target, where, groupBy, limit, offset);
+    }
+
+    private void selectList(List<String> bins, List<AqlAst.Aggregate> aggregates) {
+        do {
+            AqlLexer.Token token = peek();
+            AqlAst.AggregateFunction function = aggregateFunction(token);
+            if (function == null || !tokens.get(index + 1).isSymbol("(")) {
+                bins.add(identifier());
+                continue;
+            }
+            index += 2;
+            String bin = null;
+            if (peek().isSymbol("*")) {
+                if (function != AqlAst.AggregateFunction.COUNT) {
+                    throw error(function + " needs a bin name", peek());
+                }
+                index++;
+            } else {
+                bin = identifier();
+            }
+            expectSymbol(")");
+            aggregates.add(new AqlAst.Aggregate(function, bin, token.position));
+        } while (acceptSymbol(","));
+    }
+
+    private static AqlAst.AggregateFunction aggregateFunction(AqlLexer.Token token) {
+        if (token.type != AqlLexer.Type.IDENT) {
+            return null;
+        }
+        for (AqlAst.AggregateFunction function : AqlAst.AggregateFunction.values()) {
+            if (token.isKeyword(function.name())) {
+                return function;
+            }
+        }
+        return null;
+    }
+
+    private long count(String clause) {
+        AqlLexer.Token token = next();
+        if (token.type != AqlLexer.Type.INTEGER || (Long) token.value < 0) {
+            throw error(clause + " expects a non-negative integer but found " + token, token);
+        }
+        return (Long) token.value;
+    }
+
+    private AqlAst.Insert insert() {
+        expectKeyword("INSERT");
+        expectKeyword("INTO");
+        AqlAst.Target target = target();
+        expectSymbol("(");
+        List<String> bins = identifierList();
+        expectSymbol(")");
+        expectKeyword("VALUES");
+        List<AqlAst.Row> rows = new ArrayList<>();
+        do {
+            int position = peek().position;
+            expectSymbol("(");
+            List<Object> values = new ArrayList<>(bins.size());
+            do {
+                values.add(literal());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            if (values.size() != bins.size()) {
+                throw new AqlSyntaxException("Expected " + bins.size() + " values but found " + values.size(),
+                        source, position);
+            }
+            rows.add(new AqlAst.Row(values, position));
+        } while (acceptSymbol(","));
+        return new AqlAst.Insert(target, bins, rows);
+    }
+
+    private AqlAst.Update update() {
+        expectKeyword("UPDATE");
+        AqlAst.Target target = target();
+        expectKeyword("SET");
+        Map<String, Object> assignments = new LinkedHashMap<>();
+        do {
+            String bin = identifier();
+            expectSymbol("=");
+            assignments.put(bin, literal());
+        } while (acceptSymbol(","));
+        expectKeyword("WHERE");
+        return new AqlAst.Update(target, assignments, predicate());
+    }
+
+    private AqlAst.Delete delete() {
+        expectKeyword("DELETE");
+        expectKeyword("FROM");
+        AqlAst.Target target = target();
+        expectKeyword("WHERE");
+        return new AqlAst.Delete(target, predicate());
+    }
+
+    private AqlAst.StreamAggregate aggregate() {
+        expectKeyword("AGGREGATE");
+        String module = identifier();
+        expectSymbol(".");
+        String function = identifier();
+        expectSymbol("(");
+        List<Object> arguments = new ArrayList<>();
+        if (!acceptSymbol(")")) {
+            do {
+                arguments.add(literal());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+        }
+        expectKeyword("ON");
+        AqlAst.Target target = target();
+        AqlAst.Predicate where = null;
+        if (acceptKeyword("WHERE")) {
+            where = predicate();
+        }
+        return new AqlAst.StreamAggregate(module, function, arguments, target, where);
+    }
+
+    private AqlAst.RegisterModule register() {
+        expectKeyword("REGISTER");
+        expectKeyword("MODULE");
+        AqlLexer.Token token = next();
+        if (token.type != AqlLexer.Type.STRING) {
+            throw error("Expected the module file path as a quoted string but found " + token, token);
+        }
+        return new AqlAst.RegisterModule((String) token.value, token.position);
+    }
+
+    private AqlAst.Generate generate() {
+        expectKeyword("GENERATE");
+        long count = count("GENERATE");
+        expectKeyword("INTO");
+        AqlAst.Target target = target();
+        List<AqlAst.BinTemplate> template = template();
+        AqlAst.KeyDistribution keys = keyDistribution();
+        long rate = acceptKeyword("RATE") ? count("RATE") : 0;
+        return new AqlAst.Generate(count, target, template, keys, rate);
+    }
+
+    private AqlAst.LoadTest loadTest() {
+        expectKeyword("LOADTEST");
+        AqlAst.Target target = target();
+        List<AqlAst.BinTemplate> template = template();
+        expectKeyword("RECORDS");
+        long records = count("RECORDS");
+        AqlAst.KeyDistribution keys = keyDistribution();
+        Map<String, Long> mix = new LinkedHashMap<>();
+        if (acceptKeyword("MIX")) {
+            do {
+                AqlLexer.Token kind = next();
+                if (!kind.isKeyword("READ") && !kind.isKeyword("WRITE") && !kind.isKeyword("QUERY")) {
+                    throw error("Expected READ, WRITE or QUERY but found " + kind, kind);
+                }
+                mix.put(kind.text.toUpperCase(), count(kind.text.toUpperCase()));
+            } while (acceptSymbol(","));
+        }
+        expectKeyword("RATE");
+        long rate = count("RATE");
+        long duration = acceptKeyword("DURATION") ? count("DURATION") : 30;
+        AqlAst.Predicate where = null;
+        if (acceptKeyword("WHERE")) {
+            where = predicate();
+        }
+        return new AqlAst.LoadTest(target, template, records, keys, mix, rate, duration, where);
+    }
+
+    private List<AqlAst.BinTemplate> template() {
+        expectSymbol("(");
+        List<AqlAst.BinTemplate> template = new ArrayList<>();
+        do {
+            String bin = identifier();
+            template.add(new AqlAst.BinTemplate(bin, valueTemplate()));
+        } while (acceptSymbol(","));
+        expectSymbol(")");
+        return template;
+    }
+
+    private AqlAst.ValueTemplate valueTemplate() {
+        AqlLexer.Token token = next();
+        AqlAst.ValueKind kind = null;
+        for (AqlAst.ValueKind candidate : AqlAst.ValueKind.values()) {
+            if (token.isKeyword(candidate.name())) {
+                kind = candidate;
+            }
+        }
+        if (kind == null) {
+            throw error("Expected a value type (INT, FLOAT, STRING, BOOL, BLOB, LIST or MAP) but found " + token, token);
+        }
+        List<Object> arguments = new ArrayList<>();
+        if (acceptSymbol("(")) {
+            do {
+                arguments.add(literal());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+        }
+        AqlAst.ValueTemplate element = null;
+        if ((kind == AqlAst.ValueKind.LIST || kind == AqlAst.ValueKind.MAP) && acceptKeyword("OF")) {
+            element = valueTemplate();
+        }
+        return new AqlAst.ValueTemplate(kind, arguments, element, token.position);
+    }
+
+    private AqlAst.KeyDistribution keyDistribution() {
+        if (!acceptKeyword("KEYS")) {
+            return AqlAst.KeyDistribution.SEQUENTIAL;
+        }
+        AqlLexer.Token token = next();
+        for (AqlAst.KeyDistribution distribution : AqlAst.KeyDistribution.values()) {
+            if (token.isKeyword(distribution.name())) {
+                return distribution;
+            }
+        }
+        throw error("Expected SEQUENTIAL, UNIFORM, ZIPF or UUID but found " + token, token);
+    }
+
+    private AqlAst.Target target() {
+        int position = peek().position;
+        String namespace = identifier();
+        String set = null;
+        if (acceptSymbol(".")) {
+            set = identifier();
+        }
+        return new AqlAst.Target(namespace, set, position);
+    }
+
+    private AqlAst.Predicate predicate() {
+        AqlAst.Predicate left = term();
+        while (peek().isKeyword("OR")) {
+            int position = next().position;
+            left = new AqlAst.Or(left, term(), position);
+        }
+        return left;
+    }
+
+    private AqlAst.Predicate term() {
+        AqlAst.Predicate left = factor();
+        while (peek().isKeyword("AND")) {
+            int position = next().position;
+            left = new AqlAst.And(left, factor(), position);
+        }
+        return left;
+    }
+
+    private AqlAst.Predicate factor() {
+        AqlLexer.Token token = peek();
+        if (token.isKeyword("NOT")) {
+            index++;
+            return new AqlAst.Not(factor(), token.position);
+        }
+        if (acceptSymbol("(")) {
+            AqlAst.Predicate inner = predicate();
+            expectSymbol(")");
+            return inner;
+        }
+        String bin = identifier();
+        if (acceptKeyword("BETWEEN")) {
+            Object low = literal();
+            expectKeyword("AND");
+            return new AqlAst.Between(bin, low, literal(), token.position);
+        } else if (acceptKeyword("IN")) {
+            expectSymbol("(");
+            List<Object> values = new ArrayList<>();
+            do {
+                values.add(literal());
+            } while (acceptSymbol(","));
+            expectSymbol(")");
+            return new AqlAst.In(bin, values, token.position);
+        } else if (acceptKeyword("LIKE")) {
+            AqlLexer.Token pattern = next();
+            if (pattern.type != AqlLexer.Type.STRING) {
+                throw error("Expected a quoted pattern but found " + pattern, pattern);
+            }
+            return new AqlAst.Like(bin, (String) pattern.value, token.position);
+        } else if (acceptKeyword("CONTAINS")) {
+            return new AqlAst.Contains(bin, literal(), token.position);
+        }
+        AqlLexer.Token operatorToken = next();
+        AqlAst.Operator operator = operatorToken.type == AqlLexer.Type.SYMBOL ? AqlAst.Operator.of(operatorToken.text) : null;
+        if (operator == null) {
+            throw error("Expected a comparison operator but found " + operatorToken, operatorToken);
+        }
+        return new AqlAst.Comparison(bin, operator, literal(), token.position);
+    }
+
+    private Object literal() {
+        AqlLexer.Token token = next();
+        switch (token.type) {
+            case STRING:
+            case INTEGER:
+            case FLOAT:
+                return token.value;
+            case IDENT:
+                if (token.isKeyword("TRUE")) {
+                    return Boolean.TRUE;
+                } else if (token.isKeyword("FALSE")) {
+                    return Boolean.FALSE;
+                } else if (token.isKeyword("NULL")) {
+                    return null;
+                }
+                break;
+            default:
+                break;
+        }
+        throw error("Expected a value but found " + token, token);
+    }
+
+    private List<String> identifierList() {
+        List<String> names = new ArrayList<>();
+        do {
+            names.add(identifier());
+        } while (acceptSymbol(","));
+        return names;
+    }
+
+    private String identifier() {
+        AqlLexer.Token token = next();
+        if (token.type != AqlLexer.Type.IDENT) {
+            throw error("Expected a name but found " + token, token);
+        }
+        return token.text;
+    }
+
+    private AqlLexer.Token peek() {
+        return tokens.get(index);
+    }
+
+    private AqlLexer.Token next() {
+        AqlLexer.Token token = tokens.get(index);
+        if (token.type != AqlLexer.Type.EOF) {
+            index++;
+        }
+        return token;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (peek().isKeyword(keyword)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptSymbol(String symbol) {
+        if (peek().isSymbol(symbol)) {
+            index++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw error("Expected " + keyword + " but found " + peek(), peek());
+        }
+    }
+
+    private void expectSymbol(String symbol) {
+        if (!acceptSymbol(symbol)) {
+            throw error("Expected '" + symbol + "' but found " + peek(), peek());
+        }
+    }
+
+    private void expectEnd() {
+        if (peek().type != AqlLexer.Type.EOF) {
+            throw error("Unexpected " + peek(), peek());
+        }
+    }
+
+    private AqlSyntaxException error(String message, AqlLexer.Token token) {
+        return new AqlSyntaxException(message, source, token.position);
+    }
+}
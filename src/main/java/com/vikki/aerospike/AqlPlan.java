@@ -0,0 +1,582 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.Statement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A parsed and validated AQL statement, ready to execute. Plans hold no connection state
+ * beyond a memoized index choice, so one plan can be cached by its query text and run any
+ * number of times.
+ */
+public final class AqlPlan {
+
+    public enum Kind {SELECT, INSERT, UPDATE, DELETE, AGGREGATE, REGISTER, GENERATE, LOADTEST}
+
+    /**
+     * Bin that receives the user key of inserted records.
+     */
+    static final String PK_BIN = "PK";
+
+    /**
+     * One record to write: its user key ({@code null} means generate one) and its bins.
+     */
+    static final class Write {
+        final Object userKey;
+        final Bin[] bins;
+
+        Write(Object userKey, Bin[] bins) {
+            this.userKey = userKey;
+            this.bins = bins;
+        }
+    }
+
+    private final Kind kind;
+    private final String namespace;
+    private final String set;
+    private final String[] binNames;
+    private final String text;
+    private String normalizedText;
+    private final AqlAst.Predicate where;
+    private final String filterText;
+    private final List<Write> writes;
+    private Key[] primaryKeys; // Set when the WHERE clause names records by PK
+    private Expression keyFilter;
+    private long limit = -1;
+    private long offset;
+    private List<AqlAst.Aggregate> aggregates = Collections.emptyList();
+    private List<String> groupBy = Collections.emptyList();
+    private List<String> selectedGroupBins = Collections.emptyList();
+    private String udfModule;
+    private String udfFunction;
+    private Value[] udfArguments;
+    private String modulePath;
+    private RecordGenerator generator;
+    private long recordCount;
+    private long rate;
+    private long durationSeconds;
+    private long[] mix; // Weights indexed by LoadTestEngine.Op ordinal
+    private volatile QueryPlanner.Result planned;
+    private volatile long plannedGeneration = -1;
+
+    private AqlPlan(Kind kind, String text, AqlAst.Target target, String[] binNames, AqlAst.Predicate where,
+                    String filterText, List<Write> writes) {
+        this.kind = kind;
+        this.text = text;
+        this.namespace = target != null ? target.namespace() : null;
+        this.set = target != null ? target.set() : null;
+        this.binNames = binNames;
+        this.where = where;
+        this.filterText = filterText;
+        this.writes = writes;
+    }
+
+    /**
+     * Parses and plans {@code aql}.
+     *
+     * @throws AqlSyntaxException if the text is not valid AQL or uses an unsupported form
+     */
+    public static AqlPlan compile(String aql) {
+        return new Compiler(aql).compile(AqlParser.parse(aql));
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public String getSet() {
+        return set;
+    }
+
+    /**
+     * The WHERE condition as text for status messages, or {@code null}.
+     */
+    public String getFilterText() {
+        return filterText;
+    }
+
+    /**
+     * The statement without comments, a trailing ';' or extra whitespace, as a key for
+     * cached results.
+     */
+    public String getNormalizedText() {
+        if (normalizedText == null) {
+            StringBuilder normalized = new StringBuilder();
+            for (AqlLexer.Token token : new AqlLexer(text).tokenize()) {
+                if (token.type != AqlLexer.Type.EOF && !token.isSymbol(";")) {
+                    normalized.append(normalized.length() > 0 ? " " : "").append(token.text);
+                }
+            }
+            normalizedText = normalized.toString();
+        }
+        return normalizedText;
+    }
+
+    public String[] getBinNames() {
+        return binNames;
+    }
+
+    /**
+     * True when the statement names its records by primary key ({@code PK = ...} or
+     * {@code PK IN (...)}) and can be served by direct key operations instead of a query.
+     */
+    public boolean isKeyLookup() {
+        return primaryKeys != null;
+    }
+
+    public Key[] getPrimaryKeys() {
+        return primaryKeys;
+    }
+
+    /**
+     * Filter expression for the WHERE terms other than the primary key, or {@code null}.
+     */
+    public Expression getKeyFilter() {
+        return keyFilter;
+    }
+
+    /**
+     * Maximum number of records a SELECT returns, or -1 for all of them.
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * True for a SELECT with aggregate functions or a GROUP BY clause; such plans return one
+     * row per group instead of records.
+     */
+    public boolean isAggregation() {
+        return !aggregates.isEmpty() || !groupBy.isEmpty();
+    }
+
+    List<AqlAst.Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    List<String> getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * GROUP BY bins named in the select list, which become columns of the result.
+     */
+    List<String> getSelectedGroupBins() {
+        return selectedGroupBins;
+    }
+
+    /**
+     * Module of an AGGREGATE stream UDF.
+     */
+    public String getUdfModule() {
+        return udfModule;
+    }
+
+    public String getUdfFunction() {
+        return udfFunction;
+    }
+
+    public Value[] getUdfArguments() {
+        return udfArguments;
+    }
+
+    /**
+     * Local Lua file named by REGISTER MODULE.
+     */
+    public String getModulePath() {
+        return modulePath;
+    }
+
+    /**
+     * Record source of GENERATE and LOADTEST.
+     */
+    RecordGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * Number of records GENERATE writes.
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Records per second for GENERATE (0 for unlimited), operations per second for LOADTEST.
+     */
+    public long getRate() {
+        return rate;
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    long[] getMix() {
+        return mix;
+    }
+
+    List<Write> getWrites() {
+        return writes;
+    }
+
+    /**
+     * Index filter and filter expression for this plan's WHERE clause. The choice of index is
+     * remembered until the catalog reports a change in the namespace's indexes.
+     */
+    QueryPlanner.Result resolve(SindexCatalog catalog) {
+        List<SindexCatalog.IndexInfo> indexes = catalog.getIndexes(namespace);
+        long generation = catalog.getGeneration();
+        QueryPlanner.Result result = planned;
+        if (result == null || plannedGeneration != generation) {
+            result = new QueryPlanner(text).plan(set, where, indexes);
+            planned = result;
+            plannedGeneration = generation;
+        }
+        return result;
+    }
+
+    /**
+     * Builds a fresh query statement; the client mutates statements while running them,
+     * so they are never shared between executions.
+     */
+    public Statement newStatement(Filter filter) {
+        Statement statement = new Statement();
+        statement.setNamespace(namespace);
+        statement.setSetName(set);
+        if (binNames != null) {
+            statement.setBinNames(binNames);
+        }
+        if (filter != null) {
+            statement.setFilter(filter);
+        }
+        return statement;
+    }
+
+    Key keyOf(Write write) {
+        return new Key(namespace, set, Value.get(write.userKey));
+    }
+
+    /**
+     * Gives a write without a user key a random UUID, also stored in the {@value #PK_BIN} bin.
+     * Done per execution so re-running an INSERT creates new records.
+     */
+    static Write withGeneratedKey(Write write) {
+        if (write.userKey != null) {
+            return write;
+        }
+        String generated = UUID.randomUUID().toString();
+        Bin[] bins = new Bin[write.bins.length + 1];
+        System.arraycopy(write.bins, 0, bins, 0, write.bins.length);
+        bins[write.bins.length] = new Bin(PK_BIN, generated);
+        return new Write(generated, bins);
+    }
+
+    private static final class Compiler {
+        private final String source;
+
+        Compiler(String source) {
+            this.source = source;
+        }
+
+        AqlPlan compile(AqlAst.Statement statement) {
+            if (statement instanceof AqlAst.Select select) {
+                boolean aggregation = !select.aggregates().isEmpty() || !select.groupBy().isEmpty();
+                String[] bins = select.bins() != null ? select.bins().toArray(new String[0]) : null;
+                if (aggregation) {
+                    bins = aggregationBins(select);
+                }
+                validate(select.where());
+                AqlPlan plan = new AqlPlan(Kind.SELECT, source, select.target(), bins, select.where(),
+                        describe(select.where()), Collections.emptyList());
+                plan.limit = select.limit();
+                plan.offset = select.offset();
+                if (aggregation) {
+                    plan.aggregates = List.copyOf(select.aggregates());
+                    plan.groupBy = List.copyOf(select.groupBy());
+                    plan.selectedGroupBins = List.copyOf(select.bins());
+                }
+                planKeyLookup(plan, select.where());
+                return plan;
+            } else if (statement instanceof AqlAst.Insert insert) {
+                requireSet(insert.target());
+                List<Write> writes = new ArrayList<>(insert.rows().size());
+                for (AqlAst.Row row : insert.rows()) {
+                    writes.add(insertWrite(insert.bins(), row));
+                }
+                return new AqlPlan(Kind.INSERT, source, insert.target(), null, null, null, writes);
+            } else if (statement instanceof AqlAst.Update update) {
+                requireSet(update.target());
+                AqlAst.Comparison where = singleEquality(update.where());
+                Object userKey = where.value();
+                if (!(userKey instanceof String) && !(userKey instanceof Long)) {
+                    throw new AqlSyntaxException("UPDATE key must be a string or integer", source, where.position());
+                }
+                List<Bin> bins = new ArrayList<>();
+                for (Map.Entry<String, Object> assignment : update.assignments().entrySet()) {
+                    if (!assignment.getKey().equalsIgnoreCase("KEY")) { // Don't store 'KEY' bin itself
+                        bins.add(new Bin(assignment.getKey(), assignment.getValue()));
+                    }
+                }
+                if (bins.isEmpty()) {
+                    throw new AqlSyntaxException("No bins to update", source, update.target().position());
+                }
+                return new AqlPlan(Kind.UPDATE, source, update.target(), null, null, describe(where),
+                        List.of(new Write(userKey, bins.toArray(new Bin[0]))));
+            } else if (statement instanceof AqlAst.StreamAggregate aggregate) {
+                validate(aggregate.where());
+                AqlPlan plan = new AqlPlan(Kind.AGGREGATE, source, aggregate.target(), null, aggregate.where(),
+                        describe(aggregate.where()), Collections.emptyList());
+                plan.udfModule = aggregate.module();
+                plan.udfFunction = aggregate.function();
+                plan.udfArguments = new Value[aggregate.arguments().size()];
+                for (int i = 0; i < plan.udfArguments.length; i++) {
+                    plan.udfArguments[i] = Value.get(aggregate.arguments().get(i));
+                }
+                return plan;
+            } else if (statement instanceof AqlAst.Generate generate) {
+                requireSet(generate.target());
+                AqlPlan plan = new AqlPlan(Kind.GENERATE, source, generate.target(), null, null, null,
+                        Collections.emptyList());
+                plan.generator = new RecordGenerator(source, generate.template(), generate.keys(), generate.count());
+                plan.recordCount = generate.count();
+                plan.rate = generate.rate();
+                return plan;
+            } else if (statement instanceof AqlAst.LoadTest loadTest) {
+                return loadTest(loadTest);
+            } else if (statement instanceof AqlAst.RegisterModule register) {
+                if (!register.path().endsWith(".lua")) {
+                    throw new AqlSyntaxException("UDF modules must be .lua files", source, register.position());
+                }
+                AqlPlan plan = new AqlPlan(Kind.REGISTER, source, null, null, null, null, Collections.emptyList());
+                plan.modulePath = register.path();
+                return plan;
+            } else {
+                AqlAst.Delete delete = (AqlAst.Delete) statement;
+                requireSet(delete.target());
+                validate(delete.where());
+                AqlPlan plan = new AqlPlan(Kind.DELETE, source, delete.target(), null, delete.where(),
+                        describe(delete.where()), Collections.emptyList());
+                planKeyLookup(plan, delete.where());
+                return plan;
+            }
+        }
+
+        private AqlPlan loadTest(AqlAst.LoadTest loadTest) {
+            AqlAst.Target target = loadTest.target();
+            requireSet(target);
+            validate(loadTest.where());
+            if (loadTest.keys() == AqlAst.KeyDistribution.UUID) {
+                throw new AqlSyntaxException("LOADTEST reads need repeatable keys; use SEQUENTIAL, UNIFORM or ZIPF",
+                        source, target.position());
+            }
+            if (loadTest.records() == 0 || loadTest.rate() == 0 || loadTest.durationSeconds() == 0) {
+                throw new AqlSyntaxException("LOADTEST needs positive RECORDS, RATE and DURATION", source,
+                        target.position());
+            }
+            long[] mix = new long[LoadTestEngine.Op.values().length];
+            if (loadTest.mix().isEmpty()) {
+                mix[LoadTestEngine.Op.READ.ordinal()] = 80;
+                mix[LoadTestEngine.Op.WRITE.ordinal()] = 20;
+            }
+            long total = 0;
+            for (Map.Entry<String, Long> weight : loadTest.mix().entrySet()) {
+                mix[LoadTestEngine.Op.valueOf(weight.getKey()).ordinal()] = weight.getValue();
+                total += weight.getValue();
+            }
+            if (!loadTest.mix().isEmpty() && total == 0) {
+                throw new AqlSyntaxException("MIX weights must not all be zero", source, target.position());
+            }
+            AqlPlan plan = new AqlPlan(Kind.LOADTEST, source, target, null, loadTest.where(),
+                    describe(loadTest.where()), Collections.emptyList());
+            plan.generator = new RecordGenerator(source, loadTest.template(), loadTest.keys(), loadTest.records());
+            plan.recordCount = loadTest.records();
+            plan.rate = loadTest.rate();
+            plan.durationSeconds = loadTest.durationSeconds();
+            plan.mix = mix;
+            return plan;
+        }
+
+        /**
+         * Checks that plain bins in an aggregate select list are grouped on and returns the
+         * bins the query has to fetch, or {@code null} when no bin values are needed.
+         */
+        private String[] aggregationBins(AqlAst.Select select) {
+            if (select.bins() == null) {
+                throw new AqlSyntaxException("SELECT * cannot be combined with GROUP BY", source,
+                        select.target().position());
+            }
+            for (String bin : select.bins()) {
+                if (!select.groupBy().contains(bin)) {
+                    throw new AqlSyntaxException("Bin '" + bin + "' must appear in GROUP BY or inside an aggregate",
+                            source, select.target().position());
+                }
+            }
+            LinkedHashSet<String> needed = new LinkedHashSet<>(select.groupBy());
+            for (AqlAst.Aggregate aggregate : select.aggregates()) {
+                if (aggregate.bin() != null) {
+                    needed.add(aggregate.bin());
+                }
+            }
+            return needed.isEmpty() ? null : needed.toArray(new String[0]);
+        }
+
+        private Write insertWrite(List<String> binNames, AqlAst.Row row) {
+            Object userKey = null;
+            List<Bin> bins = new ArrayList<>(binNames.size() + 1);
+            for (int i = 0; i < binNames.size(); i++) {
+                String name = binNames.get(i);
+                Object value = row.values().get(i);
+                if (name.equalsIgnoreCase(PK_BIN) || name.equalsIgnoreCase("KEY")) {
+                    if (value != null && !(value instanceof String) && !(value instanceof Long)) {
+                        throw new AqlSyntaxException("Key must be a string or integer", source, row.position());
+                    }
+                    if (value != null && !"".equals(value)) {
+                        userKey = value;
+                    }
+                    continue; // Written once below as the PK bin
+                }
+                bins.add(new Bin(name, value));
+            }
+            if (userKey != null) {
+                bins.add(new Bin(PK_BIN, userKey));
+            }
+            return new Write(userKey, bins.toArray(new Bin[0]));
+        }
+
+        /**
+         * Turns a top-level {@code PK = value} or {@code PK IN (...)} term into a key list
+         * for direct reads; the remaining AND terms become the filter expression.
+         */
+        private void planKeyLookup(AqlPlan plan, AqlAst.Predicate where) {
+            if (where == null) {
+                return;
+            }
+            List<AqlAst.Predicate> terms = new ArrayList<>();
+            QueryPlanner.flattenAnd(where, terms);
+            AqlAst.Predicate keyTerm = null;
+            List<Object> values = null;
+            for (AqlAst.Predicate term : terms) {
+                if (term instanceof AqlAst.Comparison comparison && comparison.operator() == AqlAst.Operator.EQ
+                        && comparison.bin().equalsIgnoreCase(PK_BIN)) {
+                    keyTerm = term;
+                    values = Collections.singletonList(comparison.value());
+                    break;
+                } else if (term instanceof AqlAst.In in && in.bin().equalsIgnoreCase(PK_BIN)) {
+                    keyTerm = term;
+                    values = in.values();
+                    break;
+                }
+            }
+            if (keyTerm == null) {
+                return;
+            }
+            LinkedHashSet<Key> keys = new LinkedHashSet<>(); // Drops repeated keys, keeps order
+            for (Object value : values) {
+                if (!(value instanceof String) && !(value instanceof Long)) {
+                    throw new AqlSyntaxException("Primary key must be a string or integer", source, keyTerm.position());
+                }
+                keys.add(new Key(plan.namespace, plan.set, Value.get(value)));
+            }
+            PredicateCompiler compiler = new PredicateCompiler(source);
+            List<Exp> remaining = new ArrayList<>();
+            for (AqlAst.Predicate term : terms) {
+                if (term != keyTerm) {
+                    remaining.add(compiler.compile(term));
+                }
+            }
+            plan.primaryKeys = keys.toArray(new Key[0]);
+            if (remaining.size() == 1) {
+                plan.keyFilter = Exp.build(remaining.get(0));
+            } else if (remaining.size() > 1) {
+                plan.keyFilter = Exp.build(Exp.and(remaining.toArray(new Exp[0])));
+            }
+        }
+
+        /**
+         * Surfaces type errors in the WHERE clause at compile time rather than on execution.
+         */
+        private void validate(AqlAst.Predicate where) {
+            if (where != null) {
+                new PredicateCompiler(source).compile(where);
+            }
+        }
+
+        private AqlAst.Comparison singleEquality(AqlAst.Predicate where) {
+            if (where instanceof AqlAst.Comparison comparison && comparison.operator() == AqlAst.Operator.EQ) {
+                return comparison;
+            }
+            throw new AqlSyntaxException("Only a single bin = value condition is supported", source, where.position());
+        }
+
+        private void requireSet(AqlAst.Target target) {
+            if (target.set() == null) {
+                throw new AqlSyntaxException("Expected namespace.set", source, target.position());
+            }
+        }
+
+        private static String describe(AqlAst.Predicate where) {
+            if (where == null) {
+                return null;
+            }
+            StringBuilder text = new StringBuilder();
+            describe(where, text);
+            return text.toString();
+        }
+
+        private static void describe(AqlAst.Predicate predicate, StringBuilder text) {
+            if (predicate instanceof AqlAst.Comparison comparison) {
+                text.append(comparison.bin()).append(comparison.operator().symbol).append(literal(comparison.value()));
+            } else if (predicate instanceof AqlAst.Between between) {
+                text.append(between.bin()).append(" BETWEEN ").append(literal(between.low()))
+                        .append(" AND ").append(literal(between.high()));
+            } else if (predicate instanceof AqlAst.In in) {
+                text.append(in.bin()).append(" IN (");
+                for (int i = 0; i < in.values().size(); i++) {
+                    text.append(i > 0 ? ", " : "").append(literal(in.values().get(i)));
+                }
+                text.append(')');
+            } else if (predicate instanceof AqlAst.Like like) {
+                text.append(like.bin()).append(" LIKE ").append(literal(like.pattern()));
+            } else if (predicate instanceof AqlAst.Contains contains) {
+                text.append(contains.bin()).append(" CONTAINS ").append(literal(contains.value()));
+            } else if (predicate instanceof AqlAst.Not not) {
+                text.append("NOT (");
+                describe(not.operand(), text);
+                text.append(')');
+            } else {
+                boolean and = predicate instanceof AqlAst.And;
+                AqlAst.Predicate left = and ? ((AqlAst.And) predicate).left() : ((AqlAst.Or) predicate).left();
+                AqlAst.Predicate right = and ? ((AqlAst.And) predicate).right() : ((AqlAst.Or) predicate).right();
+                text.append('(');
+                describe(left, text);
+                text.append(and ? " AND " : " OR ");
+                describe(right, text);
+                text.append(')');
+            }
+        }
+
+        private static String literal(Object value) {
+            return value instanceof String ? "'" + value + "'" : String.valueOf(value);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.vikki.aerospike;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of compiled {@link AqlPlan}s keyed by query text, so running the
+ * same statement again skips tokenizing, parsing and planning.
+ */
+public final class AqlPlanCache {
+
+    private static final AqlPlanCache SHARED = new AqlPlanCache(ExplorerSettings.AQL_PLAN_CACHE_SIZE);
+
+    private final Map<String, AqlPlan> plans;
+    private long hits;
+    private long misses;
+
+    public AqlPlanCache(int capacity) {
+        this.plans = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AqlPlan> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public static AqlPlanCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the cached plan for {@code aql}, compiling it on a miss. Leading and trailing
+     * whitespace is ignored. Statements that fail to compile are not cached.
+     *
+     * @throws AqlSyntaxException if the text is not valid AQL
+     */
+    public AqlPlan get(String aql) {
+        String text = aql.trim();
+        synchronized (plans) {
+            AqlPlan plan = plans.get(text);
+            if (plan != null) {
+                hits++;
+                return plan;
+            }
+            misses++;
+        }
+        AqlPlan plan = AqlPlan.compile(text);
+        synchronized (plans) {
+            plans.put(text, plan);
+        }
+        return plan;
+    }
+
+    public void clear() {
+        synchronized (plans) {
+            plans.clear();
+        }
+    }
+
+    public long getHits() {
+        synchronized (plans) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (plans) {
+            return misses;
+        }
+    }
+}
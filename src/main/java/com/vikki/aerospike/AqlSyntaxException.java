@@ -0,0 +1,48 @@
+package com.vikki.aerospike;
+
+/**
+ * Raised when an AQL statement cannot be parsed or planned. Carries the offset of the
+ * offending token together with its line and column for display.
+ */
+public class AqlSyntaxException extends RuntimeException {
+
+    private final int position;
+    private final int line;
+    private final int column;
+
+    public AqlSyntaxException(String message, String source, int position) {
+        super(message);
+        this.position = position;
+        int line = 1;
+        int column = 1;
+        for (int i = 0; i < position && i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                line++;
+                column = 1;
+            } else {
+                column++;
+            }
+        }
+        this.line = line;
+        this.column = column;
+    }
+
+    public int getPosition() {
+        return position;
+    }
+
+    public int getLine() {
+        return line;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Message prefixed with the location, e.g. {@code "Line 1, column 15: Expected FROM"}.
+     */
+    public String getLocatedMessage() {
+        return "Line " + line + ", column " + column + ": " + getMessage();
+    }
+}
@@ -0,0 +1,320 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.Record;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.listener.BatchOperateListListener;
+import com.aerospike.client.listener.BatchRecordArrayListener;
+import com.aerospike.client.listener.DeleteListener;
+import com.aerospike.client.listener.RecordArrayListener;
+import com.aerospike.client.listener.RecordListener;
+import com.aerospike.client.listener.RecordSequenceListener;
+import com.aerospike.client.listener.WriteListener;
+import com.aerospike.client.policy.BatchDeletePolicy;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.Policy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.Statement;
+import javafx.application.Platform;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Non-blocking record operations on the client's event loops. Each call returns as soon as
+ * the command is queued and completes its future from an event loop thread, so any number
+ * of operations can be outstanding without holding a thread each. Work done in the
+ * callbacks should stay short; hand UI updates to {@link #onFxThread}.
+ */
+public class AsyncAerospike {
+
+    /**
+     * Receives query results on an event loop thread. Returning {@code false} ends the
+     * query early; it then completes normally.
+     */
+    public interface RecordHandler {
+        boolean onRecord(Key key, Record record);
+    }
+
+    private final AerospikeClient client;
+    private final EventLoops eventLoops;
+
+    public AsyncAerospike(AerospikeClient client, EventLoops eventLoops) {
+        this.client = client;
+        this.eventLoops = eventLoops;
+    }
+
+    public AerospikeClient getClient() {
+        return client;
+    }
+
+    public EventLoops getEventLoops() {
+        return eventLoops;
+    }
+
+    /**
+     * Completes with the record, or {@code null} if it does not exist or was filtered out.
+     */
+    public CompletableFuture<Record> get(Policy policy, Key key, String... binNames) {
+        CompletableFuture<Record> future = timed(OperationMetrics.OpType.GET, new CompletableFuture<>());
+        RecordListener listener = recordListener(future);
+        try {
+            if (binNames == null || binNames.length == 0) {
+                client.get(next(), listener, policy, key);
+            } else {
+                client.get(next(), listener, policy, key, binNames);
+            }
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Batch read; the array has one entry per key, {@code null} where a record is missing.
+     */
+    public CompletableFuture<Record[]> get(BatchPolicy policy, Key[] keys, String... binNames) {
+        CompletableFuture<Record[]> future = timedBatch(new CompletableFuture<>());
+        RecordArrayListener listener = new RecordArrayListener() {
+            @Override
+            public void onSuccess(Key[] keys, Record[] records) {
+                future.complete(records);
+            }
+
+            @Override
+            public void onFailure(AerospikeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+        try {
+            if (binNames == null || binNames.length == 0) {
+                client.get(next(), listener, policy, keys);
+            } else {
+                client.get(next(), listener, policy, keys, binNames);
+            }
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Key> put(WritePolicy policy, Key key, Bin... bins) {
+        CompletableFuture<Key> future = timed(OperationMetrics.OpType.PUT, new CompletableFuture<>());
+        try {
+            client.put(next(), new WriteListener() {
+                @Override
+                public void onSuccess(Key key) {
+                    future.complete(key);
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(e);
+                }
+            }, policy, key, bins);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<Record> operate(WritePolicy policy, Key key, Operation... operations) {
+        CompletableFuture<Record> future = timed(OperationMetrics.OpType.PUT, new CompletableFuture<>());
+        try {
+            client.operate(next(), recordListener(future), policy, key, operations);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Batch of reads and writes in one call; completes with the records, each carrying its
+     * own result code, even when some of them failed.
+     */
+    public CompletableFuture<List<BatchRecord>> operate(BatchPolicy policy, List<BatchRecord> records) {
+        CompletableFuture<List<BatchRecord>> future = timed(OperationMetrics.OpType.PUT, new CompletableFuture<>());
+        try {
+            client.operate(next(), new BatchOperateListListener() {
+                @Override
+                public void onSuccess(List<BatchRecord> results, boolean status) {
+                    future.complete(results);
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(e);
+                }
+            }, policy, records);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Completes with {@code true} if the record existed.
+     */
+    public CompletableFuture<Boolean> delete(WritePolicy policy, Key key) {
+        CompletableFuture<Boolean> future = timed(OperationMetrics.OpType.DELETE, new CompletableFuture<>());
+        try {
+            client.delete(next(), new DeleteListener() {
+                @Override
+                public void onSuccess(Key key, boolean existed) {
+                    future.complete(existed);
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    future.completeExceptionally(e);
+                }
+            }, policy, key);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Batch delete; completes with the per-key results even when some keys failed.
+     */
+    public CompletableFuture<BatchRecord[]> delete(BatchPolicy policy, BatchDeletePolicy deletePolicy, Key[] keys) {
+        CompletableFuture<BatchRecord[]> future = timed(OperationMetrics.OpType.DELETE, new CompletableFuture<>());
+        try {
+            client.delete(next(), new BatchRecordArrayListener() {
+                @Override
+                public void onSuccess(BatchRecord[] records, boolean status) {
+                    future.complete(records);
+                }
+
+                @Override
+                public void onFailure(BatchRecord[] records, AerospikeException e) {
+                    if (records != null) {
+                        future.complete(records);
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                }
+            }, policy, deletePolicy, keys);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Streams the results of {@code statement} to {@code handler} and completes with the
+     * number of records handed to it.
+     */
+    public CompletableFuture<Long> query(QueryPolicy policy, Statement statement, RecordHandler handler) {
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.QUERY);
+        CompletableFuture<Long> future = new CompletableFuture<>();
+        future.whenComplete((records, error) -> timer.end(error));
+        AtomicLong count = new AtomicLong();
+        AtomicBoolean stopped = new AtomicBoolean();
+        try {
+            client.query(next(), new RecordSequenceListener() {
+                @Override
+                public void onRecord(Key key, Record record) {
+                    if (stopped.get()) {
+                        throw new AerospikeException.QueryTerminated();
+                    }
+                    count.incrementAndGet();
+                    timer.record(record);
+                    if (!handler.onRecord(key, record)) {
+                        stopped.set(true);
+                        throw new AerospikeException.QueryTerminated();
+                    }
+                }
+
+                @Override
+                public void onSuccess() {
+                    future.complete(count.get());
+                }
+
+                @Override
+                public void onFailure(AerospikeException e) {
+                    if (stopped.get()) {
+                        future.complete(count.get());
+                    } else {
+                        future.completeExceptionally(e);
+                    }
+                }
+            }, policy, statement);
+        } catch (AerospikeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs {@code action} once on the JavaFX thread when {@code future} completes, with the
+     * failure unwrapped from any {@link CompletionException}.
+     */
+    public static <T> void onFxThread(CompletableFuture<T> future, BiConsumer<T, Throwable> action) {
+        future.whenComplete((value, error) -> Platform.runLater(() -> action.accept(value, unwrap(error))));
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+
+    // Records the latency of the command when the future completes, and the record it returned
+    private static <T> CompletableFuture<T> timed(OperationMetrics.OpType type, CompletableFuture<T> future) {
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(type);
+        future.whenComplete((value, error) -> {
+            if (value instanceof Record record) {
+                timer.record(record);
+            }
+            timer.end(error);
+        });
+        return future;
+    }
+
+    private static CompletableFuture<Record[]> timedBatch(CompletableFuture<Record[]> future) {
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.GET);
+        future.whenComplete((records, error) -> {
+            if (records != null) {
+                for (Record record : records) {
+                    if (record != null) {
+                        timer.record(record);
+                    }
+                }
+            }
+            timer.end(error);
+        });
+        return future;
+    }
+
+    private EventLoop next() {
+        return eventLoops.next();
+    }
+
+    private static RecordListener recordListener(CompletableFuture<Record> future) {
+        return new RecordListener() {
+            @Override
+            public void onSuccess(Key key, Record record) {
+                future.complete(record);
+            }
+
+            @Override
+            public void onFailure(AerospikeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+}
@@ -0,0 +1,105 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Reads records by primary key with batch gets. Key lists larger than the batch size are
+ * split into chunks that run concurrently; results keep the order of the keys.
+ */
+public class BatchKeyReader {
+
+    private final AerospikeClient client;
+    private final int batchSize;
+    private final int concurrency;
+
+    public BatchKeyReader(AerospikeClient client) {
+        this(client, ExplorerSettings.BATCH_SIZE, ExplorerSettings.BATCH_CONCURRENCY);
+    }
+
+    public BatchKeyReader(AerospikeClient client, int batchSize, int concurrency) {
+        this.client = client;
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Returns one entry per key, {@code null} where the record does not exist or was
+     * rejected by the policy's filter expression. {@code binNames} may be {@code null} for
+     * all bins.
+     */
+    public Record[] get(BatchPolicy policy, Key[] keys, String[] binNames) {
+        if (keys.length <= batchSize) {
+            return read(policy, keys, binNames);
+        }
+        int chunks = (keys.length + batchSize - 1) / batchSize;
+        Record[] records = new Record[keys.length];
+        ThreadFactory factory = ExplorerSettings.SCAN_VIRTUAL_THREADS
+                ? Thread.ofVirtual().name("batch-worker-", 0).factory()
+                : Thread.ofPlatform().name("batch-worker-", 0).daemon(true).factory();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(concurrency, chunks), factory);
+        try {
+            List<Future<?>> futures = new ArrayList<>(chunks);
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int from = chunk * batchSize;
+                int to = Math.min(from + batchSize, keys.length);
+                futures.add(pool.submit(() -> {
+                    Record[] part = read(policy, Arrays.copyOfRange(keys, from, to), binNames);
+                    System.arraycopy(part, 0, records, from, part.length);
+                    return null;
+                }));
+            }
+            AerospikeException failure = null;
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof AerospikeException
+                                ? (AerospikeException) e.getCause()
+                                : new AerospikeException(e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AerospikeException.QueryTerminated(e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            return records;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Record[] read(BatchPolicy policy, Key[] keys, String[] binNames) {
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.GET);
+        Record[] records;
+        try {
+            records = binNames == null ? client.get(policy, keys) : client.get(policy, keys, binNames);
+        } catch (AerospikeException e) {
+            timer.end(e);
+            throw e;
+        }
+        for (Record record : records) {
+            if (record != null) {
+                timer.record(record);
+            }
+        }
+        timer.end(null);
+        return records;
+    }
+}
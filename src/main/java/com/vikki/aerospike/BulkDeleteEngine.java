@@ -0,0 +1,273 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchResults;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.WritePolicy;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import com.aerospike.client.task.ExecuteTask;
+import com.aerospike.client.task.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Deletes many records without one round trip per record.
+ * <ul>
+ * <li>{@link #deleteKeys} sends known keys as batch deletes.</li>
+ * <li>{@link #deleteInBackground} hands the whole delete to the server as a background
+ * query and polls the task.</li>
+ * <li>{@link #deleteMatching} streams keys from a query into batch deletes, keeping at most
+ * a fixed number of batches in flight, for servers that refuse the background form.</li>
+ * </ul>
+ */
+public class BulkDeleteEngine {
+
+    public interface Listener {
+        /**
+         * Called after each batch with running totals.
+         */
+        void onProgress(long deleted, long failed, double recordsPerSecond);
+    }
+
+    public static final class Result {
+        final long deleted; // -1 when the server does not report a count
+        final long failed;
+        final long elapsedMs;
+        final AerospikeException lastError;
+
+        Result(long deleted, long failed, long elapsedMs, AerospikeException lastError) {
+            this.deleted = deleted;
+            this.failed = failed;
+            this.elapsedMs = elapsedMs;
+            this.lastError = lastError;
+        }
+
+        public long getDeleted() {
+            return deleted;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public AerospikeException getLastError() {
+            return lastError;
+        }
+    }
+
+    private final AerospikeClient client;
+    private final int batchSize;
+    private final int maxInFlight;
+    private volatile boolean cancelled;
+
+    public BulkDeleteEngine(AerospikeClient client) {
+        this(client, ExplorerSettings.DELETE_BATCH_SIZE, ExplorerSettings.DELETE_MAX_IN_FLIGHT);
+    }
+
+    public BulkDeleteEngine(AerospikeClient client, int batchSize, int maxInFlight) {
+        this.client = client;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Deletes the given keys in batches. Records rejected by {@code filterExp} or already
+     * gone are neither deleted nor failed.
+     */
+    public Result deleteKeys(Key[] keys, Expression filterExp, Listener listener) {
+        Progress progress = new Progress(listener);
+        ExecutorService pool = newWorkerPool();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try {
+            for (int from = 0; from < keys.length && !cancelled; from += batchSize) {
+                submit(pool, inFlight, Arrays.copyOfRange(keys, from, Math.min(from + batchSize, keys.length)),
+                        filterExp, progress);
+            }
+            awaitAll(inFlight);
+        } finally {
+            pool.shutdownNow();
+        }
+        return progress.result();
+    }
+
+    /**
+     * Streams the keys of every record matched by {@code statement} into batch deletes. Only
+     * {@code batchSize * (maxInFlight + 1)} keys are held at any time.
+     */
+    public Result deleteMatching(Statement statement, Expression filterExp, Listener listener) {
+        Progress progress = new Progress(listener);
+        QueryPolicy queryPolicy = new QueryPolicy();
+        queryPolicy.filterExp = filterExp;
+        queryPolicy.includeBinData = false; // Only the keys are needed
+        ExecutorService pool = newWorkerPool();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        try (RecordSet recordSet = client.query(queryPolicy, statement)) {
+            List<Key> chunk = new ArrayList<>(batchSize);
+            while (!cancelled && recordSet.next()) {
+                chunk.add(recordSet.getKey());
+                if (chunk.size() == batchSize) {
+                    submit(pool, inFlight, chunk.toArray(new Key[0]), null, progress);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty() && !cancelled) {
+                submit(pool, inFlight, chunk.toArray(new Key[0]), null, progress);
+            }
+            awaitAll(inFlight);
+        } finally {
+            pool.shutdownNow();
+        }
+        return progress.result();
+    }
+
+    /**
+     * Runs the delete as a server-side background query and blocks until the task is done,
+     * reporting its status every {@link ExplorerSettings#DELETE_POLL_INTERVAL_MS}. The server
+     * does not report how many records were removed.
+     */
+    public Result deleteInBackground(Statement statement, Expression filterExp, Consumer<String> status) {
+        long start = System.currentTimeMillis();
+        WritePolicy writePolicy = new WritePolicy();
+        writePolicy.filterExp = filterExp;
+        ExecuteTask task = client.execute(writePolicy, statement, Operation.delete());
+        while (true) {
+            int state = task.queryStatus();
+            if (state == Task.COMPLETE || state == Task.NOT_FOUND) {
+                break;
+            }
+            if (cancelled) {
+                throw new AerospikeException.QueryTerminated();
+            }
+            status.accept("Background delete " + task.getTaskId() + " running for "
+                    + (System.currentTimeMillis() - start) / 1000 + "s...");
+            try {
+                Thread.sleep(ExplorerSettings.DELETE_POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AerospikeException.QueryTerminated(e);
+            }
+        }
+        return new Result(-1, 0, System.currentTimeMillis() - start, null);
+    }
+
+    /**
+     * Stops submitting batches; batches already sent still complete. A background task
+     * keeps running on the server.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void submit(ExecutorService pool, Semaphore inFlight, Key[] keys, Expression filterExp, Progress progress) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AerospikeException.QueryTerminated(e);
+        }
+        pool.execute(() -> {
+            OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.DELETE);
+            try {
+                BatchPolicy batchPolicy = new BatchPolicy();
+                batchPolicy.filterExp = filterExp;
+                BatchResults results = client.delete(batchPolicy, null, keys);
+                timer.end(null);
+                progress.add(results.records, null);
+            } catch (AerospikeException.BatchRecordArray e) {
+                timer.end(e);
+                progress.add(e.records, e);
+            } catch (AerospikeException e) {
+                timer.end(e);
+                progress.failed(keys.length, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void awaitAll(Semaphore inFlight) {
+        try {
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AerospikeException.QueryTerminated(e);
+        }
+    }
+
+    private ExecutorService newWorkerPool() {
+        ThreadFactory factory = ExplorerSettings.SCAN_VIRTUAL_THREADS
+                ? Thread.ofVirtual().name("delete-worker-", 0).factory()
+                : Thread.ofPlatform().name("delete-worker-", 0).daemon(true).factory();
+        return Executors.newFixedThreadPool(maxInFlight, factory);
+    }
+
+    private static final class Progress {
+        private final Listener listener;
+        private final long start = System.currentTimeMillis();
+        private final AtomicLong deleted = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicReference<AerospikeException> lastError = new AtomicReference<>();
+
+        Progress(Listener listener) {
+            this.listener = listener;
+        }
+
+        void add(BatchRecord[] records, AerospikeException error) {
+            long ok = 0;
+            long bad = 0;
+            for (BatchRecord record : records) {
+                if (record.resultCode == ResultCode.OK) {
+                    ok++;
+                } else if (record.resultCode != ResultCode.KEY_NOT_FOUND_ERROR
+                        && record.resultCode != ResultCode.FILTERED_OUT) {
+                    bad++;
+                }
+            }
+            deleted.addAndGet(ok);
+            failed.addAndGet(bad);
+            if (error != null) {
+                lastError.set(error);
+            }
+            report();
+        }
+
+        void failed(int count, AerospikeException error) {
+            failed.addAndGet(count);
+            lastError.set(error);
+            report();
+        }
+
+        private void report() {
+            if (listener != null) {
+                long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                listener.onProgress(deleted.get(), failed.get(), deleted.get() * 1000.0 / elapsed);
+            }
+        }
+
+        Result result() {
+            return new Result(deleted.get(), failed.get(), System.currentTimeMillis() - start, lastError.get());
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.Value;
+import com.aerospike.client.async.EventLoop;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.listener.BatchOperateListListener;
+import com.aerospike.client.policy.BatchPolicy;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes a stream of records as async batch writes on the client's event loops.
+ * <p>
+ * The calling thread only reads rows and groups them into batches; at most
+ * {@code maxInFlight} batches are outstanding at a time, so memory stays bounded however
+ * large the input is. Records that fail with a transient error (timeout, overload, busy
+ * key) are retried with exponential backoff; anything else is counted as rejected.
+ */
+public class BulkLoader {
+
+    public interface Listener {
+        /**
+         * Running totals, reported at most every {@link ExplorerSettings#LOAD_PROGRESS_INTERVAL_MS}.
+         * Called from an event loop thread.
+         */
+        void onProgress(long written, long retried, long rejected, double recordsPerSecond);
+    }
+
+    public static final class Result {
+        final long written;
+        final long retried;
+        final long rejected;
+        final long elapsedMs;
+        final AerospikeException lastError;
+
+        Result(long written, long retried, long rejected, long elapsedMs, AerospikeException lastError) {
+            this.written = written;
+            this.retried = retried;
+            this.rejected = rejected;
+            this.elapsedMs = elapsedMs;
+            this.lastError = lastError;
+        }
+
+        public long getWritten() {
+            return written;
+        }
+
+        public long getRetried() {
+            return retried;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public AerospikeException getLastError() {
+            return lastError;
+        }
+    }
+
+    private final AerospikeClient client;
+    private final EventLoops eventLoops;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final int maxRetries;
+    private final BatchPolicy batchPolicy = BatchPolicy.WriteDefault();
+    private volatile boolean cancelled;
+
+    public BulkLoader(AerospikeClient client, EventLoops eventLoops) {
+        this(client, eventLoops, ExplorerSettings.LOAD_BATCH_SIZE, ExplorerSettings.LOAD_MAX_IN_FLIGHT,
+                ExplorerSettings.LOAD_MAX_RETRIES);
+    }
+
+    public BulkLoader(AerospikeClient client, EventLoops eventLoops, int batchSize, int maxInFlight, int maxRetries) {
+        this.client = client;
+        this.eventLoops = eventLoops;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxRetries = Math.max(0, maxRetries);
+    }
+
+    /**
+     * Writes every row into {@code namespace.set} and blocks until all batches have
+     * completed. Rows without a user key get a generated one.
+     */
+    public Result load(String namespace, String set, Iterator<AqlPlan.Write> rows, Listener listener) {
+        Progress progress = new Progress(listener);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        List<BatchRecord> batch = new ArrayList<>(batchSize);
+        while (!cancelled && rows.hasNext()) {
+            AqlPlan.Write write = AqlPlan.withGeneratedKey(rows.next());
+            Operation[] operations = new Operation[write.bins.length];
+            for (int i = 0; i < operations.length; i++) {
+                operations[i] = Operation.put(write.bins[i]);
+            }
+            batch.add(new BatchWrite(new Key(namespace, set, Value.get(write.userKey)), operations));
+            if (batch.size() == batchSize) {
+                acquire(inFlight);
+                send(batch, 0, inFlight, progress);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty() && !cancelled) {
+            acquire(inFlight);
+            send(batch, 0, inFlight, progress);
+        }
+        acquire(inFlight, maxInFlight); // Wait for the outstanding batches
+        inFlight.release(maxInFlight);
+        progress.report(true);
+        return progress.result();
+    }
+
+    /**
+     * Stops reading further rows; batches already sent still complete.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private void send(List<BatchRecord> batch, int attempt, Semaphore inFlight, Progress progress) {
+        EventLoop eventLoop = eventLoops.next();
+        OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.PUT);
+        BatchOperateListListener listener = new BatchOperateListListener() {
+            @Override
+            public void onSuccess(List<BatchRecord> records, boolean status) {
+                timer.end(null);
+                List<BatchRecord> retry = new ArrayList<>();
+                long written = 0;
+                long rejected = 0;
+                for (BatchRecord record : records) {
+                    if (record.resultCode == ResultCode.OK) {
+                        written++;
+                    } else if (attempt < maxRetries && isTransient(record.resultCode)) {
+                        retry.add(new BatchWrite(record.key, ((BatchWrite) record).ops));
+                    } else {
+                        rejected++;
+                        progress.lastError.set(new AerospikeException(record.resultCode));
+                    }
+                }
+                progress.written.addAndGet(written);
+                progress.rejected.addAndGet(rejected);
+                if (retry.isEmpty()) {
+                    inFlight.release();
+                    progress.report(false);
+                } else {
+                    retryLater(eventLoop, retry, attempt, inFlight, progress);
+                }
+            }
+
+            @Override
+            public void onFailure(AerospikeException e) {
+                timer.end(e);
+                if (attempt < maxRetries && isTransient(e.getResultCode())) {
+                    List<BatchRecord> retry = new ArrayList<>(batch.size());
+                    for (BatchRecord record : batch) {
+                        retry.add(new BatchWrite(record.key, ((BatchWrite) record).ops));
+                    }
+                    retryLater(eventLoop, retry, attempt, inFlight, progress);
+                } else {
+                    progress.rejected.addAndGet(batch.size());
+                    progress.lastError.set(e);
+                    inFlight.release();
+                    progress.report(false);
+                }
+            }
+        };
+        try {
+            client.operate(eventLoop, listener, batchPolicy, batch);
+        } catch (AerospikeException e) {
+            listener.onFailure(e); // Rejected before it was queued, e.g. a full delay queue
+        }
+    }
+
+    // The batch keeps its in-flight permit while it waits
+    private void retryLater(EventLoop eventLoop, List<BatchRecord> retry, int attempt, Semaphore inFlight, Progress progress) {
+        progress.retried.addAndGet(retry.size());
+        long delay = ExplorerSettings.LOAD_RETRY_BACKOFF_MS << Math.min(attempt, 10);
+        eventLoop.schedule(() -> send(retry, attempt + 1, inFlight, progress), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isTransient(int resultCode) {
+        switch (resultCode) {
+            case ResultCode.TIMEOUT:
+            case ResultCode.DEVICE_OVERLOAD:
+            case ResultCode.KEY_BUSY:
+            case ResultCode.SERVER_NOT_AVAILABLE:
+            case ResultCode.NO_MORE_CONNECTIONS:
+            case ResultCode.BATCH_QUEUES_FULL:
+            case ResultCode.BATCH_MAX_REQUESTS_EXCEEDED:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static void acquire(Semaphore semaphore) {
+        acquire(semaphore, 1);
+    }
+
+    private static void acquire(Semaphore semaphore, int permits) {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AerospikeException.QueryTerminated(e);
+        }
+    }
+
+    private static final class Progress {
+        private final Listener listener;
+        private final long start = System.currentTimeMillis();
+        private final AtomicLong lastReport = new AtomicLong();
+        final AtomicLong written = new AtomicLong();
+        final AtomicLong retried = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final AtomicReference<AerospikeException> lastError = new AtomicReference<>();
+
+        Progress(Listener listener) {
+            this.listener = listener;
+        }
+
+        void report(boolean force) {
+            if (listener == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long last = lastReport.get();
+            if (!force && (now - last < ExplorerSettings.LOAD_PROGRESS_INTERVAL_MS || !lastReport.compareAndSet(last, now))) {
+                return;
+            }
+            long elapsed = Math.max(1, now - start);
+            listener.onProgress(written.get(), retried.get(), rejected.get(), written.get() * 1000.0 / elapsed);
+        }
+
+        Result result() {
+            return new Result(written.get(), retried.get(), rejected.get(), System.currentTimeMillis() - start, lastError.get());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import eu.hansolo.tilesfx.Tile;
+import eu.hansolo.tilesfx.TileBuilder;
+import eu.hansolo.tilesfx.tools.FlowGridPane;
+import javafx.application.Platform;
+import javafx.geometry.Insets;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live throughput and latency tiles for the connected cluster, polled every
+ * {@link ExplorerSettings#DASHBOARD_INTERVAL_MS} while the window is open. History is kept
+ * in {@link MetricRing}s of {@link ExplorerSettings#DASHBOARD_HISTORY} samples, so the
+ * window can stay open for days.
+ */
+final class ClusterDashboard {
+
+    private static final double TILE_SIZE = 250;
+
+    private final ClusterStatsPoller poller;
+    private final int history = ExplorerSettings.DASHBOARD_HISTORY;
+    private final MetricRing readTps = new MetricRing(history);
+    private final MetricRing writeTps = new MetricRing(history);
+    private final MetricRing queryTps = new MetricRing(history);
+    private final MetricRing readP99 = new MetricRing(history);
+    private final MetricRing writeP99 = new MetricRing(history);
+    private final Tile readTile = sparkLine("Reads", "tps");
+    private final Tile writeTile = sparkLine("Writes", "tps");
+    private final Tile queryTile = sparkLine("Queries", "per s");
+    private final Tile readLatencyTile = sparkLine("Read latency p99", "ms");
+    private final Tile writeLatencyTile = sparkLine("Write latency p99", "ms");
+    private final Tile nodesTile = TileBuilder.create()
+            .skinType(Tile.SkinType.NUMBER)
+            .prefSize(TILE_SIZE, TILE_SIZE)
+            .title("Nodes")
+            .decimals(0)
+            .textVisible(true)
+            .build();
+    private final Stage stage = new Stage();
+    private ScheduledExecutorService scheduler;
+
+    ClusterDashboard(AerospikeClient client) {
+        this.poller = new ClusterStatsPoller(client);
+        FlowGridPane grid = new FlowGridPane(3, 2, readTile, writeTile, queryTile, readLatencyTile, writeLatencyTile, nodesTile);
+        grid.setHgap(5);
+        grid.setVgap(5);
+        grid.setPadding(new Insets(5));
+        stage.setTitle("Cluster Dashboard");
+        stage.setScene(new Scene(grid, 3 * TILE_SIZE + 20, 2 * TILE_SIZE + 15));
+        stage.setOnHidden(event -> stop());
+    }
+
+    void show() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("dashboard-poller").daemon(true).factory());
+            scheduler.scheduleWithFixedDelay(this::pollOnce, 0, ExplorerSettings.DASHBOARD_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+        stage.show();
+        stage.toFront();
+    }
+
+    void close() {
+        stage.close();
+    }
+
+    boolean isShowing() {
+        return stage.isShowing();
+    }
+
+    private void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        poller.close();
+    }
+
+    private void pollOnce() {
+        ClusterStatsPoller.Sample sample;
+        try {
+            sample = poller.poll();
+        } catch (AerospikeException e) {
+            Platform.runLater(() -> nodesTile.setText("Poll failed: " + e.getMessage()));
+            return;
+        }
+        long time = sample.getTimestamp();
+        readTps.add(time, sample.getReadTps());
+        writeTps.add(time, sample.getWriteTps());
+        queryTps.add(time, sample.getQueryTps());
+        double[] readLatency = sample.getReadLatencyMs();
+        double[] writeLatency = sample.getWriteLatencyMs();
+        readP99.add(time, readLatency != null ? readLatency[2] : 0);
+        writeP99.add(time, writeLatency != null ? writeLatency[2] : 0);
+        Platform.runLater(() -> {
+            update(readTile, readTps);
+            update(writeTile, writeTps);
+            update(queryTile, queryTps);
+            readLatencyTile.setValue(readP99.latest());
+            readLatencyTile.setText(describe(readLatency));
+            writeLatencyTile.setValue(writeP99.latest());
+            writeLatencyTile.setText(describe(writeLatency));
+            nodesTile.setValue(sample.getNodes());
+            nodesTile.setText(sample.getClientConnections() + " client connections"
+                    + (sample.getFailedNodes() > 0 ? ", " + sample.getFailedNodes() + " not answering" : ""));
+        });
+    }
+
+    private void update(Tile tile, MetricRing ring) {
+        tile.setValue(ring.latest());
+        tile.setText(String.format("avg %.0f, peak %.0f", ring.average(), ring.max()));
+    }
+
+    private static String describe(double[] latency) {
+        if (latency == null) {
+            return "no traffic";
+        }
+        return String.format("p50 <= %.0f, p95 <= %.0f, p99 <= %.0f ms", latency[0], latency[1], latency[2]);
+    }
+
+    private Tile sparkLine(String title, String unit) {
+        return TileBuilder.create()
+                .skinType(Tile.SkinType.SPARK_LINE)
+                .prefSize(TILE_SIZE, TILE_SIZE)
+                .title(title)
+                .unit(unit)
+                .decimals(0)
+                .averagingPeriod(history)
+                .textVisible(true)
+                .build();
+    }
+}
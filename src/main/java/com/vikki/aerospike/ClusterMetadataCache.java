@@ -0,0 +1,353 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Info;
+import com.aerospike.client.cluster.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Namespaces and sets of the cluster with their statistics, polled from all nodes in
+ * parallel and merged into one {@link Snapshot}. The last snapshot is kept, so the tree can
+ * be shown at once while a refresh runs, and a background refresh can be scheduled every
+ * {@link ExplorerSettings#METADATA_REFRESH_MS}.
+ * <p>
+ * Every node reports the records it holds, replicas included, so object and tombstone counts
+ * are summed over the nodes and divided by the namespace's replication factor. Byte counts are
+ * summed as they are: they describe what the cluster actually stores.
+ */
+public class ClusterMetadataCache {
+
+    public static final class SetStats {
+        final String namespace;
+        final String set;
+        final long objects;
+        final long tombstones;
+        final long memoryBytes;
+        final long deviceBytes;
+        final long stopWritesCount; // 0 when no limit is configured
+        final long stopWritesSize;
+
+        SetStats(String namespace, String set, long objects, long tombstones, long memoryBytes, long deviceBytes,
+                 long stopWritesCount, long stopWritesSize) {
+            this.namespace = namespace;
+            this.set = set;
+            this.objects = objects;
+            this.tombstones = tombstones;
+            this.memoryBytes = memoryBytes;
+            this.deviceBytes = deviceBytes;
+            this.stopWritesCount = stopWritesCount;
+            this.stopWritesSize = stopWritesSize;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getSet() {
+            return set;
+        }
+
+        public long getObjects() {
+            return objects;
+        }
+
+        public long getTombstones() {
+            return tombstones;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        public long getDeviceBytes() {
+            return deviceBytes;
+        }
+
+        public long getStopWritesCount() {
+            return stopWritesCount;
+        }
+
+        public long getStopWritesSize() {
+            return stopWritesSize;
+        }
+
+        /**
+         * True when a stop-writes limit is set and the set has reached it.
+         */
+        public boolean isStopWrites() {
+            return (stopWritesCount > 0 && objects >= stopWritesCount)
+                    || (stopWritesSize > 0 && memoryBytes + deviceBytes >= stopWritesSize);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof SetStats)) {
+                return false;
+            }
+            SetStats stats = (SetStats) other;
+            return objects == stats.objects && tombstones == stats.tombstones && memoryBytes == stats.memoryBytes
+                    && deviceBytes == stats.deviceBytes && stopWritesCount == stats.stopWritesCount
+                    && stopWritesSize == stats.stopWritesSize && namespace.equals(stats.namespace)
+                    && set.equals(stats.set);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(namespace, set, objects);
+        }
+    }
+
+    /**
+     * Namespaces in name order, each with its sets in name order.
+     */
+    public static final class Snapshot {
+        private final Map<String, Map<String, SetStats>> namespaces;
+        private final int nodeCount;
+        private final int failedNodes;
+        private final long refreshedAt;
+
+        Snapshot(Map<String, Map<String, SetStats>> namespaces, int nodeCount, int failedNodes) {
+            this.namespaces = namespaces;
+            this.nodeCount = nodeCount;
+            this.failedNodes = failedNodes;
+            this.refreshedAt = System.currentTimeMillis();
+        }
+
+        public Map<String, Map<String, SetStats>> getNamespaces() {
+            return namespaces;
+        }
+
+        public SetStats getSet(String namespace, String set) {
+            Map<String, SetStats> sets = namespaces.get(namespace);
+            return sets != null ? sets.get(set) : null;
+        }
+
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        /**
+         * Nodes that did not answer; their records are missing from the counts.
+         */
+        public int getFailedNodes() {
+            return failedNodes;
+        }
+
+        public long getRefreshedAt() {
+            return refreshedAt;
+        }
+    }
+
+    // What one node reported: per namespace its replication factor and raw set fields
+    private static final class NodeReport {
+        final Map<String, Integer> replicationFactors = new HashMap<>();
+        final Map<String, List<Map<String, String>>> sets = new HashMap<>();
+    }
+
+    private final AerospikeClient client;
+    private final ExecutorService pollers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("metadata-", 0).factory());
+    private ScheduledExecutorService scheduler;
+    private volatile Snapshot snapshot;
+
+    public ClusterMetadataCache(AerospikeClient client) {
+        this.client = client;
+    }
+
+    /**
+     * The last snapshot taken, or {@code null} before the first refresh.
+     */
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Polls every node concurrently and blocks until all have answered or failed.
+     *
+     * @throws AerospikeException if no node answered
+     */
+    public Snapshot refresh() {
+        Node[] nodes = client.getNodes();
+        List<CompletableFuture<NodeReport>> reports = new ArrayList<>(nodes.length);
+        for (Node node : nodes) {
+            reports.add(CompletableFuture.supplyAsync(() -> poll(node), pollers));
+        }
+        List<NodeReport> answered = new ArrayList<>(nodes.length);
+        AerospikeException failure = null;
+        for (CompletableFuture<NodeReport> report : reports) {
+            try {
+                answered.add(report.join());
+            } catch (CompletionException e) {
+                Throwable cause = AsyncAerospike.unwrap(e);
+                failure = cause instanceof AerospikeException ? (AerospikeException) cause : new AerospikeException(cause);
+            }
+        }
+        if (answered.isEmpty() && failure != null) {
+            throw failure;
+        }
+        Snapshot merged = merge(answered, nodes.length, nodes.length - answered.size());
+        snapshot = merged;
+        return merged;
+    }
+
+    /**
+     * Refreshes every {@code intervalMs} in the background and hands each new snapshot to
+     * {@code listener} on the refresh thread. Failed refreshes are skipped.
+     */
+    public synchronized void startAutoRefresh(long intervalMs, Consumer<Snapshot> listener) {
+        stopAutoRefresh();
+        if (intervalMs <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("metadata-refresh").daemon(true).factory());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                listener.accept(refresh());
+            } catch (AerospikeException e) {
+                e.printStackTrace();
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopAutoRefresh() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public void close() {
+        stopAutoRefresh();
+        pollers.shutdownNow();
+    }
+
+    // Two round trips per node: the namespace list, then every namespace's sets and config at once
+    private NodeReport poll(Node node) {
+        NodeReport report = new NodeReport();
+        String namespacesInfo = Info.request(null, node, "namespaces");
+        if (namespacesInfo == null || namespacesInfo.isEmpty()) {
+            return report;
+        }
+        List<String> namespaces = new ArrayList<>();
+        List<String> commands = new ArrayList<>();
+        for (String namespace : namespacesInfo.split(";")) {
+            if (namespace.isEmpty()) {
+                continue;
+            }
+            namespaces.add(namespace);
+            commands.add("sets/" + namespace);
+            commands.add("namespace/" + namespace);
+        }
+        Map<String, String> responses = Info.request(null, node, commands.toArray(new String[0]));
+        for (String namespace : namespaces) {
+            Map<String, String> config = parseFields(responses.get("namespace/" + namespace), ";");
+            report.replicationFactors.put(namespace, replicationFactor(config));
+            List<Map<String, String>> sets = new ArrayList<>();
+            String setsInfo = responses.get("sets/" + namespace);
+            if (setsInfo != null) {
+                for (String setInfo : setsInfo.split(";")) {
+                    Map<String, String> fields = parseFields(setInfo, ":");
+                    if (!fields.isEmpty()) {
+                        sets.add(fields);
+                    }
+                }
+            }
+            report.sets.put(namespace, sets);
+        }
+        return report;
+    }
+
+    static Snapshot merge(List<NodeReport> reports, int nodeCount, int failedNodes) {
+        Map<String, Integer> replicationFactors = new HashMap<>();
+        Map<String, Map<String, long[]>> totals = new TreeMap<>();
+        for (NodeReport report : reports) {
+            report.replicationFactors.forEach((namespace, factor) -> replicationFactors.merge(namespace, factor, Math::max));
+            for (Map.Entry<String, List<Map<String, String>>> entry : report.sets.entrySet()) {
+                Map<String, long[]> sets = totals.computeIfAbsent(entry.getKey(), namespace -> new TreeMap<>());
+                for (Map<String, String> fields : entry.getValue()) {
+                    String set = first(fields, "set", "set_name");
+                    if (set == null) {
+                        continue;
+                    }
+                    long[] sums = sets.computeIfAbsent(set, name -> new long[6]);
+                    sums[0] += number(fields, "objects", "n_objects");
+                    sums[1] += number(fields, "tombstones", "n_tombstones");
+                    sums[2] += number(fields, "memory_data_bytes", "n-bytes-memory");
+                    sums[3] += number(fields, "device_data_bytes", "data_used_bytes");
+                    sums[4] = Math.max(sums[4], number(fields, "stop-writes-count", "stop_writes_count"));
+                    sums[5] = Math.max(sums[5], number(fields, "stop-writes-size", "stop_writes_size"));
+                }
+            }
+        }
+        Map<String, Map<String, SetStats>> namespaces = new TreeMap<>();
+        for (Map.Entry<String, Map<String, long[]>> entry : totals.entrySet()) {
+            String namespace = entry.getKey();
+            int factor = Math.max(1, replicationFactors.getOrDefault(namespace, 1));
+            Map<String, SetStats> sets = new TreeMap<>();
+            for (Map.Entry<String, long[]> set : entry.getValue().entrySet()) {
+                long[] sums = set.getValue();
+                sets.put(set.getKey(), new SetStats(namespace, set.getKey(), sums[0] / factor, sums[1] / factor,
+                        sums[2], sums[3], sums[4], sums[5]));
+            }
+            namespaces.put(namespace, Collections.unmodifiableMap(sets));
+        }
+        return new Snapshot(Collections.unmodifiableMap(namespaces), nodeCount, failedNodes);
+    }
+
+    private static int replicationFactor(Map<String, String> config) {
+        String value = first(config, "effective_replication_factor", "replication-factor");
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // Fields are looked up by name, so their order and any fields added by newer servers don't matter
+    static Map<String, String> parseFields(String text, String separator) {
+        Map<String, String> fields = new HashMap<>();
+        if (text == null || text.isEmpty() || text.startsWith("ERROR")) {
+            return fields;
+        }
+        for (String field : text.split(separator)) {
+            int eq = field.indexOf('=');
+            if (eq > 0) {
+                fields.put(field.substring(0, eq).trim(), field.substring(eq + 1).trim());
+            }
+        }
+        return fields;
+    }
+
+    private static String first(Map<String, String> fields, String name, String alternative) {
+        String value = fields.get(name);
+        return value != null ? value : fields.get(alternative);
+    }
+
+    private static long number(Map<String, String> fields, String name, String alternative) {
+        String value = first(fields, name, alternative);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Info;
+import com.aerospike.client.cluster.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Samples cluster throughput and latency from info commands: {@code statistics},
+ * {@code namespace/<ns>} and {@code latencies:}, requested from all nodes in parallel.
+ * <p>
+ * Transactions per second come from the change in each node's cumulative counters since
+ * the previous poll, so the first poll of a node only primes it. A counter that goes down
+ * means the node restarted and counts as zero for that interval. Latency percentiles are
+ * estimated from the {@code latencies:} buckets (share of operations slower than 1, 8 and
+ * 64 ms by default), weighted by each node's operation rate; they are upper bounds.
+ */
+public class ClusterStatsPoller {
+
+    public static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+
+    public static final class Sample {
+        final long timestamp;
+        final double readTps;
+        final double writeTps;
+        final double queryTps;
+        final double[] readLatencyMs;
+        final double[] writeLatencyMs;
+        final int nodes;
+        final int failedNodes;
+        final long clientConnections;
+
+        Sample(long timestamp, double readTps, double writeTps, double queryTps, double[] readLatencyMs,
+               double[] writeLatencyMs, int nodes, int failedNodes, long clientConnections) {
+            this.timestamp = timestamp;
+            this.readTps = readTps;
+            this.writeTps = writeTps;
+            this.queryTps = queryTps;
+            this.readLatencyMs = readLatencyMs;
+            this.writeLatencyMs = writeLatencyMs;
+            this.nodes = nodes;
+            this.failedNodes = failedNodes;
+            this.clientConnections = clientConnections;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public double getReadTps() {
+            return readTps;
+        }
+
+        public double getWriteTps() {
+            return writeTps;
+        }
+
+        public double getQueryTps() {
+            return queryTps;
+        }
+
+        /**
+         * Upper bounds in ms for {@link #PERCENTILES}, or {@code null} if no reads ran.
+         */
+        public double[] getReadLatencyMs() {
+            return readLatencyMs;
+        }
+
+        public double[] getWriteLatencyMs() {
+            return writeLatencyMs;
+        }
+
+        public int getNodes() {
+            return nodes;
+        }
+
+        public int getFailedNodes() {
+            return failedNodes;
+        }
+
+        public long getClientConnections() {
+            return clientConnections;
+        }
+    }
+
+    // Cumulative counters of one node at one point in time
+    private static final class NodeCounters {
+        final long time;
+        final long reads;
+        final long writes;
+        final long queries;
+
+        NodeCounters(long time, long reads, long writes, long queries) {
+            this.time = time;
+            this.reads = reads;
+            this.writes = writes;
+            this.queries = queries;
+        }
+    }
+
+    private static final class NodeReport {
+        NodeCounters counters;
+        long connections;
+        final Map<String, double[]> latencies = new HashMap<>(); // "read"/"write" -> ops/s, % above each bucket
+        double latencyUnitMs = 1;
+    }
+
+    private final AerospikeClient client;
+    private final ExecutorService pollers = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("stats-", 0).factory());
+    private final Map<String, NodeCounters> previous = new HashMap<>();
+
+    public ClusterStatsPoller(AerospikeClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Polls every node once and returns the rates since the previous call.
+     */
+    public synchronized Sample poll() {
+        Node[] nodes = client.getNodes();
+        List<CompletableFuture<NodeReport>> futures = new ArrayList<>(nodes.length);
+        for (Node node : nodes) {
+            futures.add(CompletableFuture.supplyAsync(() -> pollNode(node), pollers));
+        }
+        double readTps = 0;
+        double writeTps = 0;
+        double queryTps = 0;
+        long connections = 0;
+        int failed = 0;
+        List<NodeReport> reports = new ArrayList<>(nodes.length);
+        Map<String, NodeCounters> current = new HashMap<>();
+        for (int i = 0; i < nodes.length; i++) {
+            NodeReport report;
+            try {
+                report = futures.get(i).join();
+            } catch (CompletionException e) {
+                failed++;
+                continue;
+            }
+            reports.add(report);
+            connections += report.connections;
+            NodeCounters now = report.counters;
+            current.put(nodes[i].getName(), now);
+            NodeCounters before = previous.get(nodes[i].getName());
+            if (before != null && now.time > before.time) {
+                double seconds = (now.time - before.time) / 1000.0;
+                readTps += rate(before.reads, now.reads, seconds);
+                writeTps += rate(before.writes, now.writes, seconds);
+                queryTps += rate(before.queries, now.queries, seconds);
+            }
+        }
+        previous.keySet().retainAll(current.keySet()); // Forget nodes that left
+        previous.putAll(current);
+        return new Sample(System.currentTimeMillis(), readTps, writeTps, queryTps, percentiles(reports, "read"),
+                percentiles(reports, "write"), nodes.length, failed, connections);
+    }
+
+    public void close() {
+        pollers.shutdownNow();
+    }
+
+    private NodeReport pollNode(Node node) {
+        NodeReport report = new NodeReport();
+        long time = System.currentTimeMillis();
+        String namespacesInfo = Info.request(null, node, "namespaces");
+        List<String> commands = new ArrayList<>();
+        commands.add("statistics");
+        commands.add("latencies:");
+        if (namespacesInfo != null) {
+            for (String namespace : namespacesInfo.split(";")) {
+                if (!namespace.isEmpty()) {
+                    commands.add("namespace/" + namespace);
+                }
+            }
+        }
+        Map<String, String> responses = Info.request(null, node, commands.toArray(new String[0]));
+        Map<String, String> statistics = ClusterMetadataCache.parseFields(responses.get("statistics"), ";");
+        report.connections = number(statistics.get("client_connections"));
+
+        long reads = 0;
+        long writes = 0;
+        long queries = 0;
+        for (Map.Entry<String, String> response : responses.entrySet()) {
+            if (!response.getKey().startsWith("namespace/")) {
+                continue;
+            }
+            for (Map.Entry<String, String> field : ClusterMetadataCache.parseFields(response.getValue(), ";").entrySet()) {
+                String name = field.getKey();
+                if (name.startsWith("client_read_")) {
+                    reads += number(field.getValue());
+                } else if (name.startsWith("client_write_")) {
+                    writes += number(field.getValue());
+                } else if (name.contains("query") && (name.endsWith("_complete") || name.endsWith("_abort")
+                        || name.endsWith("_error"))) {
+                    queries += number(field.getValue());
+                }
+            }
+        }
+        report.counters = new NodeCounters(time, reads, writes, queries);
+        parseLatencies(responses.get("latencies:"), report);
+        return report;
+    }
+
+    // Items look like {ns}-read:msec,ops/sec,%>1,%>8,%>64
+    private static void parseLatencies(String text, NodeReport report) {
+        if (text == null || text.isEmpty() || text.startsWith("ERROR")) {
+            return;
+        }
+        for (String item : text.split(";")) {
+            int colon = item.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String name = item.substring(0, colon);
+            String kind = name.substring(name.lastIndexOf('-') + 1);
+            if (!kind.equals("read") && !kind.equals("write")) {
+                continue;
+            }
+            String[] fields = item.substring(colon + 1).split(",");
+            if (fields.length < 3) {
+                continue;
+            }
+            report.latencyUnitMs = fields[0].equals("usec") ? 0.001 : 1;
+            double[] values = new double[fields.length - 1];
+            for (int i = 1; i < fields.length; i++) {
+                values[i - 1] = decimal(fields[i]);
+            }
+            // Namespaces are folded together, weighted by their operation rate
+            report.latencies.merge(kind, values, ClusterStatsPoller::weightedMerge);
+        }
+    }
+
+    private static double[] weightedMerge(double[] a, double[] b) {
+        int length = Math.min(a.length, b.length);
+        double[] merged = new double[length];
+        double ops = a[0] + b[0];
+        merged[0] = ops;
+        for (int i = 1; i < length; i++) {
+            merged[i] = ops == 0 ? 0 : (a[i] * a[0] + b[i] * b[0]) / ops;
+        }
+        return merged;
+    }
+
+    private static double[] percentiles(List<NodeReport> reports, String kind) {
+        double[] combined = null;
+        double unitMs = 1;
+        for (NodeReport report : reports) {
+            double[] values = report.latencies.get(kind);
+            if (values != null) {
+                combined = combined == null ? values.clone() : weightedMerge(combined, values);
+                unitMs = report.latencyUnitMs;
+            }
+        }
+        if (combined == null || combined[0] == 0) {
+            return null;
+        }
+        double[] result = new double[PERCENTILES.length];
+        for (int p = 0; p < PERCENTILES.length; p++) {
+            result[p] = percentileBound(combined, PERCENTILES[p]) * unitMs;
+        }
+        return result;
+    }
+
+    /**
+     * Smallest bucket threshold (1, 8, 64, ... units) that at least {@code percentile} of the
+     * operations stayed under; one step past the last bucket when none did.
+     */
+    static double percentileBound(double[] values, double percentile) {
+        double allowedAbove = (1 - percentile) * 100;
+        double threshold = 1;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] <= allowedAbove) {
+                return threshold;
+            }
+            threshold *= 8;
+        }
+        return threshold;
+    }
+
+    private static double rate(long before, long now, double seconds) {
+        return now >= before ? (now - before) / seconds : 0;
+    }
+
+    private static long number(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static double decimal(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A fixed-capacity block of result rows stored column by column.
+ * <p>
+ * Each column picks a primitive representation from the first value it sees: int for
+ * generation/TTL, long and double arrays for numeric bins and dictionary codes for
+ * strings. A column that later receives a value of another type falls back to plain
+ * object storage for the rest of the page. Rows read from the cluster also keep the
+ * record's digest outside the columns, so the record can be addressed again whatever the
+ * type of its user key, or without one.
+ */
+final class ColumnarPage {
+
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte STRING = 4;
+    private static final byte OBJECT = 5;
+    private static final int DIGEST_SIZE = 20;
+
+    private final ResultSchema schema;
+    private final int capacity;
+    private int rowCount;
+    private Column[] columns = new Column[0];
+    private String[] searchText; // Lower-cased row text for the filter box, built on demand
+    private byte[] digests; // DIGEST_SIZE bytes per row, allocated with the first record
+    private final BitSet hasDigest = new BitSet();
+
+    ColumnarPage(ResultSchema schema, int capacity) {
+        this.schema = schema;
+        this.capacity = capacity;
+    }
+
+    int size() {
+        return rowCount;
+    }
+
+    boolean isFull() {
+        return rowCount >= capacity;
+    }
+
+    void appendRecord(Key key, Record record) {
+        putRecord(rowCount++, key, record);
+    }
+
+    void replaceRecord(int row, Key key, Record record) {
+        clearRow(row);
+        putRecord(row, key, record);
+    }
+
+    private void putRecord(int row, Key key, Record record) {
+        if (key.digest != null) {
+            if (digests == null) {
+                digests = new byte[capacity * DIGEST_SIZE];
+            }
+            System.arraycopy(key.digest, 0, digests, row * DIGEST_SIZE, DIGEST_SIZE);
+            hasDigest.set(row);
+        }
+        if (key.userKey != null) {
+            put(row, schema.idOf(ResultSchema.KEY), key.userKey.toString());
+        }
+        put(row, schema.idOf(ResultSchema.NAMESPACE), key.namespace);
+        if (key.setName != null) {
+            put(row, schema.idOf(ResultSchema.SET), key.setName);
+        }
+        if (record != null) {
+            put(row, schema.idOf(ResultSchema.GENERATION), record.generation);
+            put(row, schema.idOf(ResultSchema.TTL), record.getTimeToLive());
+            if (record.bins != null) {
+                for (Map.Entry<String, Object> bin : record.bins.entrySet()) {
+                    put(row, schema.idOf(bin.getKey()), bin.getValue());
+                }
+            }
+        }
+    }
+
+    void appendRow(Map<String, Object> values) {
+        int row = rowCount++;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            put(row, schema.idOf(entry.getKey()), entry.getValue());
+        }
+    }
+
+    void replaceRow(int row, Map<String, Object> values) {
+        clearRow(row);
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            put(row, schema.idOf(entry.getKey()), entry.getValue());
+        }
+    }
+
+    private void clearRow(int row) {
+        if (searchText != null && row < searchText.length) {
+            searchText[row] = null;
+        }
+        hasDigest.clear(row);
+        for (Column column : columns) {
+            if (column != null) {
+                column.present.clear(row);
+            }
+        }
+    }
+
+    boolean has(int row, int columnId) {
+        return columnId < columns.length && columns[columnId] != null && columns[columnId].present.get(row);
+    }
+
+    Object getValue(int row, int columnId) {
+        return has(row, columnId) ? columns[columnId].get(row) : null;
+    }
+
+    /**
+     * The digest of the record in {@code row}, or {@code null} for rows that did not come
+     * from a record, such as aggregate results.
+     */
+    byte[] digest(int row) {
+        return hasDigest.get(row) ? Arrays.copyOfRange(digests, row * DIGEST_SIZE, (row + 1) * DIGEST_SIZE) : null;
+    }
+
+    /**
+     * Returns the raw long value of a column, or {@code null} if the column is not stored
+     * as longs in this page. Used for sorting without boxing every cell.
+     */
+    long[] longColumn(int columnId) {
+        return columnId < columns.length && columns[columnId] instanceof LongColumn
+                ? ((LongColumn) columns[columnId]).values : null;
+    }
+
+    double[] doubleColumn(int columnId) {
+        return columnId < columns.length && columns[columnId] instanceof DoubleColumn
+                ? ((DoubleColumn) columns[columnId]).values : null;
+    }
+
+    /**
+     * Lower-cased text of every value in the row, separated by '\u0001' so a search term
+     * cannot match across two values. Computed once per row and kept until the page is
+     * spilled.
+     */
+    String searchText(int row) {
+        if (searchText == null) {
+            searchText = new String[capacity];
+        }
+        String text = searchText[row];
+        if (text == null) {
+            StringBuilder builder = new StringBuilder();
+            for (Column column : columns) {
+                if (column != null && column.present.get(row)) {
+                    builder.append(column.get(row).toString().toLowerCase()).append('\u0001');
+                }
+            }
+            text = builder.toString();
+            searchText[row] = text;
+        }
+        return text;
+    }
+
+    /**
+     * Drops the build-time string lookups once the page is full.
+     */
+    void seal() {
+        for (Column column : columns) {
+            if (column instanceof StringColumn) {
+                ((StringColumn) column).lookup = null;
+            }
+        }
+    }
+
+    long estimateBytes() {
+        long bytes = 64 + (digests != null ? digests.length : 0);
+        for (Column column : columns) {
+            if (column != null) {
+                bytes += column.bytes();
+            }
+        }
+        return bytes;
+    }
+
+    private void put(int row, int columnId, Object value) {
+        if (columnId >= columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(columnId + 1, columns.length * 2));
+        }
+        Column column = columns[columnId];
+        if (value == null) {
+            if (column != null) {
+                column.present.clear(row);
+            }
+            return;
+        }
+        if (column == null) {
+            column = newColumn(value);
+            columns[columnId] = column;
+        } else if (!column.accepts(value)) {
+            column = column.toObjectColumn(capacity);
+            columns[columnId] = column;
+        }
+        column.put(row, value);
+        column.present.set(row);
+    }
+
+    private Column newColumn(Object value) {
+        if (value instanceof Integer) {
+            return new IntColumn(capacity);
+        } else if (value instanceof Long) {
+            return new LongColumn(capacity);
+        } else if (value instanceof Double) {
+            return new DoubleColumn(capacity);
+        } else if (value instanceof String) {
+            return new StringColumn(capacity);
+        }
+        return new ObjectColumn(capacity);
+    }
+
+    // --- Spill format ---
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(rowCount);
+        int count = 0;
+        for (Column column : columns) {
+            if (column != null) {
+                count++;
+            }
+        }
+        out.writeInt(count);
+        for (int id = 0; id < columns.length; id++) {
+            Column column = columns[id];
+            if (column == null) {
+                continue;
+            }
+            out.writeInt(id);
+            out.writeByte(column.kind());
+            long[] bits = column.present.toLongArray();
+            out.writeInt(bits.length);
+            for (long word : bits) {
+                out.writeLong(word);
+            }
+            column.writeValues(out, rowCount);
+        }
+        long[] digestBits = hasDigest.toLongArray();
+        out.writeInt(digestBits.length);
+        for (long word : digestBits) {
+            out.writeLong(word);
+        }
+        for (int row = hasDigest.nextSetBit(0); row >= 0 && row < rowCount; row = hasDigest.nextSetBit(row + 1)) {
+            out.write(digests, row * DIGEST_SIZE, DIGEST_SIZE);
+        }
+    }
+
+    static ColumnarPage read(DataInput in, ResultSchema schema, int capacity) throws IOException {
+        ColumnarPage page = new ColumnarPage(schema, capacity);
+        page.rowCount = in.readInt();
+        int count = in.readInt();
+        page.columns = new Column[schema.size()];
+        for (int i = 0; i < count; i++) {
+            int id = in.readInt();
+            byte kind = in.readByte();
+            Column column;
+            switch (kind) {
+                case INT:
+                    column = new IntColumn(capacity);
+                    break;
+                case LONG:
+                    column = new LongColumn(capacity);
+                    break;
+                case DOUBLE:
+                    column = new DoubleColumn(capacity);
+                    break;
+                case STRING:
+                    column = new StringColumn(capacity);
+                    break;
+                case OBJECT:
+                    column = new ObjectColumn(capacity);
+                    break;
+                default:
+                    throw new IOException("Unknown column kind: " + kind);
+            }
+            long[] bits = new long[in.readInt()];
+            for (int w = 0; w < bits.length; w++) {
+                bits[w] = in.readLong();
+            }
+            column.present.or(BitSet.valueOf(bits));
+            column.readValues(in, page.rowCount);
+            if (id >= page.columns.length) {
+                page.columns = Arrays.copyOf(page.columns, id + 1);
+            }
+            page.columns[id] = column;
+        }
+        long[] digestBits = new long[in.readInt()];
+        for (int w = 0; w < digestBits.length; w++) {
+            digestBits[w] = in.readLong();
+        }
+        page.hasDigest.or(BitSet.valueOf(digestBits));
+        if (!page.hasDigest.isEmpty()) {
+            page.digests = new byte[capacity * DIGEST_SIZE];
+            for (int row = page.hasDigest.nextSetBit(0); row >= 0 && row < page.rowCount; row = page.hasDigest.nextSetBit(row + 1)) {
+                in.readFully(page.digests, row * DIGEST_SIZE, DIGEST_SIZE);
+            }
+        }
+        return page;
+    }
+
+    // --- Column types ---
+
+    private abstract static class Column {
+        final BitSet present = new BitSet();
+
+        abstract byte kind();
+
+        abstract boolean accepts(Object value);
+
+        abstract void put(int row, Object value);
+
+        abstract Object get(int row);
+
+        abstract long bytes();
+
+        abstract void writeValues(DataOutput out, int rows) throws IOException;
+
+        abstract void readValues(DataInput in, int rows) throws IOException;
+
+        ObjectColumn toObjectColumn(int capacity) {
+            ObjectColumn objects = new ObjectColumn(capacity);
+            for (int row = present.nextSetBit(0); row >= 0; row = present.nextSetBit(row + 1)) {
+                objects.put(row, get(row));
+            }
+            objects.present.or(present);
+            return objects;
+        }
+    }
+
+    private static final class IntColumn extends Column {
+        final int[] values;
+
+        IntColumn(int capacity) {
+            values = new int[capacity];
+        }
+
+        byte kind() {
+            return INT;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Integer;
+        }
+
+        void put(int row, Object value) {
+            values[row] = (Integer) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        long bytes() {
+            return 16 + 4L * values.length;
+        }
+
+        void writeValues(DataOutput out, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                out.writeInt(values[row]);
+            }
+        }
+
+        void readValues(DataInput in, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                values[row] = in.readInt();
+            }
+        }
+    }
+
+    private static final class LongColumn extends Column {
+        final long[] values;
+
+        LongColumn(int capacity) {
+            values = new long[capacity];
+        }
+
+        byte kind() {
+            return LONG;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Long;
+        }
+
+        void put(int row, Object value) {
+            values[row] = (Long) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        long bytes() {
+            return 16 + 8L * values.length;
+        }
+
+        void writeValues(DataOutput out, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                out.writeLong(values[row]);
+            }
+        }
+
+        void readValues(DataInput in, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                values[row] = in.readLong();
+            }
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+        final double[] values;
+
+        DoubleColumn(int capacity) {
+            values = new double[capacity];
+        }
+
+        byte kind() {
+            return DOUBLE;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof Double;
+        }
+
+        void put(int row, Object value) {
+            values[row] = (Double) value;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        long bytes() {
+            return 16 + 8L * values.length;
+        }
+
+        void writeValues(DataOutput out, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                out.writeDouble(values[row]);
+            }
+        }
+
+        void readValues(DataInput in, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                values[row] = in.readDouble();
+            }
+        }
+    }
+
+    private static final class StringColumn extends Column {
+        final int[] codes;
+        final List<String> dictionary = new ArrayList<>();
+        private Map<String, Integer> lookup;
+        private long dictionaryBytes;
+
+        StringColumn(int capacity) {
+            codes = new int[capacity];
+        }
+
+        byte kind() {
+            return STRING;
+        }
+
+        boolean accepts(Object value) {
+            return value instanceof String;
+        }
+
+        void put(int row, Object value) {
+            if (lookup == null) {
+                lookup = new HashMap<>();
+                for (int i = 0; i < dictionary.size(); i++) {
+                    lookup.put(dictionary.get(i), i);
+                }
+            }
+            String string = (String) value;
+            Integer code = lookup.get(string);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(string);
+                lookup.put(string, code);
+                dictionaryBytes += 40 + string.length();
+            }
+            codes[row] = code;
+        }
+
+        Object get(int row) {
+            return dictionary.get(codes[row]);
+        }
+
+        long bytes() {
+            return 16 + 4L * codes.length + dictionaryBytes * (lookup != null ? 2 : 1);
+        }
+
+        void writeValues(DataOutput out, int rows) throws IOException {
+            out.writeInt(dictionary.size());
+            for (String value : dictionary) {
+                ValueCodec.writeString(out, value);
+            }
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                out.writeInt(codes[row]);
+            }
+        }
+
+        void readValues(DataInput in, int rows) throws IOException {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String value = ValueCodec.readString(in);
+                dictionary.add(value);
+                dictionaryBytes += 40 + value.length();
+            }
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                codes[row] = in.readInt();
+            }
+        }
+    }
+
+    private static final class ObjectColumn extends Column {
+        final Object[] values;
+        private long valueBytes;
+
+        ObjectColumn(int capacity) {
+            values = new Object[capacity];
+        }
+
+        byte kind() {
+            return OBJECT;
+        }
+
+        boolean accepts(Object value) {
+            return true;
+        }
+
+        void put(int row, Object value) {
+            values[row] = value;
+            valueBytes += ValueCodec.estimateSize(value);
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+
+        long bytes() {
+            return 16 + 8L * values.length + valueBytes;
+        }
+
+        void writeValues(DataOutput out, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                ValueCodec.write(out, values[row]);
+            }
+        }
+
+        void readValues(DataInput in, int rows) throws IOException {
+            for (int row = present.nextSetBit(0); row >= 0 && row < rows; row = present.nextSetBit(row + 1)) {
+                put(row, ValueCodec.read(in));
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.vikki.aerospike;
+
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * RFC 4180 helpers shared by the exporters.
+ */
+final class CsvSupport {
+
+    private CsvSupport() {
+    }
+
+    /**
+     * Formats a value as a CSV field, quoting it when it contains a separator, a quote or
+     * a line break. {@code null} becomes an empty field.
+     */
+    static String escape(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof byte[] ? Base64.getEncoder().encodeToString((byte[]) value) : value.toString();
+        boolean quote = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                quote = true;
+                break;
+            }
+        }
+        if (!quote && !text.isEmpty() && (text.charAt(0) == ' ' || text.charAt(text.length() - 1) == ' ')) {
+            quote = true; // Keep significant surrounding spaces
+        }
+        return quote ? quote(text) : text;
+    }
+
+    /**
+     * Formats {@code text} as a quoted CSV field whether or not it needs quoting.
+     */
+    static String quote(String text) {
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    static void appendRow(StringBuilder line, List<?> values) {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append(escape(values.get(i)));
+        }
+        line.append('\n');
+    }
+}
@@ -0,0 +1,197 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.BatchWrite;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Operation;
+import com.aerospike.client.ResultCode;
+import com.aerospike.client.policy.BatchWritePolicy;
+import com.aerospike.client.policy.GenerationPolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cell edits staged in the browse table until they are committed together.
+ * <p>
+ * Each edited row becomes one {@link BatchWrite} that puts its changed bins and reads the
+ * record back, so a commit is a single batch call however many cells were edited. The write
+ * expects the generation shown in the row ({@link GenerationPolicy#EXPECT_GEN_EQUAL}): if
+ * the record changed on the cluster since it was read, that row fails with a generation
+ * error instead of overwriting the newer record. New values take the type of the value
+ * shown in the cell, so no read is needed to find it. Rows are addressed by the record
+ * digest kept in the result store, never by the key text shown in the table.
+ */
+final class EditBuffer {
+
+    /**
+     * Staged bins of one row, keyed by row id of the table's result store.
+     */
+    static final class RowEdit {
+        final int rowId;
+        final Key key;
+        final int generation; // 0 when the row has no generation; the write is then unchecked
+        final Map<String, Object> bins = new LinkedHashMap<>();
+
+        RowEdit(int rowId, Key key, int generation) {
+            this.rowId = rowId;
+            this.key = key;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Outcome of committing one row.
+     */
+    static final class RowResult {
+        final RowEdit edit;
+        final BatchRecord record;
+
+        RowResult(RowEdit edit, BatchRecord record) {
+            this.edit = edit;
+            this.record = record;
+        }
+
+        boolean isWritten() {
+            return record.resultCode == ResultCode.OK;
+        }
+
+        boolean isConflict() {
+            return record.resultCode == ResultCode.GENERATION_ERROR;
+        }
+
+        String describe() {
+            String bins = String.join(", ", edit.bins.keySet());
+            String key = RowView.describeKey(edit.key);
+            if (isWritten()) {
+                return key + ": wrote " + bins;
+            }
+            if (isConflict()) {
+                return key + ": not written, the record changed since generation " + edit.generation
+                        + " was read; edits to " + bins + " dropped";
+            }
+            return key + ": not written, " + ResultCode.getResultString(record.resultCode)
+                    + "; edits to " + bins + " dropped";
+        }
+    }
+
+    private final Map<Integer, RowEdit> rows = new LinkedHashMap<>();
+
+    /**
+     * Stages {@code text} for {@code binName} of {@code row}, converted to the type of the
+     * value currently shown. Returns the staged value, which is the text itself when it
+     * can't be converted.
+     */
+    Object stage(RowView row, String binName, String text) {
+        RowEdit edit = rows.get(row.getRowId());
+        if (edit == null) {
+            Key key = row.getRecordKey();
+            if (key == null) {
+                throw new IllegalArgumentException("Row " + row.getRowId() + " has no record digest");
+            }
+            Object generation = row.get(ResultSchema.GENERATION);
+            edit = new RowEdit(row.getRowId(), key, generation instanceof Number ? ((Number) generation).intValue() : 0);
+            rows.put(row.getRowId(), edit);
+        }
+        Object value = convert(row.get(binName), text);
+        edit.bins.put(binName, value);
+        return value;
+    }
+
+    /**
+     * The staged value of a cell, or {@code null} if it has not been edited.
+     */
+    Object stagedValue(Map<String, Object> row, String binName) {
+        if (!(row instanceof RowView) || rows.isEmpty()) {
+            return null;
+        }
+        RowEdit edit = rows.get(((RowView) row).getRowId());
+        return edit != null ? edit.bins.get(binName) : null;
+    }
+
+    boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    int getRowCount() {
+        return rows.size();
+    }
+
+    int getCellCount() {
+        int cells = 0;
+        for (RowEdit edit : rows.values()) {
+            cells += edit.bins.size();
+        }
+        return cells;
+    }
+
+    void discard(int rowId) {
+        rows.remove(rowId);
+    }
+
+    void clear() {
+        rows.clear();
+    }
+
+    /**
+     * Takes the staged rows out of the buffer as one batch of writes, in the same order.
+     */
+    List<RowEdit> drain() {
+        List<RowEdit> edits = new ArrayList<>(rows.values());
+        rows.clear();
+        return edits;
+    }
+
+    /**
+     * Puts back the edits of a row whose commit failed. Edits staged for it since then win.
+     */
+    void restore(RowEdit edit) {
+        RowEdit current = rows.get(edit.rowId);
+        if (current == null) {
+            rows.put(edit.rowId, edit);
+        } else {
+            for (Map.Entry<String, Object> bin : edit.bins.entrySet()) {
+                current.bins.putIfAbsent(bin.getKey(), bin.getValue());
+            }
+        }
+    }
+
+    static List<BatchRecord> toBatch(List<RowEdit> edits) {
+        List<BatchRecord> batch = new ArrayList<>(edits.size());
+        for (RowEdit edit : edits) {
+            BatchWritePolicy policy = new BatchWritePolicy();
+            if (edit.generation > 0) {
+                policy.generationPolicy = GenerationPolicy.EXPECT_GEN_EQUAL;
+                policy.generation = edit.generation;
+            }
+            Operation[] operations = new Operation[edit.bins.size() + 1];
+            int i = 0;
+            for (Map.Entry<String, Object> bin : edit.bins.entrySet()) {
+                operations[i++] = Operation.put(new Bin(bin.getKey(), bin.getValue()));
+            }
+            operations[i] = Operation.get(); // Read the record back for the table
+            batch.add(new BatchWrite(policy, edit.key, operations));
+        }
+        return batch;
+    }
+
+    private static Object convert(Object shown, String text) {
+        try {
+            if (shown instanceof Long || shown instanceof Integer) {
+                return Long.parseLong(text.trim());
+            }
+            if (shown instanceof Double || shown instanceof Float) {
+                return Double.parseDouble(text.trim());
+            }
+        } catch (NumberFormatException e) {
+            return text;
+        }
+        if (shown instanceof Boolean) {
+            return Boolean.parseBoolean(text.trim());
+        }
+        return text;
+    }
+}
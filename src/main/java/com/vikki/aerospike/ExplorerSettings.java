@@ -0,0 +1,98 @@
+package com.vikki.aerospike;
+
+/**
+ * Tunables for the explorer. Every value can be overridden with a system property,
+ * e.g. {@code -Dexplorer.ui.batchSize=5000}.
+ */
+public final class ExplorerSettings {
+
+    // --- UI delivery of scanned records ---
+    public static final int UI_BUFFER_CAPACITY = intSetting("explorer.ui.bufferCapacity", 20_000);
+    public static final int UI_BATCH_SIZE = intSetting("explorer.ui.batchSize", 2_000);
+    public static final long UI_FLUSH_INTERVAL_MS = longSetting("explorer.ui.flushIntervalMs", 100);
+
+    public static final long SERVER_FILTER_DELAY_MS = longSetting("explorer.ui.serverFilterDelayMs", 400);
+
+    // --- Partition-parallel scans ---
+    public static final int SCAN_CONCURRENCY = intSetting("explorer.scan.concurrency",
+            Math.max(4, Runtime.getRuntime().availableProcessors()));
+    public static final int SCAN_PARTITIONS_PER_TASK = intSetting("explorer.scan.partitionsPerTask", 32);
+    public static final int BROWSE_PAGE_SIZE = intSetting("explorer.scan.browsePageSize", 5_000); // 0 = whole set
+    public static final boolean SCAN_VIRTUAL_THREADS = booleanSetting("explorer.scan.virtualThreads", true);
+
+    // --- Paged result store behind the table ---
+    public static final int RESULT_PAGE_SIZE = intSetting("explorer.results.pageSize", 1_000);
+    public static final long RESULT_MEMORY_BUDGET_MB = longSetting("explorer.results.memoryBudgetMb", 64);
+
+    // --- Streaming export ---
+    public static final int EXPORT_SAMPLE_SIZE = intSetting("explorer.export.sampleSize", 1_000);
+    public static final long EXPORT_PROGRESS_INTERVAL = longSetting("explorer.export.progressInterval", 10_000);
+
+    // --- Primary-key batch reads ---
+    public static final int BATCH_SIZE = intSetting("explorer.batch.size", 5_000);
+    public static final int BATCH_CONCURRENCY = intSetting("explorer.batch.concurrency", 4);
+
+    // --- Bulk deletes ---
+    public static final int DELETE_BATCH_SIZE = intSetting("explorer.delete.batchSize", 1_000);
+    public static final int DELETE_MAX_IN_FLIGHT = intSetting("explorer.delete.maxInFlight", 8);
+    public static final boolean DELETE_IN_BACKGROUND = booleanSetting("explorer.delete.background", true);
+    public static final long DELETE_POLL_INTERVAL_MS = longSetting("explorer.delete.pollIntervalMs", 500);
+
+    // --- AQL ---
+    public static final int AQL_PLAN_CACHE_SIZE = intSetting("explorer.aql.planCacheSize", 256);
+    public static final long SINDEX_REFRESH_MS = longSetting("explorer.aql.sindexRefreshMs", 30_000);
+    public static final int QUERY_MAX_CONCURRENT = intSetting("explorer.query.maxConcurrent", 4);
+
+    // --- Bulk load ---
+    public static final int EVENT_LOOPS = intSetting("explorer.async.eventLoops",
+            Runtime.getRuntime().availableProcessors());
+    public static final int LOAD_BATCH_SIZE = intSetting("explorer.load.batchSize", 500);
+    public static final int LOAD_MAX_IN_FLIGHT = intSetting("explorer.load.maxInFlight", 32);
+    public static final int LOAD_MAX_RETRIES = intSetting("explorer.load.maxRetries", 5);
+    public static final long LOAD_RETRY_BACKOFF_MS = longSetting("explorer.load.retryBackoffMs", 50);
+    public static final long LOAD_PROGRESS_INTERVAL_MS = longSetting("explorer.load.progressIntervalMs", 250);
+
+    // --- Load tests ---
+    public static final int LOADTEST_MAX_IN_FLIGHT = intSetting("explorer.loadtest.maxInFlight", 256);
+    public static final long LOADTEST_QUERY_RECORDS = longSetting("explorer.loadtest.queryRecords", 100); // Per query
+
+    // --- Result cache ---
+    public static final long CACHE_TTL_MS = longSetting("explorer.cache.ttlMs", 60_000); // 0 = no caching
+    public static final long CACHE_MEMORY_BUDGET_MB = longSetting("explorer.cache.memoryBudgetMb", 128);
+    public static final boolean CACHE_SPILL_TO_DISK = booleanSetting("explorer.cache.spillToDisk", true);
+
+    // --- Cluster metadata ---
+    public static final long METADATA_REFRESH_MS = longSetting("explorer.metadata.refreshMs", 30_000); // 0 = manual only
+
+    // --- Cluster dashboard ---
+    public static final long DASHBOARD_INTERVAL_MS = longSetting("explorer.dashboard.intervalMs", 2_000);
+    public static final int DASHBOARD_HISTORY = intSetting("explorer.dashboard.history", 300);
+
+    // --- Client-side aggregation ---
+    public static final int AGG_MAX_GROUPS = intSetting("explorer.aggregate.maxGroupsInMemory", 200_000);
+    public static final int AGG_SPILL_BUCKETS = intSetting("explorer.aggregate.spillBuckets", 64);
+
+    // --- Server-side UDF aggregation ---
+    public static final String UDF_MODULE_DIR = stringSetting("explorer.udf.moduleDir",
+            System.getProperty("user.home") + "/.aerospike-explorer/udf");
+
+    private ExplorerSettings() {
+    }
+
+    static int intSetting(String name, int defaultValue) {
+        return Integer.getInteger(name, defaultValue);
+    }
+
+    static long longSetting(String name, long defaultValue) {
+        return Long.getLong(name, defaultValue);
+    }
+
+    static String stringSetting(String name, String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+
+    static boolean booleanSetting(String name, boolean defaultValue) {
+        String value = System.getProperty(name);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,301 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Bin;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams records out of a CSV or JSON-lines file, one row at a time, so files of any size
+ * can be imported. Files written by {@link StreamingExporter} read back as-is: the
+ * {@code Key} column becomes the user key with the type it was exported with, and the
+ * other metadata columns are skipped.
+ * <p>
+ * CSV: the first row names the bins; integers, decimals and {@code true}/{@code false} are
+ * typed, everything else is a string, and empty fields are left out. A quoted key is a
+ * string key and an unquoted integer key an integer one. JSON lines: one object per line;
+ * the brackets and trailing commas of an exported JSON array are tolerated.
+ * Rows that cannot be parsed are counted and skipped.
+ */
+final class ImportFileReader implements Iterator<AqlPlan.Write>, Closeable {
+
+    enum Format {CSV, JSON_LINES}
+
+    private final BufferedReader reader;
+    private final Format format;
+    private final String[] columns;
+    private final BitSet quotedFields = new BitSet(); // Fields of the last CSV record that were quoted
+    private AqlPlan.Write next;
+    private long rejectedRows;
+    private String lastError;
+
+    ImportFileReader(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase();
+        InputStream in = Files.newInputStream(file);
+        if (name.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 1 << 16);
+            name = name.substring(0, name.length() - 3);
+        }
+        this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+        this.format = name.endsWith(".csv") ? Format.CSV : Format.JSON_LINES;
+        if (format == Format.CSV) {
+            List<String> header = readCsvRecord();
+            if (header == null) {
+                reader.close();
+                throw new IOException("CSV file has no header row");
+            }
+            this.columns = header.toArray(new String[0]);
+        } else {
+            this.columns = null;
+        }
+    }
+
+    Format getFormat() {
+        return format;
+    }
+
+    long getRejectedRows() {
+        return rejectedRows;
+    }
+
+    String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next != null) {
+            return true;
+        }
+        try {
+            while (next == null) {
+                if (format == Format.CSV) {
+                    List<String> fields = readCsvRecord();
+                    if (fields == null) {
+                        return false;
+                    }
+                    next = csvWrite(fields);
+                } else {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    next = jsonWrite(line);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public AqlPlan.Write next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        AqlPlan.Write write = next;
+        next = null;
+        return write;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private AqlPlan.Write csvWrite(List<String> fields) {
+        if (fields.size() == 1 && fields.get(0).isEmpty()) {
+            return null; // Blank line
+        }
+        if (fields.size() > columns.length) {
+            reject("Row has " + fields.size() + " fields but the header has " + columns.length);
+            return null;
+        }
+        Object userKey = null;
+        List<Bin> bins = new ArrayList<>(fields.size() + 1);
+        for (int i = 0; i < fields.size(); i++) {
+            String field = fields.get(i);
+            if (field.isEmpty()) {
+                continue;
+            }
+            String column = columns[i];
+            if (isKeyColumn(column)) {
+                userKey = quotedFields.get(i) ? field : typedKey(field);
+            } else if (!isMetadataColumn(column)) {
+                bins.add(new Bin(column, typed(field)));
+            }
+        }
+        return write(userKey, bins);
+    }
+
+    private AqlPlan.Write jsonWrite(String line) {
+        String text = line.trim();
+        if (text.endsWith(",")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        if (text.isEmpty() || text.equals("[") || text.equals("]")) {
+            return null;
+        }
+        JSONObject object;
+        try {
+            object = new JSONObject(text);
+        } catch (JSONException e) {
+            reject(e.getMessage());
+            return null;
+        }
+        Object userKey = null;
+        List<Bin> bins = new ArrayList<>(object.length() + 1);
+        for (String name : object.keySet()) {
+            Object value = fromJson(object.get(name));
+            if (value == null) {
+                continue;
+            }
+            if (isKeyColumn(name)) {
+                userKey = value;
+            } else if (!isMetadataColumn(name)) {
+                bins.add(new Bin(name, value));
+            }
+        }
+        return write(userKey, bins);
+    }
+
+    private AqlPlan.Write write(Object userKey, List<Bin> bins) {
+        if (userKey != null && !(userKey instanceof String) && !(userKey instanceof Long)) {
+            reject("Key must be a string or integer: " + userKey);
+            return null;
+        }
+        if (bins.isEmpty()) {
+            reject("Row has no bins");
+            return null;
+        }
+        if (userKey != null) {
+            bins.add(new Bin(AqlPlan.PK_BIN, userKey));
+        }
+        return new AqlPlan.Write(userKey, bins.toArray(new Bin[0]));
+    }
+
+    private void reject(String reason) {
+        rejectedRows++;
+        lastError = reason;
+    }
+
+    private static boolean isKeyColumn(String name) {
+        return name.equalsIgnoreCase(AqlPlan.PK_BIN) || name.equalsIgnoreCase(ResultSchema.KEY);
+    }
+
+    private static boolean isMetadataColumn(String name) {
+        return name.equals(ResultSchema.NAMESPACE) || name.equals(ResultSchema.SET)
+                || name.equals(ResultSchema.GENERATION) || name.equals(ResultSchema.TTL);
+    }
+
+    private static Object typed(String field) {
+        if (field.equals("true") || field.equals("false")) {
+            return Boolean.valueOf(field);
+        }
+        char first = field.charAt(0);
+        if ((first >= '0' && first <= '9') || first == '-' || first == '+') {
+            try {
+                return Long.valueOf(field);
+            } catch (NumberFormatException e) {
+                // Not an integer
+            }
+            try {
+                return Double.valueOf(field);
+            } catch (NumberFormatException e) {
+                // Plain string
+            }
+        }
+        return field;
+    }
+
+    private static Object typedKey(String field) {
+        try {
+            return Long.valueOf(field);
+        } catch (NumberFormatException e) {
+            return field;
+        }
+    }
+
+    private static Object fromJson(Object value) {
+        if (value == JSONObject.NULL) {
+            return null;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof BigInteger) {
+            BigInteger big = (BigInteger) value;
+            return big.bitLength() < 64 ? (Object) big.longValue() : big.toString();
+        } else if (value instanceof BigDecimal || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof JSONArray) {
+            return ((JSONArray) value).toList();
+        } else if (value instanceof JSONObject) {
+            return ((JSONObject) value).toMap();
+        }
+        return value;
+    }
+
+    /**
+     * Reads one RFC 4180 record; quoted fields may contain separators, doubled quotes and
+     * line breaks. Returns {@code null} at the end of the file.
+     */
+    private List<String> readCsvRecord() throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        quotedFields.clear();
+        while (c >= 0) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int following = reader.read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (following >= 0) {
+                            reader.reset();
+                        }
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+                quotedFields.set(fields.size());
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
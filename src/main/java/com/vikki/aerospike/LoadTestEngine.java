@@ -0,0 +1,272 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.QueryPolicy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Replays a mix of key reads, writes and queries against one set at a fixed rate for a
+ * LOADTEST plan, through the async client.
+ * <p>
+ * Operations are started on the schedule of a {@link RateLimiter} and their latency runs
+ * from the time they were due, not from when they were sent, so stalls on the cluster show
+ * up in the percentiles instead of quietly lowering the offered load. At most
+ * {@link ExplorerSettings#LOADTEST_MAX_IN_FLIGHT} operations are outstanding; when the
+ * cluster can't keep up, the achieved rate falls below the target.
+ */
+public class LoadTestEngine {
+
+    public enum Op {READ, WRITE, QUERY}
+
+    public interface Listener {
+        /**
+         * Running totals, reported at most every {@link ExplorerSettings#LOAD_PROGRESS_INTERVAL_MS}.
+         * Called from an event loop thread.
+         */
+        void onProgress(long operations, long errors, double operationsPerSecond, long p99Micros);
+    }
+
+    public static final class Report {
+        private final Map<Op, LatencyHistogram> latency;
+        private final Map<Op, Long> errors;
+        private final long elapsedMs;
+        private final long targetRate;
+        private final AerospikeException lastError;
+
+        Report(Map<Op, LatencyHistogram> latency, Map<Op, Long> errors, long elapsedMs, long targetRate,
+               AerospikeException lastError) {
+            this.latency = latency;
+            this.errors = errors;
+            this.elapsedMs = elapsedMs;
+            this.targetRate = targetRate;
+            this.lastError = lastError;
+        }
+
+        public long getOperations() {
+            long total = 0;
+            for (LatencyHistogram histogram : latency.values()) {
+                total += histogram.getCount();
+            }
+            return total;
+        }
+
+        public long getErrors() {
+            long total = 0;
+            for (long count : errors.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        public double getThroughput() {
+            return getOperations() * 1000.0 / Math.max(1, elapsedMs);
+        }
+
+        public long getTargetRate() {
+            return targetRate;
+        }
+
+        public long getElapsedMs() {
+            return elapsedMs;
+        }
+
+        public AerospikeException getLastError() {
+            return lastError;
+        }
+
+        /**
+         * One row per operation type that ran, with latencies in milliseconds.
+         */
+        public List<Map<String, Object>> toRows() {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map.Entry<Op, LatencyHistogram> entry : latency.entrySet()) {
+                LatencyHistogram histogram = entry.getValue();
+                if (histogram.getCount() == 0 && errors.get(entry.getKey()) == 0) {
+                    continue;
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("Operation", entry.getKey().name());
+                row.put("Count", histogram.getCount());
+                row.put("Errors", errors.get(entry.getKey()));
+                row.put("Ops/s", String.format("%.1f", histogram.getCount() * 1000.0 / Math.max(1, elapsedMs)));
+                row.put("p50 ms", millis(histogram.getPercentileMicros(0.50)));
+                row.put("p95 ms", millis(histogram.getPercentileMicros(0.95)));
+                row.put("p99 ms", millis(histogram.getPercentileMicros(0.99)));
+                row.put("p99.9 ms", millis(histogram.getPercentileMicros(0.999)));
+                row.put("Max ms", millis(histogram.getMaxMicros()));
+                rows.add(row);
+            }
+            return rows;
+        }
+
+        private static String millis(long micros) {
+            return String.format("%.2f", micros / 1000.0);
+        }
+    }
+
+    private final AsyncAerospike client;
+    private final int maxInFlight;
+    private volatile boolean cancelled;
+
+    public LoadTestEngine(AsyncAerospike client) {
+        this(client, ExplorerSettings.LOADTEST_MAX_IN_FLIGHT);
+    }
+
+    public LoadTestEngine(AsyncAerospike client, int maxInFlight) {
+        this.client = client;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Runs the plan for its duration and blocks until the last operation has completed.
+     * An interrupt ends the run early like {@link #cancel()}; the report covers what ran.
+     */
+    public Report run(AqlPlan plan, SindexCatalog catalog, Listener listener) {
+        RecordGenerator generator = plan.getGenerator();
+        long[] weights = plan.getMix();
+        long totalWeight = 0;
+        for (long weight : weights) {
+            totalWeight += weight;
+        }
+        QueryPlanner.Result planned = weights[Op.QUERY.ordinal()] > 0 ? plan.resolve(catalog) : null;
+        QueryPolicy queryPolicy = new QueryPolicy();
+        queryPolicy.maxRecords = ExplorerSettings.LOADTEST_QUERY_RECORDS;
+        if (planned != null) {
+            queryPolicy.filterExp = planned.expression;
+        }
+
+        Progress progress = new Progress(listener);
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        RateLimiter limiter = new RateLimiter(plan.getRate());
+        long end = progress.start + plan.getDurationSeconds() * 1_000_000_000L;
+        while (!cancelled && !Thread.currentThread().isInterrupted()) {
+            long due = limiter.acquire();
+            if (due - end >= 0) {
+                break;
+            }
+            Op op = pick(weights, totalWeight);
+            if (!acquire(inFlight)) {
+                break; // Interrupted: stop starting operations, as cancel() does
+            }
+            CompletableFuture<?> future;
+            switch (op) {
+                case READ:
+                    Key key = new Key(plan.getNamespace(), plan.getSet(), generator.nextId());
+                    future = client.get(null, key);
+                    break;
+                case WRITE:
+                    AqlPlan.Write write = generator.next();
+                    future = client.put(null, plan.keyOf(write), write.bins);
+                    break;
+                default:
+                    future = client.query(queryPolicy, plan.newStatement(planned.filter), (k, record) -> true);
+                    break;
+            }
+            future.whenComplete((value, error) -> {
+                progress.record(op, System.nanoTime() - due, AsyncAerospike.unwrap(error));
+                inFlight.release();
+                progress.report(false);
+            });
+        }
+        inFlight.acquireUninterruptibly(maxInFlight); // Wait for the outstanding operations
+        inFlight.release(maxInFlight);
+        progress.report(true);
+        return progress.result(plan.getRate());
+    }
+
+    /**
+     * Stops starting operations; those already sent still complete and are counted.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    private static Op pick(long[] weights, long totalWeight) {
+        long ticket = ThreadLocalRandom.current().nextLong(totalWeight);
+        for (Op op : Op.values()) {
+            ticket -= weights[op.ordinal()];
+            if (ticket < 0) {
+                return op;
+            }
+        }
+        return Op.READ;
+    }
+
+    // False when interrupted; the interrupt status is kept for the caller
+    private static boolean acquire(Semaphore semaphore) {
+        try {
+            semaphore.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static final class Progress {
+        private final Listener listener;
+        private final long start = System.nanoTime();
+        private final AtomicLong lastReport = new AtomicLong();
+        private final Map<Op, LatencyHistogram> latency = new LinkedHashMap<>();
+        private final Map<Op, AtomicLong> errors = new LinkedHashMap<>();
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final AtomicReference<AerospikeException> lastError = new AtomicReference<>();
+
+        Progress(Listener listener) {
+            this.listener = listener;
+            for (Op op : Op.values()) {
+                latency.put(op, new LatencyHistogram());
+                errors.put(op, new AtomicLong());
+            }
+        }
+
+        void record(Op op, long nanos, Throwable error) {
+            if (error != null) {
+                errors.get(op).incrementAndGet();
+                if (error instanceof AerospikeException aerospikeError) {
+                    lastError.set(aerospikeError);
+                }
+                return;
+            }
+            latency.get(op).recordNanos(nanos);
+            all.recordNanos(nanos);
+        }
+
+        void report(boolean force) {
+            if (listener == null) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            long last = lastReport.get();
+            if (!force && (now - last < ExplorerSettings.LOAD_PROGRESS_INTERVAL_MS || !lastReport.compareAndSet(last, now))) {
+                return;
+            }
+            long elapsed = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+            long failed = 0;
+            for (AtomicLong count : errors.values()) {
+                failed += count.get();
+            }
+            listener.onProgress(all.getCount(), failed, all.getCount() * 1000.0 / elapsed,
+                    all.getPercentileMicros(0.99));
+        }
+
+        Report result(long targetRate) {
+            Map<Op, Long> errorCounts = new LinkedHashMap<>();
+            for (Map.Entry<Op, AtomicLong> entry : errors.entrySet()) {
+                errorCounts.put(entry.getKey(), entry.getValue().get());
+            }
+            return new Report(latency, errorCounts, (System.nanoTime() - start) / 1_000_000, targetRate,
+                    lastError.get());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.vikki.aerospike;
+
+/**
+ * Fixed-capacity history of one metric. Once full, each new sample overwrites the oldest,
+ * so memory stays the same however long the dashboard runs.
+ */
+final class MetricRing {
+
+    private final double[] values;
+    private final long[] times;
+    private int start;
+    private int size;
+
+    MetricRing(int capacity) {
+        this.values = new double[Math.max(1, capacity)];
+        this.times = new long[values.length];
+    }
+
+    synchronized void add(long time, double value) {
+        int index = (start + size) % values.length;
+        values[index] = value;
+        times[index] = time;
+        if (size < values.length) {
+            size++;
+        } else {
+            start = (start + 1) % values.length;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    /**
+     * Sample {@code i}, oldest first.
+     */
+    synchronized double get(int i) {
+        return values[(start + i) % values.length];
+    }
+
+    synchronized long getTime(int i) {
+        return times[(start + i) % values.length];
+    }
+
+    synchronized double latest() {
+        return size == 0 ? 0 : get(size - 1);
+    }
+
+    synchronized double max() {
+        double max = 0;
+        for (int i = 0; i < size; i++) {
+            max = Math.max(max, get(i));
+        }
+        return max;
+    }
+
+    synchronized double average() {
+        if (size == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += get(i);
+        }
+        return sum / size;
+    }
+}
@@ -0,0 +1,137 @@
+package com.vikki.aerospike;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.FileChooser;
+import javafx.stage.Stage;
+import javafx.util.Duration;
+import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.function.Function;
+
+/**
+ * Table of the client-side {@link OperationMetrics}, one row per operation type, refreshed
+ * every second while the window is open. Latencies are in milliseconds.
+ */
+final class MetricsPanel {
+
+    private final OperationMetrics metrics = OperationMetrics.shared();
+    private final TableView<OperationMetrics.OpType> table = new TableView<>();
+    private final Label sinceLabel = new Label();
+    private final Stage stage = new Stage();
+    private final Timeline refreshTimer;
+
+    MetricsPanel() {
+        ObservableList<OperationMetrics.OpType> rows = FXCollections.observableArrayList(OperationMetrics.OpType.values());
+        table.setItems(rows);
+        table.getColumns().add(column("Operation", Enum::name));
+        table.getColumns().add(column("Count", type -> String.valueOf(stats(type).getCount())));
+        table.getColumns().add(column("Errors", type -> String.valueOf(stats(type).getErrors())));
+        table.getColumns().add(column("Ops/s", type -> String.format("%.2f", metrics.getThroughput(type))));
+        table.getColumns().add(column("p50", type -> millis(stats(type).getLatency(), 0.50)));
+        table.getColumns().add(column("p95", type -> millis(stats(type).getLatency(), 0.95)));
+        table.getColumns().add(column("p99", type -> millis(stats(type).getLatency(), 0.99)));
+        table.getColumns().add(column("Max", type -> String.format("%.1f", stats(type).getLatency().getMaxMicros() / 1000.0)));
+        table.getColumns().add(column("Records", type -> String.valueOf(stats(type).getRecords())));
+        table.getColumns().add(column("Bytes", type -> String.valueOf(stats(type).getBytes())));
+        table.getColumns().add(column("First record p50", type -> millis(stats(type).getFirstRecord(), 0.50)));
+        table.getColumns().add(column("Render p50", type -> millis(stats(type).getRender(), 0.50)));
+        table.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY);
+
+        Button resetButton = new Button("Reset", new FontIcon(FontAwesomeSolid.UNDO));
+        resetButton.setOnAction(event -> {
+            metrics.reset();
+            refresh();
+        });
+        Button saveButton = new Button("Save...", new FontIcon(FontAwesomeSolid.SAVE));
+        saveButton.setOnAction(event -> save());
+        HBox buttons = new HBox(8, sinceLabel, resetButton, saveButton);
+        buttons.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(sinceLabel, Priority.ALWAYS);
+        sinceLabel.setMaxWidth(Double.MAX_VALUE);
+
+        VBox root = new VBox(8, table, buttons);
+        root.setPadding(new Insets(8));
+        VBox.setVgrow(table, Priority.ALWAYS);
+        stage.setTitle("Operation Metrics");
+        stage.setScene(new Scene(root, 1000, 320));
+
+        refreshTimer = new Timeline(new KeyFrame(Duration.seconds(1), event -> refresh()));
+        refreshTimer.setCycleCount(Animation.INDEFINITE);
+        stage.setOnHidden(event -> refreshTimer.stop());
+    }
+
+    void show() {
+        refresh();
+        refreshTimer.play();
+        stage.show();
+        stage.toFront();
+    }
+
+    void close() {
+        stage.close();
+    }
+
+    private void refresh() {
+        sinceLabel.setText("Since " + new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(metrics.getSince())));
+        table.refresh();
+    }
+
+    private void save() {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Save Metrics");
+        fileChooser.setInitialFileName("explorer-metrics.json");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("JSON", "*.json"),
+                new FileChooser.ExtensionFilter("Prometheus text", "*.prom"));
+        File file = fileChooser.showSaveDialog(stage);
+        if (file == null) {
+            return;
+        }
+        try {
+            metrics.writeTo(file.toPath());
+            sinceLabel.setText("Saved to " + file.getName());
+        } catch (IOException e) {
+            sinceLabel.setText("Error saving metrics: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private OperationMetrics.OpStats stats(OperationMetrics.OpType type) {
+        return metrics.get(type);
+    }
+
+    private static String millis(LatencyHistogram histogram, double percentile) {
+        if (histogram.getCount() == 0) {
+            return "-";
+        }
+        return String.format("%.1f", histogram.getPercentileMicros(percentile) / 1000.0);
+    }
+
+    private static TableColumn<OperationMetrics.OpType, String> column(String title,
+                                                                       Function<OperationMetrics.OpType, String> value) {
+        TableColumn<OperationMetrics.OpType, String> column = new TableColumn<>(title);
+        column.setSortable(false);
+        column.setCellValueFactory(cellData -> new SimpleStringProperty(value.apply(cellData.getValue())));
+        return column;
+    }
+}
@@ -0,0 +1,283 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Record;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client-side timings of everything the explorer sends to the cluster, per operation type:
+ * latency histogram, throughput, errors, records and estimated bytes received, time to the
+ * first record and the time the UI took to render the results. Byte counts are estimated
+ * from the decoded bin values, not measured on the wire.
+ */
+public final class OperationMetrics {
+
+    public enum OpType {CONNECT, SCAN, QUERY, GET, PUT, DELETE, TRUNCATE}
+
+    private static final OperationMetrics SHARED = new OperationMetrics();
+
+    public static OperationMetrics shared() {
+        return SHARED;
+    }
+
+    public static final class OpStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram firstRecord = new LatencyHistogram();
+        final LatencyHistogram render = new LatencyHistogram();
+        final LongAdder errors = new LongAdder();
+        final LongAdder records = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public LatencyHistogram getFirstRecord() {
+            return firstRecord;
+        }
+
+        public LatencyHistogram getRender() {
+            return render;
+        }
+
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getRecords() {
+            return records.sum();
+        }
+
+        public long getBytes() {
+            return bytes.sum();
+        }
+
+        void reset() {
+            latency.reset();
+            firstRecord.reset();
+            render.reset();
+            errors.reset();
+            records.reset();
+            bytes.reset();
+        }
+    }
+
+    /**
+     * One running operation. Records may be added from any thread; the first one also
+     * records the time to first record. {@link #end} counts only once.
+     */
+    public final class Timer {
+        private final OpStats stats;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean firstSeen = new AtomicBoolean();
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private Timer(OpStats stats) {
+            this.stats = stats;
+        }
+
+        public void record(Record record) {
+            firstRecord();
+            stats.records.increment();
+            stats.bytes.add(estimateBytes(record));
+        }
+
+        public void records(long count, long bytes) {
+            if (count > 0) {
+                firstRecord();
+            }
+            stats.records.add(count);
+            stats.bytes.add(bytes);
+        }
+
+        private void firstRecord() {
+            if (!firstSeen.get() && firstSeen.compareAndSet(false, true)) {
+                stats.firstRecord.recordNanos(System.nanoTime() - startNanos);
+            }
+        }
+
+        /**
+         * Ends the operation; {@code error} is {@code null} on success.
+         */
+        public void end(Throwable error) {
+            if (ended.compareAndSet(false, true)) {
+                stats.latency.recordNanos(System.nanoTime() - startNanos);
+                if (error != null) {
+                    stats.errors.increment();
+                }
+            }
+        }
+    }
+
+    private final Map<OpType, OpStats> stats = new EnumMap<>(OpType.class);
+    private final AtomicLong since = new AtomicLong(System.currentTimeMillis());
+
+    private OperationMetrics() {
+        for (OpType type : OpType.values()) {
+            stats.put(type, new OpStats());
+        }
+    }
+
+    public Timer start(OpType type) {
+        return new Timer(stats.get(type));
+    }
+
+    public void recordRender(OpType type, long nanos) {
+        stats.get(type).render.recordNanos(nanos);
+    }
+
+    public OpStats get(OpType type) {
+        return stats.get(type);
+    }
+
+    /**
+     * Start of the measurement window, used for throughput.
+     */
+    public long getSince() {
+        return since.get();
+    }
+
+    public double getThroughput(OpType type) {
+        double seconds = Math.max(1, System.currentTimeMillis() - since.get()) / 1000.0;
+        return stats.get(type).getCount() / seconds;
+    }
+
+    public void reset() {
+        for (OpStats opStats : stats.values()) {
+            opStats.reset();
+        }
+        since.set(System.currentTimeMillis());
+    }
+
+    public JSONObject toJson() {
+        JSONObject root = new JSONObject();
+        root.put("since", since.get());
+        root.put("now", System.currentTimeMillis());
+        JSONObject operations = new JSONObject();
+        for (OpType type : OpType.values()) {
+            OpStats opStats = stats.get(type);
+            JSONObject operation = new JSONObject();
+            operation.put("count", opStats.getCount());
+            operation.put("errors", opStats.getErrors());
+            operation.put("throughputPerSecond", getThroughput(type));
+            operation.put("records", opStats.getRecords());
+            operation.put("bytes", opStats.getBytes());
+            operation.put("latencyMicros", histogramJson(opStats.latency));
+            operation.put("firstRecordMicros", histogramJson(opStats.firstRecord));
+            operation.put("renderMicros", histogramJson(opStats.render));
+            operations.put(type.name().toLowerCase(Locale.ROOT), operation);
+        }
+        root.put("operations", operations);
+        return root;
+    }
+
+    /**
+     * Prometheus text exposition format; histograms are exported as summaries.
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        counter(text, "explorer_operations_total", "Operations completed");
+        for (OpType type : OpType.values()) {
+            sample(text, "explorer_operations_total", type, null, stats.get(type).getCount());
+        }
+        counter(text, "explorer_operation_errors_total", "Operations that failed");
+        for (OpType type : OpType.values()) {
+            sample(text, "explorer_operation_errors_total", type, null, stats.get(type).getErrors());
+        }
+        counter(text, "explorer_records_received_total", "Records received");
+        for (OpType type : OpType.values()) {
+            sample(text, "explorer_records_received_total", type, null, stats.get(type).getRecords());
+        }
+        counter(text, "explorer_bytes_received_total", "Estimated bytes of bin data received");
+        for (OpType type : OpType.values()) {
+            sample(text, "explorer_bytes_received_total", type, null, stats.get(type).getBytes());
+        }
+        summary(text, "explorer_operation_latency_seconds", "Operation latency", opStats -> opStats.latency);
+        summary(text, "explorer_first_record_seconds", "Time to first record", opStats -> opStats.firstRecord);
+        summary(text, "explorer_render_seconds", "Time to render results", opStats -> opStats.render);
+        return text.toString();
+    }
+
+    /**
+     * Writes {@link #toPrometheus()} for {@code .prom} and {@code .txt} files, JSON otherwise.
+     */
+    public void writeTo(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        String content = name.endsWith(".prom") || name.endsWith(".txt") ? toPrometheus() : toJson().toString(2);
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+    }
+
+    static long estimateBytes(Record record) {
+        if (record == null || record.bins == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (Map.Entry<String, Object> bin : record.bins.entrySet()) {
+            bytes += bin.getKey().length() + ValueCodec.estimateSize(bin.getValue());
+        }
+        return bytes;
+    }
+
+    private static JSONObject histogramJson(LatencyHistogram histogram) {
+        JSONObject json = new JSONObject();
+        json.put("count", histogram.getCount());
+        json.put("mean", histogram.getMeanMicros());
+        json.put("p50", histogram.getPercentileMicros(0.50));
+        json.put("p90", histogram.getPercentileMicros(0.90));
+        json.put("p99", histogram.getPercentileMicros(0.99));
+        json.put("p999", histogram.getPercentileMicros(0.999));
+        json.put("max", histogram.getMaxMicros());
+        return json;
+    }
+
+    private interface HistogramOf {
+        LatencyHistogram of(OpStats stats);
+    }
+
+    private void summary(StringBuilder text, String name, String help, HistogramOf histogramOf) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" summary\n");
+        for (OpType type : OpType.values()) {
+            LatencyHistogram histogram = histogramOf.of(stats.get(type));
+            for (double quantile : new double[]{0.5, 0.9, 0.99, 0.999}) {
+                sample(text, name, type, "quantile=\"" + quantile + "\"",
+                        histogram.getPercentileMicros(quantile) / 1e6);
+            }
+            sample(text, name + "_sum", type, null, histogram.getMeanMicros() * histogram.getCount() / 1e6);
+            sample(text, name + "_count", type, null, histogram.getCount());
+        }
+    }
+
+    private static void counter(StringBuilder text, String name, String help) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+    }
+
+    private static void sample(StringBuilder text, String name, OpType type, String extraLabel, double value) {
+        text.append(name).append("{op=\"").append(type.name().toLowerCase(Locale.ROOT)).append('"');
+        if (extraLabel != null) {
+            text.append(',').append(extraLabel);
+        }
+        text.append("} ");
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+}
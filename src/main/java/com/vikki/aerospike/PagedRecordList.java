@@ -0,0 +1,335 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.query.KeyRecord;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-only {@link javafx.collections.ObservableList} over a {@link PagedResultStore}.
+ * <p>
+ * The TableView only asks for the rows it is about to render, so rows are fetched from
+ * the store on demand instead of being materialised. Filtering and sorting are applied
+ * as an index view over the store rather than by copying rows.
+ */
+public class PagedRecordList extends ObservableListBase<Map<String, Object>> {
+
+    private final PagedResultStore store;
+    private int[] view; // null means every row of the store in insertion order
+    private int viewSize;
+    private IntPredicate filter; // Tests row ids of the store
+    private final BitSet removed = new BitSet(); // Rows deleted on the cluster, hidden from every view
+
+    public PagedRecordList(PagedResultStore store) {
+        this.store = store;
+    }
+
+    public PagedResultStore getStore() {
+        return store;
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        return store.get(rowId(index));
+    }
+
+    @Override
+    public int size() {
+        return view == null ? store.size() : viewSize;
+    }
+
+    /**
+     * Maps a position in this list to the row id in the backing store.
+     */
+    public int rowId(int index) {
+        if (view == null) {
+            return index;
+        }
+        if (index < 0 || index >= viewSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + viewSize);
+        }
+        return view[index];
+    }
+
+    /**
+     * Appends rows to the store. Rows that pass the active filter are added to the end of
+     * the current view.
+     */
+    public void appendAll(List<? extends Map<String, Object>> rows) {
+        int firstRowId = store.size();
+        store.appendAll(rows);
+        rowsAppended(firstRowId);
+    }
+
+    /**
+     * Appends records straight into the columnar pages without building a map per record.
+     */
+    public void appendRecords(List<KeyRecord> records) {
+        int firstRowId = store.size();
+        store.appendRecords(records);
+        rowsAppended(firstRowId);
+    }
+
+    private void rowsAppended(int firstRowId) {
+        int total = store.size();
+        if (total == firstRowId) {
+            return;
+        }
+        // Without a view the store has already grown, so the new rows start at firstRowId
+        int from = view == null ? firstRowId : viewSize;
+        if (view != null) {
+            for (int rowId = firstRowId; rowId < total; rowId++) {
+                if (filter == null || filter.test(rowId)) {
+                    addToView(rowId);
+                }
+            }
+        }
+        if (size() > from) {
+            beginChange();
+            nextAdd(from, size());
+            endChange();
+        }
+    }
+
+    /**
+     * Drops one row from the list after its record was deleted, leaving the rest of the
+     * view, its order and its filter as they are. The row stays hidden when the filter or
+     * sort changes.
+     */
+    public void removeRow(int rowId) {
+        if (removed.get(rowId)) {
+            return;
+        }
+        removed.set(rowId);
+        if (view == null) {
+            int total = store.size();
+            view = new int[Math.max(16, total)];
+            for (int i = 0; i < total; i++) {
+                view[i] = i;
+            }
+            viewSize = total;
+        }
+        int index = indexOfRow(rowId);
+        if (index < 0) {
+            return;
+        }
+        Map<String, Object> oldRow = store.get(rowId);
+        System.arraycopy(view, index + 1, view, index, viewSize - index - 1);
+        viewSize--;
+        beginChange();
+        nextRemove(index, oldRow);
+        endChange();
+    }
+
+    /**
+     * Replaces one row with {@code record}, read again after the record was written. The
+     * row keeps its position; the filter and sort are applied to it the next time they
+     * change.
+     */
+    public void replaceRecord(int rowId, Key key, Record record) {
+        Map<String, Object> oldRow = new LinkedHashMap<>();
+        store.copyRow(rowId, oldRow);
+        store.setRecord(rowId, key, record);
+        int index = indexOfRow(rowId);
+        if (index >= 0) {
+            beginChange();
+            nextSet(index, oldRow);
+            endChange();
+        }
+    }
+
+    // Position of a row in the current view, or -1 when it is filtered out or removed
+    private int indexOfRow(int rowId) {
+        if (view == null) {
+            return rowId < store.size() ? rowId : -1;
+        }
+        for (int i = 0; i < viewSize; i++) {
+            if (view[i] == rowId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Restricts the view to rows where some value contains {@code text}, ignoring case.
+     * Uses the pages' precomputed lower-case row text, so repeated searches don't convert
+     * every cell again. {@code null} or empty shows every row.
+     */
+    public void setSearchText(String text) {
+        if (text == null || text.isEmpty()) {
+            setRowFilter(null);
+        } else {
+            String lowerCaseText = text.toLowerCase();
+            setRowFilter(rowId -> store.rowContains(rowId, lowerCaseText));
+        }
+    }
+
+    /**
+     * The store is read page by page, so this touches each spilled page at most once.
+     */
+    private void setRowFilter(IntPredicate rowFilter) {
+        int[] oldView = view;
+        int oldSize = size();
+        this.filter = rowFilter;
+        if (rowFilter == null && removed.isEmpty()) {
+            view = null;
+            viewSize = 0;
+        } else {
+            view = new int[Math.max(16, Math.min(store.size(), 1024))];
+            viewSize = 0;
+            int total = store.size();
+            for (int rowId = 0; rowId < total; rowId++) {
+                if (!removed.get(rowId) && (rowFilter == null || rowFilter.test(rowId))) {
+                    addToView(rowId);
+                }
+            }
+        }
+        fireReplaced(oldView, oldSize);
+    }
+
+    /**
+     * Re-orders the current view by the given columns. Each sort column is read once into
+     * primitive arrays (long and double columns are copied without boxing), and the row
+     * ids are merge-sorted against those arrays.
+     */
+    public void sort(List<String> columns, List<Boolean> descending) {
+        int[] oldView = view;
+        int count = size();
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = rowId(i);
+        }
+        SortColumn[] keys = new SortColumn[columns.size()];
+        for (int c = 0; c < keys.length; c++) {
+            keys[c] = new SortColumn(count, descending.get(c));
+            store.readColumn(columns.get(c), ids, count, keys[c].longs, keys[c].doubles, keys[c].objects, keys[c].kinds);
+        }
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        mergeSort(order, new int[count], 0, count, keys);
+        view = new int[Math.max(16, count)];
+        for (int i = 0; i < count; i++) {
+            view[i] = ids[order[i]];
+        }
+        viewSize = count;
+        fireReplaced(oldView, count);
+    }
+
+    private static final class SortColumn {
+        final long[] longs;
+        final double[] doubles;
+        final Object[] objects;
+        final byte[] kinds;
+        final boolean descending;
+
+        SortColumn(int count, boolean descending) {
+            this.longs = new long[count];
+            this.doubles = new double[count];
+            this.objects = new Object[count];
+            this.kinds = new byte[count];
+            this.descending = descending;
+        }
+
+        int compare(int a, int b) {
+            int result;
+            byte kindA = kinds[a];
+            byte kindB = kinds[b];
+            if (kindA == 0 || kindB == 0) {
+                result = Boolean.compare(kindA != 0, kindB != 0); // Missing values first
+            } else if (kindA == 1 && kindB == 1) {
+                result = Long.compare(longs[a], longs[b]);
+            } else if (kindA != 3 && kindB != 3) {
+                result = Double.compare(kindA == 1 ? longs[a] : doubles[a], kindB == 1 ? longs[b] : doubles[b]);
+            } else {
+                result = compareObjects(kindA == 3 ? objects[a] : null, kindB == 3 ? objects[b] : null,
+                        kindA == 1 ? longs[a] : doubles[a], kindB == 1 ? longs[b] : doubles[b]);
+            }
+            return descending ? -result : result;
+        }
+
+        private static int compareObjects(Object a, Object b, double numberA, double numberB) {
+            Object left = a != null ? a : numberA;
+            Object right = b != null ? b : numberB;
+            if (left instanceof Number && right instanceof Number) {
+                return Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+            }
+            if (left instanceof String && right instanceof String) {
+                return ((String) left).compareTo((String) right);
+            }
+            return left.toString().compareTo(right.toString());
+        }
+    }
+
+    private static void mergeSort(int[] order, int[] scratch, int from, int to, SortColumn[] keys) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(order, scratch, from, middle, keys);
+        mergeSort(order, scratch, middle, to, keys);
+        if (compare(order[middle - 1], order[middle], keys) <= 0) {
+            return; // Already ordered
+        }
+        System.arraycopy(order, from, scratch, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < middle && compare(scratch[left], scratch[right], keys) <= 0)) {
+                order[i] = scratch[left++];
+            } else {
+                order[i] = scratch[right++];
+            }
+        }
+    }
+
+    private static int compare(int a, int b, SortColumn[] keys) {
+        for (SortColumn key : keys) {
+            int result = key.compare(a, b);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private void addToView(int rowId) {
+        if (viewSize == view.length) {
+            view = Arrays.copyOf(view, view.length * 2);
+        }
+        view[viewSize++] = rowId;
+    }
+
+    private void fireReplaced(int[] oldView, int oldSize) {
+        // Removed rows are resolved lazily; listeners normally only look at the size
+        List<Map<String, Object>> removed = new AbstractList<>() {
+            @Override
+            public Map<String, Object> get(int index) {
+                return store.get(oldView == null ? index : oldView[index]);
+            }
+
+            @Override
+            public int size() {
+                return oldSize;
+            }
+        };
+        beginChange();
+        if (oldSize > 0) {
+            nextRemove(0, removed);
+        }
+        if (size() > 0) {
+            nextAdd(0, size());
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,388 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.query.KeyRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only store of result rows split into fixed-size {@link ColumnarPage}s.
+ * <p>
+ * Pages are kept on the heap up to a byte budget; when the budget is exceeded the least
+ * recently used pages are written to a temp file and dropped, and they are read back
+ * transparently on access. The page currently being filled always stays resident.
+ * Rows are exposed as {@link RowView}s over the columns.
+ * <p>
+ * A store can be shared, e.g. between the table and the {@link ResultCache}: each extra
+ * holder calls {@link #retain()} and every holder calls {@link #close()} once; the rows are
+ * released when the last one does.
+ */
+public class PagedResultStore implements Closeable {
+
+    private final int pageSize;
+    private final long memoryBudget;
+    private final ResultSchema schema = new ResultSchema();
+    private final List<Page> pages = new ArrayList<>();
+    private final LinkedHashMap<Integer, Page> resident = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long residentBytes;
+    private int size;
+    private Path spillFile;
+    private FileChannel spillChannel;
+    private long spillEnd;
+    private int references = 1;
+
+    private static final class Page {
+        final int index;
+        ColumnarPage data; // null when spilled
+        long bytes;
+        long spillOffset = -1;
+        int spillLength;
+        boolean dirty = true;
+
+        Page(int index) {
+            this.index = index;
+        }
+    }
+
+    public PagedResultStore() {
+        this(ExplorerSettings.RESULT_PAGE_SIZE, ExplorerSettings.RESULT_MEMORY_BUDGET_MB * 1024L * 1024L);
+    }
+
+    public PagedResultStore(int pageSize, long memoryBudget) {
+        this.pageSize = pageSize;
+        this.memoryBudget = memoryBudget;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Column names in the order they were first seen.
+     */
+    public List<String> getColumnNames() {
+        return schema.getNames();
+    }
+
+    public ResultSchema getSchema() {
+        return schema;
+    }
+
+    public synchronized void appendAll(List<? extends Map<String, Object>> rows) {
+        for (Map<String, Object> row : rows) {
+            tailPage().appendRow(row);
+            rowAppended();
+        }
+    }
+
+    public synchronized void appendRecords(List<KeyRecord> records) {
+        for (KeyRecord record : records) {
+            appendRecord(record.key, record.record);
+        }
+    }
+
+    public synchronized void appendRecord(Key key, Record record) {
+        tailPage().appendRecord(key, record);
+        rowAppended();
+    }
+
+    public synchronized RowView get(int index) {
+        checkIndex(index);
+        return new RowView(this, index);
+    }
+
+    public synchronized Object getValue(int rowId, Object columnName) {
+        int columnId = schema.find(columnName);
+        if (columnId < 0) {
+            return null;
+        }
+        checkIndex(rowId);
+        return page(rowId / pageSize).getValue(rowId % pageSize, columnId);
+    }
+
+    /**
+     * The digest of the record a row was read from, or {@code null} if it has none.
+     */
+    public synchronized byte[] getDigest(int rowId) {
+        checkIndex(rowId);
+        return page(rowId / pageSize).digest(rowId % pageSize);
+    }
+
+    /**
+     * Copies the values of one row into {@code target}, in schema order.
+     */
+    public synchronized void copyRow(int rowId, Map<String, Object> target) {
+        checkIndex(rowId);
+        ColumnarPage page = page(rowId / pageSize);
+        int row = rowId % pageSize;
+        int columns = schema.size();
+        for (int id = 0; id < columns; id++) {
+            if (page.has(row, id)) {
+                target.put(schema.nameOf(id), page.getValue(row, id));
+            }
+        }
+    }
+
+    /**
+     * Reads one column for the given rows. Long and double columns are copied straight
+     * from the page arrays; {@code longs}/{@code doubles}/{@code objects} receive the values
+     * and {@code kinds} records which array holds each row (0 = null, 1 = long, 2 = double,
+     * 3 = object).
+     */
+    public synchronized void readColumn(String columnName, int[] rowIds, int count,
+                                        long[] longs, double[] doubles, Object[] objects, byte[] kinds) {
+        int columnId = schema.find(columnName);
+        for (int i = 0; i < count; i++) {
+            int rowId = rowIds[i];
+            kinds[i] = 0;
+            if (columnId < 0) {
+                continue;
+            }
+            ColumnarPage page = page(rowId / pageSize);
+            int row = rowId % pageSize;
+            if (!page.has(row, columnId)) {
+                continue;
+            }
+            long[] longColumn = page.longColumn(columnId);
+            double[] doubleColumn = longColumn == null ? page.doubleColumn(columnId) : null;
+            if (longColumn != null) {
+                longs[i] = longColumn[row];
+                kinds[i] = 1;
+            } else if (doubleColumn != null) {
+                doubles[i] = doubleColumn[row];
+                kinds[i] = 2;
+            } else {
+                objects[i] = page.getValue(row, columnId);
+                kinds[i] = 3;
+            }
+        }
+    }
+
+    /**
+     * True if any value of the row contains {@code lowerCaseText}, which must already be
+     * lower case.
+     */
+    public synchronized boolean rowContains(int rowId, String lowerCaseText) {
+        checkIndex(rowId);
+        return page(rowId / pageSize).searchText(rowId % pageSize).contains(lowerCaseText);
+    }
+
+    public synchronized void set(int rowId, Map<String, Object> row) {
+        checkIndex(rowId);
+        Page page = pages.get(rowId / pageSize);
+        ColumnarPage data = page(page.index);
+        data.replaceRow(rowId % pageSize, row);
+        rowReplaced(page, data);
+    }
+
+    /**
+     * Replaces a row with a record read again from the cluster, in the same layout as
+     * {@link #appendRecord}.
+     */
+    public synchronized void setRecord(int rowId, Key key, Record record) {
+        checkIndex(rowId);
+        Page page = pages.get(rowId / pageSize);
+        ColumnarPage data = page(page.index);
+        data.replaceRecord(rowId % pageSize, key, record);
+        rowReplaced(page, data);
+    }
+
+    private void rowReplaced(Page page, ColumnarPage data) {
+        long bytes = data.estimateBytes();
+        residentBytes += bytes - page.bytes;
+        page.bytes = bytes;
+        page.dirty = true;
+    }
+
+    /**
+     * Number of pages currently held on the heap.
+     */
+    public synchronized int getResidentPageCount() {
+        return resident.size();
+    }
+
+    public synchronized long getResidentBytes() {
+        return residentBytes;
+    }
+
+    /**
+     * Bytes written to the spill file; 0 while every page is on the heap.
+     */
+    public synchronized long getSpilledBytes() {
+        return spillEnd;
+    }
+
+    /**
+     * Approximate size of all rows, on the heap and spilled.
+     */
+    public synchronized long estimateBytes() {
+        long bytes = residentBytes + spillEnd;
+        if (!pages.isEmpty()) {
+            Page tail = pages.get(pages.size() - 1);
+            bytes += tail.data.estimateBytes() - tail.bytes; // The tail is only counted once it fills
+        }
+        return bytes;
+    }
+
+    /**
+     * Adds a holder that will call {@link #close()} itself. Returns {@code false}, without
+     * retaining, if the store has already been released.
+     */
+    public synchronized boolean retain() {
+        if (references == 0) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private ColumnarPage tailPage() {
+        Page tail = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+        // The tail page is never spilled, so only a full tail needs replacing
+        if (tail == null || tail.data.isFull()) {
+            if (tail != null) {
+                tail.data.seal();
+            }
+            tail = new Page(pages.size());
+            tail.data = new ColumnarPage(schema, pageSize);
+            pages.add(tail);
+            resident.put(tail.index, tail);
+        }
+        return tail.data;
+    }
+
+    private void rowAppended() {
+        size++;
+        Page tail = pages.get(pages.size() - 1);
+        if (tail.data.isFull()) {
+            long bytes = tail.data.estimateBytes();
+            residentBytes += bytes - tail.bytes;
+            tail.bytes = bytes;
+            enforceBudget(tail);
+        }
+    }
+
+    private ColumnarPage page(int index) {
+        Page page = pages.get(index);
+        if (page.data == null) {
+            load(page);
+            enforceBudget(page);
+        } else {
+            resident.get(page.index); // Refresh LRU order
+        }
+        return page.data;
+    }
+
+    private void enforceBudget(Page keep) {
+        Page tail = pages.get(pages.size() - 1);
+        Iterator<Page> lru = resident.values().iterator();
+        while (residentBytes > memoryBudget && lru.hasNext()) {
+            Page candidate = lru.next();
+            if (candidate == tail || candidate == keep) {
+                continue;
+            }
+            spill(candidate);
+            lru.remove();
+        }
+    }
+
+    private void spill(Page page) {
+        try {
+            if (page.dirty || page.spillOffset < 0) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    page.data.write(out);
+                }
+                byte[] data = bytes.toByteArray();
+                FileChannel channel = spillChannel();
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                long position = spillEnd;
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                page.spillOffset = spillEnd;
+                page.spillLength = data.length;
+                spillEnd = position;
+                page.dirty = false;
+            }
+            page.data = null;
+            residentBytes -= page.bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to spill result page to " + spillFile, e);
+        }
+    }
+
+    private void load(Page page) {
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(page.spillLength);
+            long position = page.spillOffset;
+            while (buffer.hasRemaining()) {
+                int read = spillChannel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of spill file");
+                }
+                position += read;
+            }
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()))) {
+                page.data = ColumnarPage.read(in, schema, pageSize);
+            }
+            resident.put(page.index, page);
+            residentBytes += page.bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to reload result page from " + spillFile, e);
+        }
+    }
+
+    private FileChannel spillChannel() throws IOException {
+        if (spillChannel == null) {
+            spillFile = Files.createTempFile("aerospike-explorer-", ".pages");
+            spillFile.toFile().deleteOnExit();
+            spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return spillChannel;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (references == 0 || --references > 0) {
+            return;
+        }
+        pages.clear();
+        resident.clear();
+        residentBytes = 0;
+        size = 0;
+        if (spillChannel != null) {
+            try {
+                spillChannel.close();
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            spillChannel = null;
+        }
+    }
+}
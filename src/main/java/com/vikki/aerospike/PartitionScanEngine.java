@@ -0,0 +1,271 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.query.PartitionFilter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits a scan into {@link PartitionFilter} ranges and runs them concurrently.
+ * <p>
+ * Each range keeps its own filter, so the per-partition cursors survive a failure and
+ * {@link ScanJob#run} can be called again to resume only the ranges that did not finish.
+ * {@link PageCursor} uses the same cursors to read a set page by page instead.
+ */
+public class PartitionScanEngine {
+
+    public static final int PARTITION_COUNT = 4096;
+
+    @FunctionalInterface
+    public interface RecordSink {
+        void accept(Key key, Record record) throws InterruptedException;
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(int completedPartitions, int totalPartitions);
+    }
+
+    private final AerospikeClient client;
+    private final int concurrency;
+    private final int partitionsPerTask;
+
+    public PartitionScanEngine(AerospikeClient client) {
+        this(client, ExplorerSettings.SCAN_CONCURRENCY, ExplorerSettings.SCAN_PARTITIONS_PER_TASK);
+    }
+
+    public PartitionScanEngine(AerospikeClient client, int concurrency, int partitionsPerTask) {
+        this.client = client;
+        this.concurrency = Math.max(1, concurrency);
+        this.partitionsPerTask = Math.max(1, Math.min(partitionsPerTask, PARTITION_COUNT));
+    }
+
+    public ScanJob newScan(String namespace, String set, ScanPolicy policy, String... binNames) {
+        return new ScanJob(namespace, set, policy, binNames);
+    }
+
+    public PageCursor newPageCursor(String namespace, String set, ScanPolicy policy, String... binNames) {
+        return new PageCursor(namespace, set, policy, binNames);
+    }
+
+    private ExecutorService newWorkerPool() {
+        ThreadFactory factory = ExplorerSettings.SCAN_VIRTUAL_THREADS
+                ? Thread.ofVirtual().name("scan-worker-", 0).factory()
+                : Thread.ofPlatform().name("scan-worker-", 0).daemon(true).factory();
+        return Executors.newFixedThreadPool(concurrency, factory);
+    }
+
+    /**
+     * Reads a namespace or set one page at a time. A single {@link PartitionFilter} over all
+     * partitions remembers where every partition stopped, so each page continues after the
+     * last record of the previous one, and a failed page can simply be requested again.
+     */
+    public class PageCursor {
+        private final String namespace;
+        private final String set;
+        private final ScanPolicy policy;
+        private final String[] binNames;
+        private final PartitionFilter filter = PartitionFilter.all();
+        private volatile boolean cancelled;
+
+        private PageCursor(String namespace, String set, ScanPolicy policy, String[] binNames) {
+            this.namespace = namespace;
+            this.set = set;
+            this.policy = policy != null ? policy : new ScanPolicy();
+            this.binNames = binNames != null && binNames.length > 0 ? binNames : null;
+        }
+
+        /**
+         * Scans until about {@code pageSize} records have been passed to {@code sink} and
+         * returns how many arrived. The server spreads the limit over the nodes, so a page
+         * can come out slightly smaller or larger.
+         */
+        public synchronized int nextPage(int pageSize, RecordSink sink) {
+            ScanPolicy pagePolicy = new ScanPolicy(policy);
+            pagePolicy.maxRecords = pageSize;
+            AtomicInteger received = new AtomicInteger();
+            OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.SCAN);
+            try {
+                client.scanPartitions(pagePolicy, filter, namespace, set, (key, record) -> {
+                    if (cancelled) {
+                        throw new AerospikeException.ScanTerminated();
+                    }
+                    timer.record(record);
+                    try {
+                        sink.accept(key, record);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new AerospikeException.ScanTerminated(e);
+                    }
+                    received.incrementAndGet();
+                }, binNames);
+            } catch (RuntimeException e) {
+                timer.end(e);
+                throw e;
+            }
+            timer.end(null);
+            return received.get();
+        }
+
+        /**
+         * True once every partition has been read to the end.
+         */
+        public boolean isDone() {
+            return filter.isDone();
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getSet() {
+            return set;
+        }
+    }
+
+    public class ScanJob {
+        private final String namespace;
+        private final String set;
+        private final ScanPolicy policy;
+        private final String[] binNames;
+        private final PartitionFilter[] filters;
+        private final int[] rangeSizes;
+        private final boolean[] finished;
+        private final AtomicInteger completedPartitions = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile ExecutorService workers;
+
+        private ScanJob(String namespace, String set, ScanPolicy policy, String[] binNames) {
+            this.namespace = namespace;
+            this.set = set;
+            this.policy = policy != null ? policy : new ScanPolicy();
+            this.binNames = binNames != null && binNames.length > 0 ? binNames : null;
+
+            int ranges = (PARTITION_COUNT + partitionsPerTask - 1) / partitionsPerTask;
+            this.filters = new PartitionFilter[ranges];
+            this.rangeSizes = new int[ranges];
+            this.finished = new boolean[ranges];
+            for (int i = 0; i < ranges; i++) {
+                int begin = i * partitionsPerTask;
+                int count = Math.min(partitionsPerTask, PARTITION_COUNT - begin);
+                filters[i] = PartitionFilter.range(begin, count);
+                rangeSizes[i] = count;
+            }
+        }
+
+        /**
+         * Scans every range that has not finished yet, blocking until all of them are done.
+         * Records from all workers are merged into {@code sink}, which must be thread-safe.
+         * If any range fails the first error is rethrown after the others complete; calling
+         * {@code run} again resumes from the partitions that were left.
+         */
+        public void run(RecordSink sink, ProgressListener progress) {
+            ExecutorService pool = newWorkerPool();
+            workers = pool;
+            OperationMetrics.Timer timer = OperationMetrics.shared().start(OperationMetrics.OpType.SCAN);
+            RuntimeException error = null;
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < filters.length; i++) {
+                    if (finished[i]) {
+                        continue;
+                    }
+                    int range = i;
+                    futures.add(pool.submit(() -> {
+                        scanRange(range, sink, timer);
+                        if (progress != null) {
+                            progress.onProgress(completedPartitions.get(), PARTITION_COUNT);
+                        }
+                        return null;
+                    }));
+                }
+
+                AerospikeException failure = null;
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause() instanceof AerospikeException
+                                    ? (AerospikeException) e.getCause()
+                                    : new AerospikeException(e.getCause());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        cancel();
+                        throw new AerospikeException.ScanTerminated(e);
+                    }
+                }
+                if (cancelled) {
+                    throw new AerospikeException.ScanTerminated();
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            } catch (RuntimeException e) {
+                error = e;
+                throw e;
+            } finally {
+                timer.end(error);
+                pool.shutdownNow();
+            }
+        }
+
+        private void scanRange(int range, RecordSink sink, OperationMetrics.Timer timer) {
+            if (cancelled) {
+                return;
+            }
+            client.scanPartitions(policy, filters[range], namespace, set, (key, record) -> {
+                if (cancelled) {
+                    throw new AerospikeException.ScanTerminated();
+                }
+                timer.record(record);
+                try {
+                    sink.accept(key, record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new AerospikeException.ScanTerminated(e);
+                }
+            }, binNames);
+            synchronized (this) {
+                finished[range] = true;
+            }
+            completedPartitions.addAndGet(rangeSizes[range]);
+        }
+
+        public void cancel() {
+            cancelled = true;
+            ExecutorService pool = workers;
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+        public int getCompletedPartitions() {
+            return completedPartitions.get();
+        }
+
+        public String getNamespace() {
+            return namespace;
+        }
+
+        public String getSet() {
+            return set;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.cdt.ListReturnType;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.ListExp;
+import com.aerospike.client.query.RegexFlag;
+
+import java.util.List;
+
+/**
+ * Translates AQL predicates into server-side filter expressions. The bin type used in each
+ * comparison follows the literal: integers compare against integer bins, decimals against
+ * float bins and so on; records whose bin has another type do not match.
+ */
+final class PredicateCompiler {
+
+    private final String source;
+
+    PredicateCompiler(String source) {
+        this.source = source;
+    }
+
+    Exp compile(AqlAst.Predicate predicate) {
+        if (predicate instanceof AqlAst.Comparison comparison) {
+            return comparison(comparison.bin(), comparison.operator(), comparison.value(), comparison.position());
+        } else if (predicate instanceof AqlAst.Between between) {
+            Object low = between.low();
+            Object high = between.high();
+            if (low instanceof Double || high instanceof Double) {
+                low = asDouble(low, between.position());
+                high = asDouble(high, between.position());
+            } else if (low == null || high == null || low.getClass() != high.getClass()) {
+                throw new AqlSyntaxException("BETWEEN bounds must both be numbers or both be strings", source, between.position());
+            }
+            return Exp.and(
+                    comparison(between.bin(), AqlAst.Operator.GE, low, between.position()),
+                    comparison(between.bin(), AqlAst.Operator.LE, high, between.position()));
+        } else if (predicate instanceof AqlAst.In in) {
+            List<Object> values = in.values();
+            if (values.size() == 1) {
+                return comparison(in.bin(), AqlAst.Operator.EQ, values.get(0), in.position());
+            }
+            Exp[] alternatives = new Exp[values.size()];
+            for (int i = 0; i < alternatives.length; i++) {
+                alternatives[i] = comparison(in.bin(), AqlAst.Operator.EQ, values.get(i), in.position());
+            }
+            return Exp.or(alternatives);
+        } else if (predicate instanceof AqlAst.Like like) {
+            String pattern = like.pattern();
+            if (pattern.indexOf('%') < 0 && pattern.indexOf('_') < 0) {
+                return Exp.eq(Exp.stringBin(like.bin()), Exp.val(pattern));
+            }
+            return Exp.regexCompare(likeToRegex(pattern), RegexFlag.EXTENDED, Exp.stringBin(like.bin()));
+        } else if (predicate instanceof AqlAst.Contains contains) {
+            Exp count = ListExp.getByValue(ListReturnType.COUNT, value(contains.value(), contains.position()),
+                    Exp.listBin(contains.bin()));
+            return Exp.gt(count, Exp.val(0));
+        } else if (predicate instanceof AqlAst.And and) {
+            return Exp.and(compile(and.left()), compile(and.right()));
+        } else if (predicate instanceof AqlAst.Or or) {
+            return Exp.or(compile(or.left()), compile(or.right()));
+        } else {
+            return Exp.not(compile(((AqlAst.Not) predicate).operand()));
+        }
+    }
+
+    private Exp comparison(String bin, AqlAst.Operator operator, Object value, int position) {
+        if (value == null) {
+            if (operator == AqlAst.Operator.EQ) {
+                return Exp.not(Exp.binExists(bin));
+            } else if (operator == AqlAst.Operator.NE) {
+                return Exp.binExists(bin);
+            }
+            throw new AqlSyntaxException("NULL can only be compared with = or !=", source, position);
+        }
+        Exp left;
+        if (value instanceof Long) {
+            left = Exp.intBin(bin);
+        } else if (value instanceof Double) {
+            left = Exp.floatBin(bin);
+        } else if (value instanceof String) {
+            left = Exp.stringBin(bin);
+        } else {
+            if (operator != AqlAst.Operator.EQ && operator != AqlAst.Operator.NE) {
+                throw new AqlSyntaxException("Booleans can only be compared with = or !=", source, position);
+            }
+            left = Exp.boolBin(bin);
+        }
+        Exp right = value(value, position);
+        switch (operator) {
+            case EQ:
+                return Exp.eq(left, right);
+            case NE:
+                return Exp.ne(left, right);
+            case LT:
+                return Exp.lt(left, right);
+            case LE:
+                return Exp.le(left, right);
+            case GT:
+                return Exp.gt(left, right);
+            default:
+                return Exp.ge(left, right);
+        }
+    }
+
+    private Exp value(Object value, int position) {
+        if (value instanceof Long) {
+            return Exp.val(((Long) value).longValue());
+        } else if (value instanceof Double) {
+            return Exp.val(((Double) value).doubleValue());
+        } else if (value instanceof String) {
+            return Exp.val((String) value);
+        } else if (value instanceof Boolean) {
+            return Exp.val(((Boolean) value).booleanValue());
+        }
+        throw new AqlSyntaxException("NULL is not allowed here", source, position);
+    }
+
+    private double asDouble(Object value, int position) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        throw new AqlSyntaxException("BETWEEN bounds must both be numbers or both be strings", source, position);
+    }
+
+    /**
+     * Converts a LIKE pattern into an anchored POSIX extended regular expression.
+     */
+    static String likeToRegex(String pattern) {
+        StringBuilder regex = new StringBuilder(pattern.length() + 8).append('^');
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                if ("\\.^$|?*+()[]{}".indexOf(c) >= 0) {
+                    regex.append('\\');
+                }
+                regex.append(c);
+            }
+        }
+        return regex.append('$').toString();
+    }
+}
@@ -0,0 +1,170 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.query.Filter;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a WHERE clause into at most one secondary index filter and a server-side filter
+ * expression for everything else, so no record is filtered on the client.
+ * <p>
+ * Only a top-level AND term can use an index. Among the indexed terms, equality is preferred
+ * over a two-sided range, then a one-sided range, then CONTAINS on a collection index.
+ */
+final class QueryPlanner {
+
+    private static final int RANK_EQUAL = 0;
+    private static final int RANK_BETWEEN = 1;
+    private static final int RANK_RANGE = 2;
+    private static final int RANK_CONTAINS = 3;
+
+    /**
+     * Outcome of planning: either part may be {@code null}.
+     */
+    static final class Result {
+        final Filter filter;
+        final SindexCatalog.IndexInfo index;
+        final Expression expression;
+
+        Result(Filter filter, SindexCatalog.IndexInfo index, Expression expression) {
+            this.filter = filter;
+            this.index = index;
+            this.expression = expression;
+        }
+
+        /**
+         * Short description for the status bar, e.g. {@code "index age_idx + server filter"}.
+         */
+        String describe() {
+            if (index == null) {
+                return expression != null ? "server filter, no index" : "full scan";
+            }
+            return "index " + index.getName() + (expression != null ? " + server filter" : "");
+        }
+    }
+
+    private static final class Candidate {
+        final AqlAst.Predicate term;
+        final Filter filter;
+        final SindexCatalog.IndexInfo index;
+        final int rank;
+
+        Candidate(AqlAst.Predicate term, Filter filter, SindexCatalog.IndexInfo index, int rank) {
+            this.term = term;
+            this.filter = filter;
+            this.index = index;
+            this.rank = rank;
+        }
+    }
+
+    private final String source;
+
+    QueryPlanner(String source) {
+        this.source = source;
+    }
+
+    Result plan(String set, AqlAst.Predicate where, List<SindexCatalog.IndexInfo> indexes) {
+        if (where == null) {
+            return new Result(null, null, null);
+        }
+        List<AqlAst.Predicate> terms = new ArrayList<>();
+        flattenAnd(where, terms);
+
+        Candidate best = null;
+        for (AqlAst.Predicate term : terms) {
+            for (SindexCatalog.IndexInfo index : indexes) {
+                if (!index.covers(set)) {
+                    continue;
+                }
+                Candidate candidate = candidate(term, index);
+                if (candidate != null && (best == null || candidate.rank < best.rank)) {
+                    best = candidate;
+                }
+            }
+        }
+
+        PredicateCompiler compiler = new PredicateCompiler(source);
+        List<Exp> remaining = new ArrayList<>(terms.size());
+        for (AqlAst.Predicate term : terms) {
+            if (best == null || term != best.term) {
+                remaining.add(compiler.compile(term));
+            }
+        }
+        Expression expression = null;
+        if (remaining.size() == 1) {
+            expression = Exp.build(remaining.get(0));
+        } else if (remaining.size() > 1) {
+            expression = Exp.build(Exp.and(remaining.toArray(new Exp[0])));
+        }
+        return best != null ? new Result(best.filter, best.index, expression) : new Result(null, null, expression);
+    }
+
+    static void flattenAnd(AqlAst.Predicate predicate, List<AqlAst.Predicate> terms) {
+        if (predicate instanceof AqlAst.And and) {
+            flattenAnd(and.left(), terms);
+            flattenAnd(and.right(), terms);
+        } else {
+            terms.add(predicate);
+        }
+    }
+
+    private static Candidate candidate(AqlAst.Predicate term, SindexCatalog.IndexInfo index) {
+        if (term instanceof AqlAst.Contains contains) {
+            if (!contains.bin().equals(index.bin) || index.collectionType == IndexCollectionType.DEFAULT) {
+                return null;
+            }
+            Object value = contains.value();
+            if (value instanceof String && index.type == IndexType.STRING) {
+                return new Candidate(term, Filter.contains(contains.bin(), index.collectionType, (String) value), index, RANK_CONTAINS);
+            } else if (value instanceof Long && index.type == IndexType.NUMERIC) {
+                return new Candidate(term, Filter.contains(contains.bin(), index.collectionType, (Long) value), index, RANK_CONTAINS);
+            }
+            return null;
+        }
+        if (index.collectionType != IndexCollectionType.DEFAULT) {
+            return null;
+        }
+        if (term instanceof AqlAst.Comparison comparison) {
+            if (!comparison.bin().equals(index.bin)) {
+                return null;
+            }
+            Object value = comparison.value();
+            if (comparison.operator() == AqlAst.Operator.EQ) {
+                if (value instanceof String && index.type == IndexType.STRING) {
+                    return new Candidate(term, Filter.equal(comparison.bin(), (String) value), index, RANK_EQUAL);
+                } else if (value instanceof Long && index.type == IndexType.NUMERIC) {
+                    return new Candidate(term, Filter.equal(comparison.bin(), (Long) value), index, RANK_EQUAL);
+                }
+                return null;
+            }
+            if (!(value instanceof Long) || index.type != IndexType.NUMERIC) {
+                return null;
+            }
+            long bound = (Long) value;
+            switch (comparison.operator()) {
+                case GT:
+                    return bound == Long.MAX_VALUE ? null
+                            : new Candidate(term, Filter.range(comparison.bin(), bound + 1, Long.MAX_VALUE), index, RANK_RANGE);
+                case GE:
+                    return new Candidate(term, Filter.range(comparison.bin(), bound, Long.MAX_VALUE), index, RANK_RANGE);
+                case LT:
+                    return bound == Long.MIN_VALUE ? null
+                            : new Candidate(term, Filter.range(comparison.bin(), Long.MIN_VALUE, bound - 1), index, RANK_RANGE);
+                case LE:
+                    return new Candidate(term, Filter.range(comparison.bin(), Long.MIN_VALUE, bound), index, RANK_RANGE);
+                default:
+                    return null; // != cannot use an index
+            }
+        }
+        if (term instanceof AqlAst.Between between && between.bin().equals(index.bin)
+                && between.low() instanceof Long && between.high() instanceof Long && index.type == IndexType.NUMERIC) {
+            return new Candidate(term, Filter.range(between.bin(), (Long) between.low(), (Long) between.high()), index, RANK_BETWEEN);
+        }
+        return null;
+    }
+}
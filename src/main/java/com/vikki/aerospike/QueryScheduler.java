@@ -0,0 +1,132 @@
+package com.vikki.aerospike;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs query jobs side by side, at most {@code maxConcurrent} at a time; further jobs wait
+ * in submission order. Every job has its own handle, so one tab can be cancelled or timed
+ * without touching the others.
+ */
+public class QueryScheduler {
+
+    public enum State {QUEUED, RUNNING, DONE, CANCELLED}
+
+    /**
+     * The work behind a job. {@link #start} must not block: it kicks the work off and
+     * returns a future that completes when the job is over, however it ended.
+     */
+    public interface Task {
+        CompletableFuture<?> start();
+
+        void cancel();
+    }
+
+    public final class Job {
+        private final Task task;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private volatile State state = State.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+
+        private Job(Task task) {
+            this.task = task;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        /**
+         * Time spent running so far, or in total once finished; zero while queued.
+         */
+        public long getElapsedMs() {
+            if (startedAt == 0) {
+                return 0;
+            }
+            return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+        }
+
+        /**
+         * Completes when the job has finished, failed or been cancelled.
+         */
+        public CompletableFuture<Void> completion() {
+            return completion;
+        }
+
+        /**
+         * Drops a queued job, or asks a running one to stop; its slot is freed once the
+         * work actually winds down.
+         */
+        public void cancel() {
+            synchronized (QueryScheduler.this) {
+                if (state == State.QUEUED) {
+                    queue.remove(this);
+                    state = State.CANCELLED;
+                    completion.complete(null);
+                    return;
+                }
+                if (state != State.RUNNING) {
+                    return;
+                }
+                state = State.CANCELLED;
+            }
+            task.cancel();
+        }
+
+        private void start() {
+            state = State.RUNNING;
+            startedAt = System.currentTimeMillis();
+            CompletableFuture<?> work;
+            try {
+                work = task.start();
+            } catch (RuntimeException e) {
+                work = CompletableFuture.failedFuture(e);
+            }
+            work.whenComplete((result, error) -> {
+                finishedAt = System.currentTimeMillis();
+                finished(this);
+                completion.complete(null);
+            });
+        }
+    }
+
+    private final int maxConcurrent;
+    private final Deque<Job> queue = new ArrayDeque<>();
+    private int running;
+
+    public QueryScheduler(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+    }
+
+    public synchronized Job submit(Task task) {
+        Job job = new Job(task);
+        queue.add(job);
+        drain();
+        return job;
+    }
+
+    public synchronized int getRunningCount() {
+        return running;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    private synchronized void finished(Job job) {
+        if (job.state == State.RUNNING) {
+            job.state = State.DONE;
+        }
+        running--;
+        drain();
+    }
+
+    private void drain() {
+        while (running < maxConcurrent && !queue.isEmpty()) {
+            running++;
+            queue.poll().start();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.vikki.aerospike;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.collections.FXCollections;
+import javafx.geometry.Orientation;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.Label;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SplitPane;
+import javafx.scene.control.Tab;
+import javafx.scene.control.TableCell;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TablePosition;
+import javafx.scene.control.TableView;
+import javafx.scene.control.TextArea;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextInputDialog;
+import javafx.scene.input.Clipboard;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.util.Duration;
+import org.kordamp.ikonli.fontawesome5.FontAwesomeSolid;
+import org.kordamp.ikonli.javafx.FontIcon;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One query editor tab with its own result table, status line and elapsed time / record
+ * count readout. Runs go through a shared {@link QueryScheduler}, so tabs execute side by
+ * side and each can be cancelled on its own. The filter field searches the tab's loaded rows.
+ */
+final class QueryTab implements AerospikeDataManipulation.SelectResultCallback {
+
+    static final String DEFAULT_TITLE = "New Query";
+
+    private final Tab tab;
+    private final TextArea queryTextArea = new TextArea();
+    private final TableView<Map<String, Object>> resultTable = new TableView<>();
+    private final Label statusLabel = new Label();
+    private final Label readoutLabel = new Label();
+    private final TextField filterField = new TextField();
+    private final ProgressBar progressBar = new ProgressBar();
+    private final Button cancelButton = new Button("Cancel", new FontIcon(FontAwesomeSolid.STOP));
+    private final Timeline readoutTimer;
+    private QueryScheduler.Job job;
+    private AerospikeDataManipulation runner;
+    private PagedRecordList results;
+    private Runnable onResults;
+
+    QueryTab() {
+        progressBar.setVisible(false);
+        cancelButton.setDisable(true);
+        cancelButton.setOnAction(event -> cancel());
+        filterField.setPromptText("Filter results");
+        filterField.textProperty().addListener((observable, oldValue, newValue) -> {
+            if (results != null) {
+                results.setSearchText(newValue);
+            }
+        });
+        HBox readoutBar = new HBox(8, statusLabel, progressBar, readoutLabel, filterField, cancelButton);
+        readoutBar.setAlignment(Pos.CENTER_LEFT);
+        HBox.setHgrow(statusLabel, Priority.ALWAYS);
+        statusLabel.setMaxWidth(Double.MAX_VALUE);
+
+        resultTable.setPlaceholder(new Label("Results of this tab's query appear here."));
+        resultTable.getSelectionModel().setCellSelectionEnabled(true);
+        MenuItem copyValueMenuItem = new MenuItem("Copy Value");
+        copyValueMenuItem.setOnAction(event -> copySelectedValue());
+        resultTable.setContextMenu(new ContextMenu(copyValueMenuItem));
+        VBox resultArea = new VBox(4, readoutBar, resultTable);
+        VBox.setVgrow(resultTable, Priority.ALWAYS);
+
+        SplitPane content = new SplitPane(queryTextArea, resultArea);
+        content.setOrientation(Orientation.VERTICAL);
+        content.setDividerPositions(0.4);
+        tab = new Tab(DEFAULT_TITLE, content);
+        tab.setClosable(true);
+        tab.setUserData(this);
+
+        MenuItem renameTabMenuItem = new MenuItem("Rename");
+        renameTabMenuItem.setOnAction(event -> {
+            TextInputDialog dialog = new TextInputDialog(tab.getText());
+            dialog.setTitle("Rename Tab");
+            dialog.setHeaderText("Enter new name for the tab:");
+            dialog.setContentText("New Name:");
+
+            Optional<String> result = dialog.showAndWait();
+            result.ifPresent(name -> tab.setText(name.trim().isEmpty() ? DEFAULT_TITLE : name));
+        });
+        tab.setContextMenu(new ContextMenu(renameTabMenuItem));
+
+        readoutTimer = new Timeline(new KeyFrame(Duration.millis(250), event -> updateReadout()));
+        readoutTimer.setCycleCount(Animation.INDEFINITE);
+    }
+
+    static QueryTab of(Tab tab) {
+        return tab != null && tab.getUserData() instanceof QueryTab ? (QueryTab) tab.getUserData() : null;
+    }
+
+    Tab getTab() {
+        return tab;
+    }
+
+    String getQuery() {
+        return queryTextArea.getText().trim();
+    }
+
+    Label getStatusLabel() {
+        return statusLabel;
+    }
+
+    ProgressBar getProgressBar() {
+        return progressBar;
+    }
+
+    TableView<Map<String, Object>> getResultTable() {
+        return resultTable;
+    }
+
+    /**
+     * Called on the FX thread whenever a query of this tab has put new rows in its table.
+     */
+    void setOnResults(Runnable onResults) {
+        this.onResults = onResults;
+    }
+
+    /**
+     * Queues {@code aql} on the scheduler, replacing whatever this tab was running. With
+     * {@code refresh} a SELECT ignores cached results.
+     */
+    void run(QueryScheduler scheduler, AerospikeDataManipulation runner, String aql, boolean refresh) {
+        cancel();
+        this.runner = runner;
+        runner.setSelectResultCallback(this);
+        statusLabel.setText("Queued...");
+        QueryScheduler.Job current = scheduler.submit(new QueryScheduler.Task() {
+            @Override
+            public CompletableFuture<?> start() {
+                return runner.executeAqlManipulation(aql, refresh);
+            }
+
+            @Override
+            public void cancel() {
+                runner.cancel();
+            }
+        });
+        job = current;
+        cancelButton.setDisable(false);
+        readoutTimer.play();
+        updateReadout();
+        current.completion().whenComplete((result, error) -> Platform.runLater(() -> {
+            if (job == current) {
+                readoutTimer.stop();
+                cancelButton.setDisable(true);
+                updateReadout();
+            }
+        }));
+    }
+
+    void cancel() {
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Called when the tab is closed: stops its query and frees its results.
+     */
+    void dispose() {
+        cancel();
+        readoutTimer.stop();
+        setResults(null);
+    }
+
+    @Override
+    public void onResult(List<Map<String, Object>> rows) {
+        long renderStart = System.nanoTime();
+        PagedRecordList resultList;
+        if (rows instanceof PagedRecordList) {
+            resultList = (PagedRecordList) rows;
+        } else {
+            resultList = new PagedRecordList(new PagedResultStore());
+            resultList.appendAll(rows);
+        }
+        setResults(resultList);
+        if (resultList.getStore().size() == 0) {
+            resultTable.setPlaceholder(new Label("No results from query."));
+        }
+        if (onResults != null) {
+            onResults.run();
+        }
+        OperationMetrics.shared().recordRender(OperationMetrics.OpType.QUERY, System.nanoTime() - renderStart);
+    }
+
+    @Override
+    public void onError(String errorMessage) {
+        setResults(null);
+        resultTable.setPlaceholder(new Label(errorMessage));
+    }
+
+    private void setResults(PagedRecordList resultList) {
+        if (results != null && results != resultList) {
+            results.getStore().close();
+        }
+        results = resultList;
+        resultTable.getColumns().clear();
+        if (resultList == null) {
+            resultTable.setItems(FXCollections.observableArrayList());
+            return;
+        }
+        TableColumn<Map<String, Object>, Integer> serialNumberColumn = new TableColumn<>("Serial No.");
+        serialNumberColumn.setSortable(false);
+        serialNumberColumn.setCellFactory(column -> new TableCell<>() {
+            @Override
+            protected void updateItem(Integer item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty || getIndex() < 0 ? null : String.valueOf(getIndex() + 1));
+            }
+        });
+        resultTable.getColumns().add(serialNumberColumn);
+        for (String columnName : resultList.getStore().getColumnNames()) {
+            TableColumn<Map<String, Object>, String> column = new TableColumn<>(columnName);
+            column.setSortable(false);
+            column.setCellValueFactory(cellData -> {
+                Object value = cellData.getValue().get(columnName);
+                return new SimpleStringProperty(value != null ? value.toString() : "");
+            });
+            resultTable.getColumns().add(column);
+        }
+        String filterText = filterField.getText();
+        if (filterText != null && !filterText.isEmpty()) {
+            resultList.setSearchText(filterText);
+        }
+        resultTable.setItems(resultList);
+    }
+
+    private void updateReadout() {
+        QueryScheduler.Job current = job;
+        if (current == null) {
+            readoutLabel.setText("");
+            return;
+        }
+        String seconds = String.format("%.1f s", current.getElapsedMs() / 1000.0);
+        switch (current.getState()) {
+            case QUEUED:
+                readoutLabel.setText("Waiting for a free slot");
+                break;
+            case RUNNING:
+                readoutLabel.setText(seconds + ", " + runner.getPendingRowCount() + " records so far");
+                break;
+            case CANCELLED:
+                readoutLabel.setText("Cancelled after " + seconds);
+                break;
+            default:
+                readoutLabel.setText("Took " + seconds + (results != null ? ", " + results.getStore().size() + " records" : ""));
+                break;
+        }
+    }
+
+    private void copySelectedValue() {
+        if (resultTable.getSelectionModel().getSelectedCells().isEmpty()) {
+            return;
+        }
+        TablePosition<?, ?> pos = resultTable.getSelectionModel().getSelectedCells().get(0);
+        Object value = pos.getTableColumn().getCellData(pos.getRow());
+        if (value != null) {
+            ClipboardContent content = new ClipboardContent();
+            content.putString(value.toString());
+            Clipboard.getSystemClipboard().setContent(content);
+        }
+    }
+}
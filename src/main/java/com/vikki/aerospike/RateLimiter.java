@@ -0,0 +1,41 @@
+package com.vikki.aerospike;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands out permits on a fixed schedule of {@code permitsPerSecond}. The schedule does not
+ * slip when a caller falls behind: late permits are granted at once until it catches up, and
+ * {@link #acquire()} returns the time each permit was due so latency can be measured from
+ * the intended start rather than from when the caller got round to it.
+ */
+final class RateLimiter {
+
+    private final long permitsPerSecond;
+    private final long start = System.nanoTime();
+    private long issued;
+
+    /**
+     * @param permitsPerSecond 0 or less for no limit
+     */
+    RateLimiter(long permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+    }
+
+    /**
+     * Waits for the next permit and returns the {@link System#nanoTime()} it was scheduled for.
+     */
+    long acquire() {
+        if (permitsPerSecond <= 0) {
+            return System.nanoTime();
+        }
+        long due;
+        synchronized (this) {
+            due = start + (long) (issued++ * (1_000_000_000.0 / permitsPerSecond));
+        }
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(wait);
+        }
+        return due;
+    }
+}
@@ -0,0 +1,107 @@
+package com.vikki.aerospike;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Bounded hand-off between a scan callback and the FX thread.
+ * <p>
+ * Producers call {@link #put(Object)}, which blocks while the buffer is full, so a scan
+ * can never run further ahead of the UI than the buffer capacity. On the FX side an
+ * {@link AnimationTimer} drains the buffer once per pulse and hands over a chunk when
+ * either {@code batchSize} items are waiting or the flush interval has elapsed.
+ */
+public class RecordBatcher<T> {
+
+    private final BlockingQueue<T> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Consumer<List<T>> chunkConsumer;
+    private final AnimationTimer pump;
+
+    private volatile boolean completed;
+    private volatile boolean cancelled;
+    private Runnable onComplete;
+    private long lastFlush;
+
+    public RecordBatcher(Consumer<List<T>> chunkConsumer) {
+        this(ExplorerSettings.UI_BUFFER_CAPACITY, ExplorerSettings.UI_BATCH_SIZE,
+                ExplorerSettings.UI_FLUSH_INTERVAL_MS, chunkConsumer);
+    }
+
+    public RecordBatcher(int capacity, int batchSize, long flushIntervalMillis, Consumer<List<T>> chunkConsumer) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(capacity, batchSize));
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.chunkConsumer = chunkConsumer;
+        this.pump = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                pump(now);
+            }
+        };
+    }
+
+    /**
+     * Starts delivering chunks. Must be called on the FX thread.
+     */
+    public void start() {
+        lastFlush = System.nanoTime();
+        pump.start();
+    }
+
+    /**
+     * Queues one item, blocking while the UI is behind. Returns {@code false} once the
+     * batcher has been cancelled so the caller can abort its scan.
+     */
+    public boolean put(T item) throws InterruptedException {
+        while (!cancelled) {
+            if (buffer.offer(item, 50, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Signals that no more items will arrive. {@code onDone} runs on the FX thread after
+     * the last chunk has been delivered.
+     */
+    public void complete(Runnable onDone) {
+        this.onComplete = onDone;
+        this.completed = true;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        buffer.clear();
+    }
+
+    private void pump(long now) {
+        if (cancelled) {
+            pump.stop();
+            return;
+        }
+        boolean done = completed;
+        if (buffer.size() >= batchSize || now - lastFlush >= flushIntervalNanos || done) {
+            List<T> chunk = new ArrayList<>(Math.min(buffer.size(), batchSize));
+            buffer.drainTo(chunk, batchSize);
+            if (!chunk.isEmpty()) {
+                chunkConsumer.accept(chunk);
+            }
+            lastFlush = now;
+        }
+        if (done && buffer.isEmpty()) {
+            pump.stop();
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Bin;
+import com.aerospike.client.Value;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.random.RandomGenerator;
+
+/**
+ * Synthetic records from a GENERATE / LOADTEST bin template. Record ids are longs in
+ * {@code [0, keySpace)} and become the user key (also stored in {@value AqlPlan#PK_BIN}), so
+ * a load test can read back the records a GENERATE wrote with the same key space.
+ * <p>
+ * A STRING with a cardinality draws from that many distinct values, each derived from its
+ * index alone, so the same values turn up in every run and from every thread.
+ */
+final class RecordGenerator {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double ZIPF_EXPONENT = 0.99;
+    private static final char[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    private final String[] binNames;
+    private final Field[] fields;
+    private final AqlAst.KeyDistribution keys;
+    private final long keySpace;
+    private final ZipfSampler zipf;
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * @throws AqlSyntaxException if a type has the wrong number or kind of arguments
+     */
+    RecordGenerator(String source, List<AqlAst.BinTemplate> template, AqlAst.KeyDistribution keys, long keySpace) {
+        this.binNames = new String[template.size()];
+        this.fields = new Field[template.size()];
+        for (int i = 0; i < fields.length; i++) {
+            binNames[i] = template.get(i).bin();
+            fields[i] = new Field(source, template.get(i).value(), i);
+        }
+        this.keys = keys;
+        this.keySpace = Math.max(1, keySpace);
+        this.zipf = keys == AqlAst.KeyDistribution.ZIPF ? new ZipfSampler(this.keySpace, ZIPF_EXPONENT) : null;
+    }
+
+    long getKeySpace() {
+        return keySpace;
+    }
+
+    /**
+     * Next record id: in order (wrapping around) for SEQUENTIAL, drawn at random otherwise.
+     */
+    long nextId() {
+        switch (keys) {
+            case UNIFORM:
+                return ThreadLocalRandom.current().nextLong(keySpace);
+            case ZIPF:
+                return zipf.sample(ThreadLocalRandom.current()) - 1;
+            default:
+                return sequence.getAndIncrement() % keySpace;
+        }
+    }
+
+    /**
+     * A new record with the next id; UUID keys are left {@code null} for
+     * {@link AqlPlan#withGeneratedKey} to fill in.
+     */
+    AqlPlan.Write next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (keys == AqlAst.KeyDistribution.UUID) {
+            return new AqlPlan.Write(null, bins(random, false, 0));
+        }
+        long id = nextId();
+        return new AqlPlan.Write(id, bins(random, true, id));
+    }
+
+    Iterator<AqlPlan.Write> writes(long count, RateLimiter limiter) {
+        return new Iterator<>() {
+            private long remaining = count;
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+
+            @Override
+            public AqlPlan.Write next() {
+                if (remaining <= 0) {
+                    throw new NoSuchElementException();
+                }
+                remaining--;
+                limiter.acquire();
+                return RecordGenerator.this.next();
+            }
+        };
+    }
+
+    private Bin[] bins(ThreadLocalRandom random, boolean keyed, long id) {
+        Bin[] bins = new Bin[fields.length + (keyed ? 1 : 0)];
+        for (int i = 0; i < fields.length; i++) {
+            bins[i] = new Bin(binNames[i], Value.get(fields[i].value(random)));
+        }
+        if (keyed) {
+            bins[fields.length] = new Bin(AqlPlan.PK_BIN, id);
+        }
+        return bins;
+    }
+
+    private static final class Field {
+        private final AqlAst.ValueKind kind;
+        private final long position;
+        private long min;
+        private long max;
+        private double minDouble;
+        private double maxDouble;
+        private long cardinality;
+        private Field element;
+
+        Field(String source, AqlAst.ValueTemplate template, long position) {
+            this.kind = template.kind();
+            this.position = position;
+            switch (kind) {
+                case INT:
+                    expectArguments(source, template, 2);
+                    min = longArgument(source, template, 0, 0);
+                    max = longArgument(source, template, 1, min + 1_000_000);
+                    requireOrdered(source, template, min <= max);
+                    break;
+                case FLOAT:
+                    expectArguments(source, template, 2);
+                    minDouble = doubleArgument(source, template, 0, 0);
+                    maxDouble = doubleArgument(source, template, 1, minDouble + 1);
+                    requireOrdered(source, template, minDouble <= maxDouble);
+                    break;
+                case STRING:
+                    expectArguments(source, template, 2);
+                    min = max = longArgument(source, template, 0, 16);
+                    cardinality = longArgument(source, template, 1, 0);
+                    requireOrdered(source, template, min >= 0 && cardinality >= 0);
+                    break;
+                case BOOL:
+                    expectArguments(source, template, 0);
+                    break;
+                case BLOB:
+                    expectArguments(source, template, 1);
+                    min = max = longArgument(source, template, 0, 32);
+                    requireOrdered(source, template, min >= 0);
+                    break;
+                default: // LIST, MAP
+                    expectArguments(source, template, 2);
+                    min = longArgument(source, template, 0, 5);
+                    max = longArgument(source, template, 1, min);
+                    requireOrdered(source, template, 0 <= min && min <= max);
+                    element = template.element() != null
+                            ? new Field(source, template.element(), position * 31 + 1)
+                            : new Field(source, new AqlAst.ValueTemplate(AqlAst.ValueKind.INT, List.of(),
+                            null, template.position()), position * 31 + 1);
+                    break;
+            }
+        }
+
+        Object value(ThreadLocalRandom random) {
+            switch (kind) {
+                case INT:
+                    long span = max - min + 1;
+                    return span > 0 ? min + random.nextLong(span) : random.nextLong();
+                case FLOAT:
+                    return minDouble + random.nextDouble() * (maxDouble - minDouble);
+                case STRING:
+                    if (cardinality > 0) {
+                        return string(new SplittableRandom(random.nextLong(cardinality) * GOLDEN_GAMMA + position));
+                    }
+                    return string(random);
+                case BOOL:
+                    return random.nextBoolean();
+                case BLOB:
+                    byte[] bytes = new byte[(int) max];
+                    random.nextBytes(bytes);
+                    return bytes;
+                case LIST:
+                    int size = size(random);
+                    List<Object> list = new ArrayList<>(size);
+                    for (int i = 0; i < size; i++) {
+                        list.add(element.value(random));
+                    }
+                    return list;
+                default:
+                    int entries = size(random);
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    for (int i = 0; i < entries; i++) {
+                        map.put("k" + i, element.value(random));
+                    }
+                    return map;
+            }
+        }
+
+        private int size(ThreadLocalRandom random) {
+            return (int) (min == max ? min : min + random.nextLong(max - min + 1));
+        }
+
+        private String string(RandomGenerator random) {
+            char[] chars = new char[(int) max];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+            }
+            return new String(chars);
+        }
+
+        private static void expectArguments(String source, AqlAst.ValueTemplate template, int most) {
+            if (template.arguments().size() > most) {
+                throw new AqlSyntaxException(template.kind() + " takes at most " + most + " arguments", source,
+                        template.position());
+            }
+        }
+
+        private static void requireOrdered(String source, AqlAst.ValueTemplate template, boolean ordered) {
+            if (!ordered) {
+                throw new AqlSyntaxException(template.kind() + " sizes must not be negative and a minimum must not"
+                        + " exceed its maximum", source, template.position());
+            }
+        }
+
+        private static long longArgument(String source, AqlAst.ValueTemplate template, int index, long defaultValue) {
+            if (index >= template.arguments().size()) {
+                return defaultValue;
+            }
+            if (!(template.arguments().get(index) instanceof Long value)) {
+                throw new AqlSyntaxException(template.kind() + " arguments must be integers", source, template.position());
+            }
+            return value;
+        }
+
+        private static double doubleArgument(String source, AqlAst.ValueTemplate template, int index, double defaultValue) {
+            if (index >= template.arguments().size()) {
+                return defaultValue;
+            }
+            if (!(template.arguments().get(index) instanceof Number value)) {
+                throw new AqlSyntaxException(template.kind() + " arguments must be numbers", source, template.position());
+            }
+            return value.doubleValue();
+        }
+    }
+
+    /**
+     * Zipf-distributed ranks in {@code [1, n]} by rejection-inversion (Hormann and Derflinger),
+     * which takes constant time per sample and no memory proportional to {@code n}.
+     */
+    private static final class ZipfSampler {
+        private final long n;
+        private final double exponent;
+        private final double hIntegralX1;
+        private final double hIntegralN;
+        private final double s;
+
+        ZipfSampler(long n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            this.hIntegralX1 = hIntegral(1.5) - 1;
+            this.hIntegralN = hIntegral(n + 0.5);
+            this.s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        long sample(ThreadLocalRandom random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                long k = Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return expm1OverX((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(log1pOverX(t) * x);
+        }
+
+        private static double log1pOverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        private static double expm1OverX(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.vikki.aerospike;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recent query and browse results, keyed by normalized query text, so re-running a SELECT or
+ * re-selecting a set in the tree shows the rows without going back to the cluster.
+ * <p>
+ * Entries share the {@link PagedResultStore} shown in the table (see
+ * {@link PagedResultStore#retain()}) and are evicted least recently used first once their
+ * heap size exceeds {@link ExplorerSettings#CACHE_MEMORY_BUDGET_MB}, or dropped when older
+ * than {@link ExplorerSettings#CACHE_TTL_MS}. Writes made through the explorer call
+ * {@link #invalidate}; a result is only stored if no write to its set completed since
+ * the {@link #generation()} taken before it was read, so a read racing a write can't
+ * cache rows from before the write.
+ */
+public final class ResultCache {
+
+    private static final ResultCache SHARED = new ResultCache(ExplorerSettings.CACHE_MEMORY_BUDGET_MB * 1024L * 1024L,
+            ExplorerSettings.CACHE_TTL_MS, ExplorerSettings.CACHE_SPILL_TO_DISK);
+
+    /**
+     * A cached result: a new list over the shared rows, which the caller closes as usual.
+     */
+    public static final class Hit {
+        final PagedRecordList results;
+        final long ageMs;
+
+        Hit(PagedRecordList results, long ageMs) {
+            this.results = results;
+            this.ageMs = ageMs;
+        }
+
+        public PagedRecordList getResults() {
+            return results;
+        }
+
+        public long getAgeMs() {
+            return ageMs;
+        }
+
+        /**
+         * Status suffix such as {@code " (cached 12 s ago)"}.
+         */
+        public String describe() {
+            return " (cached " + ageMs / 1000 + " s ago)";
+        }
+    }
+
+    private static final class Entry {
+        final String namespace;
+        final String set;
+        final PagedResultStore store;
+        final long generation;
+        final long createdAt = System.currentTimeMillis();
+        final long bytes;
+
+        Entry(String namespace, String set, PagedResultStore store, long generation, long bytes) {
+            this.namespace = namespace;
+            this.set = set;
+            this.store = store;
+            this.generation = generation;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long memoryBudget;
+    private final long ttlMs;
+    private final boolean spillToDisk;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Generation of the last write to "ns.set", to any set of "ns" ("ns") or to the whole namespace ("ns.*")
+    private final Map<String, Long> lastWrite = new HashMap<>();
+    private long generation;
+    private long residentBytes;
+    private long hits;
+    private long misses;
+
+    public ResultCache(long memoryBudget, long ttlMs, boolean spillToDisk) {
+        this.memoryBudget = memoryBudget;
+        this.ttlMs = ttlMs;
+        this.spillToDisk = spillToDisk;
+    }
+
+    public static ResultCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Current write generation; take it before reading a result that will be {@link #put}.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Returns the result cached under {@code key}, or {@code null} if there is none or it
+     * has gone stale.
+     */
+    public synchronized Hit get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        long age = System.currentTimeMillis() - entry.createdAt;
+        if (age > ttlMs || !isCurrent(entry) || !entry.store.retain()) {
+            remove(key);
+            misses++;
+            return null;
+        }
+        hits++;
+        return new Hit(new PagedRecordList(entry.store), age);
+    }
+
+    /**
+     * Caches {@code store}, the complete result of {@code key} read from
+     * {@code namespace[.set]} at {@code readGeneration}. Results that are stale already or
+     * too large for the budget are not cached.
+     */
+    public synchronized void put(String key, String namespace, String set, long readGeneration, PagedResultStore store) {
+        if (ttlMs <= 0 || (!spillToDisk && store.getSpilledBytes() > 0)) {
+            return;
+        }
+        long bytes = store.estimateBytes() - store.getSpilledBytes();
+        Entry entry = new Entry(namespace, set, store, readGeneration, bytes);
+        if (bytes > memoryBudget || !isCurrent(entry) || !store.retain()) {
+            return;
+        }
+        remove(key);
+        entries.put(key, entry);
+        residentBytes += bytes;
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (residentBytes > memoryBudget && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            release(evicted);
+        }
+    }
+
+    /**
+     * Drops results read from {@code namespace.set}, or from any set of {@code namespace}
+     * when {@code set} is {@code null}, and marks reads still running as stale.
+     */
+    public synchronized void invalidate(String namespace, String set) {
+        generation++;
+        lastWrite.put(namespace, generation);
+        lastWrite.put(set != null ? namespace + "." + set : namespace + ".*", generation);
+        Iterator<Entry> all = entries.values().iterator();
+        while (all.hasNext()) {
+            Entry entry = all.next();
+            if (!isCurrent(entry)) {
+                all.remove();
+                release(entry);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (Entry entry : entries.values()) {
+            release(entry);
+        }
+        entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private boolean isCurrent(Entry entry) {
+        if (entry.set == null) {
+            return lastWrite.getOrDefault(entry.namespace, -1L) <= entry.generation;
+        }
+        return lastWrite.getOrDefault(entry.namespace + "." + entry.set, -1L) <= entry.generation
+                && lastWrite.getOrDefault(entry.namespace + ".*", -1L) <= entry.generation;
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            release(entry);
+        }
+    }
+
+    private void release(Entry entry) {
+        residentBytes -= entry.bytes;
+        entry.store.close();
+    }
+}
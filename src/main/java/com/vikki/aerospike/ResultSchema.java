@@ -0,0 +1,52 @@
+package com.vikki.aerospike;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column names of one result set, interned once so rows only carry column ids.
+ */
+public final class ResultSchema {
+
+    public static final String KEY = "Key";
+    public static final String NAMESPACE = "Namespace";
+    public static final String SET = "Set";
+    public static final String GENERATION = "Generation";
+    public static final String TTL = "TTL";
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public synchronized int idOf(String name) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of an existing column, or -1 if the result set has no such column.
+     */
+    public synchronized int find(Object name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    public synchronized String nameOf(int id) {
+        return names.get(id);
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    public synchronized List<String> getNames() {
+        return Collections.unmodifiableList(new ArrayList<>(names));
+    }
+}
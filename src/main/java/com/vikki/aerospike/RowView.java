@@ -0,0 +1,100 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Value;
+import com.aerospike.client.command.Buffer;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only {@code Map} view of one row in a {@link PagedResultStore}.
+ * <p>
+ * Values are looked up in the columnar pages on each access, so the view stays valid
+ * when its page is spilled and reloaded. Two views are equal when they point at the
+ * same row of the same store, which lets the TableView keep selection across refreshes.
+ */
+public final class RowView extends AbstractMap<String, Object> {
+
+    private final PagedResultStore store;
+    private final int rowId;
+
+    RowView(PagedResultStore store, int rowId) {
+        this.store = store;
+        this.rowId = rowId;
+    }
+
+    public int getRowId() {
+        return rowId;
+    }
+
+    /**
+     * Key of the record this row was read from, addressed by its digest so it is right for
+     * any type of user key; {@code null} for rows that are not records.
+     */
+    public Key getRecordKey() {
+        byte[] digest = store.getDigest(rowId);
+        Object namespace = get(ResultSchema.NAMESPACE);
+        if (digest == null || namespace == null) {
+            return null;
+        }
+        Object userKey = get(ResultSchema.KEY);
+        return new Key(namespace.toString(), digest, (String) get(ResultSchema.SET),
+                userKey != null ? Value.get(userKey) : null);
+    }
+
+    /**
+     * The user key as shown in the table, or the digest for records stored without one.
+     */
+    static String describeKey(Key key) {
+        return key.userKey != null ? key.userKey.toString() : Buffer.bytesToHexString(key.digest);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return store.getValue(rowId, key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return store.getValue(rowId, key) != null;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        store.copyRow(rowId, values);
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return values.entrySet().iterator();
+            }
+
+            @Override
+            public int size() {
+                return values.size();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof RowView)) {
+            return false;
+        }
+        RowView other = (RowView) o;
+        return store == other.store && rowId == other.rowId;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(store) * 31 + rowId;
+    }
+}
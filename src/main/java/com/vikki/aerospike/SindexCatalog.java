@@ -0,0 +1,234 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Info;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Secondary indexes known to the cluster, read with the {@code sindex-list} info command
+ * (falling back to {@code sindex/<ns>} on older servers) and cached per namespace for
+ * {@link ExplorerSettings#SINDEX_REFRESH_MS}.
+ */
+public class SindexCatalog {
+
+    public static final class IndexInfo {
+        final String name;
+        final String namespace;
+        final String set; // null when the index covers the whole namespace
+        final String bin;
+        final IndexType type;
+        final IndexCollectionType collectionType;
+
+        IndexInfo(String name, String namespace, String set, String bin, IndexType type, IndexCollectionType collectionType) {
+            this.name = name;
+            this.namespace = namespace;
+            this.set = set;
+            this.bin = bin;
+            this.type = type;
+            this.collectionType = collectionType;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getBin() {
+            return bin;
+        }
+
+        /**
+         * True if the index can serve a query on {@code set}.
+         */
+        boolean covers(String set) {
+            return this.set == null || this.set.equals(set);
+        }
+    }
+
+    private static final class Entry {
+        final List<IndexInfo> indexes;
+        final long loadedAt;
+
+        Entry(List<IndexInfo> indexes, long loadedAt) {
+            this.indexes = indexes;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    private final AerospikeClient client;
+    private final Map<String, Entry> byNamespace = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public SindexCatalog(AerospikeClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Readable indexes of {@code namespace}. Refreshed from the cluster when the cached list
+     * is older than the refresh interval; an unreachable cluster yields the last known list.
+     */
+    public List<IndexInfo> getIndexes(String namespace) {
+        Entry entry = byNamespace.get(namespace);
+        long now = System.currentTimeMillis();
+        if (entry == null || now - entry.loadedAt > ExplorerSettings.SINDEX_REFRESH_MS) {
+            List<IndexInfo> indexes;
+            try {
+                indexes = load(namespace);
+            } catch (AerospikeException e) {
+                e.printStackTrace();
+                indexes = entry != null ? entry.indexes : Collections.emptyList();
+            }
+            if (entry == null || !sameIndexes(entry.indexes, indexes)) {
+                generation.incrementAndGet();
+            }
+            entry = new Entry(indexes, now);
+            byNamespace.put(namespace, entry);
+        }
+        return entry.indexes;
+    }
+
+    /**
+     * Changes whenever a refresh finds a different set of indexes, so cached plans know to
+     * re-pick their index.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void invalidate() {
+        byNamespace.clear();
+        generation.incrementAndGet();
+    }
+
+    private List<IndexInfo> load(String namespace) {
+        Node[] nodes = client.getNodes();
+        if (nodes.length == 0) {
+            return Collections.emptyList();
+        }
+        // Index definitions are cluster-wide, so one node is enough
+        Node node = nodes[0];
+        String response = Info.request(null, node, "sindex-list:ns=" + namespace);
+        if (response == null || response.isEmpty() || response.startsWith("ERROR")) {
+            response = Info.request(null, node, "sindex/" + namespace);
+        }
+        return parse(namespace, response);
+    }
+
+    static List<IndexInfo> parse(String namespace, String response) {
+        List<IndexInfo> indexes = new ArrayList<>();
+        if (response == null || response.isEmpty() || response.startsWith("ERROR")) {
+            return indexes;
+        }
+        for (String item : response.split(";")) {
+            String name = null;
+            String set = null;
+            String bin = null;
+            String type = null;
+            String indexType = null;
+            String state = null;
+            String ns = namespace;
+            for (String field : item.split(":")) {
+                int eq = field.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String key = field.substring(0, eq);
+                String value = field.substring(eq + 1);
+                switch (key) {
+                    case "ns":
+                        ns = value;
+                        break;
+                    case "indexname":
+                        name = value;
+                        break;
+                    case "set":
+                        set = value.isEmpty() || value.equals("NULL") ? null : value;
+                        break;
+                    case "bin":
+                    case "bins":
+                        bin = value;
+                        break;
+                    case "type":
+                        type = value;
+                        break;
+                    case "indextype":
+                        indexType = value;
+                        break;
+                    case "state":
+                        state = value;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (name == null || bin == null || type == null || !namespace.equals(ns)
+                    || (state != null && !state.equalsIgnoreCase("RW"))) {
+                continue; // Incomplete entry or an index still being built
+            }
+            IndexType parsedType = parseType(type);
+            IndexCollectionType collectionType = parseCollectionType(indexType);
+            if (parsedType != null && collectionType != null) {
+                indexes.add(new IndexInfo(name, ns, set, bin, parsedType, collectionType));
+            }
+        }
+        return indexes;
+    }
+
+    private static IndexType parseType(String type) {
+        switch (type.toUpperCase()) {
+            case "NUMERIC":
+            case "INT SIGNED":
+                return IndexType.NUMERIC;
+            case "STRING":
+            case "TEXT":
+                return IndexType.STRING;
+            case "GEO2DSPHERE":
+            case "GEOJSON":
+                return IndexType.GEO2DSPHERE;
+            default:
+                return null;
+        }
+    }
+
+    private static IndexCollectionType parseCollectionType(String indexType) {
+        if (indexType == null) {
+            return IndexCollectionType.DEFAULT;
+        }
+        switch (indexType.toUpperCase()) {
+            case "DEFAULT":
+            case "NONE":
+                return IndexCollectionType.DEFAULT;
+            case "LIST":
+                return IndexCollectionType.LIST;
+            case "MAPKEYS":
+                return IndexCollectionType.MAPKEYS;
+            case "MAPVALUES":
+                return IndexCollectionType.MAPVALUES;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean sameIndexes(List<IndexInfo> a, List<IndexInfo> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            IndexInfo x = a.get(i);
+            IndexInfo y = b.get(i);
+            if (!x.name.equals(y.name) || !x.bin.equals(y.bin) || x.type != y.type || x.collectionType != y.collectionType) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,318 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a scan or query straight to a CSV or JSON file as records arrive, so the export
+ * never holds more than one record per worker in memory.
+ * <p>
+ * The column order is fixed before the first record is written: the metadata columns
+ * followed by the bins found in a small sampling scan. CSV output drops bins that were not
+ * in the sample (the count is reported); JSON output keeps them after the known columns.
+ * <p>
+ * The key column keeps the type of the user key: integer keys are written as numbers and
+ * string keys as JSON strings or quoted CSV fields, so {@link ImportFileReader} writes the
+ * same records back instead of new ones under a different digest.
+ */
+public class StreamingExporter {
+
+    public enum Format {CSV, JSON}
+
+    public interface Listener {
+        void onProgress(long recordsWritten, int partitionsDone);
+
+        void onComplete(long recordsWritten, long droppedBins, Path file);
+
+        void onCancelled(Path file);
+
+        void onError(Exception e);
+    }
+
+    private static final List<String> META_COLUMNS = List.of(
+            ResultSchema.KEY, ResultSchema.NAMESPACE, ResultSchema.SET, ResultSchema.GENERATION, ResultSchema.TTL);
+
+    private final AerospikeClient client;
+    private volatile PartitionScanEngine.ScanJob scanJob;
+    private volatile RecordSet recordSet;
+    private volatile boolean cancelled;
+
+    public StreamingExporter(AerospikeClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Samples {@code sampleSize} records of the set and returns the export column order.
+     */
+    public List<String> sampleColumns(String namespace, String set, int sampleSize) {
+        TreeSet<String> bins = new TreeSet<>();
+        ScanPolicy samplePolicy = new ScanPolicy();
+        samplePolicy.maxRecords = sampleSize;
+        client.scanAll(samplePolicy, namespace, set, (key, record) -> {
+            if (record != null && record.bins != null) {
+                synchronized (bins) {
+                    bins.addAll(record.bins.keySet());
+                }
+            }
+        });
+        List<String> columns = new ArrayList<>(META_COLUMNS);
+        for (String bin : bins) {
+            if (!columns.contains(bin)) {
+                columns.add(bin);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Scans {@code namespace.set} partition-parallel and writes every record to {@code file}.
+     * Blocks until the export finishes, fails or is cancelled.
+     */
+    public void exportScan(String namespace, String set, Path file, Format format, boolean gzip, Listener listener) {
+        try {
+            List<String> columns = sampleColumns(namespace, set, ExplorerSettings.EXPORT_SAMPLE_SIZE);
+            PartitionScanEngine.ScanJob job = new PartitionScanEngine(client).newScan(namespace, set, new ScanPolicy());
+            scanJob = job;
+            if (cancelled) {
+                job.cancel();
+            }
+            try (RecordWriter writer = new RecordWriter(file, format, gzip, columns)) {
+                job.run((key, record) -> {
+                    long written = writer.write(key, record);
+                    if (written % ExplorerSettings.EXPORT_PROGRESS_INTERVAL == 0) {
+                        listener.onProgress(written, job.getCompletedPartitions());
+                    }
+                }, (done, total) -> listener.onProgress(writer.written.get(), done));
+                writer.finish();
+                listener.onComplete(writer.written.get(), writer.droppedBins.get(), file);
+            }
+        } catch (AerospikeException.ScanTerminated e) {
+            deleteQuietly(file);
+            listener.onCancelled(file);
+        } catch (AerospikeException | IOException | UncheckedIOException e) {
+            deleteQuietly(file);
+            listener.onError(e);
+        }
+    }
+
+    /**
+     * Runs {@code statement} and writes each record of the result to {@code file}. The
+     * column order is taken from the statement's bin names when present, otherwise from
+     * a sample of the target set.
+     */
+    public void exportQuery(QueryPolicy policy, Statement statement, Path file, Format format, boolean gzip, Listener listener) {
+        try {
+            List<String> columns;
+            if (statement.getBinNames() != null && statement.getBinNames().length > 0) {
+                columns = new ArrayList<>(META_COLUMNS);
+                columns.addAll(List.of(statement.getBinNames()));
+            } else {
+                columns = sampleColumns(statement.getNamespace(), statement.getSetName(), ExplorerSettings.EXPORT_SAMPLE_SIZE);
+            }
+            try (RecordWriter writer = new RecordWriter(file, format, gzip, columns);
+                 RecordSet rs = client.query(policy, statement)) {
+                recordSet = rs;
+                while (!cancelled && rs.next()) {
+                    long written = writer.write(rs.getKey(), rs.getRecord());
+                    if (written % ExplorerSettings.EXPORT_PROGRESS_INTERVAL == 0) {
+                        listener.onProgress(written, 0);
+                    }
+                }
+                if (cancelled) {
+                    throw new AerospikeException.QueryTerminated();
+                }
+                writer.finish();
+                listener.onComplete(writer.written.get(), writer.droppedBins.get(), file);
+            }
+        } catch (AerospikeException.QueryTerminated e) {
+            deleteQuietly(file);
+            listener.onCancelled(file);
+        } catch (AerospikeException | IOException | UncheckedIOException e) {
+            deleteQuietly(file);
+            if (cancelled) {
+                listener.onCancelled(file);
+            } else {
+                listener.onError(e);
+            }
+        }
+    }
+
+    public void cancel() {
+        cancelled = true;
+        PartitionScanEngine.ScanJob job = scanJob;
+        if (job != null) {
+            job.cancel();
+        }
+        RecordSet rs = recordSet;
+        if (rs != null) {
+            rs.close();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Formats records on the calling worker thread and appends them to one buffered
+     * channel writer under a lock.
+     */
+    private static final class RecordWriter implements AutoCloseable {
+        private final Writer out;
+        private final Format format;
+        private final List<String> columns;
+        private final Set<String> columnSet;
+        private final AtomicLong written = new AtomicLong();
+        private final AtomicLong droppedBins = new AtomicLong();
+        private boolean first = true;
+
+        RecordWriter(Path file, Format format, boolean gzip, List<String> columns) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            OutputStream stream = Channels.newOutputStream(channel);
+            if (gzip) {
+                stream = new GZIPOutputStream(stream, 1 << 16);
+            }
+            this.out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 1 << 16);
+            this.format = format;
+            this.columns = columns;
+            this.columnSet = new HashSet<>(columns);
+            if (format == Format.CSV) {
+                StringBuilder header = new StringBuilder();
+                CsvSupport.appendRow(header, columns);
+                out.write(header.toString());
+            } else {
+                out.write("[\n");
+            }
+        }
+
+        long write(Key key, Record record) {
+            String line = format == Format.CSV ? toCsv(key, record) : toJson(key, record);
+            try {
+                synchronized (this) {
+                    if (format == Format.JSON && !first) {
+                        out.write(",\n");
+                    }
+                    first = false;
+                    out.write(line);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return written.incrementAndGet();
+        }
+
+        private String toCsv(Key key, Record record) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                String column = columns.get(i);
+                Object value = valueOf(column, key, record);
+                if (i > 0) {
+                    line.append(',');
+                }
+                // A quoted key is a string key, so "42" doesn't read back as the integer 42
+                boolean stringKey = column.equals(ResultSchema.KEY) && value instanceof String;
+                line.append(stringKey ? CsvSupport.quote((String) value) : CsvSupport.escape(value));
+            }
+            line.append('\n');
+            if (record != null && record.bins != null) {
+                for (String bin : record.bins.keySet()) {
+                    if (!columnSet.contains(bin)) {
+                        droppedBins.incrementAndGet();
+                    }
+                }
+            }
+            return line.toString();
+        }
+
+        private String toJson(Key key, Record record) {
+            StringBuilder json = new StringBuilder("  {");
+            boolean firstField = true;
+            for (String column : columns) {
+                Object value = valueOf(column, key, record);
+                if (value == null) {
+                    continue;
+                }
+                firstField = appendField(json, column, value, firstField);
+            }
+            if (record != null && record.bins != null) {
+                for (Map.Entry<String, Object> bin : record.bins.entrySet()) {
+                    if (!columnSet.contains(bin.getKey())) {
+                        firstField = appendField(json, bin.getKey(), bin.getValue(), firstField);
+                    }
+                }
+            }
+            return json.append('}').toString();
+        }
+
+        private static boolean appendField(StringBuilder json, String name, Object value, boolean firstField) {
+            if (!firstField) {
+                json.append(',');
+            }
+            json.append(JSONObject.quote(name)).append(':').append(JSONObject.valueToString(value));
+            return false;
+        }
+
+        private static Object valueOf(String column, Key key, Record record) {
+            switch (column) {
+                case ResultSchema.KEY:
+                    return key.userKey != null ? key.userKey.getObject() : null; // Keeps integer keys numbers
+                case ResultSchema.NAMESPACE:
+                    return key.namespace;
+                case ResultSchema.SET:
+                    return key.setName;
+                case ResultSchema.GENERATION:
+                    return record != null ? record.generation : null;
+                case ResultSchema.TTL:
+                    return record != null ? record.getTimeToLive() : null;
+                default:
+                    return record != null && record.bins != null ? record.bins.get(column) : null;
+            }
+        }
+
+        void finish() throws IOException {
+            synchronized (this) {
+                if (format == Format.JSON) {
+                    out.write("\n]\n");
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
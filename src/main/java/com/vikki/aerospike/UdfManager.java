@@ -0,0 +1,191 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Info;
+import com.aerospike.client.Language;
+import com.aerospike.client.cluster.Node;
+import com.aerospike.client.lua.LuaCache;
+import com.aerospike.client.lua.LuaConfig;
+import com.aerospike.client.task.RegisterTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Lua UDF modules for server-side stream aggregation. A stream UDF runs on every node and
+ * is finished by a final reduce in the client, so each module registered on the server is
+ * also kept in a local directory that the client's Lua engine reads from
+ * ({@link ExplorerSettings#UDF_MODULE_DIR}). Modules registered by other tools are fetched
+ * with the {@code udf-get} info command whenever the local copy is missing or its hash
+ * differs from the one {@code udf-list} reports.
+ * <p>
+ * The built-in {@value #BUILTIN_MODULE} module (count, sum, histogram) is registered on
+ * first use, and again only when its content differs from what the server holds.
+ */
+public class UdfManager {
+
+    public static final String BUILTIN_MODULE = "explorer_aggregates";
+    private static final String BUILTIN_RESOURCE = "/" + BUILTIN_MODULE + ".lua";
+
+    private final AerospikeClient client;
+    private final Path moduleDirectory;
+
+    public UdfManager(AerospikeClient client) {
+        this(client, Paths.get(ExplorerSettings.UDF_MODULE_DIR));
+    }
+
+    public UdfManager(AerospikeClient client, Path moduleDirectory) {
+        this.client = client;
+        this.moduleDirectory = moduleDirectory;
+        LuaConfig.packagePath = moduleDirectory.toString() + File.separator;
+    }
+
+    public Path getModuleDirectory() {
+        return moduleDirectory;
+    }
+
+    /**
+     * Registers the Lua file on the cluster and keeps a local copy for the final reduce.
+     *
+     * @return the module name, i.e. the file name without {@code .lua}
+     */
+    public synchronized String register(Path file) throws IOException {
+        String fileName = file.getFileName().toString();
+        if (!fileName.endsWith(".lua")) {
+            throw new IOException("UDF modules must be .lua files: " + fileName);
+        }
+        String module = fileName.substring(0, fileName.length() - 4);
+        install(module, Files.readString(file, StandardCharsets.UTF_8));
+        return module;
+    }
+
+    /**
+     * Makes sure {@code module} is on the server and in the local module directory, so a
+     * statement using it can run. The server's hash is checked on every call, so a module
+     * registered again by another tool replaces the local copy.
+     *
+     * @throws AerospikeException if the module is unknown to the cluster or cannot be stored
+     */
+    public synchronized void ensureAvailable(String module) {
+        try {
+            String serverHash = serverHash(module);
+            if (module.equals(BUILTIN_MODULE)) {
+                String code = builtinCode();
+                if (!sha1(code).equalsIgnoreCase(serverHash)) {
+                    install(module, code);
+                } else if (!serverHash.equalsIgnoreCase(localHash(module))) {
+                    updateLocal(module, code);
+                }
+            } else if (serverHash == null) {
+                throw new IOException("UDF module " + module + " is not registered on the cluster");
+            } else if (!serverHash.equalsIgnoreCase(localHash(module))) {
+                updateLocal(module, fetch(module));
+            }
+        } catch (IOException e) {
+            throw new AerospikeException(e.getMessage(), e);
+        }
+    }
+
+    private void install(String module, String code) throws IOException {
+        RegisterTask task = client.registerUdfString(null, code, module + ".lua", Language.LUA);
+        task.waitTillComplete();
+        updateLocal(module, code);
+    }
+
+    private void updateLocal(String module, String code) throws IOException {
+        writeLocal(module, code);
+        LuaCache.clearPackage(module); // Drop the previously loaded version
+    }
+
+    private void writeLocal(String module, String code) throws IOException {
+        Files.createDirectories(moduleDirectory);
+        Files.writeString(localFile(module), code, StandardCharsets.UTF_8);
+    }
+
+    private Path localFile(String module) {
+        return moduleDirectory.resolve(module + ".lua");
+    }
+
+    // Hash of the local copy, or null if there is none
+    private String localHash(String module) throws IOException {
+        Path file = localFile(module);
+        return Files.exists(file) ? sha1(Files.readString(file, StandardCharsets.UTF_8)) : null;
+    }
+
+    private String builtinCode() throws IOException {
+        try (InputStream in = UdfManager.class.getResourceAsStream(BUILTIN_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + BUILTIN_RESOURCE);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // Hash of the module as listed by udf-list, or null if it is not registered
+    private String serverHash(String module) {
+        String response = Info.request(null, anyNode(), "udf-list");
+        if (response == null) {
+            return null;
+        }
+        for (String item : response.split(";")) {
+            String fileName = null;
+            String hash = null;
+            for (String field : item.split(",")) {
+                int eq = field.indexOf('=');
+                if (eq < 0) {
+                    continue;
+                }
+                String key = field.substring(0, eq).trim();
+                if (key.equals("filename")) {
+                    fileName = field.substring(eq + 1);
+                } else if (key.equals("hash")) {
+                    hash = field.substring(eq + 1);
+                }
+            }
+            if ((module + ".lua").equals(fileName)) {
+                return hash;
+            }
+        }
+        return null;
+    }
+
+    private String fetch(String module) throws IOException {
+        String response = Info.request(null, anyNode(), "udf-get:filename=" + module + ".lua");
+        if (response != null) {
+            for (String field : response.split(";")) {
+                if (field.startsWith("content=")) {
+                    byte[] code = Base64.getMimeDecoder().decode(field.substring("content=".length()));
+                    return new String(code, StandardCharsets.UTF_8);
+                }
+            }
+        }
+        throw new IOException("UDF module " + module + " is not registered on the cluster");
+    }
+
+    private Node anyNode() {
+        Node[] nodes = client.getNodes();
+        if (nodes.length == 0) {
+            throw new AerospikeException("No cluster nodes available");
+        }
+        return nodes[0];
+    }
+
+    private static String sha1(String code) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            return HexFormat.of().formatHex(digest.digest(code.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
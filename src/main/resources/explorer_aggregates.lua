@@ -0,0 +1,44 @@
+-- Stream aggregations shipped with Aerospike Explorer, e.g.
+--   AGGREGATE explorer_aggregates.count() ON test.users
+--   AGGREGATE explorer_aggregates.sum('age') ON test.users WHERE city = 'Paris'
+--   AGGREGATE explorer_aggregates.histogram('age', 10) ON test.users
+
+local function add(a, b)
+    return a + b
+end
+
+function count(stream)
+    local function one(rec)
+        return 1
+    end
+    return stream : map(one) : reduce(add)
+end
+
+function sum(stream, bin)
+    local function value(rec)
+        local v = rec[bin]
+        if type(v) == 'number' then
+            return v
+        end
+        return 0
+    end
+    return stream : map(value) : reduce(add)
+end
+
+-- Counts records per value of a bin; with a width, numbers are counted per bucket of that width
+function histogram(stream, bin, width)
+    local function accumulate(counts, rec)
+        local v = rec[bin]
+        if v ~= nil then
+            if width ~= nil and type(v) == 'number' then
+                v = math.floor(v / width) * width
+            end
+            counts[v] = (counts[v] or 0) + 1
+        end
+        return counts
+    end
+    local function merge(a, b)
+        return map.merge(a, b, add)
+    end
+    return stream : aggregate(map(), accumulate) : reduce(merge)
+end
@@ -0,0 +1,119 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.QueryPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs GROUP BY and global aggregates over the partitions of a {@link StandInAerospikeServer}
+ * and compares them with sums worked out here.
+ */
+class AggregationEngineTest {
+
+    private static final String[] CITIES = {"Lima", "Osaka", "Quito"};
+    private static final int PEOPLE = 300;
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        for (long id = 0; id < PEOPLE; id++) {
+            server.put(new Key("test", "people", id), Map.of("age", id, "city", CITIES[(int) (id % 3)], "name", "p" + id));
+        }
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    private static List<Map<String, Object>> run(String aql) {
+        AqlPlan plan = AqlPlan.compile(aql);
+        QueryPlanner.Result planned = plan.resolve(new SindexCatalog(client));
+        QueryPolicy policy = new QueryPolicy();
+        policy.filterExp = planned.expression;
+        List<Map<String, Object>> rows = Collections.synchronizedList(new ArrayList<>());
+        new AggregationEngine(client, plan).run(policy, () -> plan.newStatement(planned.filter), rows::addAll);
+        return rows;
+    }
+
+    @Test
+    void groupsAreMergedAcrossPartitionRanges() {
+        Map<Object, Map<String, Object>> byCity = new TreeMap<>();
+        for (Map<String, Object> row : run("SELECT city, COUNT(*), SUM(age), MIN(age), MAX(name) FROM test.people GROUP BY city")) {
+            byCity.put(row.get("city"), row);
+        }
+        assertEquals(List.of(CITIES), new ArrayList<>(byCity.keySet()));
+        for (int c = 0; c < CITIES.length; c++) {
+            Map<String, Object> row = byCity.get(CITIES[c]);
+            long sum = 0;
+            for (long id = c; id < PEOPLE; id += 3) {
+                sum += id;
+            }
+            assertEquals((long) PEOPLE / 3, row.get("COUNT(*)"));
+            assertEquals(sum, row.get("SUM(age)"));
+            assertEquals((long) c, row.get("MIN(age)"));
+            assertEquals(maxName(c), row.get("MAX(name)"));
+        }
+    }
+
+    // Largest name of a city in string order, e.g. "p99" > "p297"
+    private static String maxName(int city) {
+        String max = null;
+        for (long id = city; id < PEOPLE; id += 3) {
+            String name = "p" + id;
+            if (max == null || name.compareTo(max) > 0) {
+                max = name;
+            }
+        }
+        return max;
+    }
+
+    @Test
+    void globalAggregateHonoursTheWhereClause() {
+        List<Map<String, Object>> rows = run("SELECT COUNT(*), AVG(age) FROM test.people WHERE age >= 100 AND city = 'Lima'");
+        assertEquals(1, rows.size());
+        long count = 0;
+        long sum = 0;
+        for (long id = 102; id < PEOPLE; id += 3) {
+            count++;
+            sum += id;
+        }
+        assertEquals(count, rows.get(0).get("COUNT(*)"));
+        assertEquals((double) sum / count, rows.get(0).get("AVG(age)"));
+    }
+
+    @Test
+    void recordsReadByKeyAreAggregatedToo() {
+        AqlPlan plan = AqlPlan.compile("SELECT city, COUNT(*) FROM test.people GROUP BY city");
+        Key[] keys = {new Key("test", "people", 0L), new Key("test", "people", 3L), new Key("test", "people", 4L),
+                new Key("test", "people", 10_000L)};
+        Record[] records = client.get(null, keys); // The last one doesn't exist
+        List<Map<String, Object>> rows = Collections.synchronizedList(new ArrayList<>());
+        new AggregationEngine(client, plan).aggregate(records, rows::addAll);
+
+        Map<Object, Object> counts = new TreeMap<>();
+        for (Map<String, Object> row : rows) {
+            counts.put(row.get("city"), row.get("COUNT(*)"));
+        }
+        assertEquals(Map.of("Lima", 2L, "Osaka", 1L), counts);
+    }
+}
@@ -0,0 +1,99 @@
+package com.vikki.aerospike;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AqlParserTest {
+
+    @Test
+    void selectWithBinsWhereAndLimit() {
+        AqlAst.Select select = (AqlAst.Select) AqlParser.parse(
+                "SELECT name, age FROM test.users WHERE age >= 30 AND city = 'Lima' LIMIT 10 OFFSET 5;");
+        assertEquals(List.of("name", "age"), select.bins());
+        assertEquals("test", select.target().namespace());
+        assertEquals("users", select.target().set());
+        assertEquals(10, select.limit());
+        assertEquals(5, select.offset());
+        AqlAst.And and = assertInstanceOf(AqlAst.And.class, select.where());
+        AqlAst.Comparison age = assertInstanceOf(AqlAst.Comparison.class, and.left());
+        assertEquals(AqlAst.Operator.GE, age.operator());
+        assertEquals(30L, age.value());
+        assertEquals("Lima", ((AqlAst.Comparison) and.right()).value());
+    }
+
+    @Test
+    void selectStarFromNamespaceOnly() {
+        AqlAst.Select select = (AqlAst.Select) AqlParser.parse("select * from test");
+        assertNull(select.bins());
+        assertNull(select.target().set());
+        assertNull(select.where());
+        assertEquals(-1, select.limit());
+    }
+
+    @Test
+    void andBindsTighterThanOr() {
+        AqlAst.Or or = assertInstanceOf(AqlAst.Or.class, AqlParser.parsePredicate("a = 1 OR b = 2 AND NOT c = 3"));
+        AqlAst.And and = assertInstanceOf(AqlAst.And.class, or.right());
+        assertInstanceOf(AqlAst.Not.class, and.right());
+    }
+
+    @Test
+    void betweenInLikeAndContains() {
+        AqlAst.Between between = assertInstanceOf(AqlAst.Between.class, AqlParser.parsePredicate("age BETWEEN 18 AND 65"));
+        assertEquals(18L, between.low());
+        assertEquals(65L, between.high());
+        AqlAst.In in = assertInstanceOf(AqlAst.In.class, AqlParser.parsePredicate("city IN ('Lima', 'Osaka')"));
+        assertEquals(List.of("Lima", "Osaka"), in.values());
+        assertEquals("us%", assertInstanceOf(AqlAst.Like.class, AqlParser.parsePredicate("name LIKE 'us%'")).pattern());
+        assertEquals("tag1", assertInstanceOf(AqlAst.Contains.class, AqlParser.parsePredicate("tags CONTAINS 'tag1'")).value());
+    }
+
+    @Test
+    void aggregatesAndGroupBy() {
+        AqlAst.Select select = (AqlAst.Select) AqlParser.parse("SELECT city, COUNT(*), AVG(age) FROM test.users GROUP BY city");
+        assertEquals(List.of("city"), select.groupBy());
+        assertEquals(2, select.aggregates().size());
+        assertEquals("COUNT(*)", select.aggregates().get(0).label());
+        assertEquals("AVG(age)", select.aggregates().get(1).label());
+    }
+
+    @Test
+    void setNameStartingWithDigits() {
+        AqlAst.Select select = (AqlAst.Select) AqlParser.parse("SELECT * FROM test.2024orders");
+        assertEquals("2024orders", select.target().set());
+        select = (AqlAst.Select) AqlParser.parse("SELECT * FROM `test`.2024 WHERE a = -3");
+        assertEquals("2024", select.target().set());
+        assertEquals(-3L, ((AqlAst.Comparison) select.where()).value());
+    }
+
+    @Test
+    void decimalsStillLexAsNumbers() {
+        AqlAst.And and = (AqlAst.And) AqlParser.parsePredicate("x = .5 AND y = 1.5e3");
+        assertEquals(0.5, ((AqlAst.Comparison) and.left()).value());
+        assertEquals(1500.0, ((AqlAst.Comparison) and.right()).value());
+    }
+
+    @Test
+    void onlyQuoteAndBackslashAreEscaped() {
+        AqlAst.RegisterModule register = (AqlAst.RegisterModule) AqlParser.parse("REGISTER MODULE 'C:\\Users\\me\\m.lua'");
+        assertEquals("C:\\Users\\me\\m.lua", register.path());
+        AqlAst.And and = (AqlAst.And) AqlParser.parsePredicate("name = 'it\\'s' AND path = 'a\\\\b'");
+        assertEquals("it's", ((AqlAst.Comparison) and.left()).value());
+        assertEquals("a\\b", ((AqlAst.Comparison) and.right()).value());
+    }
+
+    @Test
+    void errorsCarryTheirPosition() {
+        AqlSyntaxException error = assertThrows(AqlSyntaxException.class,
+                () -> AqlParser.parse("SELECT * FROM test.users\nWHERE age >"));
+        assertEquals(2, error.getLine());
+        assertThrows(AqlSyntaxException.class, () -> AqlParser.parse("SELECT * FROM test.users LIMIT"));
+        assertThrows(AqlSyntaxException.class, () -> AqlParser.parse("DROP TABLE users"));
+    }
+}
@@ -0,0 +1,97 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AqlPlanCacheTest {
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        server.put(new Key("test", "users", "user-1"), Map.of("name", "Ada", "age", 36L));
+        server.put(new Key("test", "users", 7L), Map.of("name", "Grace", "age", 85L));
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    @Test
+    void repeatedTextIsServedFromTheCache() {
+        AqlPlanCache cache = new AqlPlanCache(4);
+        AqlPlan plan = cache.get("SELECT * FROM test.users WHERE age > 30");
+        assertSame(plan, cache.get("  SELECT * FROM test.users WHERE age > 30\n"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        cache.clear();
+        assertNotSame(plan, cache.get("SELECT * FROM test.users WHERE age > 30"));
+    }
+
+    @Test
+    void leastRecentlyUsedPlanIsEvicted() {
+        AqlPlanCache cache = new AqlPlanCache(2);
+        AqlPlan first = cache.get("SELECT * FROM test.a");
+        cache.get("SELECT * FROM test.b");
+        cache.get("SELECT * FROM test.a");
+        cache.get("SELECT * FROM test.c"); // Evicts test.b
+        assertSame(first, cache.get("SELECT * FROM test.a"));
+        long misses = cache.getMisses();
+        cache.get("SELECT * FROM test.b");
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    void invalidStatementsAreNotCached() {
+        AqlPlanCache cache = new AqlPlanCache(4);
+        assertThrows(AqlSyntaxException.class, () -> cache.get("SELECT * FROM"));
+        assertThrows(AqlSyntaxException.class, () -> cache.get("SELECT * FROM"));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    void normalizedTextIgnoresCommentsAndSpacing() {
+        AqlPlan plan = new AqlPlanCache(4).get("SELECT *   FROM test.users -- all of them\n;");
+        assertEquals("SELECT * FROM test . users", plan.getNormalizedText());
+    }
+
+    @Test
+    void keyLookupReadsTypedKeys() {
+        AqlPlan plan = new AqlPlanCache(4).get("SELECT * FROM test.users WHERE PK IN ('user-1', 7, 'missing') AND age > 50");
+        assertTrue(plan.isKeyLookup());
+        Key[] keys = plan.getPrimaryKeys();
+        assertArrayEquals(new Key("test", "users", 7L).digest, keys[1].digest);
+
+        BatchPolicy policy = new BatchPolicy();
+        policy.filterExp = plan.getKeyFilter();
+        Record[] records = client.get(policy, keys);
+        assertNull(records[0]); // Filtered out by age
+        assertNotNull(records[1]);
+        assertEquals("Grace", records[1].getString("name"));
+        assertNull(records[2]);
+    }
+}
@@ -0,0 +1,121 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.exp.Expression;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.query.Statement;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Deletes the records of one status from a {@link StandInAerospikeServer} through each of
+ * the engine's paths and checks that every other record is still there.
+ */
+class BulkDeleteEngineTest {
+
+    private static final int ORDERS = 103; // Not a multiple of the batch size
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+
+    private static final Expression CLOSED = Exp.build(Exp.eq(Exp.stringBin("status"), Exp.val("closed")));
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    @BeforeEach
+    void putOrders() {
+        for (long id = 0; id < ORDERS; id++) {
+            server.put(key("orders", id), Map.of("id", id, "status", status(id)));
+            server.put(key("archive", id), Map.of("id", id, "status", status(id))); // Same bins, other set
+        }
+    }
+
+    private static Key key(String set, long id) {
+        return new Key("test", set, id);
+    }
+
+    private static String status(long id) {
+        return id % 3 == 0 ? "closed" : "open";
+    }
+
+    private static Statement orders() {
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName("orders");
+        return statement;
+    }
+
+    private static long closedOrders() {
+        return (ORDERS + 2) / 3;
+    }
+
+    private static void assertOnlyClosedOrdersDeleted() {
+        for (long id = 0; id < ORDERS; id++) {
+            if (status(id).equals("closed")) {
+                assertNull(client.get(null, key("orders", id)), "order " + id);
+            } else {
+                assertNotNull(client.get(null, key("orders", id)), "order " + id);
+            }
+            assertNotNull(client.get(null, key("archive", id)), "archived order " + id);
+        }
+    }
+
+    @Test
+    void deleteMatchingRemovesOnlyTheMatchedRecords() {
+        List<Long> progress = new ArrayList<>();
+        BulkDeleteEngine.Result result = new BulkDeleteEngine(client, 10, 2)
+                .deleteMatching(orders(), CLOSED, (deleted, failed, perSecond) -> {
+                    synchronized (progress) {
+                        progress.add(deleted);
+                    }
+                });
+        assertEquals(closedOrders(), result.getDeleted());
+        assertEquals(0, result.getFailed());
+        assertEquals(4, progress.size()); // 35 keys in batches of 10
+        assertOnlyClosedOrdersDeleted();
+    }
+
+    @Test
+    void deleteKeysSkipsRecordsTheFilterRejectsOrThatAreGone() {
+        Key[] keys = new Key[ORDERS + 1];
+        for (int id = 0; id < ORDERS; id++) {
+            keys[id] = key("orders", id);
+        }
+        keys[ORDERS] = key("orders", 10_000); // Never existed
+        BulkDeleteEngine.Result result = new BulkDeleteEngine(client, 16, 3).deleteKeys(keys, CLOSED, null);
+        assertEquals(closedOrders(), result.getDeleted());
+        assertEquals(0, result.getFailed());
+        assertOnlyClosedOrdersDeleted();
+    }
+
+    @Test
+    void deleteInBackgroundRemovesOnlyTheMatchedRecords() {
+        BulkDeleteEngine.Result result = new BulkDeleteEngine(client).deleteInBackground(orders(), CLOSED, status -> {
+        });
+        assertEquals(-1, result.getDeleted()); // The server doesn't report a count
+        assertOnlyClosedOrdersDeleted();
+    }
+}
@@ -0,0 +1,93 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Bin;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.NioEventLoops;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads rows into a {@link StandInAerospikeServer} through the async client and checks the
+ * written records and the limit on batches in flight.
+ */
+class BulkLoaderTest {
+
+    private static StandInAerospikeServer server;
+    private static EventLoops eventLoops;
+    private static AerospikeClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        eventLoops = new NioEventLoops(2);
+        ClientPolicy policy = new ClientPolicy();
+        policy.eventLoops = eventLoops;
+        client = new AerospikeClient(policy, StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        eventLoops.close();
+        server.close();
+    }
+
+    @AfterEach
+    void removeLatency() {
+        server.setLatency(0, 0);
+    }
+
+    private static Iterator<AqlPlan.Write> rows(int count) {
+        List<AqlPlan.Write> rows = new ArrayList<>(count);
+        for (long id = 0; id < count; id++) {
+            rows.add(new AqlPlan.Write(id, new Bin[]{new Bin("id", id), new Bin("name", "user " + id)}));
+        }
+        return rows.iterator();
+    }
+
+    @Test
+    void everyRowIsWrittenUnderItsKey() {
+        BulkLoader.Result result = new BulkLoader(client, eventLoops, 7, 4, 2).load("test", "users", rows(100), null);
+        assertEquals(100, result.getWritten());
+        assertEquals(0, result.getRejected());
+        for (long id = 0; id < 100; id += 9) {
+            Record record = client.get(null, new Key("test", "users", id));
+            assertNotNull(record, "user " + id);
+            assertEquals("user " + id, record.getString("name"));
+        }
+    }
+
+    @Test
+    void rowsWithoutAKeyGetAGeneratedOne() {
+        long before = server.size("test");
+        Iterator<AqlPlan.Write> rows = List.of(new AqlPlan.Write(null, new Bin[]{new Bin("name", "anonymous")})).iterator();
+        BulkLoader.Result result = new BulkLoader(client, eventLoops).load("test", "guests", rows, null);
+        assertEquals(1, result.getWritten());
+        assertEquals(before + 1, server.size("test"));
+    }
+
+    @Test
+    void noMoreBatchesThanAllowedAreInFlight() {
+        server.setLatency(20_000, 0); // Each batch takes 20 ms, so a loader that didn't wait would overlap many
+        BulkLoader.Result result = new BulkLoader(client, eventLoops, 10, 3, 0).load("test", "throttled", rows(300), null);
+        assertEquals(300, result.getWritten());
+        int peak = server.getPeakConcurrentCommands();
+        assertTrue(peak <= 3, "peak of " + peak + " batches in flight");
+        assertEquals(3, peak);
+    }
+}
@@ -0,0 +1,107 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarPageTest {
+
+    private final ResultSchema schema = new ResultSchema();
+
+    private static Record record(int generation, Object... bins) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < bins.length; i += 2) {
+            map.put((String) bins[i], bins[i + 1]);
+        }
+        return new Record(map, generation, 0);
+    }
+
+    private Object value(ColumnarPage page, int row, String column) {
+        return page.getValue(row, schema.find(column));
+    }
+
+    private ColumnarPage roundTrip(ColumnarPage page) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            page.write(out);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            return ColumnarPage.read(in, schema, 8);
+        }
+    }
+
+    @Test
+    void valuesAndDigestsSurviveASpillRoundTrip() throws IOException {
+        Key stringKey = new Key("test", "users", "user-1");
+        Key longKey = new Key("test", "users", 42L);
+        Key blobKey = new Key("test", "users", new byte[]{1, 2, 3});
+        ColumnarPage page = new ColumnarPage(schema, 8);
+        page.appendRecord(stringKey, record(3, "age", 36L, "score", 91.5, "name", "Ada", "tags", List.of("a", "b")));
+        page.appendRecord(longKey, record(1, "age", 41L, "name", "Alan"));
+        page.appendRecord(blobKey, record(7, "score", 12.0));
+        page.appendRow(Map.of("COUNT(*)", 3L));
+
+        ColumnarPage copy = roundTrip(page);
+        assertEquals(4, copy.size());
+        assertEquals(36L, value(copy, 0, "age"));
+        assertEquals(91.5, value(copy, 0, "score"));
+        assertEquals("Ada", value(copy, 0, "name"));
+        assertEquals(List.of("a", "b"), value(copy, 0, "tags"));
+        assertEquals(3, value(copy, 0, ResultSchema.GENERATION));
+        assertEquals("42", value(copy, 1, ResultSchema.KEY));
+        assertNull(value(copy, 1, "score"));
+        assertFalse(copy.has(2, schema.find("age")));
+        assertEquals(3L, value(copy, 3, "COUNT(*)"));
+
+        assertArrayEquals(stringKey.digest, copy.digest(0));
+        assertArrayEquals(longKey.digest, copy.digest(1));
+        assertArrayEquals(blobKey.digest, copy.digest(2));
+        assertNull(copy.digest(3)); // Aggregate rows are not records
+    }
+
+    @Test
+    void columnFallsBackToObjectsOnMixedTypes() throws IOException {
+        ColumnarPage page = new ColumnarPage(schema, 8);
+        page.appendRecord(new Key("test", "s", 1L), record(1, "value", 10L));
+        page.appendRecord(new Key("test", "s", 2L), record(1, "value", "ten"));
+        page.appendRecord(new Key("test", "s", 3L), record(1, "value", 10.5));
+        assertNull(page.longColumn(schema.find("value")));
+
+        ColumnarPage copy = roundTrip(page);
+        assertEquals(10L, value(copy, 0, "value"));
+        assertEquals("ten", value(copy, 1, "value"));
+        assertEquals(10.5, value(copy, 2, "value"));
+    }
+
+    @Test
+    void replacingARecordDropsItsOldBinsAndKeepsTheDigest() throws IOException {
+        Key key = new Key("test", "users", 7L);
+        ColumnarPage page = new ColumnarPage(schema, 8);
+        page.appendRecord(key, record(1, "name", "Grace", "rank", "captain"));
+        page.replaceRecord(0, key, record(2, "name", "Grace", "rank", null, "age", 85L));
+        assertTrue(page.searchText(0).contains("grace"));
+
+        ColumnarPage copy = roundTrip(page);
+        assertEquals(2, value(copy, 0, ResultSchema.GENERATION));
+        assertNull(value(copy, 0, "rank"));
+        assertEquals(85L, value(copy, 0, "age"));
+        assertNotNull(copy.digest(0));
+        assertArrayEquals(key.digest, copy.digest(0));
+    }
+}
@@ -0,0 +1,147 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.BatchRecord;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.policy.BatchPolicy;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Stages edits over rows read from a {@link StandInAerospikeServer} and commits them the way
+ * the browse table does, including records that changed after they were read.
+ */
+class EditBufferTest {
+
+    private static final Key ADA = new Key("test", "users", "ada");
+    private static final Key GRACE = new Key("test", "users", 7L); // Integer user key
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+
+    private PagedResultStore store;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    @BeforeEach
+    void readRows() {
+        server.put(ADA, Map.of("name", "Ada", "age", 36L, "score", 91.5));
+        server.put(GRACE, Map.of("name", "Grace", "age", 85L, "score", 88.25));
+        store = new PagedResultStore();
+        Key[] keys = {ADA, GRACE};
+        Record[] records = client.get(null, keys);
+        for (int i = 0; i < keys.length; i++) {
+            store.appendRecord(keys[i], records[i]);
+        }
+    }
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+        client.delete(null, ADA); // The next test reads them again at generation 1
+        client.delete(null, GRACE);
+    }
+
+    private static List<EditBuffer.RowResult> commit(EditBuffer buffer) {
+        List<EditBuffer.RowEdit> edits = buffer.drain();
+        List<BatchRecord> batch = EditBuffer.toBatch(edits);
+        client.operate(BatchPolicy.WriteDefault(), batch);
+        List<EditBuffer.RowResult> results = new ArrayList<>();
+        for (int i = 0; i < edits.size(); i++) {
+            results.add(new EditBuffer.RowResult(edits.get(i), batch.get(i)));
+        }
+        return results;
+    }
+
+    @Test
+    void stagedTextTakesTheTypeOfTheShownValue() {
+        EditBuffer buffer = new EditBuffer();
+        assertEquals(40L, buffer.stage(store.get(0), "age", " 40 "));
+        assertEquals(92.0, buffer.stage(store.get(0), "score", "92"));
+        assertEquals("forty", buffer.stage(store.get(1), "age", "forty"));
+        assertEquals("Countess", buffer.stage(store.get(0), "title", "Countess"));
+        assertEquals(2, buffer.getRowCount());
+        assertEquals(4, buffer.getCellCount());
+        assertEquals(40L, buffer.stagedValue(store.get(0), "age"));
+        assertNull(buffer.stagedValue(store.get(0), "name"));
+
+        buffer.discard(1);
+        assertEquals(1, buffer.getRowCount());
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void commitWritesTheRecordOfEachRow() {
+        EditBuffer buffer = new EditBuffer();
+        buffer.stage(store.get(0), "age", "37");
+        buffer.stage(store.get(1), "age", "86");
+        buffer.stage(store.get(1), "name", "Grace Hopper");
+
+        List<EditBuffer.RowResult> results = commit(buffer);
+        assertTrue(buffer.isEmpty());
+        for (EditBuffer.RowResult result : results) {
+            assertTrue(result.isWritten(), result.describe());
+            assertEquals(2, result.record.record.generation);
+        }
+        assertEquals(37L, client.get(null, ADA).getLong("age"));
+        Record grace = client.get(null, GRACE);
+        assertEquals(86L, grace.getLong("age"));
+        assertEquals("Grace Hopper", grace.getString("name"));
+        assertEquals("7: wrote age, name", results.get(1).describe());
+    }
+
+    @Test
+    void recordsChangedSinceTheyWereReadAreNotOverwritten() {
+        server.put(GRACE, Map.of("name", "Grace", "age", 90L, "score", 88.25)); // Generation 2 on the server
+        EditBuffer buffer = new EditBuffer();
+        buffer.stage(store.get(0), "age", "37");
+        buffer.stage(store.get(1), "age", "86");
+
+        List<EditBuffer.RowResult> results = commit(buffer);
+        assertTrue(results.get(0).isWritten());
+        EditBuffer.RowResult stale = results.get(1);
+        assertFalse(stale.isWritten());
+        assertTrue(stale.isConflict());
+        assertTrue(stale.describe().startsWith("7: not written, the record changed since generation 1"), stale.describe());
+        assertEquals(90L, client.get(null, GRACE).getLong("age"));
+
+        // A failed row goes back to the buffer; edits staged meanwhile win
+        buffer.stage(store.get(1), "age", "91");
+        buffer.restore(stale.edit);
+        assertEquals(91L, buffer.stagedValue(store.get(1), "age"));
+        assertEquals(1, buffer.getRowCount());
+    }
+
+    @Test
+    void rowsWithoutARecordCannotBeEdited() {
+        store.appendAll(List.of(Map.of("city", "Lima", "COUNT(*)", 3L)));
+        assertThrows(IllegalArgumentException.class, () -> new EditBuffer().stage(store.get(2), "COUNT(*)", "4"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.NioEventLoops;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs short load tests against a {@link StandInAerospikeServer} through the async client.
+ */
+class LoadTestEngineTest {
+
+    private static StandInAerospikeServer server;
+    private static EventLoops eventLoops;
+    private static AerospikeClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        eventLoops = new NioEventLoops(1);
+        ClientPolicy policy = new ClientPolicy();
+        policy.eventLoops = eventLoops;
+        client = new AerospikeClient(policy, StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        eventLoops.close();
+        server.close();
+    }
+
+    private static LoadTestEngine engine() {
+        return new LoadTestEngine(new AsyncAerospike(client, eventLoops), 8);
+    }
+
+    @Test
+    void runKeepsToTheRateForItsDuration() {
+        AqlPlan plan = AqlPlan.compile("LOADTEST test.bench (name STRING, age INT(1, 99)) RECORDS 100"
+                + " MIX READ 1, WRITE 1 RATE 200 DURATION 1");
+        LoadTestEngine.Report report = engine().run(plan, new SindexCatalog(client), null);
+        assertEquals(0, report.getErrors(), String.valueOf(report.getLastError()));
+        assertEquals(200, report.getTargetRate());
+        // One second at 200 per second, give or take the ramp at either end
+        assertTrue(report.getOperations() >= 150 && report.getOperations() <= 210, report.getOperations() + " operations");
+        assertTrue(server.size("test") > 0); // The writes landed
+        assertEquals(2, report.toRows().size());
+    }
+
+    @Test
+    void interruptedRunStillReturnsItsReport() throws InterruptedException {
+        AqlPlan plan = AqlPlan.compile("LOADTEST test.bench (name STRING) RECORDS 100 RATE 500 DURATION 60");
+        AtomicReference<LoadTestEngine.Report> report = new AtomicReference<>();
+        AtomicBoolean stillInterrupted = new AtomicBoolean();
+        Thread runner = new Thread(() -> {
+            report.set(engine().run(plan, new SindexCatalog(client), null));
+            stillInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        runner.start();
+        Thread.sleep(300);
+        runner.interrupt();
+        runner.join(10_000);
+
+        assertFalse(runner.isAlive());
+        assertNotNull(report.get());
+        assertTrue(report.get().getOperations() > 0);
+        assertTrue(report.get().getElapsedMs() < 10_000);
+        assertTrue(stillInterrupted.get());
+    }
+}
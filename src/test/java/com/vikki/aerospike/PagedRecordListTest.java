@@ -0,0 +1,89 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.query.KeyRecord;
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PagedRecordListTest {
+
+    private final PagedResultStore store = new PagedResultStore(4, Long.MAX_VALUE);
+    private final PagedRecordList list = new PagedRecordList(store);
+    private final List<int[]> added = new ArrayList<>(); // {from, to} of every add change
+
+    @AfterEach
+    void closeStore() {
+        store.close();
+    }
+
+    private static List<KeyRecord> chunk(int first, int count) {
+        List<KeyRecord> records = new ArrayList<>();
+        for (int id = first; id < first + count; id++) {
+            records.add(new KeyRecord(new Key("test", "users", (long) id),
+                    new Record(Map.of("id", (long) id, "city", id % 2 == 0 ? "Lima" : "Osaka"), 1, 0)));
+        }
+        return records;
+    }
+
+    private void listen() {
+        list.addListener((ListChangeListener<Map<String, Object>>) change -> {
+            while (change.next()) {
+                if (change.wasAdded()) {
+                    added.add(new int[]{change.getFrom(), change.getTo()});
+                }
+            }
+        });
+    }
+
+    @Test
+    void laterChunksAreAddedAfterTheRowsAlreadyShown() {
+        list.appendRecords(chunk(0, 5));
+        listen();
+        list.appendRecords(chunk(5, 3));
+        list.appendRecords(chunk(8, 4));
+
+        assertEquals(12, list.size());
+        assertEquals(2, added.size());
+        assertEquals(5, added.get(0)[0]);
+        assertEquals(8, added.get(0)[1]);
+        assertEquals(8, added.get(1)[0]);
+        assertEquals(12, added.get(1)[1]);
+        assertEquals(11L, list.get(11).get("id"));
+    }
+
+    @Test
+    void filteredViewOnlyAddsMatchingRows() {
+        list.appendRecords(chunk(0, 4));
+        list.setSearchText("lima");
+        listen();
+        list.appendRecords(chunk(4, 4)); // Rows 4 and 6 match
+
+        assertEquals(4, list.size());
+        assertEquals(1, added.size());
+        assertEquals(2, added.get(0)[0]);
+        assertEquals(4, added.get(0)[1]);
+        assertEquals(6L, list.get(3).get("id"));
+    }
+
+    @Test
+    void chunksAfterARemovedRowAreStillAdded() {
+        list.appendRecords(chunk(0, 4));
+        list.removeRow(1);
+        listen();
+        list.appendRecords(chunk(4, 2));
+
+        assertEquals(5, list.size());
+        assertEquals(1, added.size());
+        assertEquals(3, added.get(0)[0]);
+        assertEquals(5, added.get(0)[1]);
+        assertEquals(2L, list.get(1).get("id"));
+    }
+}
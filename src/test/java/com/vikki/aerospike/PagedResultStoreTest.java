@@ -0,0 +1,100 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.ScanPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PagedResultStoreTest {
+
+    private static Record record(long id) {
+        Map<String, Object> bins = new LinkedHashMap<>();
+        bins.put("id", id);
+        bins.put("name", "user " + id);
+        bins.put("score", id * 0.5);
+        return new Record(bins, 1, 0);
+    }
+
+    @Test
+    void pagesOverTheBudgetSpillAndReadBack() {
+        try (PagedResultStore store = new PagedResultStore(100, 1)) {
+            for (long id = 0; id < 1000; id++) {
+                store.appendRecord(new Key("test", "users", id), record(id));
+            }
+            assertTrue(store.getSpilledBytes() > 0);
+            assertEquals(1, store.getResidentPageCount()); // Only the tail page stays
+
+            for (int row = 0; row < 1000; row += 37) {
+                assertEquals((long) row, store.getValue(row, "id"));
+                assertEquals("user " + row, store.getValue(row, "name"));
+                assertEquals(row * 0.5, store.getValue(row, "score"));
+                assertArrayEquals(new Key("test", "users", (long) row).digest, store.getDigest(row));
+            }
+            assertEquals(1000, store.size());
+        }
+    }
+
+    @Test
+    void replacedRowsOfSpilledPagesAreWrittenAgain() {
+        try (PagedResultStore store = new PagedResultStore(10, 1)) {
+            for (long id = 0; id < 50; id++) {
+                store.appendRecord(new Key("test", "users", id), record(id));
+            }
+            Key key = new Key("test", "users", 3L);
+            Map<String, Object> bins = new LinkedHashMap<>();
+            bins.put("id", 3L);
+            bins.put("name", "renamed");
+            store.setRecord(3, key, new Record(bins, 2, 0));
+            store.getValue(45, "id"); // Touch other pages so page 0 is spilled again
+            store.getValue(25, "id");
+            store.getValue(15, "id");
+
+            assertEquals("renamed", store.getValue(3, "name"));
+            assertNull(store.getValue(3, "score"));
+            assertEquals(2, store.getValue(3, ResultSchema.GENERATION));
+            assertArrayEquals(key.digest, store.getDigest(3));
+            assertEquals("user 4", store.getValue(4, "name"));
+        }
+    }
+
+    /**
+     * Scans a stand-in server into a store that spills almost every page, then reads each
+     * record back by the digest kept for its row.
+     */
+    @Test
+    void scannedRecordsCanBeAddressedByTheirStoredDigest() throws IOException {
+        try (StandInAerospikeServer server = new StandInAerospikeServer(0, "test").start();
+             AerospikeClient client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+             PagedResultStore store = new PagedResultStore(64, 1)) {
+            for (long id = 0; id < 500; id++) {
+                Object userKey = id % 2 == 0 ? id : "user-" + id; // Long and String user keys
+                server.put(new Key("test", "mixed", Value.get(userKey)), record(id).bins);
+            }
+            client.scanAll(new ScanPolicy(), "test", "mixed", store::appendRecord);
+            assertEquals(500, store.size());
+            assertTrue(store.getSpilledBytes() > 0);
+
+            for (int row = 0; row < store.size(); row++) {
+                RowView view = store.get(row);
+                Key key = view.getRecordKey();
+                assertNotNull(key);
+                Record record = client.get(null, key);
+                assertNotNull(record, "row " + row);
+                assertEquals(view.get("id"), record.getLong("id"));
+            }
+        }
+    }
+}
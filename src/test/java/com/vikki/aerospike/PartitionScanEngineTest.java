@@ -0,0 +1,126 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Key;
+import com.aerospike.client.cluster.Partition;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs partition scans and page cursors against a {@link StandInAerospikeServer}, including a
+ * scan that fails in one partition range and is resumed.
+ */
+class PartitionScanEngineTest {
+
+    private static final int RECORDS = 2000;
+    private static final int PARTITIONS_PER_TASK = 512;
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+    private static final List<Key> keys = new ArrayList<>();
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        for (long id = 0; id < RECORDS; id++) {
+            Key key = new Key("test", "events", id);
+            server.put(key, Map.of("id", id));
+            keys.add(key);
+        }
+        server.put(new Key("test", "other", 1L), Map.of("id", -1L)); // Not part of the scanned set
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    private static int range(Key key) {
+        return Partition.getPartitionId(key.digest) / PARTITIONS_PER_TASK;
+    }
+
+    @Test
+    void scanReadsEveryRecordOfTheSetOnce() {
+        PartitionScanEngine.ScanJob job = new PartitionScanEngine(client, 4, PARTITIONS_PER_TASK).newScan("test", "events", null);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        AtomicInteger delivered = new AtomicInteger();
+        job.run((key, record) -> {
+            ids.add(record.getLong("id"));
+            delivered.incrementAndGet();
+        }, null);
+        assertEquals(RECORDS, ids.size());
+        assertEquals(RECORDS, delivered.get());
+        assertEquals(PartitionScanEngine.PARTITION_COUNT, job.getCompletedPartitions());
+    }
+
+    @Test
+    void failedRangeIsTheOnlyOneScannedAgain() {
+        Key failing = keys.get(13);
+        long rangeRecords = keys.stream().filter(key -> range(key) == range(failing)).count();
+        PartitionScanEngine.ScanJob job = new PartitionScanEngine(client, 4, PARTITIONS_PER_TASK).newScan("test", "events", null);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        AtomicBoolean failed = new AtomicBoolean();
+
+        assertThrows(AerospikeException.class, () -> job.run((key, record) -> {
+            if (record.getLong("id") == 13 && failed.compareAndSet(false, true)) {
+                throw new AerospikeException("lost connection");
+            }
+            ids.add(record.getLong("id"));
+        }, null));
+        assertEquals(PartitionScanEngine.PARTITION_COUNT - PARTITIONS_PER_TASK, job.getCompletedPartitions());
+
+        AtomicInteger resumed = new AtomicInteger();
+        job.run((key, record) -> {
+            assertEquals(range(failing), range(key));
+            ids.add(record.getLong("id"));
+            resumed.incrementAndGet();
+        }, null);
+        // Partitions of the range that had finished, or had been read in part, are not read again
+        assertTrue(resumed.get() > 0 && resumed.get() <= rangeRecords, resumed + " of " + rangeRecords);
+        assertEquals(RECORDS, ids.size());
+        assertEquals(PartitionScanEngine.PARTITION_COUNT, job.getCompletedPartitions());
+    }
+
+    @Test
+    void cancelledScanStops() {
+        PartitionScanEngine.ScanJob job = new PartitionScanEngine(client, 2, PARTITIONS_PER_TASK).newScan("test", "events", null);
+        AtomicInteger delivered = new AtomicInteger();
+        assertThrows(AerospikeException.ScanTerminated.class, () -> job.run((key, record) -> {
+            if (delivered.incrementAndGet() == 10) {
+                job.cancel();
+            }
+        }, null));
+        assertTrue(delivered.get() < RECORDS);
+    }
+
+    @Test
+    void pageCursorHandsOutEveryRecordOnce() {
+        PartitionScanEngine.PageCursor cursor = new PartitionScanEngine(client).newPageCursor("test", "events", null);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        int pages = 0;
+        while (!cursor.isDone()) {
+            cursor.nextPage(300, (key, record) -> assertTrue(ids.add(record.getLong("id"))));
+            pages++;
+        }
+        assertEquals(RECORDS, ids.size());
+        assertTrue(pages >= RECORDS / 300);
+    }
+}
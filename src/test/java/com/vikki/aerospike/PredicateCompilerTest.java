@@ -0,0 +1,114 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.exp.Exp;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.RecordSet;
+import com.aerospike.client.query.Statement;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compiles WHERE clauses and runs them as filter expressions of a set query on a
+ * {@link StandInAerospikeServer}, checking which records match.
+ */
+class PredicateCompilerTest {
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        put("ada", Map.of("age", 36L, "score", 91.5, "city", "London", "tags", List.of("math", "code")));
+        put("alan", Map.of("age", 41L, "score", 78.0, "city", "Wilmslow", "tags", List.of("code")));
+        put("grace", Map.of("age", 85L, "score", 88.25, "city", "Arlington", "tags", List.of("navy", "code")));
+        put("linus", Map.of("age", "unknown", "score", 60.0, "city", "Portland", "tags", List.of("kernel")));
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    private static void put(String name, Map<String, Object> bins) {
+        Map<String, Object> withName = new LinkedHashMap<>(bins);
+        withName.put("name", name);
+        server.put(new Key("test", "people", name), withName);
+    }
+
+    private static Set<String> matching(String where) {
+        Exp filter = new PredicateCompiler(where).compile(AqlParser.parsePredicate(where));
+        QueryPolicy policy = new QueryPolicy();
+        policy.filterExp = Exp.build(filter);
+        Statement statement = new Statement();
+        statement.setNamespace("test");
+        statement.setSetName("people");
+        Set<String> names = new TreeSet<>();
+        try (RecordSet records = client.query(policy, statement)) {
+            while (records.next()) {
+                names.add(records.getRecord().getString("name"));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void comparisonsFollowTheLiteralType() {
+        assertEquals(Set.of("alan", "grace"), matching("age > 40"));
+        assertEquals(Set.of("ada", "grace"), matching("score >= 88.0"));
+        assertEquals(Set.of("linus"), matching("age = 'unknown'"));
+        // A string bin is neither equal nor unequal to an integer
+        assertEquals(Set.of("alan", "grace"), matching("age != 36"));
+    }
+
+    @Test
+    void betweenIsInclusive() {
+        assertEquals(Set.of("ada", "alan"), matching("age BETWEEN 36 AND 41"));
+        assertEquals(Set.of("alan", "linus"), matching("score BETWEEN 60 AND 78.0"));
+    }
+
+    @Test
+    void inLikeAndContains() {
+        assertEquals(Set.of("ada", "linus"), matching("city IN ('London', 'Portland')"));
+        assertEquals(Set.of("ada", "alan"), matching("name LIKE 'a%'"));
+        assertEquals(Set.of("alan"), matching("name LIKE 'a_a_'"));
+        assertEquals(Set.of("ada", "alan", "grace"), matching("tags CONTAINS 'code'"));
+    }
+
+    @Test
+    void booleanLogic() {
+        assertEquals(Set.of("ada", "grace"), matching("tags CONTAINS 'code' AND NOT city = 'Wilmslow'"));
+        assertEquals(Set.of("grace", "linus"), matching("age > 80 OR score < 70.0"));
+    }
+
+    @Test
+    void likePatternsAreAnchoredAndEscaped() {
+        assertEquals("^a\\.b.*$", PredicateCompiler.likeToRegex("a.b%"));
+        assertEquals("^.\\(x\\)$", PredicateCompiler.likeToRegex("_(x)"));
+    }
+
+    @Test
+    void mixedBetweenBoundsAreRejected() {
+        String where = "age BETWEEN 1 AND 'z'";
+        AqlSyntaxException error = assertThrows(AqlSyntaxException.class,
+                () -> new PredicateCompiler(where).compile(AqlParser.parsePredicate(where)));
+        assertTrue(error.getMessage().contains("BETWEEN"));
+    }
+}
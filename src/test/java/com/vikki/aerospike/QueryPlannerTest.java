@@ -0,0 +1,133 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.policy.ClientPolicy;
+import com.aerospike.client.policy.QueryPolicy;
+import com.aerospike.client.query.IndexCollectionType;
+import com.aerospike.client.query.IndexType;
+import com.aerospike.client.query.RecordSet;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Plans WHERE clauses against the indexes of a {@link StandInAerospikeServer} and runs the
+ * planned queries, which the server refuses when the chosen index doesn't exist.
+ */
+class QueryPlannerTest {
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+    private static SindexCatalog catalog;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        put("ada", 36L, "London", List.of("math", "code"));
+        put("alan", 41L, "Wilmslow", List.of("code"));
+        put("grace", 85L, "Arlington", List.of("navy", "code"));
+        put("linus", 54L, "Portland", List.of("kernel"));
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+        client.createIndex(null, "test", "people", "age_idx", "age", IndexType.NUMERIC).waitTillComplete();
+        client.createIndex(null, "test", "people", "city_idx", "city", IndexType.STRING).waitTillComplete();
+        client.createIndex(null, "test", "people", "tags_idx", "tags", IndexType.STRING, IndexCollectionType.LIST)
+                .waitTillComplete();
+        client.createIndex(null, "test", "other", "other_name_idx", "name", IndexType.STRING).waitTillComplete();
+        catalog = new SindexCatalog(client);
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    private static void put(String name, long age, String city, List<String> tags) {
+        Map<String, Object> bins = new LinkedHashMap<>();
+        bins.put("name", name);
+        bins.put("age", age);
+        bins.put("city", city);
+        bins.put("tags", tags);
+        server.put(new Key("test", "people", name), bins);
+    }
+
+    private static QueryPlanner.Result plan(String where) {
+        return AqlPlan.compile("SELECT * FROM test.people WHERE " + where).resolve(catalog);
+    }
+
+    private static Set<String> run(String where) {
+        AqlPlan plan = AqlPlan.compile("SELECT * FROM test.people WHERE " + where);
+        QueryPlanner.Result planned = plan.resolve(catalog);
+        QueryPolicy policy = new QueryPolicy();
+        policy.filterExp = planned.expression;
+        Set<String> names = new TreeSet<>();
+        try (RecordSet records = client.query(policy, plan.newStatement(planned.filter))) {
+            while (records.next()) {
+                names.add(records.getRecord().getString("name"));
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void equalityIsPreferredOverARange() {
+        QueryPlanner.Result planned = plan("age > 40 AND city = 'Wilmslow'");
+        assertEquals("city_idx", planned.index.getName());
+        assertNotNull(planned.expression); // age > 40 is left to the server filter
+        assertEquals("index city_idx + server filter", planned.describe());
+        assertEquals(Set.of("alan"), run("age > 40 AND city = 'Wilmslow'"));
+    }
+
+    @Test
+    void twoSidedRangeIsPreferredOverAOneSidedOne() {
+        QueryPlanner.Result planned = plan("age > 40 AND age BETWEEN 50 AND 90");
+        assertEquals("age_idx", planned.index.getName());
+        assertEquals(Set.of("grace", "linus"), run("age > 40 AND age BETWEEN 50 AND 90"));
+        assertEquals(Set.of("ada", "alan"), run("age <= 41"));
+    }
+
+    @Test
+    void containsUsesTheCollectionIndex() {
+        assertEquals("tags_idx", plan("tags CONTAINS 'code'").index.getName());
+        assertNull(plan("tags CONTAINS 'code'").expression);
+        assertEquals(Set.of("ada", "alan", "grace"), run("tags CONTAINS 'code'"));
+    }
+
+    @Test
+    void termsThatCannotUseAnIndexAreFilteredOnTheServer() {
+        // OR is not a top-level AND term; a string literal can't use the numeric index;
+        // the index on name belongs to another set
+        for (String where : List.of("city = 'London' OR age > 80", "age = 'old'", "name = 'ada'", "age != 41")) {
+            QueryPlanner.Result planned = plan(where);
+            assertNull(planned.index, where);
+            assertNull(planned.filter, where);
+            assertEquals("server filter, no index", planned.describe());
+        }
+        assertEquals(Set.of("ada", "grace"), run("city = 'London' OR age > 80"));
+        assertEquals(Set.of("ada"), run("name = 'ada'"));
+    }
+
+    @Test
+    void cachedPlanPicksUpANewIndex() {
+        AqlPlan plan = AqlPlan.compile("SELECT * FROM test.people WHERE name = 'grace'");
+        assertNull(plan.resolve(catalog).index);
+        client.createIndex(null, "test", "people", "name_idx", "name", IndexType.STRING).waitTillComplete();
+        assertNull(plan.resolve(catalog).index); // Still the cached list
+        catalog.invalidate();
+        assertEquals("name_idx", plan.resolve(catalog).index.getName());
+        client.dropIndex(null, "test", "people", "name_idx");
+        catalog.invalidate();
+    }
+}
@@ -0,0 +1,555 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A single-node, in-memory stand-in for an Aerospike server that speaks enough of the wire
+ * protocol for {@code AerospikeClient} to connect on localhost: single-record reads, writes,
+ * operate and delete, batches, partition scans and secondary index queries (including
+ * background write queries), the info commands the explorer and the client's tend thread
+ * use, secondary index and UDF registration, and truncate. Every data command can be
+ * delayed by a configurable latency to mimic a remote cluster.
+ * <p>
+ * Not covered: Lua UDF execution, list/map/bit/HLL operations, geo queries and security.
+ * Those requests fail with an "unsupported feature" result instead of misbehaving.
+ * <pre>
+ * try (StandInAerospikeServer server = new StandInAerospikeServer(0, "test").start()) {
+ *     AerospikeClient client = new AerospikeClient(StandInAerospikeServer.HOST, server.getPort());
+ *     ...
+ * }
+ * </pre>
+ */
+public final class StandInAerospikeServer implements Closeable {
+
+    public static final String HOST = "127.0.0.1";
+
+    static final byte TYPE_INFO = 1;
+    static final byte TYPE_ADMIN = 2;
+    static final byte TYPE_MESSAGE = 3;
+    static final byte TYPE_COMPRESSED = 4;
+
+    private static final String BUILD = "7.0.0.0";
+    private static final String FEATURES = "batch-any;batch-index;blob-bits;cdt-list;cdt-map;cluster-stable;float;"
+            + "geo;peers;pipelining;pquery;pscans;query-show;relaxed-sc;replicas;replicas-all;replicas-master;"
+            + "truncate-namespace;udf";
+    private static final int SECURITY_NOT_ENABLED = 52;
+
+    // This node owns every partition
+    private static final String ALL_PARTITIONS;
+
+    static {
+        byte[] bitmap = new byte[StandInStore.PARTITIONS / 8];
+        Arrays.fill(bitmap, (byte) 0xFF);
+        ALL_PARTITIONS = Base64.getEncoder().encodeToString(bitmap);
+    }
+
+    private final int requestedPort;
+    private final StandInStore store;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicInteger delayedCommands = new AtomicInteger();
+    private final AtomicInteger peakDelayedCommands = new AtomicInteger();
+    private volatile long latencyMicros;
+    private volatile long jitterMicros;
+    private ServerSocket serverSocket;
+    private String nodeName;
+
+    /**
+     * @param port       port to listen on, 0 for any free one
+     * @param namespaces namespaces the server has; requests for others fail
+     */
+    public StandInAerospikeServer(int port, String... namespaces) {
+        this.requestedPort = port;
+        this.store = new StandInStore(namespaces);
+    }
+
+    public synchronized StandInAerospikeServer start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(InetAddress.getByName(HOST), requestedPort));
+        nodeName = String.format("BB9%012X", serverSocket.getLocalPort());
+        Thread.ofPlatform().name("stand-in-accept").daemon(true).start(this::acceptLoop);
+        return this;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Delays every data command by {@code fixedMicros} plus a uniformly random share of
+     * {@code jitterMicros}. Info commands are never delayed, so the client's tend thread
+     * keeps its normal pace.
+     */
+    public void setLatency(long fixedMicros, long jitterMicros) {
+        this.latencyMicros = Math.max(0, fixedMicros);
+        this.jitterMicros = Math.max(0, jitterMicros);
+    }
+
+    /**
+     * Most data commands that were waiting out the injected latency at the same time, i.e. a
+     * lower bound on how many commands a client had outstanding at once.
+     */
+    public int getPeakConcurrentCommands() {
+        return peakDelayedCommands.get();
+    }
+
+    /**
+     * Stores a record directly, without a client round trip. The user key is kept, as if
+     * written with {@code sendKey}.
+     */
+    public void put(Key key, Map<String, Object> bins) {
+        StandInStore.Namespace namespace = store.namespace(key.namespace);
+        if (namespace == null) {
+            throw new IllegalArgumentException("Unknown namespace " + key.namespace);
+        }
+        Map<String, StandInStore.Particle> particles = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> bin : bins.entrySet()) {
+            if (bin.getValue() != null) {
+                particles.put(bin.getKey(), StandInStore.Particle.of(bin.getValue()));
+            }
+        }
+        StandInStore.Particle userKey = key.userKey == null ? null : StandInStore.Particle.of(key.userKey);
+        StandInStore.Partition partition = namespace.partition(key.digest);
+        synchronized (partition) {
+            StandInStore.StoredRecord existing = namespace.get(partition, key.digest);
+            namespace.store(partition, key.digest, existing, new StandInStore.StoredRecord(key.digest, key.setName,
+                    userKey, particles, existing == null ? 1 : existing.generation % 0xFFFF + 1, 0,
+                    System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Live records in {@code namespace}.
+     */
+    public long size(String namespace) {
+        StandInStore.Namespace ns = store.namespace(namespace);
+        return ns == null ? 0 : ns.objects();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread.ofVirtual().name("stand-in-connection").start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // One request at a time per connection, as the client never pipelines on a socket
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+            StandInCommand.Output output = new StandInCommand.Output(out);
+            byte[] header = new byte[8];
+            while (true) {
+                try {
+                    in.readFully(header);
+                } catch (EOFException e) {
+                    return;
+                }
+                byte[] body = new byte[(int) StandInStore.bytesLong(header, 2, 6)];
+                in.readFully(body);
+                dispatch(header[1], body, out, output);
+            }
+        } catch (IOException e) {
+            // Client closed the connection or the server is shutting down
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Malformed request; dropping the connection makes the client retry
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void dispatch(byte type, byte[] body, OutputStream out, StandInCommand.Output output) throws IOException {
+        switch (type) {
+            case TYPE_INFO:
+                writeFrame(out, TYPE_INFO, info(new String(body, StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+                break;
+            case TYPE_ADMIN: {
+                byte[] reply = new byte[16];
+                reply[1] = (byte) SECURITY_NOT_ENABLED;
+                writeFrame(out, TYPE_ADMIN, reply);
+                break;
+            }
+            case TYPE_MESSAGE:
+                injectLatency();
+                StandInCommand.execute(store, body, output);
+                break;
+            case TYPE_COMPRESSED: {
+                // Uncompressed size, then a zlib stream holding a complete proto message
+                byte[] proto = inflate(body, (int) StandInStore.bytesLong(body, 0, 8));
+                dispatch(proto[1], Arrays.copyOfRange(proto, 8, proto.length), out, output);
+                break;
+            }
+            default:
+                throw new IOException("Unsupported proto type " + type);
+        }
+    }
+
+    private void injectLatency() {
+        long micros = latencyMicros;
+        long jitter = jitterMicros;
+        if (jitter > 0) {
+            micros += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (micros > 0) {
+            // Counted only while delayed: a command that has replied can't overlap its successor
+            peakDelayedCommands.accumulateAndGet(delayedCommands.incrementAndGet(), Math::max);
+            LockSupport.parkNanos(micros * 1000);
+            delayedCommands.decrementAndGet();
+        }
+    }
+
+    private static byte[] inflate(byte[] body, int size) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(body, 8, body.length - 8);
+            byte[] proto = new byte[size];
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                length += inflater.inflate(proto, length, size - length);
+            }
+            return proto;
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeFrame(OutputStream out, byte type, byte[] payload) throws IOException {
+        byte[] header = new byte[8];
+        header[0] = 2;
+        header[1] = type;
+        long size = payload.length;
+        for (int i = 7; i >= 2; i--) {
+            header[i] = (byte) size;
+            size >>>= 8;
+        }
+        out.write(header);
+        out.write(payload);
+        out.flush();
+    }
+
+    // Newline separated commands; each answer echoes its command, then a tab and the value
+    private String info(String request) {
+        StringBuilder response = new StringBuilder();
+        for (String command : request.split("\n")) {
+            if (!command.isEmpty()) {
+                response.append(command).append('\t').append(infoValue(command)).append('\n');
+            }
+        }
+        return response.toString();
+    }
+
+    private String infoValue(String command) {
+        int colon = command.indexOf(':');
+        String name = colon < 0 ? command : command.substring(0, colon);
+        Map<String, String> params = colon < 0 ? Map.of() : parameters(command.substring(colon + 1));
+        switch (name) {
+            case "node":
+                return nodeName;
+            case "partition-generation":
+            case "peers-generation":
+            case "rebalance-generation":
+                return "1";
+            case "cluster-name":
+                return "stand-in";
+            case "features":
+                return FEATURES;
+            case "build":
+                return BUILD;
+            case "version":
+                return "Aerospike Community Edition build " + BUILD;
+            case "edition":
+                return "Aerospike Community Edition";
+            case "namespaces":
+                return String.join(";", store.namespaceNames());
+            case "replicas":
+            case "replicas-all":
+            case "replicas-master":
+                return replicas(name);
+            case "peers-clear-std":
+            case "peers-clear-alt":
+            case "peers-tls-std":
+            case "peers-tls-alt":
+                return "1," + getPort() + ",[]";
+            case "service":
+            case "service-clear-std":
+                return HOST + ":" + getPort();
+            case "service-clear-alt":
+            case "service-tls-std":
+            case "service-tls-alt":
+                return "";
+            case "statistics":
+                return "cluster_size=1;client_connections=" + connections.size()
+                        + ";uptime=" + (System.currentTimeMillis() - startMillis) / 1000;
+            case "latencies":
+                return "";
+            case "sets":
+                return sets(null, null);
+            case "sindex":
+            case "sindex-list":
+                return indexList(params.get("ns"));
+            case "sindex-create":
+                return createIndex(params);
+            case "sindex-delete":
+                store.indexes().remove(params.get("ns") + "/" + params.get("indexname"));
+                return "OK";
+            case "sindex-stat":
+                return indexStat(params.get("ns"), params.get("indexname"));
+            case "truncate":
+            case "truncate-namespace":
+                return truncate(params);
+            case "udf-put":
+                store.udfModules().put(params.get("filename"), Base64.getDecoder().decode(params.get("content")));
+                return "";
+            case "udf-list":
+                return udfList();
+            case "udf-get": {
+                byte[] content = store.udfModules().get(params.get("filename"));
+                return content == null ? "error=not_found"
+                        : "gen=1;type=LUA;content=" + Base64.getEncoder().encodeToString(content);
+            }
+            case "udf-remove":
+                store.udfModules().remove(params.get("filename"));
+                return "ok";
+            case "query-show":
+            case "scan-show":
+            case "jobs":
+                return job(params.get("trid"));
+            default:
+                break;
+        }
+        String[] path = command.split("/");
+        switch (path.length > 1 ? path[0] : "") {
+            case "sets":
+                return sets(path[1], path.length > 2 ? path[2] : null);
+            case "namespace":
+                return namespaceStats(path[1]);
+            case "sindex":
+                return path.length > 2 ? indexStat(path[1], path[2]) : indexList(path[1]);
+            default:
+                return "ERROR::unrecognized command";
+        }
+    }
+
+    private static Map<String, String> parameters(String text) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String pair : text.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+
+    private String replicas(String command) {
+        StringBuilder response = new StringBuilder();
+        for (String namespace : store.namespaceNames()) {
+            if (response.length() > 0) {
+                response.append(';');
+            }
+            response.append(namespace).append(':');
+            if (command.equals("replicas")) {
+                response.append("0,1,");   // Regime, replica count
+            } else if (command.equals("replicas-all")) {
+                response.append("1,");
+            }
+            response.append(ALL_PARTITIONS);
+        }
+        return response.toString();
+    }
+
+    private String sets(String namespaceFilter, String setFilter) {
+        StringBuilder response = new StringBuilder();
+        for (String name : store.namespaceNames()) {
+            if (namespaceFilter != null && !namespaceFilter.equals(name)) {
+                continue;
+            }
+            for (Map.Entry<String, StandInStore.SetStats> entry : store.namespace(name).sets.entrySet()) {
+                String set = entry.getKey();
+                if (set.isEmpty() || (setFilter != null && !setFilter.equals(set))) {
+                    continue;
+                }
+                StandInStore.SetStats stats = entry.getValue();
+                response.append("ns=").append(name)
+                        .append(":set=").append(set)
+                        .append(":objects=").append(stats.objects.get())
+                        .append(":tombstones=0")
+                        .append(":memory_data_bytes=").append(stats.bytes.get())
+                        .append(":device_data_bytes=0")
+                        .append(":truncate_lut=").append(stats.truncateLut)
+                        .append(":stop-writes-count=0:stop-writes-size=0;");
+            }
+        }
+        return response.toString();
+    }
+
+    private String namespaceStats(String name) {
+        StandInStore.Namespace namespace = store.namespace(name);
+        if (namespace == null) {
+            return "type=unknown";
+        }
+        return "objects=" + namespace.objects()
+                + ";tombstones=0;replication-factor=1;storage-engine=memory;default-ttl=0"
+                + ";memory_used_bytes=" + namespace.bytes()
+                + ";client_read_success=" + namespace.readSuccess.sum()
+                + ";client_read_not_found=" + namespace.readNotFound.sum()
+                + ";client_write_success=" + namespace.writeSuccess.sum()
+                + ";client_delete_success=" + namespace.deleteSuccess.sum()
+                + ";client_delete_not_found=" + namespace.deleteNotFound.sum()
+                + ";pi_query_long_basic_complete=" + namespace.queriesComplete.sum()
+                + ";pi_query_long_basic_error=" + namespace.queriesError.sum();
+    }
+
+    private String indexList(String namespace) {
+        StringBuilder response = new StringBuilder();
+        for (StandInStore.IndexDefinition index : store.indexes().values()) {
+            if (namespace != null && !namespace.equals(index.namespace)) {
+                continue;
+            }
+            response.append("ns=").append(index.namespace)
+                    .append(":indexname=").append(index.name)
+                    .append(":set=").append(index.set == null ? "NULL" : index.set)
+                    .append(":bin=").append(index.bin)
+                    .append(":type=").append(index.type.toLowerCase(Locale.ROOT))
+                    .append(":indextype=").append(index.collectionType.toLowerCase(Locale.ROOT))
+                    .append(":context=NULL:state=RW;");
+        }
+        return response.toString();
+    }
+
+    // sindex-create:ns=test;set=demo;indexname=idx;indextype=LIST;indexdata=bin,NUMERIC
+    private String createIndex(Map<String, String> params) {
+        String namespace = params.get("ns");
+        String name = params.get("indexname");
+        String data = params.get("indexdata");
+        if (store.namespace(namespace) == null || name == null || data == null || data.indexOf(',') < 0) {
+            return "FAIL:4:Invalid parameter";
+        }
+        String bin = data.substring(0, data.indexOf(','));
+        String type = data.substring(data.indexOf(',') + 1).toUpperCase(Locale.ROOT);
+        String collectionType = params.getOrDefault("indextype", "DEFAULT").toUpperCase(Locale.ROOT);
+        StandInStore.IndexDefinition index = new StandInStore.IndexDefinition(namespace, name, params.get("set"), bin,
+                type, collectionType);
+        if (store.indexes().putIfAbsent(namespace + "/" + name, index) != null) {
+            return "FAIL:200:Index with the same name already exists";
+        }
+        return "OK";
+    }
+
+    // Indexes are usable as soon as they are created
+    private String indexStat(String namespace, String name) {
+        return store.indexes().containsKey(namespace + "/" + name) ? "load_pct=100;state=RW" : "FAIL:201:NO INDEX";
+    }
+
+    private String truncate(Map<String, String> params) {
+        StandInStore.Namespace namespace = store.namespace(params.get("namespace"));
+        if (namespace == null) {
+            return "ERROR::namespace not found";
+        }
+        String lut = params.get("lut");
+        // Without a cut-off everything written so far goes
+        long beforeMillis = lut != null ? Long.parseLong(lut) / 1_000_000 : System.currentTimeMillis() + 1;
+        namespace.truncate(params.get("set"), beforeMillis);
+        return "ok";
+    }
+
+    private String udfList() {
+        StringBuilder response = new StringBuilder();
+        for (Map.Entry<String, byte[]> module : store.udfModules().entrySet()) {
+            response.append("filename=").append(module.getKey())
+                    .append(",hash=").append(sha1(module.getValue()))
+                    .append(",type=LUA;");
+        }
+        return response.toString();
+    }
+
+    private String job(String taskId) {
+        Long records = taskId == null ? null : store.finishedJob(Long.parseUnsignedLong(taskId));
+        if (records == null) {
+            return "ERROR:2:job not found";
+        }
+        return "trid=" + taskId + ":job-type=basic:status=done(ok):recs-succeeded=" + records;
+    }
+
+    private static String sha1(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-1").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Runs a stand-in server with synthetic records in {@code test.bench} until killed, for
+     * pointing the explorer or other tools at: {@code [port] [records]}, default 3000 and
+     * 100000.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        int records = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        StandInAerospikeServer server = new StandInAerospikeServer(port, SyntheticData.NAMESPACE).start();
+        SyntheticData.load(server, records, 20);
+        System.out.println("Stand-in Aerospike listening on " + HOST + ":" + server.getPort() + " with "
+                + server.size(SyntheticData.NAMESPACE) + " records in "
+                + SyntheticData.NAMESPACE + "." + SyntheticData.SET);
+        Thread.currentThread().join();
+    }
+}
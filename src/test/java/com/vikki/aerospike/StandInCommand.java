@@ -0,0 +1,859 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.command.ParticleType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes the data messages (single record, batch, scan and query) the client sends to the
+ * {@link StandInAerospikeServer} and writes the replies in the layout the client parses.
+ * <p>
+ * Every message is a 22 byte header (attribute bits, result code, generation, ttl, field
+ * and op counts) followed by the fields and the bin operations. Scans and queries answer
+ * one message per record, mark each partition they finished, and end with a "last" message
+ * carrying the overall result; batches answer one message per key with its batch index.
+ */
+final class StandInCommand {
+
+    // Attribute bits of the message header
+    private static final int INFO1_GET_ALL = 2;
+    private static final int INFO1_BATCH = 8;
+    private static final int INFO1_NOBINDATA = 32;
+    private static final int INFO2_WRITE = 1;
+    private static final int INFO2_DELETE = 2;
+    private static final int INFO2_GENERATION = 4;
+    private static final int INFO2_GENERATION_GT = 8;
+    private static final int INFO2_CREATE_ONLY = 32;
+    private static final int INFO2_RESPOND_ALL_OPS = 128;
+    private static final int INFO3_LAST = 1;
+    private static final int INFO3_PARTITION_DONE = 4;
+    private static final int INFO3_UPDATE_ONLY = 8;
+    private static final int INFO3_CREATE_OR_REPLACE = 16;
+    private static final int INFO3_REPLACE_ONLY = 32;
+
+    // Field types
+    private static final int FIELD_NAMESPACE = 0;
+    private static final int FIELD_TABLE = 1;
+    private static final int FIELD_KEY = 2;
+    private static final int FIELD_DIGEST = 4;
+    private static final int FIELD_QUERY_ID = 7;
+    private static final int FIELD_PID_ARRAY = 11;
+    private static final int FIELD_DIGEST_ARRAY = 12;
+    private static final int FIELD_MAX_RECORDS = 13;
+    private static final int FIELD_INDEX_RANGE = 22;
+    private static final int FIELD_INDEX_TYPE = 26;
+    private static final int FIELD_UDF_PACKAGE_NAME = 30;
+    private static final int FIELD_UDF_OP = 33;
+    private static final int FIELD_QUERY_BINLIST = 40;
+    private static final int FIELD_BATCH_INDEX = 41;
+    private static final int FIELD_BATCH_INDEX_WITH_SET = 42;
+    private static final int FIELD_FILTER_EXP = 43;
+
+    // Operation types
+    private static final int OP_READ = 1;
+    private static final int OP_WRITE = 2;
+    private static final int OP_ADD = 5;
+    private static final int OP_APPEND = 9;
+    private static final int OP_PREPEND = 10;
+    private static final int OP_TOUCH = 11;
+    private static final int OP_DELETE = 14;
+
+    // Flags of a batch row
+    private static final int BATCH_REPEAT = 1;
+    private static final int BATCH_INFO = 2;
+    private static final int BATCH_GEN = 4;
+    private static final int BATCH_TTL = 8;
+
+    // Result codes
+    static final int OK = 0;
+    static final int KEY_NOT_FOUND = 2;
+    static final int GENERATION_ERROR = 3;
+    static final int PARAMETER_ERROR = 4;
+    static final int KEY_EXISTS = 5;
+    static final int BIN_TYPE_ERROR = 12;
+    static final int UNSUPPORTED_FEATURE = 16;
+    static final int NAMESPACE_NOT_FOUND = 20;
+    static final int FILTERED_OUT = 27;
+    static final int INDEX_NOT_FOUND = 201;
+
+    private static final String[] COLLECTION_TYPES = {"DEFAULT", "LIST", "MAPKEYS", "MAPVALUES"};
+    private static final List<Op> NO_OPS = List.of();
+    private static final byte[] EMPTY = new byte[0];
+
+    private StandInCommand() {
+    }
+
+    static final class Op {
+        final int type;
+        final int particleType;
+        final String name;
+        final byte[] value;
+
+        Op(int type, int particleType, String name, byte[] value) {
+            this.type = type;
+            this.particleType = particleType;
+            this.name = name;
+            this.value = value;
+        }
+    }
+
+    /**
+     * A request, or one row of a batch request.
+     */
+    static final class Message {
+        int info1;
+        int info2;
+        int info3;
+        int generation;
+        int ttl;
+        final Map<Integer, byte[]> fields = new HashMap<>();
+        final List<Op> ops = new ArrayList<>();
+        private StandInExpression filter;
+
+        String string(int type) {
+            byte[] field = fields.get(type);
+            return field == null ? null : new String(field, StandardCharsets.UTF_8);
+        }
+
+        StandInExpression filter(StandInExpression fallback) {
+            byte[] field = fields.get(FIELD_FILTER_EXP);
+            if (field == null) {
+                return fallback;
+            }
+            if (filter == null) {
+                filter = compile(field);
+            }
+            return filter;
+        }
+    }
+
+    private static final class Result {
+        final int resultCode;
+        final StandInStore.StoredRecord record;
+        final List<Op> ops;
+
+        Result(int resultCode, StandInStore.StoredRecord record, List<Op> ops) {
+            this.resultCode = resultCode;
+            this.record = record;
+            this.ops = ops;
+        }
+
+        static Result of(int resultCode) {
+            return new Result(resultCode, null, NO_OPS);
+        }
+    }
+
+    /**
+     * Replies go out in frames of about {@link #FRAME_SIZE} bytes, each with its own proto
+     * header, so a scan of millions of records never has to be held in memory.
+     */
+    static final class Output {
+        private static final int FRAME_SIZE = 128 * 1024;
+
+        private final OutputStream stream;
+        private byte[] buffer = new byte[16 * 1024];
+        private int length = 8;
+
+        Output(OutputStream stream) {
+            this.stream = stream;
+        }
+
+        void header(int info3, int resultCode, int generation, int expiration, int batchIndex, int fieldCount,
+                    int opCount) {
+            ensure(22);
+            buffer[length] = 22;
+            buffer[length + 1] = 0;
+            buffer[length + 2] = 0;
+            buffer[length + 3] = (byte) info3;
+            buffer[length + 4] = 0;
+            buffer[length + 5] = (byte) resultCode;
+            putInt(length + 6, generation);
+            putInt(length + 10, expiration);
+            putInt(length + 14, batchIndex);
+            putShort(length + 18, fieldCount);
+            putShort(length + 20, opCount);
+            length += 22;
+        }
+
+        void field(int type, byte[] data) {
+            ensure(5 + data.length);
+            putInt(length, 1 + data.length);
+            buffer[length + 4] = (byte) type;
+            System.arraycopy(data, 0, buffer, length + 5, data.length);
+            length += 5 + data.length;
+        }
+
+        void keyField(StandInStore.Particle key) {
+            ensure(6 + key.bytes.length);
+            putInt(length, 2 + key.bytes.length);
+            buffer[length + 4] = (byte) FIELD_KEY;
+            buffer[length + 5] = (byte) key.type;
+            System.arraycopy(key.bytes, 0, buffer, length + 6, key.bytes.length);
+            length += 6 + key.bytes.length;
+        }
+
+        void op(Op op) {
+            byte[] name = op.name.getBytes(StandardCharsets.UTF_8);
+            ensure(8 + name.length + op.value.length);
+            putInt(length, 4 + name.length + op.value.length);
+            buffer[length + 4] = (byte) op.type;
+            buffer[length + 5] = (byte) op.particleType;
+            buffer[length + 6] = 0;
+            buffer[length + 7] = (byte) name.length;
+            System.arraycopy(name, 0, buffer, length + 8, name.length);
+            System.arraycopy(op.value, 0, buffer, length + 8 + name.length, op.value.length);
+            length += 8 + name.length + op.value.length;
+        }
+
+        void endMessage() throws IOException {
+            if (length >= FRAME_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            if (length == 8) {
+                return;
+            }
+            long size = length - 8;
+            buffer[0] = 2;
+            buffer[1] = StandInAerospikeServer.TYPE_MESSAGE;
+            for (int i = 7; i >= 2; i--) {
+                buffer[i] = (byte) size;
+                size >>>= 8;
+            }
+            stream.write(buffer, 0, length);
+            stream.flush();
+            length = 8;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+            }
+        }
+
+        private void putInt(int offset, int value) {
+            buffer[offset] = (byte) (value >>> 24);
+            buffer[offset + 1] = (byte) (value >>> 16);
+            buffer[offset + 2] = (byte) (value >>> 8);
+            buffer[offset + 3] = (byte) value;
+        }
+
+        private void putShort(int offset, int value) {
+            buffer[offset] = (byte) (value >>> 8);
+            buffer[offset + 1] = (byte) value;
+        }
+    }
+
+    /**
+     * Executes one message (without its proto header) and writes the complete reply.
+     */
+    static void execute(StandInStore store, byte[] body, Output out) throws IOException {
+        Message message = new Message();
+        message.info1 = body[1] & 0xFF;
+        message.info2 = body[2] & 0xFF;
+        message.info3 = body[3] & 0xFF;
+        message.generation = (int) StandInStore.bytesLong(body, 6, 4);
+        message.ttl = (int) StandInStore.bytesLong(body, 10, 4);
+        int fieldCount = (int) StandInStore.bytesLong(body, 18, 2);
+        int opCount = (int) StandInStore.bytesLong(body, 20, 2);
+        int offset = readFields(body, body[0] & 0xFF, fieldCount, message.fields);
+        readOps(body, offset, opCount, message.ops);
+
+        if ((message.info1 & INFO1_BATCH) != 0 || message.fields.containsKey(FIELD_BATCH_INDEX)
+                || message.fields.containsKey(FIELD_BATCH_INDEX_WITH_SET)) {
+            batch(store, message, out);
+        } else if (message.fields.containsKey(FIELD_DIGEST)) {
+            writeResult(out, single(store, message), 0);
+            out.flush();
+        } else {
+            scan(store, message, out);
+        }
+    }
+
+    private static Result single(StandInStore store, Message message) {
+        StandInStore.Namespace namespace = store.namespace(message.string(FIELD_NAMESPACE));
+        if (namespace == null) {
+            return Result.of(NAMESPACE_NOT_FOUND);
+        }
+        StandInExpression filter;
+        try {
+            filter = message.filter(null);
+        } catch (StandInExpression.UnsupportedExpressionException e) {
+            return Result.of(PARAMETER_ERROR);
+        }
+        return apply(namespace, message.fields.get(FIELD_DIGEST), message.string(FIELD_TABLE),
+                userKey(message.fields.get(FIELD_KEY)), message, message.ops, filter);
+    }
+
+    private static void batch(StandInStore store, Message message, Output out) throws IOException {
+        byte[] rows = message.fields.get(FIELD_BATCH_INDEX);
+        if (rows == null) {
+            rows = message.fields.get(FIELD_BATCH_INDEX_WITH_SET);
+        }
+        StandInExpression batchFilter;
+        try {
+            batchFilter = message.filter(null);
+        } catch (StandInExpression.UnsupportedExpressionException e) {
+            last(out, PARAMETER_ERROR);
+            return;
+        }
+        int count = (int) StandInStore.bytesLong(rows, 0, 4);
+        int offset = 5; // Row count and batch flags
+        Message row = null;
+        for (int i = 0; i < count; i++) {
+            int index = (int) StandInStore.bytesLong(rows, offset, 4);
+            byte[] digest = Arrays.copyOfRange(rows, offset + 4, offset + 24);
+            int flags = rows[offset + 24] & 0xFF;
+            offset += 25;
+            if ((flags & BATCH_REPEAT) == 0 || row == null) {
+                row = new Message();
+                if ((flags & BATCH_INFO) != 0) {
+                    row.info1 = rows[offset] & 0xFF;
+                    row.info2 = rows[offset + 1] & 0xFF;
+                    row.info3 = rows[offset + 2] & 0xFF;
+                    offset += 3;
+                } else {
+                    row.info1 = rows[offset++] & 0xFF;
+                }
+                if ((flags & BATCH_GEN) != 0) {
+                    row.generation = (int) StandInStore.bytesLong(rows, offset, 2);
+                    offset += 2;
+                }
+                if ((flags & BATCH_TTL) != 0) {
+                    row.ttl = (int) StandInStore.bytesLong(rows, offset, 4);
+                    offset += 4;
+                }
+                int fieldCount = (int) StandInStore.bytesLong(rows, offset, 2);
+                int opCount = (int) StandInStore.bytesLong(rows, offset + 2, 2);
+                offset = readFields(rows, offset + 4, fieldCount, row.fields);
+                offset = readOps(rows, offset, opCount, row.ops);
+            }
+            writeResult(out, batchRow(store, row, digest, batchFilter), index);
+            out.endMessage();
+        }
+        last(out, OK);
+    }
+
+    private static Result batchRow(StandInStore store, Message row, byte[] digest, StandInExpression batchFilter) {
+        StandInStore.Namespace namespace = store.namespace(row.string(FIELD_NAMESPACE));
+        if (namespace == null) {
+            return Result.of(NAMESPACE_NOT_FOUND);
+        }
+        if (row.fields.containsKey(FIELD_UDF_PACKAGE_NAME)) {
+            return Result.of(UNSUPPORTED_FEATURE);
+        }
+        StandInExpression filter;
+        try {
+            filter = row.filter(batchFilter);
+        } catch (StandInExpression.UnsupportedExpressionException e) {
+            return Result.of(PARAMETER_ERROR);
+        }
+        return apply(namespace, digest, row.string(FIELD_TABLE), userKey(row.fields.get(FIELD_KEY)), row, row.ops,
+                filter);
+    }
+
+    private static void scan(StandInStore store, Message message, Output out) throws IOException {
+        StandInStore.Namespace namespace = store.namespace(message.string(FIELD_NAMESPACE));
+        if (namespace == null) {
+            last(out, NAMESPACE_NOT_FOUND);
+            return;
+        }
+        if (message.fields.containsKey(FIELD_UDF_OP) || message.fields.containsKey(FIELD_UDF_PACKAGE_NAME)) {
+            namespace.queriesError.increment();
+            last(out, UNSUPPORTED_FEATURE); // No Lua runtime
+            return;
+        }
+        StandInExpression filter;
+        try {
+            filter = message.filter(null);
+        } catch (StandInExpression.UnsupportedExpressionException e) {
+            namespace.queriesError.increment();
+            last(out, PARAMETER_ERROR);
+            return;
+        }
+        String set = message.string(FIELD_TABLE);
+        IndexRange range = null;
+        byte[] rangeField = message.fields.get(FIELD_INDEX_RANGE);
+        if (rangeField != null) {
+            range = IndexRange.parse(rangeField, message.fields.get(FIELD_INDEX_TYPE));
+            if (range == null) {
+                namespace.queriesError.increment();
+                last(out, UNSUPPORTED_FEATURE);
+                return;
+            }
+            if (store.findIndex(namespace.name, set, range.bin, range.indexType(), range.collectionType()) == null) {
+                namespace.queriesError.increment();
+                last(out, INDEX_NOT_FOUND);
+                return;
+            }
+        }
+
+        // Whole partitions come as ids, partially read ones as the digest to resume after
+        List<Integer> partitionIds = new ArrayList<>();
+        List<byte[]> resumeAfter = new ArrayList<>();
+        byte[] pids = message.fields.get(FIELD_PID_ARRAY);
+        byte[] digests = message.fields.get(FIELD_DIGEST_ARRAY);
+        if (pids == null && digests == null) {
+            for (int pid = 0; pid < StandInStore.PARTITIONS; pid++) {
+                partitionIds.add(pid);
+                resumeAfter.add(null);
+            }
+        }
+        if (pids != null) {
+            for (int i = 0; i + 1 < pids.length; i += 2) {
+                partitionIds.add((pids[i] & 0xFF) | ((pids[i + 1] & 0xFF) << 8)); // Little-endian
+                resumeAfter.add(null);
+            }
+        }
+        if (digests != null) {
+            for (int i = 0; i + 20 <= digests.length; i += 20) {
+                byte[] digest = Arrays.copyOfRange(digests, i, i + 20);
+                partitionIds.add(StandInStore.partitionId(digest));
+                resumeAfter.add(digest);
+            }
+        }
+
+        byte[] maxField = message.fields.get(FIELD_MAX_RECORDS);
+        long max = maxField != null && StandInStore.bytesLong(maxField, 0, 8) > 0
+                ? StandInStore.bytesLong(maxField, 0, 8) : Long.MAX_VALUE;
+        boolean background = (message.info2 & INFO2_WRITE) != 0;
+        List<String> binNames = binNames(message);
+        boolean noBinData = (message.info1 & INFO1_NOBINDATA) != 0;
+        byte[] namespaceName = namespace.name.getBytes(StandardCharsets.UTF_8);
+
+        long returned = 0;
+        for (int i = 0; i < partitionIds.size() && returned < max; i++) {
+            int pid = partitionIds.get(i);
+            boolean complete = true;
+            for (StandInStore.StoredRecord record : namespace.range(pid, resumeAfter.get(i), Long.MAX_VALUE)) {
+                if ((set != null && !set.equals(record.setName)) || (range != null && !range.matches(record))
+                        || (filter != null && !filter.matches(record))) {
+                    continue;
+                }
+                if (returned >= max) {
+                    complete = false;
+                    break;
+                }
+                returned++;
+                if (background) {
+                    apply(namespace, record.digest, record.setName, null, message, message.ops, null);
+                } else {
+                    writeRecord(out, namespaceName, record, binNames, noBinData);
+                    out.endMessage();
+                }
+            }
+            if (complete && !background) {
+                out.header(INFO3_PARTITION_DONE, OK, pid, 0, 0, 0, 0); // Generation carries the partition id
+                out.endMessage();
+            }
+        }
+        if (background) {
+            byte[] taskId = message.fields.get(FIELD_QUERY_ID);
+            store.jobFinished(taskId == null ? 0 : StandInStore.bytesLong(taskId, 0, 8), returned);
+        }
+        namespace.queriesComplete.increment();
+        last(out, OK);
+    }
+
+    /**
+     * Reads or writes one record under its partition's lock. Generation, create/update/replace
+     * and the filter are checked first; write ops are then applied in order, so a read op
+     * sees the writes before it. A write that leaves no bins deletes the record.
+     */
+    private static Result apply(StandInStore.Namespace namespace, byte[] digest, String set,
+                                StandInStore.Particle userKey, Message message, List<Op> ops,
+                                StandInExpression filter) {
+        StandInStore.Partition partition = namespace.partition(digest);
+        synchronized (partition) {
+            StandInStore.StoredRecord existing = namespace.get(partition, digest);
+            if (existing != null && filter != null && !filter.matches(existing)) {
+                return Result.of(FILTERED_OUT);
+            }
+            if ((message.info2 & (INFO2_WRITE | INFO2_DELETE)) == 0) {
+                return read(namespace, existing, message.info1, ops);
+            }
+
+            boolean delete = (message.info2 & INFO2_DELETE) != 0;
+            if (existing == null) {
+                if (delete) {
+                    namespace.deleteNotFound.increment();
+                    return Result.of(KEY_NOT_FOUND);
+                }
+                if ((message.info3 & (INFO3_UPDATE_ONLY | INFO3_REPLACE_ONLY)) != 0) {
+                    return Result.of(KEY_NOT_FOUND);
+                }
+            } else if ((message.info2 & INFO2_CREATE_ONLY) != 0) {
+                return Result.of(KEY_EXISTS);
+            } else if ((message.info2 & INFO2_GENERATION) != 0 && existing.generation != message.generation) {
+                return Result.of(GENERATION_ERROR);
+            } else if ((message.info2 & INFO2_GENERATION_GT) != 0 && message.generation <= existing.generation) {
+                return Result.of(GENERATION_ERROR);
+            }
+            if (delete) {
+                namespace.store(partition, digest, existing, null);
+                namespace.deleteSuccess.increment();
+                return Result.of(OK);
+            }
+
+            boolean replace = (message.info3 & (INFO3_CREATE_OR_REPLACE | INFO3_REPLACE_ONLY)) != 0;
+            Map<String, StandInStore.Particle> bins = existing == null || replace
+                    ? new LinkedHashMap<>() : new LinkedHashMap<>(existing.bins);
+            boolean respondAllOps = (message.info2 & INFO2_RESPOND_ALL_OPS) != 0;
+            boolean deleteRecord = false;
+            List<Op> results = new ArrayList<>();
+            for (Op op : ops) {
+                switch (op.type) {
+                    case OP_READ:
+                        readBins(bins, op.name, respondAllOps, results);
+                        continue;
+                    case OP_WRITE:
+                        if (op.particleType == ParticleType.NULL) {
+                            bins.remove(op.name);
+                        } else {
+                            bins.put(op.name, new StandInStore.Particle(op.particleType, op.value));
+                        }
+                        break;
+                    case OP_ADD: {
+                        StandInStore.Particle sum = add(bins.get(op.name), op);
+                        if (sum == null) {
+                            return Result.of(BIN_TYPE_ERROR);
+                        }
+                        bins.put(op.name, sum);
+                        break;
+                    }
+                    case OP_APPEND:
+                    case OP_PREPEND: {
+                        StandInStore.Particle joined = concat(bins.get(op.name), op, op.type == OP_PREPEND);
+                        if (joined == null) {
+                            return Result.of(BIN_TYPE_ERROR);
+                        }
+                        bins.put(op.name, joined);
+                        break;
+                    }
+                    case OP_TOUCH:
+                        if (existing == null) {
+                            return Result.of(KEY_NOT_FOUND);
+                        }
+                        break;
+                    case OP_DELETE:
+                        deleteRecord = true;
+                        bins.clear();
+                        break;
+                    default:
+                        return Result.of(UNSUPPORTED_FEATURE); // CDT, bit, HLL and expression ops
+                }
+                if (respondAllOps) {
+                    results.add(new Op(OP_READ, ParticleType.NULL, op.name, EMPTY));
+                }
+            }
+
+            if (deleteRecord || bins.isEmpty()) {
+                if (existing != null) {
+                    namespace.store(partition, digest, existing, null);
+                    namespace.deleteSuccess.increment();
+                }
+                return new Result(OK, null, results);
+            }
+            StandInStore.StoredRecord record = new StandInStore.StoredRecord(digest,
+                    set != null || existing == null ? set : existing.setName,
+                    userKey != null || existing == null ? userKey : existing.userKey,
+                    bins,
+                    existing == null ? 1 : existing.generation % 0xFFFF + 1,
+                    voidTime(message.ttl, existing),
+                    System.currentTimeMillis());
+            namespace.store(partition, digest, existing, record);
+            namespace.writeSuccess.increment();
+            return new Result(OK, record, results);
+        }
+    }
+
+    private static Result read(StandInStore.Namespace namespace, StandInStore.StoredRecord existing, int info1,
+                               List<Op> ops) {
+        if (existing == null) {
+            namespace.readNotFound.increment();
+            return Result.of(KEY_NOT_FOUND);
+        }
+        namespace.readSuccess.increment();
+        if ((info1 & INFO1_NOBINDATA) != 0) {
+            return new Result(OK, existing, NO_OPS);
+        }
+        List<Op> results = new ArrayList<>();
+        if ((info1 & INFO1_GET_ALL) != 0 || ops.isEmpty()) {
+            readBins(existing.bins, "", false, results);
+        } else {
+            for (Op op : ops) {
+                if (op.type != OP_READ) {
+                    return Result.of(UNSUPPORTED_FEATURE);
+                }
+                readBins(existing.bins, op.name, false, results);
+            }
+        }
+        return new Result(OK, existing, results);
+    }
+
+    // An empty name reads every bin
+    private static void readBins(Map<String, StandInStore.Particle> bins, String name, boolean respondAllOps,
+                                 List<Op> results) {
+        if (name.isEmpty()) {
+            for (Map.Entry<String, StandInStore.Particle> bin : bins.entrySet()) {
+                results.add(new Op(OP_READ, bin.getValue().type, bin.getKey(), bin.getValue().bytes));
+            }
+            return;
+        }
+        StandInStore.Particle value = bins.get(name);
+        if (value != null) {
+            results.add(new Op(OP_READ, value.type, name, value.bytes));
+        } else if (respondAllOps) {
+            results.add(new Op(OP_READ, ParticleType.NULL, name, EMPTY));
+        }
+    }
+
+    private static StandInStore.Particle add(StandInStore.Particle current, Op op) {
+        long operand = StandInStore.bytesLong(op.value, 0, op.value.length);
+        if (current == null) {
+            return new StandInStore.Particle(op.particleType, op.value);
+        }
+        if (current.type != op.particleType) {
+            return null;
+        }
+        long value = StandInStore.bytesLong(current.bytes, 0, current.bytes.length);
+        switch (op.particleType) {
+            case ParticleType.INTEGER:
+                return StandInStore.Particle.of(value + operand);
+            case ParticleType.DOUBLE:
+                return StandInStore.Particle.of(Double.longBitsToDouble(value) + Double.longBitsToDouble(operand));
+            default:
+                return null;
+        }
+    }
+
+    private static StandInStore.Particle concat(StandInStore.Particle current, Op op, boolean prepend) {
+        if (op.particleType != ParticleType.STRING && op.particleType != ParticleType.BLOB) {
+            return null;
+        }
+        if (current == null) {
+            return new StandInStore.Particle(op.particleType, op.value);
+        }
+        if (current.type != op.particleType) {
+            return null;
+        }
+        byte[] first = prepend ? op.value : current.bytes;
+        byte[] second = prepend ? current.bytes : op.value;
+        byte[] joined = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, joined, first.length, second.length);
+        return new StandInStore.Particle(current.type, joined);
+    }
+
+    // -2 keeps the current expiration, -1 and 0 (the namespace default here) never expire
+    private static int voidTime(int ttl, StandInStore.StoredRecord existing) {
+        switch (ttl) {
+            case -2:
+                return existing == null ? 0 : existing.voidTime;
+            case -1:
+            case 0:
+                return 0;
+            default:
+                return StandInStore.now() + ttl;
+        }
+    }
+
+    private static void writeResult(Output out, Result result, int batchIndex) {
+        StandInStore.StoredRecord record = result.record;
+        out.header(0, result.resultCode, record == null ? 0 : record.generation, record == null ? 0 : record.voidTime,
+                batchIndex, 0, result.ops.size());
+        for (Op op : result.ops) {
+            out.op(op);
+        }
+    }
+
+    private static void writeRecord(Output out, byte[] namespace, StandInStore.StoredRecord record,
+                                    List<String> binNames, boolean noBinData) {
+        List<Op> ops = new ArrayList<>();
+        if (!noBinData) {
+            if (binNames == null) {
+                readBins(record.bins, "", false, ops);
+            } else {
+                for (String name : binNames) {
+                    readBins(record.bins, name, false, ops);
+                }
+            }
+        }
+        int fieldCount = 2 + (record.setName != null ? 1 : 0) + (record.userKey != null ? 1 : 0);
+        out.header(0, OK, record.generation, record.voidTime, 0, fieldCount, ops.size());
+        out.field(FIELD_NAMESPACE, namespace);
+        if (record.setName != null) {
+            out.field(FIELD_TABLE, record.setName.getBytes(StandardCharsets.UTF_8));
+        }
+        out.field(FIELD_DIGEST, record.digest);
+        if (record.userKey != null) {
+            out.keyField(record.userKey);
+        }
+        for (Op op : ops) {
+            out.op(op);
+        }
+    }
+
+    private static void last(Output out, int resultCode) throws IOException {
+        out.header(INFO3_LAST, resultCode, 0, 0, 0, 0, 0);
+        out.flush();
+    }
+
+    // Bins to return: named read ops, else the legacy bin list field, else all (null)
+    private static List<String> binNames(Message message) {
+        List<String> names = new ArrayList<>();
+        for (Op op : message.ops) {
+            if (op.type == OP_READ && !op.name.isEmpty()) {
+                names.add(op.name);
+            }
+        }
+        byte[] binList = message.fields.get(FIELD_QUERY_BINLIST);
+        if (names.isEmpty() && binList != null) {
+            int offset = 1;
+            for (int i = 0; i < (binList[0] & 0xFF); i++) {
+                int length = binList[offset] & 0xFF;
+                names.add(new String(binList, offset + 1, length, StandardCharsets.UTF_8));
+                offset += 1 + length;
+            }
+        }
+        return names.isEmpty() ? null : names;
+    }
+
+    private static StandInStore.Particle userKey(byte[] field) {
+        return field == null || field.length == 0
+                ? null : new StandInStore.Particle(field[0] & 0xFF, Arrays.copyOfRange(field, 1, field.length));
+    }
+
+    private static StandInExpression compile(byte[] bytes) {
+        try {
+            return StandInExpression.compile(bytes);
+        } catch (StandInExpression.UnsupportedExpressionException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new StandInExpression.UnsupportedExpressionException("Malformed expression: " + e);
+        }
+    }
+
+    private static int readFields(byte[] buffer, int offset, int count, Map<Integer, byte[]> fields) {
+        for (int i = 0; i < count; i++) {
+            int size = (int) StandInStore.bytesLong(buffer, offset, 4);
+            fields.put(buffer[offset + 4] & 0xFF, Arrays.copyOfRange(buffer, offset + 5, offset + 4 + size));
+            offset += 4 + size;
+        }
+        return offset;
+    }
+
+    private static int readOps(byte[] buffer, int offset, int count, List<Op> ops) {
+        for (int i = 0; i < count; i++) {
+            int size = (int) StandInStore.bytesLong(buffer, offset, 4);
+            int nameLength = buffer[offset + 7] & 0xFF;
+            String name = new String(buffer, offset + 8, nameLength, StandardCharsets.UTF_8);
+            byte[] value = Arrays.copyOfRange(buffer, offset + 8 + nameLength, offset + 4 + size);
+            ops.add(new Op(buffer[offset + 4] & 0xFF, buffer[offset + 5] & 0xFF, name, value));
+            offset += 4 + size;
+        }
+        return offset;
+    }
+
+    /**
+     * The secondary index filter of a query: one bin, an integer range or a string value, and
+     * the collection type the index was built over.
+     */
+    private static final class IndexRange {
+        final String bin;
+        final int particleType;
+        final long begin;
+        final long end;
+        final String value;
+        final int collectionType;
+
+        private IndexRange(String bin, int particleType, long begin, long end, String value, int collectionType) {
+            this.bin = bin;
+            this.particleType = particleType;
+            this.begin = begin;
+            this.end = end;
+            this.value = value;
+            this.collectionType = collectionType;
+        }
+
+        // Count, then per filter: bin name, particle type, begin and end values; null if unsupported
+        static IndexRange parse(byte[] field, byte[] typeField) {
+            if (field[0] != 1) {
+                return null;
+            }
+            int nameLength = field[1] & 0xFF;
+            String bin = new String(field, 2, nameLength, StandardCharsets.UTF_8);
+            int offset = 2 + nameLength;
+            int particleType = field[offset] & 0xFF;
+            int beginLength = (int) StandInStore.bytesLong(field, offset + 1, 4);
+            int beginOffset = offset + 5;
+            int endLength = (int) StandInStore.bytesLong(field, beginOffset + beginLength, 4);
+            int endOffset = beginOffset + beginLength + 4;
+            int collectionType = typeField == null || typeField.length == 0 ? 0 : typeField[0] & 0xFF;
+            if (collectionType >= COLLECTION_TYPES.length) {
+                return null;
+            }
+            switch (particleType) {
+                case ParticleType.INTEGER:
+                    return new IndexRange(bin, particleType, StandInStore.bytesLong(field, beginOffset, beginLength),
+                            StandInStore.bytesLong(field, endOffset, endLength), null, collectionType);
+                case ParticleType.STRING:
+                    return new IndexRange(bin, particleType, 0, 0,
+                            new String(field, beginOffset, beginLength, StandardCharsets.UTF_8), collectionType);
+                default:
+                    return null; // Geo filters
+            }
+        }
+
+        String indexType() {
+            return particleType == ParticleType.INTEGER ? "NUMERIC" : "STRING";
+        }
+
+        String collectionType() {
+            return COLLECTION_TYPES[collectionType];
+        }
+
+        boolean matches(StandInStore.StoredRecord record) {
+            StandInStore.Particle particle = record.bins.get(bin);
+            if (particle == null) {
+                return false;
+            }
+            Object value = particle.toObject();
+            switch (collectionType) {
+                case 1:
+                    return value instanceof List && anyMatch((List<?>) value);
+                case 2:
+                    return value instanceof Map && anyMatch(((Map<?, ?>) value).keySet());
+                case 3:
+                    return value instanceof Map && anyMatch(((Map<?, ?>) value).values());
+                default:
+                    return matchesValue(value);
+            }
+        }
+
+        private boolean anyMatch(Iterable<?> values) {
+            for (Object value : values) {
+                if (matchesValue(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean matchesValue(Object value) {
+            if (particleType == ParticleType.INTEGER) {
+                return value instanceof Long && (Long) value >= begin && (Long) value <= end;
+            }
+            return this.value.equals(value);
+        }
+    }
+}
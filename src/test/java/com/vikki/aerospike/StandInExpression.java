@@ -0,0 +1,601 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.command.ParticleType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Filter expressions for the {@link StandInAerospikeServer}, compiled once per request from
+ * their msgpack wire form and then evaluated per record. Covers comparisons, boolean logic,
+ * regex, bin/key/metadata reads, integer and float arithmetic, and list size / value counts;
+ * anything else is rejected at compile time, which the server reports as a parameter error.
+ * <p>
+ * As on a real server, reading a bin of another type yields "unknown", and a record whose
+ * filter is unknown does not match.
+ */
+final class StandInExpression {
+
+    private static final Object UNKNOWN = new Object();
+
+    // Operation codes of the expression wire format
+    private static final int EQ = 1;
+    private static final int NE = 2;
+    private static final int GT = 3;
+    private static final int GE = 4;
+    private static final int LT = 5;
+    private static final int LE = 6;
+    private static final int REGEX = 7;
+    private static final int AND = 16;
+    private static final int OR = 17;
+    private static final int NOT = 18;
+    private static final int EXCLUSIVE = 19;
+    private static final int ADD = 20;
+    private static final int SUB = 21;
+    private static final int MUL = 22;
+    private static final int DIV = 23;
+    private static final int MOD = 26;
+    private static final int ABS = 27;
+    private static final int TO_INT = 30;
+    private static final int TO_FLOAT = 31;
+    private static final int MIN = 50;
+    private static final int MAX = 51;
+    private static final int DIGEST_MODULO = 64;
+    private static final int DEVICE_SIZE = 65;
+    private static final int LAST_UPDATE = 66;
+    private static final int SINCE_UPDATE = 67;
+    private static final int VOID_TIME = 68;
+    private static final int TTL = 69;
+    private static final int SET_NAME = 70;
+    private static final int KEY_EXISTS = 71;
+    private static final int IS_TOMBSTONE = 72;
+    private static final int MEMORY_SIZE = 73;
+    private static final int RECORD_SIZE = 74;
+    private static final int KEY = 80;
+    private static final int BIN = 81;
+    private static final int BIN_TYPE = 82;
+    private static final int QUOTED = 126;
+    private static final int CALL = 127;
+
+    // Exp.Type codes
+    private static final int TYPE_BOOL = 1;
+    private static final int TYPE_INT = 2;
+    private static final int TYPE_STRING = 3;
+    private static final int TYPE_LIST = 4;
+    private static final int TYPE_MAP = 5;
+    private static final int TYPE_BLOB = 6;
+    private static final int TYPE_FLOAT = 7;
+
+    // List CDT operations readable from an expression
+    private static final int LIST_SIZE = 16;
+    private static final int LIST_GET_BY_VALUE = 22;
+    private static final int RETURN_COUNT = 5;
+    private static final int RETURN_EXISTS = 13;
+
+    static final class UnsupportedExpressionException extends RuntimeException {
+        UnsupportedExpressionException(String message) {
+            super(message);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Node {
+        Object eval(StandInStore.StoredRecord record);
+    }
+
+    private final Node root;
+
+    private StandInExpression(Node root) {
+        this.root = root;
+    }
+
+    static StandInExpression compile(byte[] bytes) {
+        MsgPackReader reader = new MsgPackReader(bytes);
+        return new StandInExpression(node(reader.read()));
+    }
+
+    boolean matches(StandInStore.StoredRecord record) {
+        return Boolean.TRUE.equals(root.eval(record));
+    }
+
+    private static Node node(Object packed) {
+        if (!(packed instanceof List<?> list)) {
+            Object value = constant(packed);
+            return record -> value;
+        }
+        if (list.isEmpty() || !(list.get(0) instanceof Long)) {
+            throw new UnsupportedExpressionException("Malformed expression " + list);
+        }
+        int op = ((Long) list.get(0)).intValue();
+        switch (op) {
+            case EQ:
+            case NE:
+            case GT:
+            case GE:
+            case LT:
+            case LE: {
+                Node left = node(list.get(1));
+                Node right = node(list.get(2));
+                return record -> compare(op, left.eval(record), right.eval(record));
+            }
+            case REGEX: {
+                int flags = ((Long) list.get(1)).intValue();
+                Pattern pattern = Pattern.compile(text(list.get(2)), regexFlags(flags));
+                Node operand = node(list.get(3));
+                return record -> {
+                    Object value = operand.eval(record);
+                    return value instanceof String ? (Object) pattern.matcher((String) value).find() : UNKNOWN;
+                };
+            }
+            case AND:
+            case OR: {
+                List<Node> operands = operands(list, 1);
+                boolean isAnd = op == AND;
+                return record -> {
+                    boolean unknown = false;
+                    for (Node operand : operands) {
+                        Object value = operand.eval(record);
+                        if (value instanceof Boolean) {
+                            if ((Boolean) value != isAnd) {
+                                return !isAnd;
+                            }
+                        } else {
+                            unknown = true;
+                        }
+                    }
+                    return unknown ? UNKNOWN : isAnd;
+                };
+            }
+            case NOT: {
+                Node operand = node(list.get(1));
+                return record -> {
+                    Object value = operand.eval(record);
+                    return value instanceof Boolean ? (Object) !(Boolean) value : UNKNOWN;
+                };
+            }
+            case EXCLUSIVE: {
+                List<Node> operands = operands(list, 1);
+                return record -> {
+                    int count = 0;
+                    for (Node operand : operands) {
+                        Object value = operand.eval(record);
+                        if (!(value instanceof Boolean)) {
+                            return UNKNOWN;
+                        }
+                        count += (Boolean) value ? 1 : 0;
+                    }
+                    return count == 1;
+                };
+            }
+            case ADD:
+            case SUB:
+            case MUL:
+            case DIV:
+            case MOD:
+            case MIN:
+            case MAX: {
+                List<Node> operands = operands(list, 1);
+                return record -> arithmetic(op, operands, record);
+            }
+            case ABS: {
+                Node operand = node(list.get(1));
+                return record -> {
+                    Object value = operand.eval(record);
+                    if (value instanceof Long) {
+                        return Math.abs((Long) value);
+                    }
+                    return value instanceof Double ? (Object) Math.abs((Double) value) : UNKNOWN;
+                };
+            }
+            case TO_INT: {
+                Node operand = node(list.get(1));
+                return record -> {
+                    Object value = operand.eval(record);
+                    return value instanceof Double ? (Object) ((Double) value).longValue() : UNKNOWN;
+                };
+            }
+            case TO_FLOAT: {
+                Node operand = node(list.get(1));
+                return record -> {
+                    Object value = operand.eval(record);
+                    return value instanceof Long ? (Object) ((Long) value).doubleValue() : UNKNOWN;
+                };
+            }
+            case DIGEST_MODULO: {
+                long modulo = (Long) list.get(1);
+                return record -> (StandInStore.bytesLong(record.digest, 8, 4) & 0xFFFFFFFFL) % modulo;
+            }
+            case DEVICE_SIZE:
+            case MEMORY_SIZE:
+            case RECORD_SIZE:
+                return StandInStore.StoredRecord::size;
+            case LAST_UPDATE:
+                return record -> record.lastUpdateMillis * 1_000_000L;
+            case SINCE_UPDATE:
+                return record -> System.currentTimeMillis() - record.lastUpdateMillis;
+            case VOID_TIME:
+                return record -> record.voidTime == 0 ? -1L
+                        : (record.voidTime + StandInStore.CITRUSLEAF_EPOCH) * 1_000_000_000L;
+            case TTL:
+                return record -> record.voidTime == 0 ? -1L : (long) Math.max(1, record.voidTime - StandInStore.now());
+            case SET_NAME:
+                return record -> record.setName != null ? record.setName : "";
+            case KEY_EXISTS:
+                return record -> record.userKey != null;
+            case IS_TOMBSTONE:
+                return record -> false;
+            case KEY: {
+                int type = ((Long) list.get(1)).intValue();
+                return record -> record.userKey == null ? UNKNOWN : typed(record.userKey, type);
+            }
+            case BIN: {
+                int type = ((Long) list.get(1)).intValue();
+                String name = text(list.get(2));
+                return record -> {
+                    StandInStore.Particle particle = record.bins.get(name);
+                    return particle == null ? UNKNOWN : typed(particle, type);
+                };
+            }
+            case BIN_TYPE: {
+                String name = text(list.get(1));
+                return record -> {
+                    StandInStore.Particle particle = record.bins.get(name);
+                    return (long) (particle == null ? ParticleType.NULL : particle.type);
+                };
+            }
+            case QUOTED:
+                Object quoted = constant(list.get(1));
+                return record -> quoted;
+            case CALL:
+                return call(list);
+            default:
+                throw new UnsupportedExpressionException("Unsupported expression operation " + op);
+        }
+    }
+
+    // [CALL, return type, module, [cdt op, args...], bin expression]
+    private static Node call(List<?> list) {
+        if (((Long) list.get(2)).intValue() != 0 || !(list.get(3) instanceof List<?> cdt)) {
+            throw new UnsupportedExpressionException("Only list reads are supported in expressions");
+        }
+        Node bin = node(list.get(4));
+        int cdtOp = ((Long) cdt.get(0)).intValue();
+        if (cdtOp == LIST_SIZE) {
+            return record -> {
+                Object value = bin.eval(record);
+                return value instanceof List ? (Object) (long) ((List<?>) value).size() : UNKNOWN;
+            };
+        }
+        if (cdtOp == LIST_GET_BY_VALUE && cdt.size() == 3) {
+            int returnType = ((Long) cdt.get(1)).intValue();
+            Object wanted = constant(cdt.get(2));
+            if (returnType == RETURN_COUNT || returnType == RETURN_EXISTS) {
+                return record -> {
+                    Object value = bin.eval(record);
+                    if (!(value instanceof List)) {
+                        return UNKNOWN;
+                    }
+                    long count = 0;
+                    for (Object item : (List<?>) value) {
+                        if (valueEquals(item, wanted)) {
+                            count++;
+                        }
+                    }
+                    return returnType == RETURN_COUNT ? (Object) count : (Object) (count > 0);
+                };
+            }
+        }
+        throw new UnsupportedExpressionException("Unsupported list expression " + cdt);
+    }
+
+    private static List<Node> operands(List<?> list, int from) {
+        List<Node> operands = new ArrayList<>(list.size() - from);
+        for (int i = from; i < list.size(); i++) {
+            operands.add(node(list.get(i)));
+        }
+        return operands;
+    }
+
+    private static Object typed(StandInStore.Particle particle, int type) {
+        switch (type) {
+            case TYPE_INT:
+                return particle.type == ParticleType.INTEGER ? particle.toObject() : UNKNOWN;
+            case TYPE_FLOAT:
+                return particle.type == ParticleType.DOUBLE ? particle.toObject() : UNKNOWN;
+            case TYPE_STRING:
+                return particle.type == ParticleType.STRING ? particle.toObject() : UNKNOWN;
+            case TYPE_BOOL:
+                return particle.type == ParticleType.BOOL ? particle.toObject() : UNKNOWN;
+            case TYPE_BLOB:
+                return particle.type == ParticleType.BLOB ? particle.toObject() : UNKNOWN;
+            case TYPE_LIST:
+                return particle.type == ParticleType.LIST ? particle.toObject() : UNKNOWN;
+            case TYPE_MAP:
+                return particle.type == ParticleType.MAP ? particle.toObject() : UNKNOWN;
+            default:
+                return UNKNOWN;
+        }
+    }
+
+    private static Object compare(int op, Object left, Object right) {
+        if (left == UNKNOWN || right == UNKNOWN) {
+            return UNKNOWN;
+        }
+        if (op == EQ || op == NE) {
+            return valueEquals(left, right) == (op == EQ);
+        }
+        int result;
+        if (left instanceof Number && right instanceof Number) {
+            result = left instanceof Long && right instanceof Long
+                    ? Long.compare((Long) left, (Long) right)
+                    : Double.compare(((Number) left).doubleValue(), ((Number) right).doubleValue());
+        } else if (left instanceof String && right instanceof String) {
+            result = ((String) left).compareTo((String) right);
+        } else {
+            return UNKNOWN;
+        }
+        switch (op) {
+            case GT:
+                return result > 0;
+            case GE:
+                return result >= 0;
+            case LT:
+                return result < 0;
+            default:
+                return result <= 0;
+        }
+    }
+
+    private static Object arithmetic(int op, List<Node> operands, StandInStore.StoredRecord record) {
+        Object first = operands.get(0).eval(record);
+        if (first instanceof Long) {
+            long result = (Long) first;
+            for (int i = 1; i < operands.size(); i++) {
+                Object value = operands.get(i).eval(record);
+                if (!(value instanceof Long)) {
+                    return UNKNOWN;
+                }
+                long operand = (Long) value;
+                if ((op == DIV || op == MOD) && operand == 0) {
+                    return UNKNOWN;
+                }
+                switch (op) {
+                    case ADD -> result += operand;
+                    case SUB -> result -= operand;
+                    case MUL -> result *= operand;
+                    case DIV -> result /= operand;
+                    case MOD -> result %= operand;
+                    case MIN -> result = Math.min(result, operand);
+                    default -> result = Math.max(result, operand);
+                }
+            }
+            return operands.size() == 1 && op == SUB ? -result : result;
+        }
+        if (first instanceof Double) {
+            double result = (Double) first;
+            for (int i = 1; i < operands.size(); i++) {
+                Object value = operands.get(i).eval(record);
+                if (!(value instanceof Double) || op == MOD) {
+                    return UNKNOWN;
+                }
+                double operand = (Double) value;
+                switch (op) {
+                    case ADD -> result += operand;
+                    case SUB -> result -= operand;
+                    case MUL -> result *= operand;
+                    case DIV -> result /= operand;
+                    case MIN -> result = Math.min(result, operand);
+                    default -> result = Math.max(result, operand);
+                }
+            }
+            return operands.size() == 1 && op == SUB ? -result : result;
+        }
+        return UNKNOWN;
+    }
+
+    private static boolean valueEquals(Object a, Object b) {
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        if (a instanceof Number && b instanceof Number && (a instanceof Double || b instanceof Double)) {
+            return ((Number) a).doubleValue() == ((Number) b).doubleValue();
+        }
+        if (a instanceof Number && b instanceof Number) {
+            return ((Number) a).longValue() == ((Number) b).longValue();
+        }
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static int regexFlags(int flags) {
+        int javaFlags = 0;
+        if ((flags & 2) != 0) {
+            javaFlags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        if ((flags & 8) != 0) {
+            javaFlags |= Pattern.MULTILINE;
+        }
+        return javaFlags;
+    }
+
+    // Plain strings (bin names, regex) carry no particle type byte
+    private static String text(Object packed) {
+        if (!(packed instanceof byte[])) {
+            throw new UnsupportedExpressionException("Expected a string, got " + packed);
+        }
+        return new String((byte[]) packed, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A literal value. String and blob values start with their particle type byte.
+     */
+    private static Object constant(Object packed) {
+        if (packed instanceof byte[] bytes) {
+            if (bytes.length == 0) {
+                return "";
+            }
+            byte[] rest = Arrays.copyOfRange(bytes, 1, bytes.length);
+            return (bytes[0] & 0xFF) == ParticleType.STRING ? new String(rest, StandardCharsets.UTF_8) : rest;
+        }
+        if (packed instanceof List<?> list) {
+            List<Object> values = new ArrayList<>(list.size());
+            for (Object item : list) {
+                values.add(constant(item));
+            }
+            return values;
+        }
+        if (packed instanceof Map<?, ?> map) {
+            Map<Object, Object> values = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                values.put(constant(entry.getKey()), constant(entry.getValue()));
+            }
+            return values;
+        }
+        return packed;
+    }
+
+    /**
+     * Just enough msgpack: integers come back as Long, floats as Double, strings and binary
+     * as raw byte[], arrays as List and maps as Map. Extension values (map order flags) are
+     * skipped, as are map entries keyed by one.
+     */
+    static final class MsgPackReader {
+        private static final Object EXTENSION = new Object();
+
+        private final byte[] buffer;
+        private int offset;
+
+        MsgPackReader(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        Object read() {
+            int type = buffer[offset++] & 0xFF;
+            if (type <= 0x7F) {
+                return (long) type;
+            }
+            if (type >= 0xE0) {
+                return (long) (byte) type;
+            }
+            if ((type & 0xF0) == 0x80) {
+                return map(type & 0x0F);
+            }
+            if ((type & 0xF0) == 0x90) {
+                return array(type & 0x0F);
+            }
+            if ((type & 0xE0) == 0xA0) {
+                return bytes(type & 0x1F);
+            }
+            switch (type) {
+                case 0xC0:
+                    return null;
+                case 0xC2:
+                    return false;
+                case 0xC3:
+                    return true;
+                case 0xC4:
+                case 0xD9:
+                    return bytes(unsigned(1));
+                case 0xC5:
+                case 0xDA:
+                    return bytes(unsigned(2));
+                case 0xC6:
+                case 0xDB:
+                    return bytes(unsigned(4));
+                case 0xC7:
+                    return extension(unsigned(1));
+                case 0xC8:
+                    return extension(unsigned(2));
+                case 0xC9:
+                    return extension(unsigned(4));
+                case 0xCA:
+                    return (double) Float.intBitsToFloat((int) unsigned(4));
+                case 0xCB:
+                    return Double.longBitsToDouble(signed(8));
+                case 0xCC:
+                    return unsigned(1);
+                case 0xCD:
+                    return unsigned(2);
+                case 0xCE:
+                    return unsigned(4);
+                case 0xCF:
+                case 0xD3:
+                    return signed(8);
+                case 0xD0:
+                    return (long) (byte) unsigned(1);
+                case 0xD1:
+                    return (long) (short) unsigned(2);
+                case 0xD2:
+                    return (long) (int) unsigned(4);
+                case 0xD4:
+                    return extension(1);
+                case 0xD5:
+                    return extension(2);
+                case 0xD6:
+                    return extension(4);
+                case 0xD7:
+                    return extension(8);
+                case 0xD8:
+                    return extension(16);
+                case 0xDC:
+                    return array((int) unsigned(2));
+                case 0xDD:
+                    return array((int) unsigned(4));
+                case 0xDE:
+                    return map((int) unsigned(2));
+                case 0xDF:
+                    return map((int) unsigned(4));
+                default:
+                    throw new UnsupportedExpressionException("Bad msgpack type " + type);
+            }
+        }
+
+        private List<Object> array(int count) {
+            List<Object> list = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Object item = read();
+                if (item != EXTENSION) {
+                    list.add(item);
+                }
+            }
+            return list;
+        }
+
+        private Map<Object, Object> map(int count) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                Object key = read();
+                Object value = read();
+                if (key != EXTENSION) {
+                    map.put(key, value);
+                }
+            }
+            return map;
+        }
+
+        private byte[] bytes(long length) {
+            byte[] bytes = Arrays.copyOfRange(buffer, offset, offset + (int) length);
+            offset += (int) length;
+            return bytes;
+        }
+
+        private Object extension(long length) {
+            offset += 1 + (int) length; // Type byte and payload
+            return EXTENSION;
+        }
+
+        private long unsigned(int length) {
+            long value = StandInStore.bytesLong(buffer, offset, length);
+            offset += length;
+            return value;
+        }
+
+        private long signed(int length) {
+            return unsigned(length);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Value;
+import com.aerospike.client.command.Buffer;
+import com.aerospike.client.command.ParticleType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory data of the {@link StandInAerospikeServer}: namespaces split into 4096
+ * partitions of records ordered by digest, plus the secondary index definitions and UDF
+ * modules the server has been told about. Bin values are kept in their wire encoding so
+ * reads hand back exactly what was written.
+ */
+final class StandInStore {
+
+    static final int PARTITIONS = 4096;
+    static final long CITRUSLEAF_EPOCH = 1262304000L; // 2010-01-01, the server's time base
+
+    /**
+     * A bin value as it travels on the wire: particle type plus encoded bytes.
+     */
+    static final class Particle {
+        final int type;
+        final byte[] bytes;
+
+        Particle(int type, byte[] bytes) {
+            this.type = type;
+            this.bytes = bytes;
+        }
+
+        static Particle of(Object value) {
+            return of(Value.get(value));
+        }
+
+        static Particle of(Value encoded) {
+            byte[] bytes = new byte[encoded.estimateSize()];
+            encoded.write(bytes, 0);
+            return new Particle(encoded.getType(), bytes);
+        }
+
+        static Particle of(long value) {
+            return new Particle(ParticleType.INTEGER, longBytes(value));
+        }
+
+        static Particle of(double value) {
+            return new Particle(ParticleType.DOUBLE, longBytes(Double.doubleToLongBits(value)));
+        }
+
+        /**
+         * Decoded Java value: Long, Double, String, Boolean, byte[], List or Map.
+         */
+        Object toObject() {
+            switch (type) {
+                case ParticleType.NULL:
+                    return null;
+                case ParticleType.INTEGER:
+                    return bytesLong(bytes, 0, bytes.length);
+                case ParticleType.DOUBLE:
+                    return Double.longBitsToDouble(bytesLong(bytes, 0, bytes.length));
+                case ParticleType.STRING:
+                    return new String(bytes, StandardCharsets.UTF_8);
+                case ParticleType.BOOL:
+                    return bytes.length > 0 && bytes[0] != 0;
+                case ParticleType.BLOB:
+                    return bytes;
+                default:
+                    return Buffer.bytesToParticle(type, bytes, 0, bytes.length);
+            }
+        }
+    }
+
+    static final class StoredRecord {
+        final byte[] digest;
+        final String setName;
+        final Particle userKey; // null unless the client sent the key
+        final Map<String, Particle> bins;
+        final int generation;
+        final int voidTime; // Seconds since CITRUSLEAF_EPOCH, 0 = never expires
+        final long lastUpdateMillis;
+
+        StoredRecord(byte[] digest, String setName, Particle userKey, Map<String, Particle> bins, int generation,
+                     int voidTime, long lastUpdateMillis) {
+            this.digest = digest;
+            this.setName = setName;
+            this.userKey = userKey;
+            this.bins = bins;
+            this.generation = generation;
+            this.voidTime = voidTime;
+            this.lastUpdateMillis = lastUpdateMillis;
+        }
+
+        boolean isExpired(int now) {
+            return voidTime != 0 && voidTime <= now;
+        }
+
+        long size() {
+            long size = 0;
+            for (Map.Entry<String, Particle> bin : bins.entrySet()) {
+                size += bin.getKey().length() + bin.getValue().bytes.length;
+            }
+            return size;
+        }
+    }
+
+    static final class Partition {
+        final TreeMap<byte[], StoredRecord> records = new TreeMap<>(Arrays::compareUnsigned);
+    }
+
+    static final class SetStats {
+        final AtomicLong objects = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        volatile long truncateLut;
+    }
+
+    static final class IndexDefinition {
+        final String namespace;
+        final String name;
+        final String set;
+        final String bin;
+        final String type; // NUMERIC, STRING or GEO2DSPHERE
+        final String collectionType; // DEFAULT, LIST, MAPKEYS or MAPVALUES
+
+        IndexDefinition(String namespace, String name, String set, String bin, String type, String collectionType) {
+            this.namespace = namespace;
+            this.name = name;
+            this.set = set;
+            this.bin = bin;
+            this.type = type;
+            this.collectionType = collectionType;
+        }
+    }
+
+    static final class Namespace {
+        final String name;
+        final Partition[] partitions = new Partition[PARTITIONS];
+        final Map<String, SetStats> sets = new ConcurrentSkipListMap<>();
+        final LongAdder readSuccess = new LongAdder();
+        final LongAdder readNotFound = new LongAdder();
+        final LongAdder writeSuccess = new LongAdder();
+        final LongAdder deleteSuccess = new LongAdder();
+        final LongAdder deleteNotFound = new LongAdder();
+        final LongAdder queriesComplete = new LongAdder();
+        final LongAdder queriesError = new LongAdder();
+
+        Namespace(String name) {
+            this.name = name;
+            for (int i = 0; i < PARTITIONS; i++) {
+                partitions[i] = new Partition();
+            }
+        }
+
+        Partition partition(byte[] digest) {
+            return partitions[partitionId(digest)];
+        }
+
+        SetStats setStats(String set) {
+            return sets.computeIfAbsent(set == null ? "" : set, name -> new SetStats());
+        }
+
+        long objects() {
+            long objects = 0;
+            for (SetStats stats : sets.values()) {
+                objects += stats.objects.get();
+            }
+            return objects;
+        }
+
+        long bytes() {
+            long bytes = 0;
+            for (SetStats stats : sets.values()) {
+                bytes += stats.bytes.get();
+            }
+            return bytes;
+        }
+
+        /**
+         * Replaces or removes ({@code record == null}) the record under {@code digest}; the
+         * caller holds the partition's lock.
+         */
+        void store(Partition partition, byte[] digest, StoredRecord previous, StoredRecord record) {
+            if (previous != null) {
+                SetStats stats = setStats(previous.setName);
+                stats.objects.decrementAndGet();
+                stats.bytes.addAndGet(-previous.size());
+            }
+            if (record != null) {
+                partition.records.put(digest, record);
+                SetStats stats = setStats(record.setName);
+                stats.objects.incrementAndGet();
+                stats.bytes.addAndGet(record.size());
+            } else if (previous != null) {
+                partition.records.remove(digest);
+            }
+        }
+
+        /**
+         * The live record under {@code digest}, dropping it first if it has expired.
+         */
+        StoredRecord get(Partition partition, byte[] digest) {
+            StoredRecord record = partition.records.get(digest);
+            if (record != null && record.isExpired(now())) {
+                store(partition, digest, record, null);
+                return null;
+            }
+            return record;
+        }
+
+        /**
+         * Up to {@code max} live records of the partition after {@code afterDigest} (from the
+         * start if {@code null}).
+         */
+        List<StoredRecord> range(int partitionId, byte[] afterDigest, long max) {
+            Partition partition = partitions[partitionId];
+            List<StoredRecord> records = new ArrayList<>();
+            int now = now();
+            synchronized (partition) {
+                NavigableMap<byte[], StoredRecord> tail = afterDigest == null
+                        ? partition.records : partition.records.tailMap(afterDigest, false);
+                for (StoredRecord record : tail.values()) {
+                    if (records.size() >= max) {
+                        break;
+                    }
+                    if (!record.isExpired(now)) {
+                        records.add(record);
+                    }
+                }
+            }
+            return records;
+        }
+
+        /**
+         * Removes the records of {@code set} (all sets if {@code null}) last updated before
+         * {@code beforeMillis}.
+         */
+        void truncate(String set, long beforeMillis) {
+            for (Partition partition : partitions) {
+                synchronized (partition) {
+                    partition.records.values().removeIf(record -> {
+                        if ((set == null || set.equals(record.setName)) && record.lastUpdateMillis < beforeMillis) {
+                            SetStats stats = setStats(record.setName);
+                            stats.objects.decrementAndGet();
+                            stats.bytes.addAndGet(-record.size());
+                            return true;
+                        }
+                        return false;
+                    });
+                }
+            }
+            for (Map.Entry<String, SetStats> entry : sets.entrySet()) {
+                if (set == null || set.equals(entry.getKey())) {
+                    entry.getValue().truncateLut = beforeMillis;
+                }
+            }
+        }
+    }
+
+    private final Map<String, Namespace> namespaces = new LinkedHashMap<>();
+    private final Map<String, IndexDefinition> indexes = new ConcurrentHashMap<>(); // "ns/name"
+    private final Map<String, byte[]> udfModules = new ConcurrentSkipListMap<>();
+    private final Map<Long, Long> finishedJobs = new ConcurrentHashMap<>(); // Task id -> records written
+
+    StandInStore(String... namespaceNames) {
+        for (String name : namespaceNames) {
+            namespaces.put(name, new Namespace(name));
+        }
+    }
+
+    Namespace namespace(String name) {
+        return name == null ? null : namespaces.get(name);
+    }
+
+    List<String> namespaceNames() {
+        return new ArrayList<>(namespaces.keySet());
+    }
+
+    Map<String, IndexDefinition> indexes() {
+        return indexes;
+    }
+
+    Map<String, byte[]> udfModules() {
+        return udfModules;
+    }
+
+    void jobFinished(long taskId, long records) {
+        finishedJobs.put(taskId, records);
+    }
+
+    /**
+     * Records written by the background query {@code taskId}, or {@code null} if unknown.
+     */
+    Long finishedJob(long taskId) {
+        return finishedJobs.get(taskId);
+    }
+
+    /**
+     * The index a query on {@code bin} can use, or {@code null}.
+     */
+    IndexDefinition findIndex(String namespace, String set, String bin, String type, String collectionType) {
+        for (IndexDefinition index : indexes.values()) {
+            if (index.namespace.equals(namespace) && index.bin.equals(bin) && index.type.equals(type)
+                    && index.collectionType.equals(collectionType) && (index.set == null || index.set.equals(set))) {
+                return index;
+            }
+        }
+        return null;
+    }
+
+    static byte[] longBytes(long value) {
+        byte[] bytes = new byte[8];
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+        return bytes;
+    }
+
+    // Big-endian, as every number on the wire is
+    static long bytesLong(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    static int partitionId(byte[] digest) {
+        return ((digest[0] & 0xFF) | ((digest[1] & 0xFF) << 8)) & (PARTITIONS - 1);
+    }
+
+    static int now() {
+        return (int) (System.currentTimeMillis() / 1000 - CITRUSLEAF_EPOCH);
+    }
+}
@@ -0,0 +1,131 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+import com.aerospike.client.Value;
+import com.aerospike.client.async.EventLoops;
+import com.aerospike.client.async.NioEventLoops;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Exports a set of a {@link StandInAerospikeServer} and imports the file into another set,
+ * checking that every record comes back under the digest of its original user key.
+ */
+class StreamingExporterTest {
+
+    // "42" and 42 are different records; both have to survive the round trip
+    private static final List<Object> USER_KEYS = List.of(42L, "42", "ada", -7L, "007");
+
+    private static StandInAerospikeServer server;
+    private static EventLoops eventLoops;
+    private static AerospikeClient client;
+
+    @TempDir
+    Path dir;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        for (Object userKey : USER_KEYS) {
+            server.put(new Key("test", "users", Value.get(userKey)), Map.of("name", "user " + userKey, "age", 30L));
+        }
+        eventLoops = new NioEventLoops(1);
+        ClientPolicy policy = new ClientPolicy();
+        policy.eventLoops = eventLoops;
+        client = new AerospikeClient(policy, StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        eventLoops.close();
+        server.close();
+    }
+
+    private Path export(StreamingExporter.Format format, String fileName) {
+        Path file = dir.resolve(fileName);
+        AtomicReference<Exception> error = new AtomicReference<>();
+        new StreamingExporter(client).exportScan("test", "users", file, format, false, new StreamingExporter.Listener() {
+            @Override
+            public void onProgress(long recordsWritten, int partitionsDone) {
+            }
+
+            @Override
+            public void onComplete(long recordsWritten, long droppedBins, Path path) {
+                assertEquals(USER_KEYS.size(), recordsWritten);
+            }
+
+            @Override
+            public void onCancelled(Path path) {
+                error.set(new IllegalStateException("cancelled"));
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+            }
+        });
+        assertNull(error.get());
+        return file;
+    }
+
+    private static void importAndCompare(Path file, String set) throws IOException {
+        try (ImportFileReader reader = new ImportFileReader(file)) {
+            BulkLoader.Result result = new BulkLoader(client, eventLoops).load("test", set, reader,
+                    (written, retried, rejected, perSecond) -> {
+                    });
+            assertEquals(0, reader.getRejectedRows(), reader.getLastError());
+            assertEquals(0, result.getRejected());
+            assertEquals(USER_KEYS.size(), result.getWritten());
+        }
+        for (Object userKey : USER_KEYS) {
+            Record record = client.get(null, new Key("test", set, Value.get(userKey)));
+            assertNotNull(record, set + " has no record for " + userKey.getClass().getSimpleName() + " key " + userKey);
+            assertEquals("user " + userKey, record.getString("name"));
+            assertEquals(30L, record.getLong("age"));
+        }
+    }
+
+    @Test
+    void csvExportImportsUnderTheSameKeys() throws IOException {
+        importAndCompare(export(StreamingExporter.Format.CSV, "users.csv"), "from_csv");
+    }
+
+    @Test
+    void jsonExportImportsUnderTheSameKeys() throws IOException {
+        importAndCompare(export(StreamingExporter.Format.JSON, "users.json"), "from_json");
+    }
+
+    @Test
+    void quotedCsvKeysStayStrings() throws IOException {
+        Path file = dir.resolve("keys.csv");
+        Files.writeString(file, "Key,count\n\"12\",1\n12,2\n\"a,b\",3\n");
+        List<Object> keys = new ArrayList<>();
+        List<Object> counts = new ArrayList<>();
+        try (ImportFileReader reader = new ImportFileReader(file)) {
+            reader.forEachRemaining(write -> {
+                keys.add(write.userKey);
+                counts.add(write.bins[0].value.getObject());
+            });
+        }
+        assertEquals(List.of("12", 12L, "a,b"), keys);
+        assertEquals(List.of(1L, 2L, 3L), counts);
+    }
+}
@@ -0,0 +1,107 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.Key;
+import com.aerospike.client.Record;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic records shaped like a typical user-profile set: a few fixed bins of each
+ * type, a list and a map bin, and optional bins that only some records carry so column
+ * discovery has work to do.
+ */
+final class SyntheticData {
+
+    static final String NAMESPACE = "test";
+    static final String SET = "bench";
+
+    private static final String[] CITIES = {"Berlin", "Chennai", "Lagos", "Lima", "Osaka", "Toronto", "Warsaw"};
+
+    private SyntheticData() {
+    }
+
+    static Key[] keys(int count) {
+        Key[] keys = new Key[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = new Key(NAMESPACE, SET, "user-" + i);
+        }
+        return keys;
+    }
+
+    /**
+     * @param optionalBins how many distinct optional bins exist; each record carries two
+     */
+    static Record[] records(int count, int optionalBins, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Record[] records = new Record[count];
+        for (int i = 0; i < count; i++) {
+            records[i] = new Record(bins(i, optionalBins, random), 1 + random.nextInt(10), 0);
+        }
+        return records;
+    }
+
+    /**
+     * Loads {@code count} records straight into the stand-in server's store, one at a time so
+     * millions of them never have to exist as client objects at once.
+     */
+    static void load(StandInAerospikeServer server, int count, int optionalBins) {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < count; i++) {
+            server.put(new Key(NAMESPACE, SET, "user-" + i), bins(i, optionalBins, random));
+        }
+    }
+
+    private static Map<String, Object> bins(long id, int optionalBins, SplittableRandom random) {
+        Map<String, Object> bins = new LinkedHashMap<>();
+        bins.put("id", id);
+        bins.put("name", "user " + Long.toHexString(random.nextLong()));
+        bins.put("age", (long) random.nextInt(18, 90));
+        bins.put("score", random.nextDouble() * 1000);
+        bins.put("city", CITIES[random.nextInt(CITIES.length)]);
+        bins.put("active", random.nextBoolean());
+        List<Object> tags = new ArrayList<>();
+        for (int t = random.nextInt(4); t >= 0; t--) {
+            tags.add("tag" + random.nextInt(50));
+        }
+        bins.put("tags", tags);
+        Map<Object, Object> attributes = new LinkedHashMap<>();
+        attributes.put("plan", random.nextBoolean() ? "free" : "pro");
+        attributes.put("logins", (long) random.nextInt(10_000));
+        bins.put("attributes", attributes);
+        if (optionalBins > 0) {
+            for (int o = 0; o < 2; o++) {
+                bins.put("extra_" + random.nextInt(optionalBins), random.nextLong());
+            }
+        }
+        return bins;
+    }
+
+    /**
+     * The records as table rows, the same shape the result table shows.
+     */
+    static List<Map<String, Object>> rows(Key[] keys, Record[] records) {
+        List<Map<String, Object>> rows = new ArrayList<>(records.length);
+        for (int i = 0; i < records.length; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put(ResultSchema.KEY, keys[i].userKey.toString());
+            row.put(ResultSchema.NAMESPACE, keys[i].namespace);
+            row.put(ResultSchema.SET, keys[i].setName);
+            row.put(ResultSchema.GENERATION, records[i].generation);
+            row.putAll(records[i].bins);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    static PagedResultStore store(Key[] keys, Record[] records) {
+        PagedResultStore store = new PagedResultStore();
+        for (int i = 0; i < records.length; i++) {
+            store.appendRecord(keys[i], records[i]);
+        }
+        return store;
+    }
+}
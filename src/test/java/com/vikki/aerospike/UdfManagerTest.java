@@ -0,0 +1,117 @@
+package com.vikki.aerospike;
+
+import com.aerospike.client.AerospikeClient;
+import com.aerospike.client.AerospikeException;
+import com.aerospike.client.Info;
+import com.aerospike.client.Language;
+import com.aerospike.client.policy.ClientPolicy;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Registers and fetches UDF modules through the {@code udf-put}, {@code udf-list} and
+ * {@code udf-get} info commands of a {@link StandInAerospikeServer}.
+ */
+class UdfManagerTest {
+
+    private static final FileTime LONG_AGO = FileTime.fromMillis(0);
+
+    private static StandInAerospikeServer server;
+    private static AerospikeClient client;
+
+    @TempDir
+    Path moduleDirectory;
+
+    @BeforeAll
+    static void startServer() throws IOException {
+        server = new StandInAerospikeServer(0, "test").start();
+        client = new AerospikeClient(new ClientPolicy(), StandInAerospikeServer.HOST, server.getPort());
+    }
+
+    @AfterAll
+    static void stopServer() {
+        client.close();
+        server.close();
+    }
+
+    private static String udfList() {
+        return Info.request(null, client.getNodes()[0], "udf-list");
+    }
+
+    // Registers a module the way another tool would, leaving no local copy here
+    private static void registerElsewhere(String module, String code) {
+        client.registerUdfString(null, code, module + ".lua", Language.LUA).waitTillComplete();
+    }
+
+    @Test
+    void registerStoresTheModuleOnTheServerAndLocally() throws IOException {
+        Path source = Files.writeString(moduleDirectory.resolve("source.lua"), "function one(s) return 1 end\n");
+        Path copies = moduleDirectory.resolve("modules");
+        UdfManager manager = new UdfManager(client, copies);
+
+        assertEquals("source", manager.register(source));
+        assertTrue(udfList().contains("filename=source.lua"), udfList());
+        assertEquals("function one(s) return 1 end\n", Files.readString(copies.resolve("source.lua")));
+
+        assertThrows(IOException.class, () -> manager.register(Files.writeString(moduleDirectory.resolve("notes.txt"), "")));
+    }
+
+    @Test
+    void builtinModuleIsRegisteredOnceAndThenLeftAlone() throws IOException {
+        UdfManager manager = new UdfManager(client, moduleDirectory);
+        manager.ensureAvailable(UdfManager.BUILTIN_MODULE);
+        assertTrue(udfList().contains("filename=" + UdfManager.BUILTIN_MODULE + ".lua"), udfList());
+
+        // The udf-list hash matches the local copy, so nothing is written again
+        Path local = moduleDirectory.resolve(UdfManager.BUILTIN_MODULE + ".lua");
+        Files.setLastModifiedTime(local, LONG_AGO);
+        manager.ensureAvailable(UdfManager.BUILTIN_MODULE);
+        new UdfManager(client, moduleDirectory).ensureAvailable(UdfManager.BUILTIN_MODULE);
+        assertEquals(LONG_AGO, Files.getLastModifiedTime(local));
+    }
+
+    @Test
+    void modulesMissingLocallyAreFetched() throws IOException {
+        registerElsewhere("shared", "function two(s) return 2 end\n");
+        UdfManager manager = new UdfManager(client, moduleDirectory);
+        Path local = moduleDirectory.resolve("shared.lua");
+        assertFalse(Files.exists(local));
+
+        manager.ensureAvailable("shared");
+        assertEquals("function two(s) return 2 end\n", Files.readString(local));
+
+        Files.setLastModifiedTime(local, LONG_AGO);
+        manager.ensureAvailable("shared");
+        assertEquals(LONG_AGO, Files.getLastModifiedTime(local));
+    }
+
+    @Test
+    void modulesRegisteredAgainElsewhereReplaceTheLocalCopy() throws IOException {
+        registerElsewhere("changing", "function v() return 1 end\n");
+        UdfManager manager = new UdfManager(client, moduleDirectory);
+        manager.ensureAvailable("changing");
+
+        registerElsewhere("changing", "function v() return 2 end\n");
+        manager.ensureAvailable("changing");
+        assertEquals("function v() return 2 end\n", Files.readString(moduleDirectory.resolve("changing.lua")));
+    }
+
+    @Test
+    void unknownModulesAreReported() {
+        UdfManager manager = new UdfManager(client, moduleDirectory);
+        AerospikeException error = assertThrows(AerospikeException.class, () -> manager.ensureAvailable("missing"));
+        assertTrue(error.getMessage().contains("not registered"), error.getMessage());
+    }
+}